@@ -35,14 +35,48 @@ export interface AgendamentoResponse {
   dataCancelamento?: string;
   createdAt?: string;
   updatedAt?: string;
+  versao?: number;
 }
 
 export interface VagaDisponivelResponse {
   profissionalId: number;
   profissionalNome: string;
   especialidade: string;
-  unidadeId: number;
-  unidadeNome: string;
-  data: string;
-  horarios: string[];
+  unidadeSaudeId: number;
+  unidadeSaudeNome: string;
+  unidadeSaudeEndereco: string;
+  data: string; // YYYY-MM-DD
+  horario: string; // HH:mm:ss
+  vagasDisponiveis: number;
+}
+
+export interface PaginaVagasResponse {
+  vagas: VagaDisponivelResponse[];
+  proximoCursor?: string;
+  temMais: boolean;
+}
+
+export interface ReservaVagaRequest {
+  pacienteId: number;
+  profissionalId: number;
+  dataAgendamento: string; // YYYY-MM-DD
+  horaAgendamento: string; // HH:mm
+}
+
+export interface ReservaVagaResponse {
+  id: number;
+  pacienteId: number;
+  profissionalId: number;
+  profissionalNome: string;
+  especialidade: string;
+  unidadeSaudeId: number;
+  unidadeSaudeNome: string;
+  dataAgendamento: string;
+  horaAgendamento: string;
+  expiraEm: string;
+}
+
+export interface ConfirmarReservaRequest {
+  tipoAtendimento: string;
+  observacoes?: string;
 }
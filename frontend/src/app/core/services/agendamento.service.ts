@@ -1,6 +1,15 @@
-import { HttpClient, HttpParams } from '@angular/common/http';
+import { HttpClient, HttpErrorResponse, HttpHeaders, HttpParams } from '@angular/common/http';
 import { Injectable } from '@angular/core';
-import { AgendamentoRequest, AgendamentoResponse, VagaDisponivelResponse } from '../models/agendamento.model';
+import { EMPTY, expand, retry, throwError, timer } from 'rxjs';
+import {
+  AgendamentoRequest,
+  AgendamentoResponse,
+  ConfirmarReservaRequest,
+  PaginaVagasResponse,
+  ReservaVagaRequest,
+  ReservaVagaResponse,
+  VagaDisponivelResponse
+} from '../models/agendamento.model';
 import { environment } from '../../../environments/environment';
 
 @Injectable({ providedIn: 'root' })
@@ -14,8 +23,19 @@ export class AgendamentoService {
     return this.http.get<AgendamentoResponse[]>(this.base);
   }
 
-  create(request: AgendamentoRequest) {
-    return this.http.post<AgendamentoResponse>(this.base, request);
+  /**
+   * Cria o agendamento com uma Idempotency-Key gerada por chamada: as novas tentativas após falha
+   * de conexão reenviam a mesma chave e recebem a resposta do primeiro agendamento.
+   */
+  create(request: AgendamentoRequest, idempotencyKey: string = crypto.randomUUID()) {
+    const headers = new HttpHeaders({ 'Idempotency-Key': idempotencyKey });
+    return this.http.post<AgendamentoResponse>(this.base, request, { headers }).pipe(
+      retry({
+        count: 2,
+        delay: (erro: HttpErrorResponse, tentativa: number) =>
+          erro.status === 0 ? timer(tentativa * 1000) : throwError(() => erro)
+      })
+    );
   }
 
   get(id: number) {
@@ -31,40 +51,129 @@ export class AgendamentoService {
   buscarVagasDisponiveis(
     especialidade: string,
     dataInicio: string,
-    dataFim: string
+    dataFim: string,
+    unidadeSaudeId?: number
   ) {
     let params = new HttpParams()
       .set('especialidade', especialidade)
       .set('dataInicio', dataInicio)
       .set('dataFim', dataFim);
 
+    if (unidadeSaudeId != null) {
+      params = params.set('unidadeSaudeId', unidadeSaudeId);
+    }
+
     return this.http.get<VagaDisponivelResponse[]>(
       `${this.base}/vagas-disponiveis`,
       { params }
     );
   }
 
-  confirmar(id: number) {
-    return this.http.patch(`${this.base}/${id}/confirmar`, {});
+  buscarPaginaVagas(
+    especialidade: string,
+    dataInicio: string,
+    dataFim: string,
+    cursor?: string,
+    tamanho = 100
+  ) {
+    let params = new HttpParams()
+      .set('especialidade', especialidade)
+      .set('dataInicio', dataInicio)
+      .set('dataFim', dataFim)
+      .set('tamanho', tamanho);
+
+    if (cursor) {
+      params = params.set('cursor', cursor);
+    }
+
+    return this.http.get<PaginaVagasResponse>(
+      `${this.base}/vagas-disponiveis/pagina`,
+      { params }
+    );
+  }
+
+  /** Emite as páginas em sequência, pedindo a próxima só depois de receber a anterior. */
+  paginarVagas(
+    especialidade: string,
+    dataInicio: string,
+    dataFim: string,
+    tamanho = 100
+  ) {
+    return this.buscarPaginaVagas(especialidade, dataInicio, dataFim, undefined, tamanho).pipe(
+      expand(pagina =>
+        pagina.temMais && pagina.proximoCursor
+          ? this.buscarPaginaVagas(especialidade, dataInicio, dataFim, pagina.proximoCursor, tamanho)
+          : EMPTY
+      )
+    );
+  }
+
+  buscarProximasVagas(
+    especialidade: string,
+    quantidade = 10,
+    filtro: { unidadeSaudeId?: number; cidade?: string } = {}
+  ) {
+    let params = new HttpParams()
+      .set('especialidade', especialidade)
+      .set('quantidade', quantidade);
+
+    if (filtro.unidadeSaudeId) {
+      params = params.set('unidadeSaudeId', filtro.unidadeSaudeId);
+    }
+    if (filtro.cidade) {
+      params = params.set('cidade', filtro.cidade);
+    }
+
+    return this.http.get<VagaDisponivelResponse[]>(
+      `${this.base}/proximas-vagas`,
+      { params }
+    );
+  }
+
+  reservarHorario(payload: ReservaVagaRequest) {
+    return this.http.post<ReservaVagaResponse>(`${this.base}/reservas`, payload);
+  }
+
+  confirmarReserva(reservaId: number, payload: ConfirmarReservaRequest) {
+    return this.http.post<AgendamentoResponse>(
+      `${this.base}/reservas/${reservaId}/confirmar`,
+      payload
+    );
+  }
+
+  cancelarReserva(reservaId: number) {
+    return this.http.delete<void>(`${this.base}/reservas/${reservaId}`);
+  }
+
+  confirmar(id: number, versao?: number) {
+    return this.http.patch(`${this.base}/${id}/confirmar`, {}, { headers: this.ifMatch(versao) });
+  }
+
+  registrarChegada(id: number, versao?: number) {
+    return this.http.patch(`${this.base}/${id}/registrar-chegada`, {}, { headers: this.ifMatch(versao) });
   }
 
-  registrarChegada(id: number) {
-    return this.http.patch(`${this.base}/${id}/registrar-chegada`, {});
+  iniciarAtendimento(id: number, versao?: number) {
+    return this.http.patch(`${this.base}/${id}/iniciar-atendimento`, {}, { headers: this.ifMatch(versao) });
   }
 
-  iniciarAtendimento(id: number) {
-    return this.http.patch(`${this.base}/${id}/iniciar-atendimento`, {});
+  concluir(id: number, versao?: number) {
+    return this.http.patch(`${this.base}/${id}/concluir`, {}, { headers: this.ifMatch(versao) });
   }
 
-  concluir(id: number) {
-    return this.http.patch(`${this.base}/${id}/concluir`, {});
+  naoCompareceu(id: number, versao?: number) {
+    return this.http.patch(`${this.base}/${id}/nao-compareceu`, {}, { headers: this.ifMatch(versao) });
   }
 
-  naoCompareceu(id: number) {
-    return this.http.patch(`${this.base}/${id}/nao-compareceu`, {});
+  cancelar(id: number, body: any, versao?: number) {
+    return this.http.patch(`${this.base}/${id}/cancelar`, body, { headers: this.ifMatch(versao) });
   }
 
-  cancelar(id: number, body: any) {
-    return this.http.patch(`${this.base}/${id}/cancelar`, body);
+  /**
+   * Envia a versão exibida na tela: se outro terminal alterou o agendamento nesse meio tempo,
+   * a API responde 412 em vez de aplicar a mudança sobre um estado que o usuário não viu.
+   */
+  private ifMatch(versao?: number) {
+    return versao == null ? new HttpHeaders() : new HttpHeaders({ 'If-Match': `"${versao}"` });
   }
 }
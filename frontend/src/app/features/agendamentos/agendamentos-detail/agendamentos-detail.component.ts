@@ -49,7 +49,7 @@ export class AgendamentosDetailComponent implements OnInit {
     if (!this.agendamento) return;
 
     this.limparMensagens();
-    this.service.confirmar(this.agendamento.id).subscribe({
+    this.service.confirmar(this.agendamento.id, this.agendamento.versao).subscribe({
       next: () => {
         this.successMessage = 'Agendamento confirmado com sucesso!';
         this.carregarAgendamento(this.agendamento!.id);
@@ -65,7 +65,7 @@ export class AgendamentosDetailComponent implements OnInit {
     if (!this.agendamento) return;
 
     this.limparMensagens();
-    this.service.registrarChegada(this.agendamento.id).subscribe({
+    this.service.registrarChegada(this.agendamento.id, this.agendamento.versao).subscribe({
       next: () => {
         this.successMessage = 'Chegada registrada com sucesso!';
         this.carregarAgendamento(this.agendamento!.id);
@@ -81,7 +81,7 @@ export class AgendamentosDetailComponent implements OnInit {
     if (!this.agendamento) return;
 
     this.limparMensagens();
-    this.service.iniciarAtendimento(this.agendamento.id).subscribe({
+    this.service.iniciarAtendimento(this.agendamento.id, this.agendamento.versao).subscribe({
       next: () => {
         this.successMessage = 'Atendimento iniciado com sucesso!';
         this.carregarAgendamento(this.agendamento!.id);
@@ -97,7 +97,7 @@ export class AgendamentosDetailComponent implements OnInit {
     if (!this.agendamento) return;
 
     this.limparMensagens();
-    this.service.concluir(this.agendamento.id).subscribe({
+    this.service.concluir(this.agendamento.id, this.agendamento.versao).subscribe({
       next: () => {
         this.successMessage = 'Atendimento concluído com sucesso!';
         this.carregarAgendamento(this.agendamento!.id);
@@ -121,7 +121,7 @@ export class AgendamentosDetailComponent implements OnInit {
     }
 
     this.limparMensagens();
-    this.service.cancelar(this.agendamento.id, { motivo: this.motivoCancelamento }).subscribe({
+    this.service.cancelar(this.agendamento.id, { motivo: this.motivoCancelamento }, this.agendamento.versao).subscribe({
       next: () => {
         this.successMessage = 'Agendamento cancelado com sucesso!';
         this.mostrarFormCancelamento = false;
@@ -143,7 +143,7 @@ export class AgendamentosDetailComponent implements OnInit {
     }
 
     this.limparMensagens();
-    this.service.naoCompareceu(this.agendamento.id).subscribe({
+    this.service.naoCompareceu(this.agendamento.id, this.agendamento.versao).subscribe({
       next: () => {
         this.successMessage = 'Marcado como "Não Compareceu" com sucesso!';
         this.carregarAgendamento(this.agendamento!.id);
@@ -1,11 +1,24 @@
 package br.com.susagenda.controller;
 
 import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.dto.request.AgendamentoLoteRequest;
 import br.com.susagenda.dto.request.AgendamentoRequest;
 import br.com.susagenda.dto.request.CancelarAgendamentoRequest;
+import br.com.susagenda.dto.request.ConfirmarReservaRequest;
+import br.com.susagenda.dto.request.ReservaVagaRequest;
+import br.com.susagenda.dto.request.TransicaoLoteRequest;
+import br.com.susagenda.dto.response.AgendamentoLoteResponse;
 import br.com.susagenda.dto.response.AgendamentoResponse;
+import br.com.susagenda.dto.response.PaginaVagasResponse;
+import br.com.susagenda.dto.response.ReservaVagaResponse;
+import br.com.susagenda.dto.response.TransicaoLoteResponse;
 import br.com.susagenda.dto.response.VagaDisponivelResponse;
+import br.com.susagenda.exception.VersaoDesatualizadaException;
+import br.com.susagenda.service.AgendamentoLoteService;
 import br.com.susagenda.service.AgendamentoService;
+import br.com.susagenda.service.IdempotenciaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,10 +27,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -27,7 +45,14 @@ import java.util.List;
 @Tag(name = "Agendamentos", description = "Gerenciamento de agendamentos de consultas e exames")
 public class AgendamentoController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENCY_REPLAYED = "Idempotency-Replayed";
+
     private final AgendamentoService agendamentoService;
+    private final AgendamentoLoteService agendamentoLoteService;
+    private final IdempotenciaService idempotenciaService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     @Operation(summary = "Listar todos os agendamentos", description = "Retorna todos os agendamentos cadastrados no sistema")
@@ -38,18 +63,112 @@ public class AgendamentoController {
     }
 
     @PostMapping
-    @Operation(summary = "Criar agendamento", description = "Realiza um novo agendamento de consulta ou exame")
+    @Operation(summary = "Criar agendamento", description = "Realiza um novo agendamento de consulta ou exame. Com o cabeçalho Idempotency-Key, repetições da mesma requisição recebem a resposta do primeiro agendamento em vez de criar outro")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Agendamento criado com sucesso"),
+            @ApiResponse(responseCode = "201", description = "Agendamento criado com sucesso (ou resposta repetida, com Idempotency-Replayed: true)"),
+            @ApiResponse(responseCode = "400", description = "Dados inválidos"),
+            @ApiResponse(responseCode = "404", description = "Paciente ou profissional não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Horário não disponível ou requisição com a mesma Idempotency-Key em andamento"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key inválida ou já usada com outra requisição")
+    })
+    public ResponseEntity<AgendamentoResponse> criar(
+            @Parameter(description = "Chave única gerada pelo cliente para tornar as repetições seguras (até 100 caracteres)")
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody AgendamentoRequest request) {
+        if (idempotencyKey == null) {
+            AgendamentoResponse response = agendamentoService.criar(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+
+        IdempotenciaService.Resultado<AgendamentoResponse> resultado = idempotenciaService.executar(
+                "agendamentos", idempotencyKey, request, HttpStatus.CREATED.value(), AgendamentoResponse.class,
+                () -> agendamentoService.criar(request));
+        return ResponseEntity.status(resultado.statusHttp())
+                .header(IDEMPOTENCY_REPLAYED, String.valueOf(resultado.repetida()))
+                .body(resultado.resposta());
+    }
+
+    @PostMapping("/lote")
+    @Operation(summary = "Criar agendamentos em lote", description = "Realiza até 5000 agendamentos de uma vez (mutirões e campanhas). Cada item recebe o próprio resultado; itens recusados não impedem os demais")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote processado; consulte o resultado de cada item"),
+            @ApiResponse(responseCode = "400", description = "Dados inválidos")
+    })
+    public ResponseEntity<AgendamentoLoteResponse> criarEmLote(@Valid @RequestBody AgendamentoLoteRequest request) {
+        AgendamentoLoteResponse response = agendamentoLoteService.criarEmLote(request.getAgendamentos());
+        return ResponseEntity.ok(response);
+    }
+
+    @PatchMapping("/lote/confirmar")
+    @Operation(summary = "Confirmar agendamentos em lote", description = "Confirma os agendamentos 'AGENDADO' da lista de IDs ou, sem IDs, de uma unidade de saúde em uma data. Os demais IDs são devolvidos como recusados")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote processado"),
+            @ApiResponse(responseCode = "422", description = "Nem IDs nem unidade e data informados")
+    })
+    public ResponseEntity<TransicaoLoteResponse> confirmarEmLote(@Valid @RequestBody TransicaoLoteRequest request) {
+        return ResponseEntity.ok(agendamentoLoteService.confirmarEmLote(request));
+    }
+
+    @PatchMapping("/lote/nao-compareceu")
+    @Operation(summary = "Marcar não comparecimento em lote", description = "Marca como não compareceu os agendamentos 'AGENDADO' ou 'CONFIRMADO' da lista de IDs ou, sem IDs, de uma unidade de saúde em uma data, liberando as vagas")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote processado"),
+            @ApiResponse(responseCode = "422", description = "Nem IDs nem unidade e data informados")
+    })
+    public ResponseEntity<TransicaoLoteResponse> marcarNaoCompareceuEmLote(@Valid @RequestBody TransicaoLoteRequest request) {
+        return ResponseEntity.ok(agendamentoLoteService.marcarNaoCompareceuEmLote(request));
+    }
+
+    @PatchMapping("/lote/cancelar")
+    @Operation(summary = "Cancelar agendamentos em lote", description = "Cancela os agendamentos não concluídos nem cancelados da lista de IDs ou, sem IDs, de uma unidade de saúde em uma data, liberando as vagas. O motivo é obrigatório")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote processado"),
+            @ApiResponse(responseCode = "400", description = "Dados inválidos"),
+            @ApiResponse(responseCode = "422", description = "Motivo ausente ou nem IDs nem unidade e data informados")
+    })
+    public ResponseEntity<TransicaoLoteResponse> cancelarEmLote(@Valid @RequestBody TransicaoLoteRequest request) {
+        return ResponseEntity.ok(agendamentoLoteService.cancelarEmLote(request));
+    }
+
+    @PostMapping("/reservas")
+    @Operation(summary = "Reservar horário", description = "Segura a vaga para o paciente por alguns minutos enquanto o agendamento é preenchido. Uma nova reserva do mesmo paciente substitui a anterior")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Vaga reservada com sucesso"),
             @ApiResponse(responseCode = "400", description = "Dados inválidos"),
             @ApiResponse(responseCode = "404", description = "Paciente ou profissional não encontrado"),
             @ApiResponse(responseCode = "409", description = "Horário não disponível")
     })
-    public ResponseEntity<AgendamentoResponse> criar(@Valid @RequestBody AgendamentoRequest request) {
-        AgendamentoResponse response = agendamentoService.criar(request);
+    public ResponseEntity<ReservaVagaResponse> reservarHorario(@Valid @RequestBody ReservaVagaRequest request) {
+        ReservaVagaResponse response = agendamentoService.reservarHorario(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/reservas/{reservaId}/confirmar")
+    @Operation(summary = "Confirmar reserva", description = "Transforma a reserva de vaga em agendamento")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Agendamento criado com sucesso"),
+            @ApiResponse(responseCode = "404", description = "Reserva não encontrada"),
+            @ApiResponse(responseCode = "422", description = "Reserva expirada")
+    })
+    public ResponseEntity<AgendamentoResponse> confirmarReserva(
+            @Parameter(description = "ID da reserva") @PathVariable Long reservaId,
+            @Valid @RequestBody ConfirmarReservaRequest request) {
+        AgendamentoResponse response = agendamentoService.confirmarReserva(reservaId, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @DeleteMapping("/reservas/{reservaId}")
+    @Operation(summary = "Cancelar reserva", description = "Devolve a vaga reservada antes do prazo")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Reserva cancelada com sucesso"),
+            @ApiResponse(responseCode = "404", description = "Reserva não encontrada")
+    })
+    public ResponseEntity<Void> cancelarReserva(
+            @Parameter(description = "ID da reserva") @PathVariable Long reservaId) {
+        agendamentoService.cancelarReserva(reservaId);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Buscar agendamento por ID", description = "Retorna os dados de um agendamento pelo ID")
     @ApiResponses(value = {
@@ -59,7 +178,7 @@ public class AgendamentoController {
     public ResponseEntity<AgendamentoResponse> buscarPorId(
             @Parameter(description = "ID do agendamento") @PathVariable Long id) {
         AgendamentoResponse response = agendamentoService.buscarPorIdResponse(id);
-        return ResponseEntity.ok(response);
+        return comVersao(response);
     }
 
     @GetMapping("/paciente/{pacienteId}")
@@ -101,92 +220,192 @@ public class AgendamentoController {
     }
 
     @GetMapping("/vagas-disponiveis")
-    @Operation(summary = "Buscar vagas disponíveis", description = "Retorna as vagas disponíveis para agendamento por especialidade e período")
+    @Operation(summary = "Buscar vagas disponíveis", description = "Retorna as vagas disponíveis para agendamento por especialidade e período, opcionalmente filtradas por unidade de saúde")
     @ApiResponse(responseCode = "200", description = "Lista de vagas disponíveis retornada com sucesso")
     public ResponseEntity<List<VagaDisponivelResponse>> buscarVagasDisponiveis(
+            @Parameter(description = "Especialidade médica") @RequestParam Especialidade especialidade,
+            @Parameter(description = "Data inicial (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @Parameter(description = "Data final (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @Parameter(description = "ID da unidade de saúde") @RequestParam(required = false) Long unidadeSaudeId) {
+        List<VagaDisponivelResponse> vagas = agendamentoService.buscarVagasDisponiveis(especialidade, unidadeSaudeId, dataInicio, dataFim);
+        return ResponseEntity.ok(vagas);
+    }
+
+    @GetMapping("/vagas-disponiveis/pagina")
+    @Operation(summary = "Buscar vagas disponíveis paginadas", description = "Retorna uma página de vagas em ordem cronológica (data, hora e profissional). Para a próxima página, envie o proximoCursor da resposta")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de vagas retornada com sucesso"),
+            @ApiResponse(responseCode = "422", description = "Cursor inválido ou tamanho fora do intervalo permitido")
+    })
+    public ResponseEntity<PaginaVagasResponse> buscarPaginaVagas(
+            @Parameter(description = "Especialidade médica") @RequestParam Especialidade especialidade,
+            @Parameter(description = "Data inicial (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @Parameter(description = "Data final (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @Parameter(description = "Cursor retornado pela página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade de vagas por página (1 a 500)") @RequestParam(defaultValue = "100") int tamanho) {
+        PaginaVagasResponse pagina = agendamentoService.buscarPaginaVagas(especialidade, dataInicio, dataFim, cursor, tamanho);
+        return ResponseEntity.ok(pagina);
+    }
+
+    @GetMapping(value = "/vagas-disponiveis/stream", produces = NDJSON)
+    @Operation(summary = "Transmitir vagas disponíveis", description = "Retorna as vagas do período em ordem cronológica como NDJSON (uma vaga por linha), enviadas à medida que são produzidas")
+    @ApiResponse(responseCode = "200", description = "Vagas transmitidas com sucesso")
+    public ResponseEntity<StreamingResponseBody> transmitirVagasDisponiveis(
             @Parameter(description = "Especialidade médica") @RequestParam Especialidade especialidade,
             @Parameter(description = "Data inicial (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
             @Parameter(description = "Data final (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim) {
-        List<VagaDisponivelResponse> vagas = agendamentoService.buscarVagasDisponiveis(especialidade, dataInicio, dataFim);
+        ObjectWriter writer = objectMapper.writerFor(VagaDisponivelResponse.class);
+        StreamingResponseBody corpo = saida -> agendamentoService.percorrerVagasDisponiveis(especialidade, dataInicio, dataFim, lote -> {
+            try {
+                for (VagaDisponivelResponse vaga : lote) {
+                    saida.write(writer.writeValueAsBytes(vaga));
+                    saida.write('\n');
+                }
+                saida.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(corpo);
+    }
+
+    @GetMapping("/proximas-vagas")
+    @Operation(summary = "Buscar próximas vagas", description = "Retorna as primeiras vagas livres a partir de agora para a especialidade, em ordem cronológica, opcionalmente filtradas por unidade de saúde ou cidade")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lista de vagas retornada com sucesso"),
+            @ApiResponse(responseCode = "422", description = "Quantidade fora do intervalo permitido")
+    })
+    public ResponseEntity<List<VagaDisponivelResponse>> buscarProximasVagas(
+            @Parameter(description = "Especialidade médica") @RequestParam Especialidade especialidade,
+            @Parameter(description = "Quantidade de vagas (1 a 50)") @RequestParam(defaultValue = "10") int quantidade,
+            @Parameter(description = "ID da unidade de saúde") @RequestParam(required = false) Long unidadeSaudeId,
+            @Parameter(description = "Cidade da unidade de saúde") @RequestParam(required = false) String cidade) {
+        List<VagaDisponivelResponse> vagas = agendamentoService.buscarProximasVagas(especialidade, unidadeSaudeId, cidade, quantidade);
         return ResponseEntity.ok(vagas);
     }
 
     @PatchMapping("/{id}/confirmar")
-    @Operation(summary = "Confirmar agendamento", description = "Confirma um agendamento (paciente confirmou presença)")
+    @Operation(summary = "Confirmar agendamento", description = "Confirma um agendamento (paciente confirmou presença). Aceita If-Match com a versão (ETag) exibida ao usuário")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Agendamento confirmado com sucesso"),
             @ApiResponse(responseCode = "404", description = "Agendamento não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Agendamento alterado ao mesmo tempo por outra operação"),
+            @ApiResponse(responseCode = "412", description = "Versão informada em If-Match desatualizada"),
             @ApiResponse(responseCode = "422", description = "Agendamento não pode ser confirmado neste status")
     })
     public ResponseEntity<AgendamentoResponse> confirmar(
-            @Parameter(description = "ID do agendamento") @PathVariable Long id) {
-        AgendamentoResponse response = agendamentoService.confirmar(id);
-        return ResponseEntity.ok(response);
+            @Parameter(description = "ID do agendamento") @PathVariable Long id,
+            @Parameter(description = "Versão do agendamento (ETag) sobre a qual a mudança foi decidida")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        AgendamentoResponse response = agendamentoService.confirmar(id, versaoEsperada(ifMatch));
+        return comVersao(response);
     }
 
     @PatchMapping("/{id}/registrar-chegada")
-    @Operation(summary = "Registrar chegada", description = "Registra a chegada do paciente na unidade de saúde")
+    @Operation(summary = "Registrar chegada", description = "Registra a chegada do paciente na unidade de saúde. Aceita If-Match com a versão (ETag) exibida ao usuário")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Chegada registrada com sucesso"),
             @ApiResponse(responseCode = "404", description = "Agendamento não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Agendamento alterado ao mesmo tempo por outra operação"),
+            @ApiResponse(responseCode = "412", description = "Versão informada em If-Match desatualizada"),
             @ApiResponse(responseCode = "422", description = "Não é possível registrar chegada neste status")
     })
     public ResponseEntity<AgendamentoResponse> registrarChegada(
-            @Parameter(description = "ID do agendamento") @PathVariable Long id) {
-        AgendamentoResponse response = agendamentoService.registrarChegada(id);
-        return ResponseEntity.ok(response);
+            @Parameter(description = "ID do agendamento") @PathVariable Long id,
+            @Parameter(description = "Versão do agendamento (ETag) sobre a qual a mudança foi decidida")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        AgendamentoResponse response = agendamentoService.registrarChegada(id, versaoEsperada(ifMatch));
+        return comVersao(response);
     }
 
     @PatchMapping("/{id}/iniciar-atendimento")
-    @Operation(summary = "Iniciar atendimento", description = "Marca o início do atendimento pelo profissional")
+    @Operation(summary = "Iniciar atendimento", description = "Marca o início do atendimento pelo profissional. Aceita If-Match com a versão (ETag) exibida ao usuário")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Atendimento iniciado com sucesso"),
             @ApiResponse(responseCode = "404", description = "Agendamento não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Agendamento alterado ao mesmo tempo por outra operação"),
+            @ApiResponse(responseCode = "412", description = "Versão informada em If-Match desatualizada"),
             @ApiResponse(responseCode = "422", description = "É necessário registrar a chegada primeiro")
     })
     public ResponseEntity<AgendamentoResponse> iniciarAtendimento(
-            @Parameter(description = "ID do agendamento") @PathVariable Long id) {
-        AgendamentoResponse response = agendamentoService.iniciarAtendimento(id);
-        return ResponseEntity.ok(response);
+            @Parameter(description = "ID do agendamento") @PathVariable Long id,
+            @Parameter(description = "Versão do agendamento (ETag) sobre a qual a mudança foi decidida")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        AgendamentoResponse response = agendamentoService.iniciarAtendimento(id, versaoEsperada(ifMatch));
+        return comVersao(response);
     }
 
     @PatchMapping("/{id}/concluir")
-    @Operation(summary = "Concluir atendimento", description = "Marca o atendimento como concluído")
+    @Operation(summary = "Concluir atendimento", description = "Marca o atendimento como concluído. Aceita If-Match com a versão (ETag) exibida ao usuário")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Atendimento concluído com sucesso"),
             @ApiResponse(responseCode = "404", description = "Agendamento não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Agendamento alterado ao mesmo tempo por outra operação"),
+            @ApiResponse(responseCode = "412", description = "Versão informada em If-Match desatualizada"),
             @ApiResponse(responseCode = "422", description = "Apenas atendimentos em andamento podem ser concluídos")
     })
     public ResponseEntity<AgendamentoResponse> concluirAtendimento(
-            @Parameter(description = "ID do agendamento") @PathVariable Long id) {
-        AgendamentoResponse response = agendamentoService.concluirAtendimento(id);
-        return ResponseEntity.ok(response);
+            @Parameter(description = "ID do agendamento") @PathVariable Long id,
+            @Parameter(description = "Versão do agendamento (ETag) sobre a qual a mudança foi decidida")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        AgendamentoResponse response = agendamentoService.concluirAtendimento(id, versaoEsperada(ifMatch));
+        return comVersao(response);
     }
 
     @PatchMapping("/{id}/cancelar")
-    @Operation(summary = "Cancelar agendamento", description = "Cancela um agendamento")
+    @Operation(summary = "Cancelar agendamento", description = "Cancela um agendamento. Aceita If-Match com a versão (ETag) exibida ao usuário")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Agendamento cancelado com sucesso"),
             @ApiResponse(responseCode = "404", description = "Agendamento não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Agendamento alterado ao mesmo tempo por outra operação"),
+            @ApiResponse(responseCode = "412", description = "Versão informada em If-Match desatualizada"),
             @ApiResponse(responseCode = "422", description = "Não é possível cancelar agendamentos já concluídos")
     })
     public ResponseEntity<AgendamentoResponse> cancelar(
             @Parameter(description = "ID do agendamento") @PathVariable Long id,
-            @Valid @RequestBody CancelarAgendamentoRequest request) {
-        AgendamentoResponse response = agendamentoService.cancelar(id, request);
-        return ResponseEntity.ok(response);
+            @Valid @RequestBody CancelarAgendamentoRequest request,
+            @Parameter(description = "Versão do agendamento (ETag) sobre a qual a mudança foi decidida")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        AgendamentoResponse response = agendamentoService.cancelar(id, request, versaoEsperada(ifMatch));
+        return comVersao(response);
     }
 
     @PatchMapping("/{id}/nao-compareceu")
-    @Operation(summary = "Marcar não comparecimento", description = "Marca que o paciente não compareceu ao agendamento")
+    @Operation(summary = "Marcar não comparecimento", description = "Marca que o paciente não compareceu ao agendamento. Aceita If-Match com a versão (ETag) exibida ao usuário")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Não comparecimento registrado com sucesso"),
             @ApiResponse(responseCode = "404", description = "Agendamento não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Agendamento alterado ao mesmo tempo por outra operação"),
+            @ApiResponse(responseCode = "412", description = "Versão informada em If-Match desatualizada"),
             @ApiResponse(responseCode = "422", description = "Apenas agendamentos agendados ou confirmados podem ser marcados")
     })
     public ResponseEntity<AgendamentoResponse> marcarNaoCompareceu(
-            @Parameter(description = "ID do agendamento") @PathVariable Long id) {
-        AgendamentoResponse response = agendamentoService.marcarNaoCompareceu(id);
-        return ResponseEntity.ok(response);
+            @Parameter(description = "ID do agendamento") @PathVariable Long id,
+            @Parameter(description = "Versão do agendamento (ETag) sobre a qual a mudança foi decidida")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        AgendamentoResponse response = agendamentoService.marcarNaoCompareceu(id, versaoEsperada(ifMatch));
+        return comVersao(response);
+    }
+
+    private static ResponseEntity<AgendamentoResponse> comVersao(AgendamentoResponse response) {
+        return ResponseEntity.ok().eTag(String.valueOf(response.getVersao())).body(response);
+    }
+
+    /**
+     * Versão do If-Match ({@code "3"}, {@code W/"3"} ou {@code 3}); ausente ou {@code *} aceita qualquer versão.
+     */
+    private static Long versaoEsperada(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        try {
+            return Long.valueOf(valor.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new VersaoDesatualizadaException("O cabeçalho If-Match não corresponde a nenhuma versão do agendamento");
+        }
     }
 }
@@ -12,8 +12,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -58,6 +60,17 @@ public class ListaEsperaController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping(value = "/{id}/posicao", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Acompanhar posição na fila", description = "Abre um fluxo Server-Sent Events com a posição e o total na fila, enviados quando a posição muda; o fluxo termina com a posição 0 quando a entrada sai da fila")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Fluxo de eventos aberto"),
+            @ApiResponse(responseCode = "404", description = "Entrada não encontrada")
+    })
+    public SseEmitter acompanharPosicao(
+            @Parameter(description = "ID da entrada na lista de espera") @PathVariable Long id) {
+        return listaEsperaService.acompanharPosicao(id);
+    }
+
     @GetMapping("/especialidade/{especialidade}")
     @Operation(summary = "Buscar fila por especialidade", description = "Retorna a fila de espera ordenada por prioridade para uma especialidade")
     @ApiResponse(responseCode = "200", description = "Lista de espera retornada com sucesso")
@@ -94,6 +107,15 @@ public class ListaEsperaController {
         return ResponseEntity.ok(total);
     }
 
+    @GetMapping("/contagem/unidade/{unidadeId}")
+    @Operation(summary = "Contar pacientes na fila da unidade", description = "Retorna a quantidade de pacientes na fila de espera que preferem uma unidade de saúde")
+    @ApiResponse(responseCode = "200", description = "Contagem retornada com sucesso")
+    public ResponseEntity<Long> contarPacientesNaFilaUnidade(
+            @Parameter(description = "ID da unidade de saúde") @PathVariable Long unidadeId) {
+        long total = listaEsperaService.contarPacientesNaFilaUnidade(unidadeId);
+        return ResponseEntity.ok(total);
+    }
+
     @PatchMapping("/{id}/atendido")
     @Operation(summary = "Marcar como atendido", description = "Marca um paciente da lista de espera como atendido")
     @ApiResponses(value = {
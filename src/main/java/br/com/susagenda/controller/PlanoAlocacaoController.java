@@ -0,0 +1,96 @@
+package br.com.susagenda.controller;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.dto.response.ItemPlanoAlocacaoResponse;
+import br.com.susagenda.dto.response.PlanoAlocacaoResponse;
+import br.com.susagenda.service.fila.OtimizadorListaEspera;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/lista-espera/planos")
+@RequiredArgsConstructor
+@Tag(name = "Planos de Alocação", description = "Atribuição global da lista de espera às vagas livres, revisada antes de agendar")
+public class PlanoAlocacaoController {
+
+    private final OtimizadorListaEspera otimizadorListaEspera;
+
+    @PostMapping
+    @Operation(summary = "Gerar plano de alocação", description = "Calcula a atribuição dos pacientes aguardando da especialidade às vagas livres do horizonte, sem agendar; descarta o plano anterior ainda não aplicado")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Plano gerado"),
+            @ApiResponse(responseCode = "422", description = "Outro plano está sendo gerado")
+    })
+    public ResponseEntity<PlanoAlocacaoResponse> gerar(
+            @Parameter(description = "Especialidade médica") @RequestParam Especialidade especialidade) {
+        PlanoAlocacaoResponse response = otimizadorListaEspera.gerarPlano(especialidade);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping
+    @Operation(summary = "Listar planos de alocação", description = "Retorna os planos da especialidade, do mais recente ao mais antigo")
+    @ApiResponse(responseCode = "200", description = "Planos retornados com sucesso")
+    public ResponseEntity<List<PlanoAlocacaoResponse>> listar(
+            @Parameter(description = "Especialidade médica") @RequestParam Especialidade especialidade) {
+        return ResponseEntity.ok(otimizadorListaEspera.listar(especialidade));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Buscar plano de alocação", description = "Retorna o plano com a quantidade de itens pendentes, agendados e recusados")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Plano encontrado"),
+            @ApiResponse(responseCode = "404", description = "Plano não encontrado")
+    })
+    public ResponseEntity<PlanoAlocacaoResponse> buscar(
+            @Parameter(description = "ID do plano") @PathVariable Long id) {
+        return ResponseEntity.ok(otimizadorListaEspera.buscar(id));
+    }
+
+    @GetMapping("/{id}/itens")
+    @Operation(summary = "Listar itens do plano", description = "Retorna os pacientes e horários atribuídos, na ordem da fila")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Itens retornados com sucesso"),
+            @ApiResponse(responseCode = "404", description = "Plano não encontrado"),
+            @ApiResponse(responseCode = "422", description = "Página ou tamanho fora do intervalo permitido")
+    })
+    public ResponseEntity<List<ItemPlanoAlocacaoResponse>> listarItens(
+            @Parameter(description = "ID do plano") @PathVariable Long id,
+            @Parameter(description = "Página, a partir de 0") @RequestParam(defaultValue = "0") int pagina,
+            @Parameter(description = "Itens por página (1 a 500)") @RequestParam(defaultValue = "100") int tamanho) {
+        return ResponseEntity.ok(otimizadorListaEspera.listarItens(id, pagina, tamanho));
+    }
+
+    @PostMapping("/{id}/aplicar")
+    @Operation(summary = "Aplicar lote do plano", description = "Agenda os próximos itens pendentes do plano; itens cujo paciente ou horário não estão mais disponíveis são recusados")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote aplicado"),
+            @ApiResponse(responseCode = "404", description = "Plano não encontrado"),
+            @ApiResponse(responseCode = "422", description = "Plano já aplicado ou descartado, ou quantidade fora do intervalo permitido")
+    })
+    public ResponseEntity<PlanoAlocacaoResponse> aplicar(
+            @Parameter(description = "ID do plano") @PathVariable Long id,
+            @Parameter(description = "Itens a aplicar (1 a 5000)") @RequestParam(defaultValue = "500") int quantidade) {
+        return ResponseEntity.ok(otimizadorListaEspera.aplicar(id, quantidade));
+    }
+
+    @PatchMapping("/{id}/descartar")
+    @Operation(summary = "Descartar plano", description = "Descarta o plano; os itens já agendados permanecem")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Plano descartado"),
+            @ApiResponse(responseCode = "404", description = "Plano não encontrado"),
+            @ApiResponse(responseCode = "422", description = "Plano já aplicado ou descartado")
+    })
+    public ResponseEntity<PlanoAlocacaoResponse> descartar(
+            @Parameter(description = "ID do plano") @PathVariable Long id) {
+        return ResponseEntity.ok(otimizadorListaEspera.descartar(id));
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.susagenda.controller;
+
+import br.com.susagenda.dto.request.RegrasTriagemRequest;
+import br.com.susagenda.dto.response.RegrasTriagemResponse;
+import br.com.susagenda.service.triagem.BaseRegrasTriagem;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/triagem/regras")
+@RequiredArgsConstructor
+@Tag(name = "Regras de Triagem", description = "Base versionada de palavras-chave de sintomas por especialidade, alterada sem novo deploy")
+public class RegrasTriagemController {
+
+    private final BaseRegrasTriagem baseRegrasTriagem;
+
+    @GetMapping
+    @Operation(summary = "Buscar regras ativas", description = "Retorna a versão das regras usada pela triagem, com as palavras-chave de cada especialidade")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Regras encontradas"),
+            @ApiResponse(responseCode = "404", description = "Nenhuma versão ativa")
+    })
+    public ResponseEntity<RegrasTriagemResponse> buscarAtiva() {
+        return ResponseEntity.ok(baseRegrasTriagem.buscarAtiva());
+    }
+
+    @GetMapping("/versoes")
+    @Operation(summary = "Listar versões das regras", description = "Retorna as versões publicadas, da mais recente à mais antiga, sem as palavras-chave")
+    @ApiResponse(responseCode = "200", description = "Versões retornadas com sucesso")
+    public ResponseEntity<List<RegrasTriagemResponse>> listar() {
+        return ResponseEntity.ok(baseRegrasTriagem.listar());
+    }
+
+    @GetMapping("/versoes/{versao}")
+    @Operation(summary = "Buscar versão das regras", description = "Retorna a versão com as palavras-chave de cada especialidade")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Versão encontrada"),
+            @ApiResponse(responseCode = "404", description = "Versão não encontrada")
+    })
+    public ResponseEntity<RegrasTriagemResponse> buscar(
+            @Parameter(description = "Número da versão") @PathVariable Integer versao) {
+        return ResponseEntity.ok(baseRegrasTriagem.buscar(versao));
+    }
+
+    @PostMapping("/versoes")
+    @Operation(summary = "Publicar versão das regras", description = "Grava as regras como uma versão nova; ativada, passa a ser usada pela triagem logo após a gravação nesta instância e na próxima recarga nas demais")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Versão publicada"),
+            @ApiResponse(responseCode = "400", description = "Dados inválidos"),
+            @ApiResponse(responseCode = "409", description = "Outra versão publicada ou ativada ao mesmo tempo"),
+            @ApiResponse(responseCode = "422", description = "Especialidade repetida nas regras")
+    })
+    public ResponseEntity<RegrasTriagemResponse> publicar(
+            @Valid @RequestBody RegrasTriagemRequest request,
+            @Parameter(description = "Passar a usar a versão publicada") @RequestParam(defaultValue = "true") boolean ativar) {
+        RegrasTriagemResponse response = baseRegrasTriagem.publicar(request, ativar);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PatchMapping("/versoes/{versao}/ativar")
+    @Operation(summary = "Ativar versão das regras", description = "Passa a usar uma versão já publicada, inclusive anterior à ativa para desfazer uma publicação")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Versão ativada"),
+            @ApiResponse(responseCode = "404", description = "Versão não encontrada"),
+            @ApiResponse(responseCode = "409", description = "Outra versão publicada ou ativada ao mesmo tempo")
+    })
+    public ResponseEntity<RegrasTriagemResponse> ativar(
+            @Parameter(description = "Número da versão") @PathVariable Integer versao) {
+        return ResponseEntity.ok(baseRegrasTriagem.ativar(versao));
+    }
+}
@@ -4,6 +4,7 @@ import br.com.susagenda.domain.enums.StatusAgendamento;
 import br.com.susagenda.domain.enums.TipoAtendimento;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -11,6 +12,7 @@ import java.time.LocalTime;
 
 @Entity
 @Table(name = "agendamentos")
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -73,6 +75,14 @@ public class Agendamento {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Incrementada a cada alteração; recepção e consultório que alteram o mesmo agendamento ao
+     * mesmo tempo não sobrescrevem a mudança um do outro.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long versao;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
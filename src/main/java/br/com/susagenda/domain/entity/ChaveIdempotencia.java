@@ -0,0 +1,45 @@
+package br.com.susagenda.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resposta de uma requisição enviada com {@code Idempotency-Key}, guardada para que as repetições
+ * recebam a mesma resposta em qualquer instância. A linha é criada junto com a operação, na mesma
+ * transação; enquanto a operação não termina {@code resposta} fica vazia.
+ */
+@Entity
+@Table(name = "chaves_idempotencia")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChaveIdempotencia {
+
+    @Id
+    @Column(length = 150)
+    private String chave;
+
+    @Column(name = "hash_requisicao", nullable = false, length = 64)
+    private String hashRequisicao;
+
+    @Column(name = "status_http")
+    private Integer statusHttp;
+
+    @Column(columnDefinition = "TEXT")
+    private String resposta;
+
+    @Column(name = "expira_em", nullable = false)
+    private LocalDateTime expiraEm;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -6,6 +6,8 @@ import lombok.*;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "horarios_disponiveis")
@@ -62,4 +64,18 @@ public class HorarioDisponivel {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
+
+    public List<LocalTime> gerarHorarios() {
+        List<LocalTime> horarios = new ArrayList<>();
+        LocalTime horaAtual = horaInicio;
+        while (horaAtual.isBefore(horaFim)) {
+            horarios.add(horaAtual);
+            LocalTime proximaHora = horaAtual.plusMinutes(duracaoConsultaMinutos);
+            if (!proximaHora.isAfter(horaAtual)) {
+                break; // evita laço infinito quando o último horário passa da meia-noite
+            }
+            horaAtual = proximaHora;
+        }
+        return horarios;
+    }
 }
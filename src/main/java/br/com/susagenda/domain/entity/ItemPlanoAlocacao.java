@@ -0,0 +1,69 @@
+package br.com.susagenda.domain.entity;
+
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.domain.enums.StatusItemPlanoAlocacao;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Paciente da lista de espera e horário atribuídos a ele em um {@link PlanoAlocacao}. Os itens são
+ * gravados em lote na geração do plano, por isso guardam só os ids.
+ */
+@Entity
+@Table(name = "itens_plano_alocacao")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ItemPlanoAlocacao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "plano_id", nullable = false)
+    private Long planoId;
+
+    @Column(name = "lista_espera_id", nullable = false)
+    private Long listaEsperaId;
+
+    @Column(name = "paciente_id", nullable = false)
+    private Long pacienteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Prioridade prioridade;
+
+    @Column(name = "dias_espera", nullable = false)
+    private Integer diasEspera;
+
+    @Column(name = "profissional_id", nullable = false)
+    private Long profissionalId;
+
+    @Column(name = "unidade_saude_id", nullable = false)
+    private Long unidadeSaudeId;
+
+    @Column(name = "data_agendamento", nullable = false)
+    private LocalDate dataAgendamento;
+
+    @Column(name = "hora_agendamento", nullable = false)
+    private LocalTime horaAgendamento;
+
+    /** {@code null} quando o paciente não tem unidade preferida. */
+    @Column(name = "unidade_preferida")
+    private Boolean unidadePreferida;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatusItemPlanoAlocacao status;
+
+    @Column(name = "agendamento_id")
+    private Long agendamentoId;
+
+    @Column(name = "motivo_recusa")
+    private String motivoRecusa;
+}
@@ -36,6 +36,10 @@ public class ListaEspera {
     @Column(nullable = false)
     private Prioridade prioridade;
 
+    /** Ordem de atendimento em número (maior primeiro), com envelhecimento; ver {@code PontuacaoFila}. */
+    @Column(name = "pontuacao_prioridade", nullable = false)
+    private Long pontuacaoPrioridade;
+
     @Column(name = "data_solicitacao", nullable = false)
     private LocalDateTime dataSolicitacao;
 
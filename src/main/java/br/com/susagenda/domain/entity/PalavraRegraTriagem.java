@@ -0,0 +1,36 @@
+package br.com.susagenda.domain.entity;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Palavra-chave de sintoma de uma especialidade em uma {@link VersaoRegrasTriagem}. A ordem
+ * preserva a sequência publicada, que desempata especialidades com a mesma pontuação.
+ */
+@Entity
+@Table(name = "palavras_regras_triagem")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PalavraRegraTriagem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "versao_id", nullable = false)
+    private Long versaoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private Especialidade especialidade;
+
+    @Column(nullable = false, length = 100)
+    private String palavra;
+
+    @Column(nullable = false)
+    private Integer ordem;
+}
@@ -0,0 +1,73 @@
+package br.com.susagenda.domain.entity;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.StatusPlanoAlocacao;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Atribuição global da lista de espera de uma especialidade às vagas livres de um período, gerada
+ * pelo otimizador. Nada é agendado na geração: os itens viram agendamentos quando o plano é
+ * aplicado, em lotes.
+ */
+@Entity
+@Table(name = "planos_alocacao")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PlanoAlocacao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private Especialidade especialidade;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatusPlanoAlocacao status;
+
+    @Column(name = "data_inicio", nullable = false)
+    private LocalDate dataInicio;
+
+    @Column(name = "data_fim", nullable = false)
+    private LocalDate dataFim;
+
+    /** Pacientes aguardando na geração. */
+    @Column(nullable = false)
+    private Integer candidatos;
+
+    /** Vagas livres no período na geração (somando a capacidade restante de cada horário). */
+    @Column(nullable = false)
+    private Integer vagas;
+
+    @Column(nullable = false)
+    private Integer itens;
+
+    @Column(name = "duracao_ms", nullable = false)
+    private Long duracaoMs;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,46 @@
+package br.com.susagenda.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resposta da triagem por IA para uma forma canônica dos sintomas, compartilhada entre as
+ * instâncias para que relatos equivalentes não consultem o modelo de novo até vencer.
+ */
+@Entity
+@Table(name = "respostas_triagem_ia")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RespostaTriagemIA {
+
+    /** SHA-256 da forma canônica. */
+    @Id
+    @Column(length = 64)
+    private String chave;
+
+    @Column(name = "forma_canonica", nullable = false, columnDefinition = "TEXT")
+    private String formaCanonica;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String resposta;
+
+    /** Duração da consulta ao modelo que gerou a resposta. */
+    @Column(name = "duracao_ms", nullable = false)
+    private Long duracaoMs;
+
+    @Column(name = "expira_em", nullable = false)
+    private LocalDateTime expiraEm;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
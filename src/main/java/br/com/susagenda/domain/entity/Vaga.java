@@ -0,0 +1,65 @@
+package br.com.susagenda.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Check;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Inventário materializado de um horário de atendimento: capacidade e vagas restantes
+ * de um profissional em uma data e hora.
+ *
+ * <p>A restrição {@code ck_vagas_restantes} é a última barreira contra horários lotados além da
+ * capacidade: mesmo um UPDATE sem a condição {@code restantes > 0} falha no banco.</p>
+ */
+@Entity
+@Check(name = "ck_vagas_restantes", constraints = "restantes >= 0 AND restantes <= capacidade")
+@Table(name = "vagas", uniqueConstraints = @UniqueConstraint(
+        name = "uk_vaga_profissional_data_hora", columnNames = {"profissional_id", "data", "hora"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Vaga {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "profissional_id", nullable = false)
+    private Profissional profissional;
+
+    @Column(nullable = false)
+    private LocalDate data;
+
+    @Column(nullable = false)
+    private LocalTime hora;
+
+    @Column(nullable = false)
+    private Integer capacidade;
+
+    @Column(nullable = false)
+    private Integer restantes;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.susagenda.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Versão da base de regras da triagem. As palavras de uma versão não mudam depois de gravadas:
+ * alterar as regras é publicar uma versão nova, e voltar atrás é ativar uma anterior.
+ */
+@Entity
+@Table(name = "versoes_regras_triagem")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VersaoRegrasTriagem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Integer versao;
+
+    private String descricao;
+
+    /** Só uma versão fica ativa: a usada pela triagem em todas as instâncias. */
+    @Column(nullable = false)
+    private Boolean ativa;
+
+    @Column(nullable = false)
+    private Integer palavras;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "ativada_em")
+    private LocalDateTime ativadaEm;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (ativa == null) {
+            ativa = false;
+        }
+    }
+}
@@ -17,4 +17,11 @@ public enum StatusAgendamento {
     public String getDescricao() {
         return descricao;
     }
+
+    /**
+     * Indica se um agendamento neste status ainda ocupa a vaga do horário.
+     */
+    public boolean ocupaVaga() {
+        return this != CANCELADO && this != NAO_COMPARECEU;
+    }
 }
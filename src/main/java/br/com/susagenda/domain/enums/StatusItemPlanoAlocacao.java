@@ -0,0 +1,17 @@
+package br.com.susagenda.domain.enums;
+
+public enum StatusItemPlanoAlocacao {
+    PENDENTE("Pendente"),
+    AGENDADO("Agendado"),
+    RECUSADO("Recusado");
+
+    private final String descricao;
+
+    StatusItemPlanoAlocacao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
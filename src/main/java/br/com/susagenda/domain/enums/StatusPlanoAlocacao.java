@@ -0,0 +1,17 @@
+package br.com.susagenda.domain.enums;
+
+public enum StatusPlanoAlocacao {
+    GERADO("Gerado"),
+    APLICADO("Aplicado"),
+    DESCARTADO("Descartado");
+
+    private final String descricao;
+
+    StatusPlanoAlocacao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
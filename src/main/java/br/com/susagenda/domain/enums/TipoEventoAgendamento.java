@@ -0,0 +1,21 @@
+package br.com.susagenda.domain.enums;
+
+public enum TipoEventoAgendamento {
+    CRIADO("Agendamento criado"),
+    CONFIRMADO("Presença confirmada"),
+    CHEGADA_REGISTRADA("Chegada registrada"),
+    ATENDIMENTO_INICIADO("Atendimento iniciado"),
+    ATENDIMENTO_CONCLUIDO("Atendimento concluído"),
+    CANCELADO("Agendamento cancelado"),
+    NAO_COMPARECEU("Não comparecimento registrado");
+
+    private final String descricao;
+
+    TipoEventoAgendamento(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
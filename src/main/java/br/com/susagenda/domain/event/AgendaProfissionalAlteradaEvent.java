@@ -0,0 +1,10 @@
+package br.com.susagenda.domain.event;
+
+import br.com.susagenda.domain.enums.Especialidade;
+
+/**
+ * Publicado quando os horários de atendimento ou os dados de um profissional mudam. Quando a
+ * especialidade do profissional muda, é publicado um evento para a antiga e outro para a nova.
+ */
+public record AgendaProfissionalAlteradaEvent(Long profissionalId, Especialidade especialidade) {
+}
@@ -0,0 +1,20 @@
+package br.com.susagenda.domain.event;
+
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoEventoAgendamento;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Mudança em um agendamento, publicada a partir da tabela de eventos depois do commit, fora da
+ * requisição que a causou. A entrega é pelo menos uma vez e, entre instâncias, sem ordem garantida:
+ * {@code versao} ordena e descarta repetições dos eventos de um mesmo agendamento.
+ *
+ * @param id identificador do evento na tabela de eventos; {@code null} antes de gravado
+ */
+public record AgendamentoAlteradoEvent(Long id, Long agendamentoId, TipoEventoAgendamento tipo, StatusAgendamento status,
+                                       Long versao, Long pacienteId, Long profissionalId, Long unidadeSaudeId,
+                                       LocalDate data, LocalTime hora, LocalDateTime ocorridoEm) {
+}
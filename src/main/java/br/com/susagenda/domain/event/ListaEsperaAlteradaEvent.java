@@ -0,0 +1,14 @@
+package br.com.susagenda.domain.event;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.Prioridade;
+
+import java.time.LocalDateTime;
+
+/**
+ * Publicado quando uma entrada entra na lista de espera ou deixa de aguardar (atendida ou removida).
+ */
+public record ListaEsperaAlteradaEvent(Long id, Especialidade especialidade, Long unidadeSaudePreferidaId,
+                                       Prioridade prioridade, Long pontuacaoPrioridade, LocalDateTime dataSolicitacao,
+                                       boolean aguardando) {
+}
@@ -0,0 +1,13 @@
+package br.com.susagenda.domain.event;
+
+import br.com.susagenda.domain.enums.Especialidade;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Publicado quando uma vaga volta a ficar disponível (cancelamento ou não comparecimento).
+ */
+public record VagaLiberadaEvent(Long profissionalId, Especialidade especialidade, Long unidadeSaudeId,
+                                LocalDate data, LocalTime hora) {
+}
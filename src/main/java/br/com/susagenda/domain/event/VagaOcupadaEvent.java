@@ -0,0 +1,13 @@
+package br.com.susagenda.domain.event;
+
+import br.com.susagenda.domain.enums.Especialidade;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Publicado quando um agendamento passa a ocupar uma vaga de um horário.
+ */
+public record VagaOcupadaEvent(Long profissionalId, Especialidade especialidade, Long unidadeSaudeId,
+                               LocalDate data, LocalTime hora) {
+}
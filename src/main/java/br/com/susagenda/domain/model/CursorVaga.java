@@ -0,0 +1,60 @@
+package br.com.susagenda.domain.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Posição na listagem cronológica de vagas (data, hora e profissional). As vagas seguintes são as
+ * posteriores a ela; sem profissional, as vagas do próprio horário também são incluídas.
+ */
+public record CursorVaga(LocalDate data, LocalTime hora, Long profissionalId) {
+
+    private static final String SEPARADOR = "|";
+
+    public static CursorVaga inicioDe(LocalDate data) {
+        return new CursorVaga(data, LocalTime.MIDNIGHT, null);
+    }
+
+    /**
+     * Posição a partir de um instante, arredondada para o minuto seguinte quando houver segundos.
+     */
+    public static CursorVaga aPartirDe(LocalDateTime instante) {
+        LocalDateTime minuto = instante.truncatedTo(ChronoUnit.MINUTES);
+        if (minuto.isBefore(instante)) {
+            minuto = minuto.plusMinutes(1);
+        }
+        return new CursorVaga(minuto.toLocalDate(), minuto.toLocalTime(), null);
+    }
+
+    public static CursorVaga decodificar(String cursor) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new CursorVaga(LocalDate.parse(partes[0]), LocalTime.parse(partes[1]), Long.valueOf(partes[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de vagas inválido: " + cursor, e);
+        }
+    }
+
+    public String codificar() {
+        String valor = data + SEPARADOR + hora + SEPARADOR + profissionalId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Indica se o horário informado vem depois desta posição.
+     */
+    public boolean antecede(LocalDate outraData, LocalTime outraHora, Long outroProfissionalId) {
+        int comparacao = outraData.compareTo(data);
+        if (comparacao == 0) {
+            comparacao = outraHora.compareTo(hora);
+        }
+        if (comparacao == 0) {
+            return profissionalId == null || outroProfissionalId > profissionalId;
+        }
+        return comparacao > 0;
+    }
+}
@@ -0,0 +1,10 @@
+package br.com.susagenda.domain.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Identifica um horário de atendimento de um profissional (profissional, data e hora).
+ */
+public record SlotAgenda(Long profissionalId, LocalDate data, LocalTime hora) {
+}
@@ -0,0 +1,24 @@
+package br.com.susagenda.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgendamentoLoteRequest {
+
+    public static final int MAXIMO_ITENS = 5000;
+
+    @NotEmpty(message = "O lote deve conter ao menos um agendamento")
+    @Size(max = MAXIMO_ITENS, message = "O lote deve conter no máximo " + MAXIMO_ITENS + " agendamentos")
+    private List<@Valid AgendamentoRequest> agendamentos;
+}
@@ -0,0 +1,21 @@
+package br.com.susagenda.dto.request;
+
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConfirmarReservaRequest {
+
+    @NotNull(message = "Tipo de atendimento é obrigatório")
+    private TipoAtendimento tipoAtendimento;
+
+    @Size(max = 500, message = "Observações devem ter no máximo 500 caracteres")
+    private String observacoes;
+}
@@ -0,0 +1,45 @@
+package br.com.susagenda.dto.request;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegrasTriagemRequest {
+
+    public static final int MAXIMO_PALAVRAS = 200;
+
+    @Size(max = 255, message = "Descrição deve ter no máximo 255 caracteres")
+    private String descricao;
+
+    /** Regras na ordem de desempate entre especialidades com a mesma pontuação. */
+    @NotEmpty(message = "Informe as regras de ao menos uma especialidade")
+    private List<@Valid RegraEspecialidade> regras;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RegraEspecialidade {
+
+        @NotNull(message = "Especialidade é obrigatória")
+        private Especialidade especialidade;
+
+        @NotEmpty(message = "Informe ao menos uma palavra-chave")
+        @Size(max = MAXIMO_PALAVRAS, message = "Cada especialidade aceita no máximo " + MAXIMO_PALAVRAS + " palavras-chave")
+        private List<@NotBlank(message = "Palavra-chave não pode ser vazia")
+                @Size(max = 100, message = "Palavra-chave deve ter no máximo 100 caracteres") String> palavrasChave;
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.susagenda.dto.request;
+
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Agendamentos de uma transição de status em lote: a lista de IDs ou todos os agendamentos de uma
+ * unidade de saúde em uma data.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransicaoLoteRequest {
+
+    public static final int MAXIMO_IDS = 5000;
+
+    @Size(max = MAXIMO_IDS, message = "O lote deve conter no máximo " + MAXIMO_IDS + " agendamentos")
+    private List<Long> ids;
+
+    private Long unidadeSaudeId;
+
+    private LocalDate data;
+
+    /** Obrigatório no cancelamento. */
+    @Size(min = 10, max = 300, message = "Motivo deve ter entre 10 e 300 caracteres")
+    private String motivo;
+}
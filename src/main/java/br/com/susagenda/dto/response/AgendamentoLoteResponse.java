@@ -0,0 +1,20 @@
+package br.com.susagenda.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgendamentoLoteResponse {
+
+    private int total;
+    private int agendados;
+    private int recusados;
+    private List<ResultadoAgendamentoLoteResponse> resultados;
+}
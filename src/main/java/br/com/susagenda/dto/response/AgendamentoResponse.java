@@ -43,4 +43,5 @@ public class AgendamentoResponse {
     private LocalDateTime dataFimAtendimento;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long versao;
 }
@@ -0,0 +1,32 @@
+package br.com.susagenda.dto.response;
+
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.domain.enums.StatusItemPlanoAlocacao;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemPlanoAlocacaoResponse {
+
+    private Long id;
+    private Long listaEsperaId;
+    private Long pacienteId;
+    private Prioridade prioridade;
+    private Integer diasEspera;
+    private Long profissionalId;
+    private Long unidadeSaudeId;
+    private LocalDate dataAgendamento;
+    private LocalTime horaAgendamento;
+    private Boolean unidadePreferida;
+    private StatusItemPlanoAlocacao status;
+    private Long agendamentoId;
+    private String motivoRecusa;
+}
@@ -0,0 +1,19 @@
+package br.com.susagenda.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaVagasResponse {
+
+    private List<VagaDisponivelResponse> vagas;
+    private String proximoCursor;
+    private Boolean temMais;
+}
@@ -0,0 +1,33 @@
+package br.com.susagenda.dto.response;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.StatusPlanoAlocacao;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanoAlocacaoResponse {
+
+    private Long id;
+    private Especialidade especialidade;
+    private StatusPlanoAlocacao status;
+    private LocalDate dataInicio;
+    private LocalDate dataFim;
+    private Integer candidatos;
+    private Integer vagas;
+    private Integer itens;
+    private Long pendentes;
+    private Long agendados;
+    private Long recusados;
+    private Long duracaoMs;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
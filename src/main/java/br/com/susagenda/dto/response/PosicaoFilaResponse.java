@@ -0,0 +1,17 @@
+package br.com.susagenda.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PosicaoFilaResponse {
+
+    private Long listaEsperaId;
+    private Integer posicaoNaFila;
+    private Long totalNaFila;
+}
@@ -0,0 +1,34 @@
+package br.com.susagenda.dto.response;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegrasTriagemResponse {
+
+    private Integer versao;
+    private String descricao;
+    private Boolean ativa;
+    private Integer palavras;
+    private LocalDateTime createdAt;
+    private LocalDateTime ativadaEm;
+    private List<RegraEspecialidade> regras; // ausente na listagem de versões
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RegraEspecialidade {
+        private Especialidade especialidade;
+        private List<String> palavrasChave;
+    }
+}
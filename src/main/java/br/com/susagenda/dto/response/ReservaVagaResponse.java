@@ -0,0 +1,28 @@
+package br.com.susagenda.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaVagaResponse {
+
+    private Long id;
+    private Long pacienteId;
+    private Long profissionalId;
+    private String profissionalNome;
+    private String especialidade;
+    private Long unidadeSaudeId;
+    private String unidadeSaudeNome;
+    private LocalDate dataAgendamento;
+    private LocalTime horaAgendamento;
+    private LocalDateTime expiraEm;
+}
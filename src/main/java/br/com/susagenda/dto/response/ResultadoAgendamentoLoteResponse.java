@@ -0,0 +1,19 @@
+package br.com.susagenda.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoAgendamentoLoteResponse {
+
+    /** Posição do item na lista enviada (a partir de 0). */
+    private int indice;
+    private boolean sucesso;
+    private Long agendamentoId;
+    private String mensagem;
+}
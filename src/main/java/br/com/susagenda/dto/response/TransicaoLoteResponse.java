@@ -0,0 +1,19 @@
+package br.com.susagenda.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransicaoLoteResponse {
+
+    private int solicitados;
+    private int alterados;
+    private List<Long> recusados;
+}
@@ -0,0 +1,13 @@
+package br.com.susagenda.exception;
+
+public class VersaoDesatualizadaException extends RuntimeException {
+
+    public VersaoDesatualizadaException(String message) {
+        super(message);
+    }
+
+    public VersaoDesatualizadaException(String resourceName, Long id) {
+        super(String.format("%s com ID %d foi alterado(a) por outra operação. Consulte novamente antes de alterar.",
+                resourceName, id));
+    }
+}
@@ -2,14 +2,21 @@ package br.com.susagenda.repository;
 
 import br.com.susagenda.domain.entity.Agendamento;
 import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.repository.projection.OcupacaoHorarioProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public interface AgendamentoRepository extends JpaRepository<Agendamento, Long> {
@@ -43,6 +50,13 @@ public interface AgendamentoRepository extends JpaRepository<Agendamento, Long>
             @Param("hora") LocalTime hora
     );
 
+    @Query("SELECT COUNT(a) > 0 FROM Agendamento a WHERE a.paciente.id = :pacienteId AND a.dataAgendamento = :data AND a.horaAgendamento = :hora AND a.status NOT IN ('CANCELADO', 'NAO_COMPARECEU')")
+    boolean existsPacienteNoHorario(
+            @Param("pacienteId") Long pacienteId,
+            @Param("data") LocalDate data,
+            @Param("hora") LocalTime hora
+    );
+
     @Query("SELECT a FROM Agendamento a WHERE a.dataAgendamento = :data AND a.unidadeSaude.id = :unidadeId ORDER BY a.horaAgendamento")
     List<Agendamento> findByDataAndUnidade(
             @Param("data") LocalDate data,
@@ -63,9 +77,62 @@ public interface AgendamentoRepository extends JpaRepository<Agendamento, Long>
             @Param("hora") LocalTime hora
     );
 
+    @Query("SELECT a.profissional.id AS profissionalId, a.dataAgendamento AS data, a.horaAgendamento AS hora, COUNT(a) AS total " +
+            "FROM Agendamento a WHERE a.profissional.id IN :profissionalIds AND a.dataAgendamento BETWEEN :dataInicio AND :dataFim " +
+            "AND a.status NOT IN ('CANCELADO', 'NAO_COMPARECEU') " +
+            "GROUP BY a.profissional.id, a.dataAgendamento, a.horaAgendamento")
+    List<OcupacaoHorarioProjection> countOcupacaoPorHorario(
+            @Param("profissionalIds") Collection<Long> profissionalIds,
+            @Param("dataInicio") LocalDate dataInicio,
+            @Param("dataFim") LocalDate dataFim
+    );
+
+    default Map<SlotAgenda, Integer> mapOcupacaoPorHorario(Collection<Long> profissionalIds, LocalDate dataInicio, LocalDate dataFim) {
+        Map<SlotAgenda, Integer> ocupacao = new HashMap<>();
+        for (OcupacaoHorarioProjection item : countOcupacaoPorHorario(profissionalIds, dataInicio, dataFim)) {
+            ocupacao.put(new SlotAgenda(item.getProfissionalId(), item.getData(), item.getHora()),
+                    item.getTotal().intValue());
+        }
+        return ocupacao;
+    }
+
     @Query("SELECT a FROM Agendamento a WHERE a.paciente.id = :pacienteId ORDER BY a.dataAgendamento DESC, a.horaAgendamento DESC")
     List<Agendamento> findHistoricoPaciente(@Param("pacienteId") Long pacienteId);
 
     @Query("SELECT a FROM Agendamento a WHERE a.dataAgendamento = :data AND a.status = 'AGENDADO' ORDER BY a.horaAgendamento")
     List<Agendamento> findAgendamentosParaConfirmacao(@Param("data") LocalDate data);
+
+    @Query("SELECT a.id FROM Agendamento a WHERE a.unidadeSaude.id = :unidadeId AND a.dataAgendamento = :data ORDER BY a.id")
+    List<Long> findIdsByUnidadeAndData(@Param("unidadeId") Long unidadeId, @Param("data") LocalDate data);
+
+    @Modifying
+    @Query("UPDATE Agendamento a SET a.status = 'CONFIRMADO', a.dataConfirmacao = :agora, a.updatedAt = :agora, " +
+            "a.versao = a.versao + 1 " +
+            "WHERE a.id IN :ids AND a.status IN :origens")
+    int confirmarEmLote(
+            @Param("ids") Collection<Long> ids,
+            @Param("origens") Collection<StatusAgendamento> origens,
+            @Param("agora") LocalDateTime agora
+    );
+
+    @Modifying
+    @Query("UPDATE Agendamento a SET a.status = 'NAO_COMPARECEU', a.updatedAt = :agora, " +
+            "a.versao = a.versao + 1 " +
+            "WHERE a.id IN :ids AND a.status IN :origens")
+    int marcarNaoCompareceuEmLote(
+            @Param("ids") Collection<Long> ids,
+            @Param("origens") Collection<StatusAgendamento> origens,
+            @Param("agora") LocalDateTime agora
+    );
+
+    @Modifying
+    @Query("UPDATE Agendamento a SET a.status = 'CANCELADO', a.motivoCancelamento = :motivo, a.updatedAt = :agora, " +
+            "a.versao = a.versao + 1 " +
+            "WHERE a.id IN :ids AND a.status IN :origens")
+    int cancelarEmLote(
+            @Param("ids") Collection<Long> ids,
+            @Param("origens") Collection<StatusAgendamento> origens,
+            @Param("motivo") String motivo,
+            @Param("agora") LocalDateTime agora
+    );
 }
@@ -0,0 +1,30 @@
+package br.com.susagenda.repository;
+
+import br.com.susagenda.domain.entity.ChaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ChaveIdempotenciaRepository extends JpaRepository<ChaveIdempotencia, String> {
+
+    @Query("SELECT c FROM ChaveIdempotencia c WHERE c.chave = :chave AND c.expiraEm > :agora AND c.resposta IS NOT NULL")
+    Optional<ChaveIdempotencia> findConcluida(@Param("chave") String chave, @Param("agora") LocalDateTime agora);
+
+    @Modifying
+    @Query("UPDATE ChaveIdempotencia c SET c.statusHttp = :statusHttp, c.resposta = :resposta WHERE c.chave = :chave")
+    int concluir(@Param("chave") String chave, @Param("statusHttp") int statusHttp, @Param("resposta") String resposta);
+
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.chave = :chave AND c.expiraEm <= :agora")
+    int removerVencida(@Param("chave") String chave, @Param("agora") LocalDateTime agora);
+
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.expiraEm <= :agora")
+    int removerVencidas(@Param("agora") LocalDateTime agora);
+}
@@ -7,7 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.DayOfWeek;
-import java.util.List;
+import java.util.*;
 
 @Repository
 public interface HorarioDisponivelRepository extends JpaRepository<HorarioDisponivel, Long> {
@@ -28,5 +28,22 @@ public interface HorarioDisponivelRepository extends JpaRepository<HorarioDispon
             @Param("diaSemana") DayOfWeek diaSemana
     );
 
+    @Query("SELECT h FROM HorarioDisponivel h WHERE h.profissional.id IN :profissionalIds AND h.ativo = true ORDER BY h.profissional.id, h.diaSemana, h.horaInicio")
+    List<HorarioDisponivel> findAtivosByProfissionalIds(@Param("profissionalIds") Collection<Long> profissionalIds);
+
+    /**
+     * Horários ativos dos profissionais agrupados por profissional e dia da semana,
+     * ordenados pela hora de início.
+     */
+    default Map<Long, Map<DayOfWeek, List<HorarioDisponivel>>> findAtivosAgrupados(Collection<Long> profissionalIds) {
+        Map<Long, Map<DayOfWeek, List<HorarioDisponivel>>> horarios = new HashMap<>();
+        for (HorarioDisponivel horario : findAtivosByProfissionalIds(profissionalIds)) {
+            horarios.computeIfAbsent(horario.getProfissional().getId(), id -> new EnumMap<>(DayOfWeek.class))
+                    .computeIfAbsent(horario.getDiaSemana(), dia -> new ArrayList<>())
+                    .add(horario);
+        }
+        return horarios;
+    }
+
     void deleteByProfissionalId(Long profissionalId);
 }
@@ -0,0 +1,41 @@
+package br.com.susagenda.repository;
+
+import br.com.susagenda.domain.entity.ItemPlanoAlocacao;
+import br.com.susagenda.domain.enums.StatusItemPlanoAlocacao;
+import br.com.susagenda.repository.projection.ContagemItensPlanoProjection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ItemPlanoAlocacaoRepository extends JpaRepository<ItemPlanoAlocacao, Long> {
+
+    Page<ItemPlanoAlocacao> findByPlanoIdOrderById(Long planoId, Pageable pageable);
+
+    /**
+     * Próximos itens a aplicar, na ordem em que foram gravados (a ordem da fila).
+     */
+    List<ItemPlanoAlocacao> findByPlanoIdAndStatusOrderById(Long planoId, StatusItemPlanoAlocacao status, Pageable pageable);
+
+    boolean existsByPlanoIdAndStatus(Long planoId, StatusItemPlanoAlocacao status);
+
+    @Query("SELECT new br.com.susagenda.repository.projection.ContagemItensPlanoProjection(i.status, COUNT(i)) " +
+            "FROM ItemPlanoAlocacao i WHERE i.planoId = :planoId GROUP BY i.status")
+    List<ContagemItensPlanoProjection> contarPorStatus(@Param("planoId") Long planoId);
+
+    @Modifying
+    @Query("UPDATE ItemPlanoAlocacao i SET i.status = 'AGENDADO', i.agendamentoId = :agendamentoId " +
+            "WHERE i.id = :id AND i.status = 'PENDENTE'")
+    int marcarAgendado(@Param("id") Long id, @Param("agendamentoId") Long agendamentoId);
+
+    @Modifying
+    @Query("UPDATE ItemPlanoAlocacao i SET i.status = 'RECUSADO', i.motivoRecusa = :motivo " +
+            "WHERE i.id = :id AND i.status = 'PENDENTE'")
+    int marcarRecusado(@Param("id") Long id, @Param("motivo") String motivo);
+}
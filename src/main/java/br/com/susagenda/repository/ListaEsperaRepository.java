@@ -2,11 +2,19 @@ package br.com.susagenda.repository;
 
 import br.com.susagenda.domain.entity.ListaEspera;
 import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.repository.projection.CandidatoAlocacaoProjection;
+import br.com.susagenda.repository.projection.ContagemEspecialidadeProjection;
+import br.com.susagenda.repository.projection.ContagemUnidadeProjection;
+import br.com.susagenda.repository.projection.EntradaFilaProjection;
+import br.com.susagenda.repository.projection.PontuacaoFilaProjection;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -18,18 +26,48 @@ public interface ListaEsperaRepository extends JpaRepository<ListaEspera, Long>
 
     List<ListaEspera> findByAtendidoFalse();
 
-    @Query("SELECT l FROM ListaEspera l WHERE l.especialidade = :especialidade AND l.atendido = false ORDER BY l.prioridade DESC, l.dataSolicitacao ASC")
+    @Query("SELECT l FROM ListaEspera l WHERE l.especialidade = :especialidade AND l.atendido = false " +
+           "ORDER BY l.pontuacaoPrioridade DESC, l.dataSolicitacao ASC, l.id ASC")
     List<ListaEspera> findFilaOrdenadaPorPrioridade(@Param("especialidade") Especialidade especialidade);
 
-    @Query("SELECT l FROM ListaEspera l WHERE l.unidadeSaudePreferida.id = :unidadeId AND l.atendido = false ORDER BY l.prioridade DESC, l.dataSolicitacao ASC")
+    @Query("SELECT l FROM ListaEspera l WHERE l.unidadeSaudePreferida.id = :unidadeId AND l.atendido = false " +
+           "ORDER BY l.pontuacaoPrioridade DESC, l.dataSolicitacao ASC, l.id ASC")
     List<ListaEspera> findByUnidadeOrdenadoPorPrioridade(@Param("unidadeId") Long unidadeId);
 
+    @Query("SELECT new br.com.susagenda.repository.projection.EntradaFilaProjection(l.id, l.pontuacaoPrioridade, " +
+           "l.dataSolicitacao) FROM ListaEspera l WHERE l.especialidade = :especialidade AND l.atendido = false")
+    List<EntradaFilaProjection> findEntradasNaFila(@Param("especialidade") Especialidade especialidade);
+
+    @Query("SELECT new br.com.susagenda.repository.projection.PontuacaoFilaProjection(l.id, l.prioridade, " +
+           "l.dataSolicitacao, l.pontuacaoPrioridade) FROM ListaEspera l WHERE l.atendido = false AND l.id > :aposId " +
+           "ORDER BY l.id")
+    List<PontuacaoFilaProjection> findPontuacoesNaFila(@Param("aposId") Long aposId, Pageable pageable);
+
+    @Query("SELECT new br.com.susagenda.repository.projection.CandidatoAlocacaoProjection(l.id, l.paciente.id, l.prioridade, " +
+           "l.pontuacaoPrioridade, l.dataSolicitacao, u.id) FROM ListaEspera l LEFT JOIN l.unidadeSaudePreferida u " +
+           "WHERE l.especialidade = :especialidade AND l.atendido = false")
+    List<CandidatoAlocacaoProjection> findCandidatosAlocacao(@Param("especialidade") Especialidade especialidade);
+
     @Query("SELECT COUNT(l) FROM ListaEspera l WHERE l.especialidade = :especialidade AND l.atendido = false")
     long countPacientesNaFila(@Param("especialidade") Especialidade especialidade);
 
+    @Query("SELECT new br.com.susagenda.repository.projection.ContagemEspecialidadeProjection(l.especialidade, COUNT(l)) " +
+           "FROM ListaEspera l WHERE l.atendido = false GROUP BY l.especialidade")
+    List<ContagemEspecialidadeProjection> contarAguardandoPorEspecialidade();
+
+    @Query("SELECT new br.com.susagenda.repository.projection.ContagemUnidadeProjection(l.unidadeSaudePreferida.id, COUNT(l)) " +
+           "FROM ListaEspera l WHERE l.atendido = false AND l.unidadeSaudePreferida IS NOT NULL " +
+           "GROUP BY l.unidadeSaudePreferida.id")
+    List<ContagemUnidadeProjection> contarAguardandoPorUnidade();
+
     @Query("SELECT l FROM ListaEspera l WHERE l.paciente.id = :pacienteId AND l.especialidade = :especialidade AND l.atendido = false")
     List<ListaEspera> findPacienteNaFilaEspecialidade(
             @Param("pacienteId") Long pacienteId,
             @Param("especialidade") Especialidade especialidade
     );
+
+    @Modifying
+    @Query("UPDATE ListaEspera l SET l.atendido = true, l.dataAgendamento = :agora, l.updatedAt = :agora " +
+            "WHERE l.id = :id AND l.atendido = false")
+    int marcarComoAgendado(@Param("id") Long id, @Param("agora") LocalDateTime agora);
 }
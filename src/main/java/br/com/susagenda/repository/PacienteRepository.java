@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,9 @@ public interface PacienteRepository extends JpaRepository<Paciente, Long> {
     @Query("SELECT p FROM Paciente p WHERE LOWER(p.nome) LIKE LOWER(CONCAT('%', :nome, '%'))")
     List<Paciente> findByNomeContaining(@Param("nome") String nome);
 
+    @Query("SELECT p.id FROM Paciente p WHERE p.id IN :ids")
+    List<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT p FROM Paciente p WHERE p.cidade = :cidade AND p.ativo = true")
     List<Paciente> findByCidadeAndAtivo(@Param("cidade") String cidade);
 }
@@ -0,0 +1,13 @@
+package br.com.susagenda.repository;
+
+import br.com.susagenda.domain.entity.PalavraRegraTriagem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PalavraRegraTriagemRepository extends JpaRepository<PalavraRegraTriagem, Long> {
+
+    List<PalavraRegraTriagem> findByVersaoIdOrderByOrdem(Long versaoId);
+}
@@ -0,0 +1,27 @@
+package br.com.susagenda.repository;
+
+import br.com.susagenda.domain.entity.PlanoAlocacao;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.StatusPlanoAlocacao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PlanoAlocacaoRepository extends JpaRepository<PlanoAlocacao, Long> {
+
+    List<PlanoAlocacao> findByEspecialidadeOrderByCreatedAtDesc(Especialidade especialidade);
+
+    @Modifying
+    @Query("UPDATE PlanoAlocacao p SET p.status = :novoStatus, p.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE p.especialidade = :especialidade AND p.status = :status")
+    int atualizarStatus(
+            @Param("especialidade") Especialidade especialidade,
+            @Param("status") StatusPlanoAlocacao status,
+            @Param("novoStatus") StatusPlanoAlocacao novoStatus
+    );
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +35,21 @@ public interface ProfissionalRepository extends JpaRepository<Profissional, Long
             @Param("unidadeId") Long unidadeId
     );
 
+    @Query("SELECT p FROM Profissional p JOIN FETCH p.unidadeSaude WHERE p.especialidade = :especialidade AND p.ativo = true ORDER BY p.id")
+    List<Profissional> findAtivosComUnidadeByEspecialidade(@Param("especialidade") Especialidade especialidade);
+
+    @Query("SELECT p FROM Profissional p JOIN FETCH p.unidadeSaude WHERE p.ativo = true ORDER BY p.id")
+    List<Profissional> findAtivosComUnidade();
+
+    @Query("SELECT p FROM Profissional p JOIN FETCH p.unidadeSaude WHERE p.id = :id AND p.ativo = true")
+    Optional<Profissional> findAtivoComUnidadeById(@Param("id") Long id);
+
+    @Query("SELECT p FROM Profissional p JOIN FETCH p.unidadeSaude WHERE p.id IN :ids")
+    List<Profissional> findComUnidadeByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id FROM Profissional p WHERE p.ativo = true ORDER BY p.id")
+    List<Long> findIdsAtivos();
+
     @Query("SELECT DISTINCT p.especialidade FROM Profissional p WHERE p.ativo = true ORDER BY p.especialidade")
     List<Especialidade> findEspecialidadesDisponiveis();
 }
@@ -0,0 +1,79 @@
+package br.com.susagenda.repository;
+
+import br.com.susagenda.domain.entity.ReservaVaga;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.repository.projection.ExpiracaoReservaProjection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+public interface ReservaVagaRepository extends JpaRepository<ReservaVaga, Long> {
+
+    @Query("SELECT r FROM ReservaVaga r JOIN FETCH r.profissional p JOIN FETCH p.unidadeSaude WHERE r.id = :id")
+    Optional<ReservaVaga> findComProfissionalById(@Param("id") Long id);
+
+    @Query("SELECT r FROM ReservaVaga r JOIN FETCH r.profissional p JOIN FETCH p.unidadeSaude WHERE r.paciente.id = :pacienteId")
+    Optional<ReservaVaga> findComProfissionalByPacienteId(@Param("pacienteId") Long pacienteId);
+
+    int countByProfissionalIdAndDataAndHora(Long profissionalId, LocalDate data, LocalTime hora);
+
+    @Query("SELECT new br.com.susagenda.domain.model.SlotAgenda(r.profissional.id, r.data, r.hora) FROM ReservaVaga r " +
+            "WHERE r.profissional.id IN :profissionalIds AND r.data BETWEEN :dataInicio AND :dataFim")
+    List<SlotAgenda> findSlotsReservados(
+            @Param("profissionalIds") Collection<Long> profissionalIds,
+            @Param("dataInicio") LocalDate dataInicio,
+            @Param("dataFim") LocalDate dataFim
+    );
+
+    /**
+     * Soma à ocupação por horário as vagas seguradas por reservas, que já foram descontadas do
+     * inventário (vencidas ou não, até serem liberadas).
+     */
+    default Map<SlotAgenda, Integer> somarReservas(Map<SlotAgenda, Integer> ocupacao, Collection<Long> profissionalIds,
+                                                   LocalDate dataInicio, LocalDate dataFim) {
+        for (SlotAgenda slot : findSlotsReservados(profissionalIds, dataInicio, dataFim)) {
+            ocupacao.merge(slot, 1, Integer::sum);
+        }
+        return ocupacao;
+    }
+
+    @Query("SELECT new br.com.susagenda.repository.projection.ExpiracaoReservaProjection(r.id, r.expiraEm) FROM ReservaVaga r ORDER BY r.expiraEm")
+    List<ExpiracaoReservaProjection> findExpiracoes();
+
+    @Query("SELECT new br.com.susagenda.repository.projection.ExpiracaoReservaProjection(r.id, r.expiraEm) FROM ReservaVaga r " +
+            "WHERE r.expiraEm <= :limite ORDER BY r.expiraEm")
+    List<ExpiracaoReservaProjection> findVencidasAte(@Param("limite") LocalDateTime limite, Pageable pageable);
+
+    /**
+     * Remove a reserva ainda válida para transformá-la em agendamento.
+     *
+     * @return {@code 0} quando a reserva já expirou ou foi removida
+     */
+    @Modifying
+    @Query("DELETE FROM ReservaVaga r WHERE r.id = :id AND r.expiraEm > :agora")
+    int consumir(@Param("id") Long id, @Param("agora") LocalDateTime agora);
+
+    /**
+     * Remove a reserva vencida. Entre a confirmação e as instâncias que expiram a mesma reserva,
+     * só quem remover a linha devolve a vaga.
+     */
+    @Modifying
+    @Query("DELETE FROM ReservaVaga r WHERE r.id = :id AND r.expiraEm <= :agora")
+    int expirar(@Param("id") Long id, @Param("agora") LocalDateTime agora);
+
+    @Modifying
+    @Query("DELETE FROM ReservaVaga r WHERE r.id = :id")
+    int remover(@Param("id") Long id);
+}
@@ -0,0 +1,26 @@
+package br.com.susagenda.repository;
+
+import br.com.susagenda.domain.entity.RespostaTriagemIA;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RespostaTriagemIARepository extends JpaRepository<RespostaTriagemIA, String> {
+
+    @Query("SELECT r FROM RespostaTriagemIA r WHERE r.chave = :chave AND r.expiraEm > :agora")
+    Optional<RespostaTriagemIA> findValida(@Param("chave") String chave, @Param("agora") LocalDateTime agora);
+
+    @Modifying
+    @Query("DELETE FROM RespostaTriagemIA r WHERE r.chave = :chave AND r.expiraEm <= :agora")
+    int removerVencida(@Param("chave") String chave, @Param("agora") LocalDateTime agora);
+
+    @Modifying
+    @Query("DELETE FROM RespostaTriagemIA r WHERE r.expiraEm <= :agora")
+    int removerVencidas(@Param("agora") LocalDateTime agora);
+}
@@ -0,0 +1,92 @@
+package br.com.susagenda.repository;
+
+import br.com.susagenda.domain.entity.Vaga;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.repository.projection.VagaLivreProjection;
+import br.com.susagenda.repository.projection.VagaRestanteProjection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface VagaRepository extends JpaRepository<Vaga, Long> {
+
+    boolean existsByProfissionalIdAndDataAndHora(Long profissionalId, LocalDate data, LocalTime hora);
+
+    @Query("SELECT new br.com.susagenda.repository.projection.VagaRestanteProjection(v.profissional.id, v.data, v.hora, v.restantes) " +
+            "FROM Vaga v WHERE v.profissional.id IN :profissionalIds AND v.data BETWEEN :dataInicio AND :dataFim AND v.restantes > 0 " +
+            "ORDER BY v.profissional.id, v.data, v.hora")
+    List<VagaRestanteProjection> findDisponiveis(
+            @Param("profissionalIds") Collection<Long> profissionalIds,
+            @Param("dataInicio") LocalDate dataInicio,
+            @Param("dataFim") LocalDate dataFim
+    );
+
+    /**
+     * Vagas posteriores à posição (data, hora, profissional) em ordem cronológica, para paginação por cursor.
+     */
+    @Query("SELECT new br.com.susagenda.repository.projection.VagaRestanteProjection(v.profissional.id, v.data, v.hora, v.restantes) " +
+            "FROM Vaga v WHERE v.profissional.id IN :profissionalIds AND v.restantes > 0 AND v.data <= :dataFim " +
+            "AND (v.data > :data OR (v.data = :data AND (v.hora > :hora OR (v.hora = :hora AND v.profissional.id > :profissionalId)))) " +
+            "ORDER BY v.data, v.hora, v.profissional.id")
+    List<VagaRestanteProjection> findDisponiveisApos(
+            @Param("profissionalIds") Collection<Long> profissionalIds,
+            @Param("data") LocalDate data,
+            @Param("hora") LocalTime hora,
+            @Param("profissionalId") Long profissionalId,
+            @Param("dataFim") LocalDate dataFim,
+            Pageable pageable
+    );
+
+    /**
+     * Horários com vaga dos profissionais ativos da especialidade, com a unidade de cada um.
+     */
+    @Query("SELECT new br.com.susagenda.repository.projection.VagaLivreProjection(p.id, p.unidadeSaude.id, v.data, v.hora, v.restantes) " +
+            "FROM Vaga v JOIN v.profissional p WHERE p.especialidade = :especialidade AND p.ativo = true " +
+            "AND v.restantes > 0 AND v.data BETWEEN :dataInicio AND :dataFim")
+    List<VagaLivreProjection> findLivresPorEspecialidade(
+            @Param("especialidade") Especialidade especialidade,
+            @Param("dataInicio") LocalDate dataInicio,
+            @Param("dataFim") LocalDate dataFim
+    );
+
+    @Query("SELECT new br.com.susagenda.domain.model.SlotAgenda(v.profissional.id, v.data, v.hora) FROM Vaga v WHERE v.profissional.id IN :profissionalIds AND v.data BETWEEN :dataInicio AND :dataFim")
+    List<SlotAgenda> findSlotsMaterializados(
+            @Param("profissionalIds") Collection<Long> profissionalIds,
+            @Param("dataInicio") LocalDate dataInicio,
+            @Param("dataFim") LocalDate dataFim
+    );
+
+    @Modifying
+    @Query("UPDATE Vaga v SET v.restantes = v.restantes - 1, v.updatedAt = CURRENT_TIMESTAMP WHERE v.profissional.id = :profissionalId AND v.data = :data AND v.hora = :hora AND v.restantes > 0")
+    int decrementar(
+            @Param("profissionalId") Long profissionalId,
+            @Param("data") LocalDate data,
+            @Param("hora") LocalTime hora
+    );
+
+    @Modifying
+    @Query("UPDATE Vaga v SET v.restantes = v.restantes + 1, v.updatedAt = CURRENT_TIMESTAMP WHERE v.profissional.id = :profissionalId AND v.data = :data AND v.hora = :hora AND v.restantes < v.capacidade")
+    int incrementar(
+            @Param("profissionalId") Long profissionalId,
+            @Param("data") LocalDate data,
+            @Param("hora") LocalTime hora
+    );
+
+    @Modifying
+    @Query("DELETE FROM Vaga v WHERE v.profissional.id = :profissionalId AND v.data >= :data")
+    int deleteByProfissionalIdAPartirDe(@Param("profissionalId") Long profissionalId, @Param("data") LocalDate data);
+
+    @Modifying
+    @Query("DELETE FROM Vaga v WHERE v.data < :data")
+    int deleteAnterioresA(@Param("data") LocalDate data);
+}
@@ -0,0 +1,36 @@
+package br.com.susagenda.repository;
+
+import br.com.susagenda.domain.entity.VersaoRegrasTriagem;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface VersaoRegrasTriagemRepository extends JpaRepository<VersaoRegrasTriagem, Long> {
+
+    Optional<VersaoRegrasTriagem> findByVersao(Integer versao);
+
+    Optional<VersaoRegrasTriagem> findByAtivaTrue();
+
+    List<VersaoRegrasTriagem> findAllByOrderByVersaoDesc();
+
+    @Query("SELECT COALESCE(MAX(v.versao), 0) FROM VersaoRegrasTriagem v")
+    int findUltimaVersao();
+
+    /**
+     * Primeira versão publicada, bloqueada ({@code SELECT ... FOR UPDATE}) até o fim da transação.
+     * Ela nunca muda, então publicações e ativações de todas as instâncias esperam pela mesma linha.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<VersaoRegrasTriagem> findFirstByOrderByVersaoAsc();
+
+    @Modifying
+    @Query("UPDATE VersaoRegrasTriagem v SET v.ativa = false WHERE v.ativa = true")
+    int desativarTodas();
+}
@@ -0,0 +1,11 @@
+package br.com.susagenda.repository.projection;
+
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.model.SlotAgenda;
+
+/**
+ * Agendamento bloqueado para atualização ({@code SELECT ... FOR UPDATE}) durante uma transição de status em lote.
+ */
+public record AgendamentoBloqueadoProjection(Long id, SlotAgenda slot, Long pacienteId, Long unidadeSaudeId,
+                                             StatusAgendamento status, Long versao) {
+}
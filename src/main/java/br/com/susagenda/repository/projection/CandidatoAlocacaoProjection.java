@@ -0,0 +1,12 @@
+package br.com.susagenda.repository.projection;
+
+import br.com.susagenda.domain.enums.Prioridade;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada da lista de espera aguardando, com o que o otimizador de alocação precisa.
+ */
+public record CandidatoAlocacaoProjection(Long id, Long pacienteId, Prioridade prioridade, Long pontuacaoPrioridade,
+                                          LocalDateTime dataSolicitacao, Long unidadeSaudePreferidaId) {
+}
@@ -0,0 +1,9 @@
+package br.com.susagenda.repository.projection;
+
+import br.com.susagenda.domain.enums.Especialidade;
+
+/**
+ * Quantidade de entradas aguardando na lista de espera de uma especialidade.
+ */
+public record ContagemEspecialidadeProjection(Especialidade especialidade, Long quantidade) {
+}
@@ -0,0 +1,9 @@
+package br.com.susagenda.repository.projection;
+
+import br.com.susagenda.domain.enums.StatusItemPlanoAlocacao;
+
+/**
+ * Quantidade de itens de um plano de alocação em cada status.
+ */
+public record ContagemItensPlanoProjection(StatusItemPlanoAlocacao status, Long quantidade) {
+}
@@ -0,0 +1,7 @@
+package br.com.susagenda.repository.projection;
+
+/**
+ * Quantidade de entradas aguardando na lista de espera que preferem uma unidade de saúde.
+ */
+public record ContagemUnidadeProjection(Long unidadeSaudeId, Long quantidade) {
+}
@@ -0,0 +1,9 @@
+package br.com.susagenda.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Campos da lista de espera que definem a ordem de atendimento, sem paciente nem unidade.
+ */
+public record EntradaFilaProjection(Long id, Long pontuacaoPrioridade, LocalDateTime dataSolicitacao) {
+}
@@ -0,0 +1,9 @@
+package br.com.susagenda.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Identificação e prazo de uma reserva de vaga, usados para agendar a sua expiração.
+ */
+public record ExpiracaoReservaProjection(Long id, LocalDateTime expiraEm) {
+}
@@ -0,0 +1,19 @@
+package br.com.susagenda.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Quantidade de agendamentos ativos (não cancelados e com comparecimento possível)
+ * de um profissional em um horário específico.
+ */
+public interface OcupacaoHorarioProjection {
+
+    Long getProfissionalId();
+
+    LocalDate getData();
+
+    LocalTime getHora();
+
+    Long getTotal();
+}
@@ -0,0 +1,12 @@
+package br.com.susagenda.repository.projection;
+
+import br.com.susagenda.domain.enums.Prioridade;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada aguardando com a pontuação gravada e os campos de que ela é calculada.
+ */
+public record PontuacaoFilaProjection(Long id, Prioridade prioridade, LocalDateTime dataSolicitacao,
+                                      Long pontuacaoPrioridade) {
+}
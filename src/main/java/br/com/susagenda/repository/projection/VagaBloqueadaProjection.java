@@ -0,0 +1,9 @@
+package br.com.susagenda.repository.projection;
+
+import br.com.susagenda.domain.model.SlotAgenda;
+
+/**
+ * Linha do inventário bloqueada para atualização ({@code SELECT ... FOR UPDATE}) durante um agendamento em lote.
+ */
+public record VagaBloqueadaProjection(Long id, SlotAgenda slot, int restantes) {
+}
@@ -0,0 +1,11 @@
+package br.com.susagenda.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Horário do inventário com vagas restantes, com a unidade do profissional.
+ */
+public record VagaLivreProjection(Long profissionalId, Long unidadeSaudeId, LocalDate data, LocalTime hora,
+                                  Integer restantes) {
+}
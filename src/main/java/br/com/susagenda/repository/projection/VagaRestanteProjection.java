@@ -0,0 +1,10 @@
+package br.com.susagenda.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Linha do inventário de vagas sem a entidade completa, usada nas leituras de disponibilidade.
+ */
+public record VagaRestanteProjection(Long profissionalId, LocalDate data, LocalTime hora, Integer restantes) {
+}
@@ -0,0 +1,380 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.HorarioDisponivel;
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoEventoAgendamento;
+import br.com.susagenda.domain.event.AgendamentoAlteradoEvent;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.domain.event.VagaOcupadaEvent;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.request.TransicaoLoteRequest;
+import br.com.susagenda.dto.response.AgendamentoLoteResponse;
+import br.com.susagenda.dto.response.ResultadoAgendamentoLoteResponse;
+import br.com.susagenda.dto.response.TransicaoLoteResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.repository.HorarioDisponivelRepository;
+import br.com.susagenda.repository.PacienteRepository;
+import br.com.susagenda.repository.ProfissionalRepository;
+import br.com.susagenda.repository.projection.AgendamentoBloqueadoProjection;
+import br.com.susagenda.repository.projection.VagaBloqueadaProjection;
+import br.com.susagenda.service.eventos.OutboxAgendamentos;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.*;
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Operações em lote sobre agendamentos: criação para mutirões e campanhas e transições de status
+ * da agenda do dia (confirmação, não comparecimento e cancelamento).
+ *
+ * <p>Na criação, pacientes, profissionais e horários de atendimento são carregados uma vez para o
+ * lote inteiro; as linhas do inventário dos horários envolvidos são bloqueadas, a capacidade é
+ * distribuída em memória na ordem dos itens e os agendamentos são gravados com lotes JDBC. Cada item
+ * recebe o próprio resultado: itens recusados não impedem a gravação dos demais.</p>
+ *
+ * <p>Nas transições, os agendamentos são bloqueados em ordem de ID, os que estão em um status de
+ * origem permitido são alterados por um único {@code UPDATE} e as vagas liberadas voltam ao
+ * inventário em um lote JDBC. Os demais IDs são devolvidos como recusados.</p>
+ *
+ * <p>Os eventos de cada agendamento criado ou alterado vão para a tabela de eventos na mesma
+ * transação, também em lote.</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgendamentoLoteService {
+
+    private static final String SQL_INSERIR_AGENDAMENTO =
+            "INSERT INTO agendamentos (paciente_id, profissional_id, unidade_saude_id, data_agendamento, hora_agendamento, " +
+            "tipo_atendimento, status, observacoes, created_at, updated_at, versao) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    /** IDs por instrução de bloqueio e de atualização nas transições de status. */
+    private static final int TAMANHO_LOTE_TRANSICAO = 1000;
+
+    private static final String SQL_BLOQUEAR_AGENDAMENTOS =
+            "SELECT id, paciente_id, profissional_id, unidade_saude_id, data_agendamento, hora_agendamento, status, versao " +
+            "FROM agendamentos WHERE id IN (%s) ORDER BY id FOR UPDATE";
+
+    private static final Set<StatusAgendamento> ORIGENS_CONFIRMACAO = EnumSet.of(StatusAgendamento.AGENDADO);
+    private static final Set<StatusAgendamento> ORIGENS_NAO_COMPARECIMENTO =
+            EnumSet.of(StatusAgendamento.AGENDADO, StatusAgendamento.CONFIRMADO);
+    private static final Set<StatusAgendamento> ORIGENS_CANCELAMENTO =
+            EnumSet.complementOf(EnumSet.of(StatusAgendamento.CONCLUIDO, StatusAgendamento.CANCELADO));
+
+    private static final Map<TipoEventoAgendamento, StatusAgendamento> STATUS_POR_EVENTO = Map.of(
+            TipoEventoAgendamento.CONFIRMADO, StatusAgendamento.CONFIRMADO,
+            TipoEventoAgendamento.NAO_COMPARECEU, StatusAgendamento.NAO_COMPARECEU,
+            TipoEventoAgendamento.CANCELADO, StatusAgendamento.CANCELADO);
+
+    private final AgendamentoRepository agendamentoRepository;
+    private final PacienteRepository pacienteRepository;
+    private final ProfissionalRepository profissionalRepository;
+    private final HorarioDisponivelRepository horarioDisponivelRepository;
+    private final VagaInventarioService vagaInventarioService;
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxAgendamentos outboxAgendamentos;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public AgendamentoLoteResponse criarEmLote(List<AgendamentoRequest> itens) {
+        log.info("Criando lote de {} agendamentos", itens.size());
+        long inicio = System.nanoTime();
+
+        Set<Long> pacientes = new HashSet<>(pacienteRepository.findIdsExistentes(
+                itens.stream().map(AgendamentoRequest::getPacienteId).collect(Collectors.toSet())));
+        Map<Long, Profissional> profissionais = profissionalRepository.findComUnidadeByIdIn(
+                        itens.stream().map(AgendamentoRequest::getProfissionalId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Profissional::getId, Function.identity()));
+        Map<Long, Map<DayOfWeek, List<HorarioDisponivel>>> horarios = profissionais.isEmpty()
+                ? Collections.emptyMap()
+                : horarioDisponivelRepository.findAtivosAgrupados(profissionais.keySet());
+
+        ResultadoAgendamentoLoteResponse[] resultados = new ResultadoAgendamentoLoteResponse[itens.size()];
+        Map<SlotAgenda, Integer> capacidades = new HashMap<>();
+        for (int i = 0; i < itens.size(); i++) {
+            AgendamentoRequest item = itens.get(i);
+            String erro = validar(item, pacientes, profissionais, horarios, capacidades);
+            if (erro != null) {
+                resultados[i] = recusado(i, erro);
+            }
+        }
+
+        // distribui a capacidade na ordem dos itens, com as linhas do inventário bloqueadas
+        Map<SlotAgenda, VagaBloqueadaProjection> vagas = vagaInventarioService.bloquear(capacidades);
+        Map<SlotAgenda, Integer> restantes = new HashMap<>();
+        vagas.forEach((slot, vaga) -> restantes.put(slot, vaga.restantes()));
+        Map<Long, Integer> consumo = new HashMap<>();
+        List<Integer> aceitos = new ArrayList<>();
+
+        for (int i = 0; i < itens.size(); i++) {
+            if (resultados[i] != null) {
+                continue;
+            }
+            SlotAgenda slot = slot(itens.get(i));
+            int disponiveis = restantes.getOrDefault(slot, 0);
+            if (disponiveis <= 0) {
+                resultados[i] = recusado(i, "Não há vagas disponíveis neste horário. Tente outro horário.");
+                continue;
+            }
+            restantes.put(slot, disponiveis - 1);
+            consumo.merge(vagas.get(slot).id(), 1, Integer::sum);
+            aceitos.add(i);
+        }
+
+        vagaInventarioService.consumir(consumo);
+        LocalDateTime agora = LocalDateTime.now();
+        List<Long> ids = inserir(itens, aceitos, profissionais, agora);
+
+        List<AgendamentoAlteradoEvent> eventos = new ArrayList<>(aceitos.size());
+        for (int a = 0; a < aceitos.size(); a++) {
+            int i = aceitos.get(a);
+            AgendamentoRequest item = itens.get(i);
+            Profissional profissional = profissionais.get(item.getProfissionalId());
+            resultados[i] = ResultadoAgendamentoLoteResponse.builder()
+                    .indice(i)
+                    .sucesso(true)
+                    .agendamentoId(ids.get(a))
+                    .build();
+            eventos.add(new AgendamentoAlteradoEvent(null, ids.get(a), TipoEventoAgendamento.CRIADO,
+                    StatusAgendamento.AGENDADO, 0L, item.getPacienteId(), profissional.getId(),
+                    profissional.getUnidadeSaude().getId(), item.getDataAgendamento(), item.getHoraAgendamento(), agora));
+            eventPublisher.publishEvent(new VagaOcupadaEvent(profissional.getId(), profissional.getEspecialidade(),
+                    profissional.getUnidadeSaude().getId(), item.getDataAgendamento(), item.getHoraAgendamento()));
+        }
+        outboxAgendamentos.registrarTodos(eventos);
+
+        log.info("Lote de agendamentos processado em {} ms: {} agendados, {} recusados",
+                (System.nanoTime() - inicio) / 1_000_000, aceitos.size(), itens.size() - aceitos.size());
+
+        return AgendamentoLoteResponse.builder()
+                .total(itens.size())
+                .agendados(aceitos.size())
+                .recusados(itens.size() - aceitos.size())
+                .resultados(Arrays.asList(resultados))
+                .build();
+    }
+
+    /**
+     * Confirma os agendamentos com status 'AGENDADO'.
+     */
+    @Transactional
+    public TransicaoLoteResponse confirmarEmLote(TransicaoLoteRequest request) {
+        return transicionar("Confirmando", request, ORIGENS_CONFIRMACAO, TipoEventoAgendamento.CONFIRMADO, false,
+                (ids, agora) -> agendamentoRepository.confirmarEmLote(ids, ORIGENS_CONFIRMACAO, agora));
+    }
+
+    /**
+     * Marca como não compareceu os agendamentos 'AGENDADO' ou 'CONFIRMADO' e devolve as vagas.
+     */
+    @Transactional
+    public TransicaoLoteResponse marcarNaoCompareceuEmLote(TransicaoLoteRequest request) {
+        return transicionar("Marcando não comparecimento de", request, ORIGENS_NAO_COMPARECIMENTO,
+                TipoEventoAgendamento.NAO_COMPARECEU, true,
+                (ids, agora) -> agendamentoRepository.marcarNaoCompareceuEmLote(ids, ORIGENS_NAO_COMPARECIMENTO, agora));
+    }
+
+    /**
+     * Cancela os agendamentos que não estão concluídos nem cancelados e devolve as vagas ocupadas.
+     */
+    @Transactional
+    public TransicaoLoteResponse cancelarEmLote(TransicaoLoteRequest request) {
+        if (request.getMotivo() == null || request.getMotivo().isBlank()) {
+            throw new BusinessException("Motivo do cancelamento é obrigatório");
+        }
+        return transicionar("Cancelando", request, ORIGENS_CANCELAMENTO, TipoEventoAgendamento.CANCELADO, true,
+                (ids, agora) -> agendamentoRepository.cancelarEmLote(ids, ORIGENS_CANCELAMENTO, request.getMotivo(), agora));
+    }
+
+    private TransicaoLoteResponse transicionar(String acao, TransicaoLoteRequest request, Set<StatusAgendamento> origens,
+                                               TipoEventoAgendamento tipo, boolean liberaVaga,
+                                               BiFunction<List<Long>, LocalDateTime, Integer> atualizacao) {
+        List<Long> ids = resolverIds(request);
+        log.info("{} {} agendamentos em lote", acao, ids.size());
+
+        List<AgendamentoBloqueadoProjection> aceitos = new ArrayList<>();
+        for (List<Long> lote : particionar(ids)) {
+            bloquear(lote).stream()
+                    .filter(agendamento -> origens.contains(agendamento.status()))
+                    .forEach(aceitos::add);
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        List<Long> idsAceitos = aceitos.stream().map(AgendamentoBloqueadoProjection::id).collect(Collectors.toList());
+        int alterados = 0;
+        for (List<Long> lote : particionar(idsAceitos)) {
+            alterados += atualizacao.apply(lote, agora);
+        }
+
+        StatusAgendamento destino = STATUS_POR_EVENTO.get(tipo);
+        outboxAgendamentos.registrarTodos(aceitos.stream()
+                .map(a -> new AgendamentoAlteradoEvent(null, a.id(), tipo, destino, a.versao() + 1, a.pacienteId(),
+                        a.slot().profissionalId(), a.unidadeSaudeId(), a.slot().data(), a.slot().hora(), agora))
+                .collect(Collectors.toList()));
+
+        if (liberaVaga) {
+            liberarVagas(aceitos.stream().filter(a -> a.status().ocupaVaga()).collect(Collectors.toList()));
+        }
+
+        Set<Long> alteradosIds = new HashSet<>(idsAceitos);
+        List<Long> recusados = ids.stream().filter(id -> !alteradosIds.contains(id)).collect(Collectors.toList());
+        log.info("{} agendamentos alterados em lote, {} recusados", alterados, recusados.size());
+
+        return TransicaoLoteResponse.builder()
+                .solicitados(ids.size())
+                .alterados(alterados)
+                .recusados(recusados)
+                .build();
+    }
+
+    /**
+     * IDs informados (sem repetição) ou, na falta deles, todos os agendamentos da unidade na data.
+     */
+    private List<Long> resolverIds(TransicaoLoteRequest request) {
+        if (request.getIds() != null && !request.getIds().isEmpty()) {
+            return new ArrayList<>(new LinkedHashSet<>(request.getIds()));
+        }
+        if (request.getUnidadeSaudeId() == null || request.getData() == null) {
+            throw new BusinessException("Informe os IDs dos agendamentos ou a unidade de saúde e a data");
+        }
+        return agendamentoRepository.findIdsByUnidadeAndData(request.getUnidadeSaudeId(), request.getData());
+    }
+
+    private List<AgendamentoBloqueadoProjection> bloquear(List<Long> ids) {
+        String sql = String.format(SQL_BLOQUEAR_AGENDAMENTOS, String.join(", ", Collections.nCopies(ids.size(), "?")));
+        return jdbcTemplate.query(sql, (rs, linha) -> new AgendamentoBloqueadoProjection(
+                rs.getLong("id"),
+                new SlotAgenda(rs.getLong("profissional_id"), rs.getDate("data_agendamento").toLocalDate(),
+                        rs.getTime("hora_agendamento").toLocalTime()),
+                rs.getLong("paciente_id"),
+                rs.getLong("unidade_saude_id"),
+                StatusAgendamento.valueOf(rs.getString("status")),
+                rs.getLong("versao")), ids.toArray());
+    }
+
+    private void liberarVagas(List<AgendamentoBloqueadoProjection> liberados) {
+        if (liberados.isEmpty()) {
+            return;
+        }
+
+        Map<SlotAgenda, Integer> porHorario = new HashMap<>();
+        liberados.forEach(a -> porHorario.merge(a.slot(), 1, Integer::sum));
+        vagaInventarioService.liberar(porHorario);
+
+        Map<Long, Especialidade> especialidades = profissionalRepository.findAllById(
+                        porHorario.keySet().stream().map(SlotAgenda::profissionalId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Profissional::getId, Profissional::getEspecialidade));
+        for (AgendamentoBloqueadoProjection agendamento : liberados) {
+            SlotAgenda slot = agendamento.slot();
+            eventPublisher.publishEvent(new VagaLiberadaEvent(slot.profissionalId(), especialidades.get(slot.profissionalId()),
+                    agendamento.unidadeSaudeId(), slot.data(), slot.hora()));
+        }
+    }
+
+    private static List<List<Long>> particionar(List<Long> ids) {
+        List<List<Long>> lotes = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += TAMANHO_LOTE_TRANSICAO) {
+            lotes.add(ids.subList(i, Math.min(i + TAMANHO_LOTE_TRANSICAO, ids.size())));
+        }
+        return lotes;
+    }
+
+    /**
+     * Mesmas regras do agendamento individual; registra a capacidade do horário quando o item é válido.
+     *
+     * @return a mensagem de recusa, ou {@code null} quando o item pode disputar a vaga
+     */
+    private String validar(AgendamentoRequest item, Set<Long> pacientes, Map<Long, Profissional> profissionais,
+                           Map<Long, Map<DayOfWeek, List<HorarioDisponivel>>> horarios,
+                           Map<SlotAgenda, Integer> capacidades) {
+        if (!pacientes.contains(item.getPacienteId())) {
+            return String.format("Paciente não encontrado(a) com ID: %d", item.getPacienteId());
+        }
+        if (!profissionais.containsKey(item.getProfissionalId())) {
+            return String.format("Profissional não encontrado(a) com ID: %d", item.getProfissionalId());
+        }
+
+        List<HorarioDisponivel> doDia = horarios.getOrDefault(item.getProfissionalId(), Collections.emptyMap())
+                .getOrDefault(item.getDataAgendamento().getDayOfWeek(), Collections.emptyList());
+        if (doDia.isEmpty()) {
+            return "O profissional não possui horário de atendimento configurado para esta data";
+        }
+
+        LocalTime hora = item.getHoraAgendamento();
+        Optional<HorarioDisponivel> horario = doDia.stream()
+                .filter(h -> !hora.isBefore(h.getHoraInicio()) && hora.isBefore(h.getHoraFim()))
+                .findFirst();
+        if (horario.isEmpty()) {
+            return "O horário solicitado não está dentro do período de atendimento do profissional";
+        }
+
+        capacidades.putIfAbsent(slot(item), horario.get().getVagasPorHorario());
+        return null;
+    }
+
+    private List<Long> inserir(List<AgendamentoRequest> itens, List<Integer> aceitos, Map<Long, Profissional> profissionais,
+                               LocalDateTime criadoEm) {
+        if (aceitos.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Timestamp agora = Timestamp.valueOf(criadoEm);
+        GeneratedKeyHolder chaves = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(SQL_INSERIR_AGENDAMENTO, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int linha) throws SQLException {
+                        AgendamentoRequest item = itens.get(aceitos.get(linha));
+                        Profissional profissional = profissionais.get(item.getProfissionalId());
+                        ps.setLong(1, item.getPacienteId());
+                        ps.setLong(2, profissional.getId());
+                        ps.setLong(3, profissional.getUnidadeSaude().getId());
+                        ps.setDate(4, Date.valueOf(item.getDataAgendamento()));
+                        ps.setTime(5, Time.valueOf(item.getHoraAgendamento()));
+                        ps.setString(6, item.getTipoAtendimento().name());
+                        ps.setString(7, StatusAgendamento.AGENDADO.name());
+                        ps.setString(8, item.getObservacoes());
+                        ps.setTimestamp(9, agora);
+                        ps.setTimestamp(10, agora);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return aceitos.size();
+                    }
+                }, chaves);
+
+        return chaves.getKeyList().stream()
+                .map(linha -> ((Number) linha.values().iterator().next()).longValue())
+                .collect(Collectors.toList());
+    }
+
+    private static SlotAgenda slot(AgendamentoRequest item) {
+        return new SlotAgenda(item.getProfissionalId(), item.getDataAgendamento(), item.getHoraAgendamento());
+    }
+
+    private static ResultadoAgendamentoLoteResponse recusado(int indice, String mensagem) {
+        return ResultadoAgendamentoLoteResponse.builder()
+                .indice(indice)
+                .sucesso(false)
+                .mensagem(mensagem)
+                .build();
+    }
+}
@@ -3,23 +3,43 @@ package br.com.susagenda.service;
 import br.com.susagenda.domain.entity.*;
 import br.com.susagenda.domain.enums.Especialidade;
 import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoEventoAgendamento;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.domain.event.VagaOcupadaEvent;
+import br.com.susagenda.domain.model.CursorVaga;
 import br.com.susagenda.dto.request.AgendamentoRequest;
 import br.com.susagenda.dto.request.CancelarAgendamentoRequest;
+import br.com.susagenda.dto.request.ConfirmarReservaRequest;
+import br.com.susagenda.dto.request.ReservaVagaRequest;
 import br.com.susagenda.dto.response.AgendamentoResponse;
+import br.com.susagenda.dto.response.PaginaVagasResponse;
+import br.com.susagenda.dto.response.ReservaVagaResponse;
 import br.com.susagenda.dto.response.VagaDisponivelResponse;
 import br.com.susagenda.exception.BusinessException;
 import br.com.susagenda.exception.HorarioIndisponivelException;
 import br.com.susagenda.exception.ResourceNotFoundException;
+import br.com.susagenda.exception.VersaoDesatualizadaException;
 import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import br.com.susagenda.service.calendario.CalendarioVagas;
+import br.com.susagenda.service.calendario.SituacaoHorario;
+import br.com.susagenda.service.eventos.OutboxAgendamentos;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -27,10 +47,22 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AgendamentoService {
 
+    private static final int MAXIMO_PROXIMAS_VAGAS = 50;
+    private static final int MAXIMO_VAGAS_POR_PAGINA = 500;
+
     private final AgendamentoRepository agendamentoRepository;
+    private final ReservaVagaRepository reservaVagaRepository;
     private final PacienteService pacienteService;
     private final ProfissionalService profissionalService;
     private final HorarioDisponivelService horarioDisponivelService;
+    private final DisponibilidadeService disponibilidadeService;
+    private final VagaInventarioService vagaInventarioService;
+    private final CalendarioVagas calendarioVagas;
+    private final VagasDisponiveisCache vagasDisponiveisCache;
+    private final ReservaVagaService reservaVagaService;
+    private final RetentativaOtimista retentativaOtimista;
+    private final OutboxAgendamentos outboxAgendamentos;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public AgendamentoResponse criar(AgendamentoRequest request) {
@@ -54,96 +86,200 @@ public class AgendamentoService {
                 .build();
 
         agendamento = agendamentoRepository.save(agendamento);
+        outboxAgendamentos.registrar(agendamento, TipoEventoAgendamento.CRIADO);
         log.info("Agendamento criado com ID: {}", agendamento.getId());
+        eventPublisher.publishEvent(new VagaOcupadaEvent(profissional.getId(), profissional.getEspecialidade(),
+                profissional.getUnidadeSaude().getId(), agendamento.getDataAgendamento(), agendamento.getHoraAgendamento()));
 
         return toResponse(agendamento);
     }
 
+    /**
+     * Segura a vaga para o paciente pelo prazo configurado enquanto ele preenche o agendamento.
+     * Cada paciente tem no máximo uma reserva: uma nova reserva devolve a vaga da anterior.
+     */
     @Transactional
-    public AgendamentoResponse confirmar(Long id) {
-        log.info("Confirmando agendamento ID: {}", id);
-        Agendamento agendamento = buscarPorId(id);
+    public ReservaVagaResponse reservarHorario(ReservaVagaRequest request) {
+        log.info("Reservando horário {} {} do profissional ID: {} para paciente ID: {}",
+                request.getDataAgendamento(), request.getHoraAgendamento(), request.getProfissionalId(), request.getPacienteId());
 
-        if (agendamento.getStatus() != StatusAgendamento.AGENDADO) {
-            throw new BusinessException("Apenas agendamentos com status 'AGENDADO' podem ser confirmados");
+        Paciente paciente = pacienteService.buscarPorId(request.getPacienteId());
+        Profissional profissional = profissionalService.buscarPorId(request.getProfissionalId());
+        Optional<ReservaVaga> anterior = reservaVagaRepository.findComProfissionalByPacienteId(paciente.getId());
+
+        ReservaVaga reserva;
+        if (anterior.isPresent() && mesmoHorario(anterior.get(), profissional, request)
+                && anterior.get().getExpiraEm().isAfter(LocalDateTime.now())) {
+            // o paciente voltou ao mesmo horário: renova o prazo sem disputar a vaga de novo
+            reserva = anterior.get();
+            reserva.setExpiraEm(reservaVagaService.calcularExpiracao());
+        } else {
+            validarDisponibilidade(profissional, request.getDataAgendamento(), request.getHoraAgendamento());
+            anterior.filter(r -> reservaVagaRepository.remover(r.getId()) == 1)
+                    .ifPresent(reservaVagaService::liberar);
+
+            reserva = ReservaVaga.builder()
+                    .paciente(paciente)
+                    .profissional(profissional)
+                    .data(request.getDataAgendamento())
+                    .hora(request.getHoraAgendamento())
+                    .expiraEm(reservaVagaService.calcularExpiracao())
+                    .build();
+            eventPublisher.publishEvent(new VagaOcupadaEvent(profissional.getId(), profissional.getEspecialidade(),
+                    profissional.getUnidadeSaude().getId(), reserva.getData(), reserva.getHora()));
         }
 
-        agendamento.confirmar();
-        agendamento = agendamentoRepository.save(agendamento);
-        return toResponse(agendamento);
+        reserva = reservaVagaRepository.save(reserva);
+        reservaVagaService.agendarExpiracao(reserva.getId(), reserva.getExpiraEm());
+        log.info("Reserva de vaga ID: {} válida até {}", reserva.getId(), reserva.getExpiraEm());
+        return toReservaResponse(reserva);
     }
 
+    /**
+     * Transforma a reserva em agendamento. A vaga já foi descontada na reserva, então a transação
+     * se resume a remover a reserva e gravar o agendamento.
+     */
     @Transactional
-    public AgendamentoResponse registrarChegada(Long id) {
-        log.info("Registrando chegada para agendamento ID: {}", id);
-        Agendamento agendamento = buscarPorId(id);
+    public AgendamentoResponse confirmarReserva(Long reservaId, ConfirmarReservaRequest request) {
+        log.info("Confirmando reserva de vaga ID: {}", reservaId);
+        ReservaVaga reserva = reservaVagaRepository.findComProfissionalById(reservaId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva de vaga", reservaId));
 
-        if (agendamento.getStatus() != StatusAgendamento.AGENDADO &&
-            agendamento.getStatus() != StatusAgendamento.CONFIRMADO) {
-            throw new BusinessException("Apenas agendamentos com status 'AGENDADO' ou 'CONFIRMADO' podem registrar chegada");
+        if (reservaVagaRepository.consumir(reservaId, LocalDateTime.now()) == 0) {
+            throw new BusinessException("A reserva expirou. Escolha um horário novamente.");
         }
 
-        agendamento.registrarChegada();
-        agendamento = agendamentoRepository.save(agendamento);
+        Profissional profissional = reserva.getProfissional();
+        Agendamento agendamento = agendamentoRepository.save(Agendamento.builder()
+                .paciente(reserva.getPaciente())
+                .profissional(profissional)
+                .unidadeSaude(profissional.getUnidadeSaude())
+                .dataAgendamento(reserva.getData())
+                .horaAgendamento(reserva.getHora())
+                .tipoAtendimento(request.getTipoAtendimento())
+                .status(StatusAgendamento.AGENDADO)
+                .observacoes(request.getObservacoes())
+                .build());
+        outboxAgendamentos.registrar(agendamento, TipoEventoAgendamento.CRIADO);
+        log.info("Agendamento criado com ID: {} a partir da reserva ID: {}", agendamento.getId(), reservaId);
+
         return toResponse(agendamento);
     }
 
     @Transactional
-    public AgendamentoResponse iniciarAtendimento(Long id) {
-        log.info("Iniciando atendimento para agendamento ID: {}", id);
-        Agendamento agendamento = buscarPorId(id);
+    public void cancelarReserva(Long reservaId) {
+        log.info("Cancelando reserva de vaga ID: {}", reservaId);
+        ReservaVaga reserva = reservaVagaRepository.findComProfissionalById(reservaId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva de vaga", reservaId));
 
-        if (agendamento.getDataChegada() == null) {
-            throw new BusinessException("É necessário registrar a chegada do paciente antes de iniciar o atendimento");
+        if (reservaVagaRepository.remover(reservaId) == 1) {
+            reservaVagaService.liberar(reserva);
         }
+    }
 
-        agendamento.iniciarAtendimento();
-        agendamento = agendamentoRepository.save(agendamento);
-        return toResponse(agendamento);
+    public AgendamentoResponse confirmar(Long id) {
+        return confirmar(id, null);
+    }
+
+    public AgendamentoResponse confirmar(Long id, Long versaoEsperada) {
+        log.info("Confirmando agendamento ID: {}", id);
+        return alterar(id, versaoEsperada, TipoEventoAgendamento.CONFIRMADO, agendamento -> {
+            if (agendamento.getStatus() != StatusAgendamento.AGENDADO) {
+                throw new BusinessException("Apenas agendamentos com status 'AGENDADO' podem ser confirmados");
+            }
+
+            agendamento.confirmar();
+            return salvar(agendamento);
+        });
+    }
+
+    public AgendamentoResponse registrarChegada(Long id) {
+        return registrarChegada(id, null);
+    }
+
+    public AgendamentoResponse registrarChegada(Long id, Long versaoEsperada) {
+        log.info("Registrando chegada para agendamento ID: {}", id);
+        return alterar(id, versaoEsperada, TipoEventoAgendamento.CHEGADA_REGISTRADA, agendamento -> {
+            if (agendamento.getStatus() != StatusAgendamento.AGENDADO &&
+                agendamento.getStatus() != StatusAgendamento.CONFIRMADO) {
+                throw new BusinessException("Apenas agendamentos com status 'AGENDADO' ou 'CONFIRMADO' podem registrar chegada");
+            }
+
+            agendamento.registrarChegada();
+            return salvar(agendamento);
+        });
+    }
+
+    public AgendamentoResponse iniciarAtendimento(Long id) {
+        return iniciarAtendimento(id, null);
+    }
+
+    public AgendamentoResponse iniciarAtendimento(Long id, Long versaoEsperada) {
+        log.info("Iniciando atendimento para agendamento ID: {}", id);
+        return alterar(id, versaoEsperada, TipoEventoAgendamento.ATENDIMENTO_INICIADO, agendamento -> {
+            if (agendamento.getDataChegada() == null) {
+                throw new BusinessException("É necessário registrar a chegada do paciente antes de iniciar o atendimento");
+            }
+
+            agendamento.iniciarAtendimento();
+            return salvar(agendamento);
+        });
     }
 
-    @Transactional
     public AgendamentoResponse concluirAtendimento(Long id) {
-        log.info("Concluindo atendimento para agendamento ID: {}", id);
-        Agendamento agendamento = buscarPorId(id);
+        return concluirAtendimento(id, null);
+    }
 
-        if (agendamento.getStatus() != StatusAgendamento.EM_ATENDIMENTO) {
-            throw new BusinessException("Apenas agendamentos 'EM_ATENDIMENTO' podem ser concluídos");
-        }
+    public AgendamentoResponse concluirAtendimento(Long id, Long versaoEsperada) {
+        log.info("Concluindo atendimento para agendamento ID: {}", id);
+        return alterar(id, versaoEsperada, TipoEventoAgendamento.ATENDIMENTO_CONCLUIDO, agendamento -> {
+            if (agendamento.getStatus() != StatusAgendamento.EM_ATENDIMENTO) {
+                throw new BusinessException("Apenas agendamentos 'EM_ATENDIMENTO' podem ser concluídos");
+            }
 
-        agendamento.concluirAtendimento();
-        agendamento = agendamentoRepository.save(agendamento);
-        return toResponse(agendamento);
+            agendamento.concluirAtendimento();
+            return salvar(agendamento);
+        });
     }
 
-    @Transactional
     public AgendamentoResponse cancelar(Long id, CancelarAgendamentoRequest request) {
-        log.info("Cancelando agendamento ID: {}", id);
-        Agendamento agendamento = buscarPorId(id);
+        return cancelar(id, request, null);
+    }
 
-        if (agendamento.getStatus() == StatusAgendamento.CONCLUIDO ||
-            agendamento.getStatus() == StatusAgendamento.CANCELADO) {
-            throw new BusinessException("Não é possível cancelar um agendamento já concluído ou cancelado");
-        }
+    public AgendamentoResponse cancelar(Long id, CancelarAgendamentoRequest request, Long versaoEsperada) {
+        log.info("Cancelando agendamento ID: {}", id);
+        return alterar(id, versaoEsperada, TipoEventoAgendamento.CANCELADO, agendamento -> {
+            if (agendamento.getStatus() == StatusAgendamento.CONCLUIDO ||
+                agendamento.getStatus() == StatusAgendamento.CANCELADO) {
+                throw new BusinessException("Não é possível cancelar um agendamento já concluído ou cancelado");
+            }
 
-        agendamento.cancelar(request.getMotivo());
-        agendamento = agendamentoRepository.save(agendamento);
-        return toResponse(agendamento);
+            StatusAgendamento statusAnterior = agendamento.getStatus();
+            agendamento.cancelar(request.getMotivo());
+            agendamento = salvar(agendamento);
+            liberarVaga(agendamento, statusAnterior);
+            return agendamento;
+        });
     }
 
-    @Transactional
     public AgendamentoResponse marcarNaoCompareceu(Long id) {
-        log.info("Marcando não comparecimento para agendamento ID: {}", id);
-        Agendamento agendamento = buscarPorId(id);
+        return marcarNaoCompareceu(id, null);
+    }
 
-        if (agendamento.getStatus() != StatusAgendamento.AGENDADO &&
-            agendamento.getStatus() != StatusAgendamento.CONFIRMADO) {
-            throw new BusinessException("Apenas agendamentos 'AGENDADO' ou 'CONFIRMADO' podem ser marcados como não compareceu");
-        }
+    public AgendamentoResponse marcarNaoCompareceu(Long id, Long versaoEsperada) {
+        log.info("Marcando não comparecimento para agendamento ID: {}", id);
+        return alterar(id, versaoEsperada, TipoEventoAgendamento.NAO_COMPARECEU, agendamento -> {
+            if (agendamento.getStatus() != StatusAgendamento.AGENDADO &&
+                agendamento.getStatus() != StatusAgendamento.CONFIRMADO) {
+                throw new BusinessException("Apenas agendamentos 'AGENDADO' ou 'CONFIRMADO' podem ser marcados como não compareceu");
+            }
 
-        agendamento.marcarNaoCompareceu();
-        agendamento = agendamentoRepository.save(agendamento);
-        return toResponse(agendamento);
+            StatusAgendamento statusAnterior = agendamento.getStatus();
+            agendamento.marcarNaoCompareceu();
+            agendamento = salvar(agendamento);
+            liberarVaga(agendamento, statusAnterior);
+            return agendamento;
+        });
     }
 
     @Transactional(readOnly = true)
@@ -193,56 +329,89 @@ public class AgendamentoService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
-    public List<VagaDisponivelResponse> buscarVagasDisponiveis(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim) {
-        log.info("Buscando vagas disponíveis para especialidade {} entre {} e {}",
-                especialidade, dataInicio, dataFim);
+    public List<VagaDisponivelResponse> buscarVagasDisponiveis(Especialidade especialidade, Long unidadeSaudeId,
+                                                              LocalDate dataInicio, LocalDate dataFim) {
+        log.info("Buscando vagas disponíveis para especialidade {} entre {} e {} (unidade: {})",
+                especialidade, dataInicio, dataFim, unidadeSaudeId);
 
-        List<Profissional> profissionais = profissionalService.buscarPorEspecialidade(especialidade).stream()
-                .map(p -> profissionalService.buscarPorId(p.getId()))
-                .collect(Collectors.toList());
+        if (unidadeSaudeId == null) {
+            return vagasDisponiveisCache.obter(especialidade, null, dataInicio, dataFim,
+                    () -> disponibilidadeService.buscarVagasDisponiveis(especialidade, dataInicio, dataFim));
+        }
+        return vagasDisponiveisCache.obter(especialidade, unidadeSaudeId, dataInicio, dataFim,
+                () -> buscarVagasDisponiveis(especialidade, null, dataInicio, dataFim).stream()
+                        .filter(vaga -> unidadeSaudeId.equals(vaga.getUnidadeSaudeId()))
+                        .collect(Collectors.toList()));
+    }
+
+    public PaginaVagasResponse buscarPaginaVagas(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim,
+                                                 String cursor, int tamanho) {
+        log.info("Buscando página de vagas para especialidade {} entre {} e {} (cursor: {}, tamanho: {})",
+                especialidade, dataInicio, dataFim, cursor, tamanho);
+
+        if (tamanho < 1 || tamanho > MAXIMO_VAGAS_POR_PAGINA) {
+            throw new BusinessException("O tamanho da página deve estar entre 1 e " + MAXIMO_VAGAS_POR_PAGINA);
+        }
 
-        List<VagaDisponivelResponse> vagas = new ArrayList<>();
-
-        for (Profissional profissional : profissionais) {
-            LocalDate data = dataInicio;
-            while (!data.isAfter(dataFim)) {
-                List<HorarioDisponivel> horarios = horarioDisponivelService.buscarPorProfissionalEData(
-                        profissional.getId(), data);
-
-                for (HorarioDisponivel horario : horarios) {
-                    LocalTime horaAtual = horario.getHoraInicio();
-                    while (horaAtual.isBefore(horario.getHoraFim())) {
-                        int agendamentosNoHorario = agendamentoRepository.countAgendamentosNoHorario(
-                                profissional.getId(), data, horaAtual);
-
-                        int vagasDisponiveis = horario.getVagasPorHorario() - agendamentosNoHorario;
-
-                        if (vagasDisponiveis > 0) {
-                            vagas.add(VagaDisponivelResponse.builder()
-                                    .profissionalId(profissional.getId())
-                                    .profissionalNome(profissional.getNome())
-                                    .especialidade(profissional.getEspecialidade().getDescricao())
-                                    .unidadeSaudeId(profissional.getUnidadeSaude().getId())
-                                    .unidadeSaudeNome(profissional.getUnidadeSaude().getNome())
-                                    .unidadeSaudeEndereco(profissional.getUnidadeSaude().getEndereco())
-                                    .data(data)
-                                    .horario(horaAtual)
-                                    .vagasDisponiveis(vagasDisponiveis)
-                                    .build());
-                        }
-
-                        horaAtual = horaAtual.plusMinutes(horario.getDuracaoConsultaMinutos());
-                    }
-                }
-                data = data.plusDays(1);
+        CursorVaga posicao = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                posicao = CursorVaga.decodificar(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new BusinessException("Cursor de paginação inválido");
             }
         }
 
-        return vagas;
+        return disponibilidadeService.buscarPaginaVagas(especialidade, dataInicio, dataFim, posicao, tamanho);
+    }
+
+    /**
+     * Entrega as vagas do período em lotes, para respostas transmitidas à medida que são produzidas.
+     */
+    public void percorrerVagasDisponiveis(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim,
+                                          Consumer<List<VagaDisponivelResponse>> destino) {
+        log.info("Transmitindo vagas disponíveis para especialidade {} entre {} e {}",
+                especialidade, dataInicio, dataFim);
+
+        disponibilidadeService.percorrerVagas(especialidade, dataInicio, dataFim, MAXIMO_VAGAS_POR_PAGINA, destino);
+    }
+
+    public List<VagaDisponivelResponse> buscarProximasVagas(Especialidade especialidade, Long unidadeSaudeId,
+                                                           String cidade, int quantidade) {
+        log.info("Buscando as {} próximas vagas para especialidade {} (unidade: {}, cidade: {})",
+                quantidade, especialidade, unidadeSaudeId, cidade);
+
+        if (quantidade < 1 || quantidade > MAXIMO_PROXIMAS_VAGAS) {
+            throw new BusinessException("A quantidade de vagas deve estar entre 1 e " + MAXIMO_PROXIMAS_VAGAS);
+        }
+
+        return disponibilidadeService.buscarProximasVagas(especialidade, unidadeSaudeId,
+                cidade == null || cidade.isBlank() ? null : cidade.trim(), quantidade);
     }
 
     private void validarDisponibilidade(Profissional profissional, LocalDate data, LocalTime hora) {
+        // O calendário só acompanha as alterações feitas neste nó: ele dispensa a consulta aos horários
+        // quando indica vaga, mas qualquer outra resposta é conferida no banco. Mesmo com vaga no
+        // calendário, a linha do inventário só é recriada depois de conferir os horários de atendimento,
+        // que podem ter sido desativados ou alterados por outro nó.
+        Optional<SituacaoHorario> situacao = calendarioVagas.consultar(profissional.getId(), data, hora)
+                .filter(s -> s.estado() == SituacaoHorario.Estado.DISPONIVEL);
+        IntSupplier capacidade;
+        if (situacao.isPresent()) {
+            capacidade = () -> validarPelosHorarios(profissional, data, hora);
+        } else {
+            int vagasPorHorario = validarPelosHorarios(profissional, data, hora);
+            capacidade = () -> vagasPorHorario;
+        }
+
+        // Reserva atômica no inventário: o UPDATE condicional impede ultrapassar a capacidade do horário
+        if (!vagaInventarioService.reservar(profissional.getId(), data, hora, capacidade)) {
+            throw new HorarioIndisponivelException(
+                    "Não há vagas disponíveis neste horário. Tente outro horário.");
+        }
+    }
+
+    private int validarPelosHorarios(Profissional profissional, LocalDate data, LocalTime hora) {
         List<HorarioDisponivel> horariosDisponiveis = horarioDisponivelService.buscarPorProfissionalEData(
                 profissional.getId(), data);
 
@@ -264,15 +433,63 @@ public class AgendamentoService {
                 .findFirst()
                 .orElseThrow(() -> new HorarioIndisponivelException("Horário não encontrado"));
 
-        int agendamentosExistentes = agendamentoRepository.countAgendamentosNoHorario(
-                profissional.getId(), data, hora);
+        return horarioDisponivel.getVagasPorHorario();
+    }
 
-        if (agendamentosExistentes >= horarioDisponivel.getVagasPorHorario()) {
-            throw new HorarioIndisponivelException(
-                    "Não há vagas disponíveis neste horário. Tente outro horário.");
+    private boolean mesmoHorario(ReservaVaga reserva, Profissional profissional, ReservaVagaRequest request) {
+        return reserva.getProfissional().getId().equals(profissional.getId())
+                && reserva.getData().equals(request.getDataAgendamento())
+                && reserva.getHora().equals(request.getHoraAgendamento());
+    }
+
+    private void liberarVaga(Agendamento agendamento, StatusAgendamento statusAnterior) {
+        if (statusAnterior.ocupaVaga()) {
+            Profissional profissional = agendamento.getProfissional();
+            vagaInventarioService.liberar(profissional.getId(),
+                    agendamento.getDataAgendamento(), agendamento.getHoraAgendamento());
+            eventPublisher.publishEvent(new VagaLiberadaEvent(profissional.getId(), profissional.getEspecialidade(),
+                    agendamento.getUnidadeSaude().getId(), agendamento.getDataAgendamento(), agendamento.getHoraAgendamento()));
+        }
+    }
+
+    /**
+     * Aplica uma transição de status relendo o agendamento a cada tentativa. Sem versão esperada,
+     * um conflito com outra alteração simultânea é repetido sobre o estado que venceu; com ela
+     * (If-Match), a transição só é aplicada sobre essa versão e o conflito volta ao cliente. O evento
+     * da transição é gravado na mesma tentativa.
+     */
+    private AgendamentoResponse alterar(Long id, Long versaoEsperada, TipoEventoAgendamento tipo,
+                                        UnaryOperator<Agendamento> transicao) {
+        Supplier<AgendamentoResponse> tentativa = () -> {
+            Agendamento agendamento = buscarPorId(id);
+            if (versaoEsperada != null && !versaoEsperada.equals(agendamento.getVersao())) {
+                throw new VersaoDesatualizadaException("Agendamento", id);
+            }
+            Agendamento alterado = transicao.apply(agendamento);
+            outboxAgendamentos.registrar(alterado, tipo);
+            return toResponse(alterado);
+        };
+
+        if (versaoEsperada == null) {
+            return retentativaOtimista.executar(tentativa);
+        }
+        try {
+            return retentativaOtimista.executarUmaVez(tentativa);
+        } catch (OptimisticLockingFailureException e) {
+            throw new VersaoDesatualizadaException("Agendamento", id);
         }
     }
 
+    /**
+     * Grava já verificando a versão, para que o conflito apareça antes dos efeitos seguintes da
+     * transição e a resposta leve a versão nova.
+     */
+    private Agendamento salvar(Agendamento agendamento) {
+        agendamento = agendamentoRepository.save(agendamento);
+        agendamentoRepository.flush();
+        return agendamento;
+    }
+
     private AgendamentoResponse toResponse(Agendamento agendamento) {
         return AgendamentoResponse.builder()
                 .id(agendamento.getId())
@@ -301,6 +518,23 @@ public class AgendamentoService {
                 .dataFimAtendimento(agendamento.getDataFimAtendimento())
                 .createdAt(agendamento.getCreatedAt())
                 .updatedAt(agendamento.getUpdatedAt())
+                .versao(agendamento.getVersao())
+                .build();
+    }
+
+    private ReservaVagaResponse toReservaResponse(ReservaVaga reserva) {
+        Profissional profissional = reserva.getProfissional();
+        return ReservaVagaResponse.builder()
+                .id(reserva.getId())
+                .pacienteId(reserva.getPaciente().getId())
+                .profissionalId(profissional.getId())
+                .profissionalNome(profissional.getNome())
+                .especialidade(profissional.getEspecialidade().getDescricao())
+                .unidadeSaudeId(profissional.getUnidadeSaude().getId())
+                .unidadeSaudeNome(profissional.getUnidadeSaude().getNome())
+                .dataAgendamento(reserva.getData())
+                .horaAgendamento(reserva.getHora())
+                .expiraEm(reserva.getExpiraEm())
                 .build();
     }
 }
@@ -0,0 +1,367 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.HorarioDisponivel;
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.model.CursorVaga;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.dto.response.PaginaVagasResponse;
+import br.com.susagenda.dto.response.VagaDisponivelResponse;
+import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.repository.HorarioDisponivelRepository;
+import br.com.susagenda.repository.ProfissionalRepository;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import br.com.susagenda.repository.VagaRepository;
+import br.com.susagenda.repository.projection.VagaRestanteProjection;
+import br.com.susagenda.service.calendario.CalendarioVagas;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Busca as vagas disponíveis. Quando o período está no calendário em memória a resposta não
+ * consulta o banco. Caso contrário, dentro do horizonte do inventário materializado a leitura é uma
+ * varredura por faixa na tabela {@code vagas}; fora dele (datas passadas ou muito distantes) os
+ * horários de atendimento e a ocupação do período são carregados em um número constante de
+ * consultas e expandidos em memória, em lotes paralelos de profissionais quando há muitos.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DisponibilidadeService {
+
+    private static final int HORIZONTE_PROXIMAS_VAGAS_DIAS = 90;
+
+    private static final Comparator<VagaDisponivelResponse> ORDEM_CRONOLOGICA = Comparator
+            .comparing(VagaDisponivelResponse::getData)
+            .thenComparing(VagaDisponivelResponse::getHorario)
+            .thenComparing(VagaDisponivelResponse::getProfissionalId);
+
+    private final ProfissionalRepository profissionalRepository;
+    private final HorarioDisponivelRepository horarioDisponivelRepository;
+    private final AgendamentoRepository agendamentoRepository;
+    private final VagaRepository vagaRepository;
+    private final ReservaVagaRepository reservaVagaRepository;
+    private final VagaInventarioService vagaInventarioService;
+    private final CalendarioVagas calendarioVagas;
+    private final ExecucaoParalela execucaoParalela;
+
+    /**
+     * Sem transação própria: a leitura pelo calendário não deve abrir conexão com o banco.
+     */
+    public List<VagaDisponivelResponse> buscarVagasDisponiveis(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim) {
+        if (dataFim.isBefore(dataInicio)) {
+            return new ArrayList<>();
+        }
+
+        Optional<List<VagaDisponivelResponse>> doCalendario = calendarioVagas.buscarVagas(especialidade, dataInicio, dataFim);
+        if (doCalendario.isPresent()) {
+            return doCalendario.get();
+        }
+
+        List<Profissional> profissionais = buscarProfissionais(especialidade, dataInicio, dataFim);
+        if (profissionais.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, List<VagaDisponivelResponse>> vagasPorProfissional = agruparPorProfissional(profissionais);
+        Optional<LocalDate> horizonte = vagaInventarioService.getHorizonteGeradoAte();
+
+        if (horizonte.isEmpty()) {
+            calcularVagas(profissionais, dataInicio, dataFim, vagasPorProfissional);
+        } else {
+            LocalDate inicioInventario = max(dataInicio, LocalDate.now());
+            LocalDate fimInventario = min(dataFim, horizonte.get());
+
+            calcularVagas(profissionais, dataInicio, min(dataFim, inicioInventario.minusDays(1)), vagasPorProfissional);
+            lerInventario(profissionais, inicioInventario, fimInventario, vagasPorProfissional);
+            calcularVagas(profissionais, max(dataInicio, fimInventario.plusDays(1)), dataFim, vagasPorProfissional);
+        }
+
+        return achatar(vagasPorProfissional);
+    }
+
+    /**
+     * Primeiras vagas a partir de agora, em ordem de data, hora e profissional.
+     */
+    public List<VagaDisponivelResponse> buscarProximasVagas(Especialidade especialidade, Long unidadeSaudeId,
+                                                           String cidade, int quantidade) {
+        LocalDateTime agora = LocalDateTime.now();
+        return buscarVagasApos(especialidade, unidadeSaudeId, cidade, CursorVaga.aPartirDe(agora),
+                agora.toLocalDate().plusDays(HORIZONTE_PROXIMAS_VAGAS_DIAS - 1L), quantidade);
+    }
+
+    /**
+     * Página de vagas do período em ordem cronológica, continuando depois do cursor informado.
+     * Cada página é lida com limite, então a memória usada depende só do tamanho da página.
+     */
+    public PaginaVagasResponse buscarPaginaVagas(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim,
+                                                 CursorVaga cursor, int tamanho) {
+        CursorVaga apos = cursor == null || cursor.data().isBefore(dataInicio) ? CursorVaga.inicioDe(dataInicio) : cursor;
+        List<VagaDisponivelResponse> vagas = buscarVagasApos(especialidade, null, null, apos, dataFim, tamanho + 1);
+
+        boolean temMais = vagas.size() > tamanho;
+        if (temMais) {
+            vagas = new ArrayList<>(vagas.subList(0, tamanho));
+        }
+
+        return PaginaVagasResponse.builder()
+                .vagas(vagas)
+                .temMais(temMais)
+                .proximoCursor(temMais ? cursorDe(vagas.get(vagas.size() - 1)).codificar() : null)
+                .build();
+    }
+
+    /**
+     * Entrega todas as vagas do período em ordem cronológica, em lotes de até {@code tamanhoLote}.
+     */
+    public void percorrerVagas(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim,
+                               int tamanhoLote, Consumer<List<VagaDisponivelResponse>> destino) {
+        CursorVaga apos = CursorVaga.inicioDe(dataInicio);
+        while (true) {
+            List<VagaDisponivelResponse> lote = buscarVagasApos(especialidade, null, null, apos, dataFim, tamanhoLote);
+            if (!lote.isEmpty()) {
+                destino.accept(lote);
+            }
+            if (lote.size() < tamanhoLote) {
+                return;
+            }
+            apos = cursorDe(lote.get(lote.size() - 1));
+        }
+    }
+
+    /**
+     * Primeiras vagas posteriores ao cursor até {@code dataFim}. Pelo calendário em memória a busca
+     * para no dia em que completa a quantidade; fora dele usa o inventário com limite na consulta ou
+     * calcula uma semana por vez.
+     */
+    private List<VagaDisponivelResponse> buscarVagasApos(Especialidade especialidade, Long unidadeSaudeId, String cidade,
+                                                         CursorVaga apos, LocalDate dataFim, int quantidade) {
+        List<VagaDisponivelResponse> vagas = new ArrayList<>();
+        if (dataFim.isBefore(apos.data())) {
+            return vagas;
+        }
+
+        // a cobertura só cresce, então lida antes da busca ela é garantidamente respondida pelo calendário
+        Optional<LocalDate> coberturaAte = calendarioVagas.getCoberturaAte();
+        if (coberturaAte.isPresent()) {
+            Optional<List<VagaDisponivelResponse>> doCalendario = calendarioVagas.buscarVagasApos(especialidade, unidadeSaudeId,
+                    cidade, apos, min(dataFim, coberturaAte.get()), quantidade);
+            if (doCalendario.isPresent()) {
+                vagas.addAll(doCalendario.get());
+                if (vagas.size() >= quantidade || !dataFim.isAfter(coberturaAte.get())) {
+                    return vagas;
+                }
+                apos = CursorVaga.inicioDe(coberturaAte.get().plusDays(1));
+            }
+        }
+
+        List<Profissional> profissionais = profissionalRepository.findAtivosComUnidadeByEspecialidade(especialidade).stream()
+                .filter(p -> unidadeSaudeId == null || unidadeSaudeId.equals(p.getUnidadeSaude().getId()))
+                .filter(p -> cidade == null || cidade.equalsIgnoreCase(p.getUnidadeSaude().getCidade()))
+                .collect(Collectors.toList());
+        if (profissionais.isEmpty()) {
+            return vagas;
+        }
+
+        LocalDate hoje = LocalDate.now();
+        Optional<LocalDate> horizonte = vagaInventarioService.getHorizonteGeradoAte();
+        if (horizonte.isEmpty()) {
+            calcularVagasApos(profissionais, apos, dataFim, quantidade, vagas);
+            return vagas;
+        }
+
+        calcularVagasApos(profissionais, apos, min(dataFim, hoje.minusDays(1)), quantidade, vagas);
+        if (vagas.size() < quantidade) {
+            CursorVaga inicioInventario = apos.data().isBefore(hoje) ? CursorVaga.inicioDe(hoje) : apos;
+            lerInventarioApos(profissionais, inicioInventario, min(dataFim, horizonte.get()), quantidade, vagas);
+        }
+        if (vagas.size() < quantidade) {
+            LocalDate depoisDoHorizonte = horizonte.get().plusDays(1);
+            calcularVagasApos(profissionais, apos.data().isAfter(horizonte.get()) ? apos : CursorVaga.inicioDe(depoisDoHorizonte),
+                    dataFim, quantidade, vagas);
+        }
+        return vagas;
+    }
+
+    private void calcularVagasApos(List<Profissional> profissionais, CursorVaga apos, LocalDate dataFim, int quantidade,
+                                   List<VagaDisponivelResponse> destino) {
+        for (LocalDate inicio = apos.data(); destino.size() < quantidade && !inicio.isAfter(dataFim); inicio = inicio.plusDays(7)) {
+            Map<Long, List<VagaDisponivelResponse>> vagasPorProfissional = agruparPorProfissional(profissionais);
+            calcularVagas(profissionais, inicio, min(inicio.plusDays(6), dataFim), vagasPorProfissional);
+            achatar(vagasPorProfissional).stream()
+                    .filter(v -> apos.antecede(v.getData(), v.getHorario(), v.getProfissionalId()))
+                    .sorted(ORDEM_CRONOLOGICA)
+                    .limit(quantidade - destino.size())
+                    .forEach(destino::add);
+        }
+    }
+
+    private void lerInventarioApos(List<Profissional> profissionais, CursorVaga apos, LocalDate dataFim, int quantidade,
+                                   List<VagaDisponivelResponse> destino) {
+        if (dataFim.isBefore(apos.data())) {
+            return;
+        }
+
+        Map<Long, Profissional> porId = profissionais.stream()
+                .collect(Collectors.toMap(Profissional::getId, Function.identity()));
+        // sem profissional no cursor, o próprio horário entra na busca
+        Long profissionalId = apos.profissionalId() != null ? apos.profissionalId() : Long.MIN_VALUE;
+
+        for (VagaRestanteProjection vaga : vagaRepository.findDisponiveisApos(porId.keySet(), apos.data(), apos.hora(),
+                profissionalId, dataFim, PageRequest.of(0, quantidade - destino.size()))) {
+            destino.add(toVaga(porId.get(vaga.profissionalId()), vaga.data(), vaga.hora(), vaga.restantes()));
+        }
+    }
+
+    private static CursorVaga cursorDe(VagaDisponivelResponse vaga) {
+        return new CursorVaga(vaga.getData(), vaga.getHorario(), vaga.getProfissionalId());
+    }
+
+    /**
+     * Calcula as vagas a partir dos horários de atendimento e da ocupação, sem usar o inventário.
+     */
+    @Transactional(readOnly = true)
+    public List<VagaDisponivelResponse> calcularVagasDisponiveis(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim) {
+        List<Profissional> profissionais = buscarProfissionais(especialidade, dataInicio, dataFim);
+        if (profissionais.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, List<VagaDisponivelResponse>> vagasPorProfissional = agruparPorProfissional(profissionais);
+        calcularVagas(profissionais, dataInicio, dataFim, vagasPorProfissional);
+        return achatar(vagasPorProfissional);
+    }
+
+    private List<Profissional> buscarProfissionais(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim) {
+        if (dataFim.isBefore(dataInicio)) {
+            return Collections.emptyList();
+        }
+        return profissionalRepository.findAtivosComUnidadeByEspecialidade(especialidade);
+    }
+
+    private void calcularVagas(List<Profissional> profissionais, LocalDate dataInicio, LocalDate dataFim,
+                               Map<Long, List<VagaDisponivelResponse>> destino) {
+        if (dataFim.isBefore(dataInicio)) {
+            return;
+        }
+
+        int porTarefa = execucaoParalela.getProfissionaisPorTarefa();
+        if (!execucaoParalela.isHabilitada() || profissionais.size() <= porTarefa) {
+            calcularVagasDoLote(profissionais, dataInicio, dataFim, destino);
+            return;
+        }
+
+        // cada lote faz as próprias consultas; os resultados voltam na ordem dos lotes e cada
+        // profissional escreve apenas na sua lista, então o resultado não depende do paralelismo
+        List<Callable<Void>> tarefas = new ArrayList<>();
+        for (int i = 0; i < profissionais.size(); i += porTarefa) {
+            List<Profissional> lote = profissionais.subList(i, Math.min(i + porTarefa, profissionais.size()));
+            tarefas.add(() -> {
+                calcularVagasDoLote(lote, dataInicio, dataFim, destino);
+                return null;
+            });
+        }
+        execucaoParalela.executarEmOrdem(tarefas);
+    }
+
+    private void calcularVagasDoLote(List<Profissional> profissionais, LocalDate dataInicio, LocalDate dataFim,
+                                     Map<Long, List<VagaDisponivelResponse>> destino) {
+        List<Long> profissionalIds = profissionais.stream()
+                .map(Profissional::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, Map<DayOfWeek, List<HorarioDisponivel>>> horariosPorProfissional =
+                horarioDisponivelRepository.findAtivosAgrupados(profissionalIds);
+        if (horariosPorProfissional.isEmpty()) {
+            return;
+        }
+
+        Map<SlotAgenda, Integer> ocupacao = reservaVagaRepository.somarReservas(
+                agendamentoRepository.mapOcupacaoPorHorario(horariosPorProfissional.keySet(), dataInicio, dataFim),
+                horariosPorProfissional.keySet(), dataInicio, dataFim);
+
+        for (Profissional profissional : profissionais) {
+            Map<DayOfWeek, List<HorarioDisponivel>> horariosPorDia =
+                    horariosPorProfissional.getOrDefault(profissional.getId(), Collections.emptyMap());
+            if (horariosPorDia.isEmpty()) {
+                continue;
+            }
+
+            List<VagaDisponivelResponse> vagas = destino.get(profissional.getId());
+            for (LocalDate data = dataInicio; !data.isAfter(dataFim); data = data.plusDays(1)) {
+                for (HorarioDisponivel horario : horariosPorDia.getOrDefault(data.getDayOfWeek(), Collections.emptyList())) {
+                    for (LocalTime hora : horario.gerarHorarios()) {
+                        int agendamentosNoHorario = ocupacao.getOrDefault(new SlotAgenda(profissional.getId(), data, hora), 0);
+                        int vagasDisponiveis = horario.getVagasPorHorario() - agendamentosNoHorario;
+
+                        if (vagasDisponiveis > 0) {
+                            vagas.add(toVaga(profissional, data, hora, vagasDisponiveis));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void lerInventario(List<Profissional> profissionais, LocalDate dataInicio, LocalDate dataFim,
+                               Map<Long, List<VagaDisponivelResponse>> destino) {
+        if (dataFim.isBefore(dataInicio)) {
+            return;
+        }
+
+        Map<Long, Profissional> porId = profissionais.stream()
+                .collect(Collectors.toMap(Profissional::getId, Function.identity()));
+
+        for (VagaRestanteProjection vaga : vagaRepository.findDisponiveis(porId.keySet(), dataInicio, dataFim)) {
+            destino.get(vaga.profissionalId()).add(
+                    toVaga(porId.get(vaga.profissionalId()), vaga.data(), vaga.hora(), vaga.restantes()));
+        }
+    }
+
+    private Map<Long, List<VagaDisponivelResponse>> agruparPorProfissional(List<Profissional> profissionais) {
+        Map<Long, List<VagaDisponivelResponse>> vagasPorProfissional = new LinkedHashMap<>();
+        profissionais.forEach(p -> vagasPorProfissional.put(p.getId(), new ArrayList<>()));
+        return vagasPorProfissional;
+    }
+
+    private List<VagaDisponivelResponse> achatar(Map<Long, List<VagaDisponivelResponse>> vagasPorProfissional) {
+        List<VagaDisponivelResponse> vagas = new ArrayList<>();
+        vagasPorProfissional.values().forEach(vagas::addAll);
+        return vagas;
+    }
+
+    private VagaDisponivelResponse toVaga(Profissional profissional, LocalDate data, LocalTime hora, int vagasDisponiveis) {
+        return VagaDisponivelResponse.builder()
+                .profissionalId(profissional.getId())
+                .profissionalNome(profissional.getNome())
+                .especialidade(profissional.getEspecialidade().getDescricao())
+                .unidadeSaudeId(profissional.getUnidadeSaude().getId())
+                .unidadeSaudeNome(profissional.getUnidadeSaude().getNome())
+                .unidadeSaudeEndereco(profissional.getUnidadeSaude().getEndereco())
+                .data(data)
+                .horario(hora)
+                .vagasDisponiveis(vagasDisponiveis)
+                .build();
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
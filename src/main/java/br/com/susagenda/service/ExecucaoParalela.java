@@ -0,0 +1,111 @@
+package br.com.susagenda.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor dedicado às buscas de disponibilidade que dividem os profissionais em tarefas paralelas.
+ *
+ * <p>Usa threads virtuais quando a JVM oferece (Java 21+) e um pool fixo caso contrário. Em ambos os
+ * casos um semáforo global limita quantas tarefas consultam o banco ao mesmo tempo, para que uma
+ * busca grande não ocupe o pool de conexões usado pelos agendamentos.</p>
+ */
+@Slf4j
+@Component
+public class ExecucaoParalela {
+
+    private final boolean habilitada;
+    private final int profissionaisPorTarefa;
+    private final Semaphore permissoes;
+    private final ExecutorService executor;
+
+    public ExecucaoParalela(@Value("${susagenda.disponibilidade.paralelo.habilitado:true}") boolean habilitada,
+                            @Value("${susagenda.disponibilidade.paralelo.concorrencia-maxima:4}") int concorrenciaMaxima,
+                            @Value("${susagenda.disponibilidade.paralelo.profissionais-por-tarefa:50}") int profissionaisPorTarefa,
+                            @Value("${susagenda.disponibilidade.paralelo.threads-virtuais:true}") boolean threadsVirtuais) {
+        this.habilitada = habilitada && concorrenciaMaxima > 1;
+        this.profissionaisPorTarefa = Math.max(profissionaisPorTarefa, 1);
+        this.permissoes = new Semaphore(Math.max(concorrenciaMaxima, 1), true);
+
+        ExecutorService virtual = threadsVirtuais ? criarExecutorVirtual() : null;
+        this.executor = virtual != null ? virtual : criarPoolFixo(Math.max(concorrenciaMaxima, 1));
+        log.info("Busca de disponibilidade paralela {} (concorrência máxima: {}, threads virtuais: {})",
+                this.habilitada ? "habilitada" : "desabilitada", concorrenciaMaxima, virtual != null);
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    public int getProfissionaisPorTarefa() {
+        return profissionaisPorTarefa;
+    }
+
+    /**
+     * Executa as tarefas em paralelo e devolve os resultados na ordem em que foram informadas.
+     * Uma falha em qualquer tarefa cancela as demais e é relançada para o chamador.
+     */
+    public <T> List<T> executarEmOrdem(List<Callable<T>> tarefas) {
+        List<Future<T>> futuros = new ArrayList<>(tarefas.size());
+        for (Callable<T> tarefa : tarefas) {
+            futuros.add(executor.submit(() -> comPermissao(tarefa)));
+        }
+
+        List<T> resultados = new ArrayList<>(tarefas.size());
+        try {
+            for (Future<T> futuro : futuros) {
+                resultados.add(futuro.get());
+            }
+            return resultados;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Busca de disponibilidade interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Falha na busca de disponibilidade", e.getCause());
+        } finally {
+            futuros.forEach(futuro -> futuro.cancel(true));
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private <T> T comPermissao(Callable<T> tarefa) throws Exception {
+        permissoes.acquire();
+        try {
+            return tarefa.call();
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    private static ExecutorService criarExecutorVirtual() {
+        try {
+            // via reflexão para compilar em Java 17 e aproveitar threads virtuais quando a JVM for 21+
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService criarPoolFixo(int threads) {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "disponibilidade-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
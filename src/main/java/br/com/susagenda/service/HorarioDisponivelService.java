@@ -2,6 +2,7 @@ package br.com.susagenda.service;
 
 import br.com.susagenda.domain.entity.HorarioDisponivel;
 import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.event.AgendaProfissionalAlteradaEvent;
 import br.com.susagenda.dto.request.HorarioDisponivelRequest;
 import br.com.susagenda.dto.response.HorarioDisponivelResponse;
 import br.com.susagenda.exception.BusinessException;
@@ -9,6 +10,7 @@ import br.com.susagenda.exception.ResourceNotFoundException;
 import br.com.susagenda.repository.HorarioDisponivelRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +28,8 @@ public class HorarioDisponivelService {
 
     private final HorarioDisponivelRepository horarioDisponivelRepository;
     private final ProfissionalService profissionalService;
+    private final VagaInventarioService vagaInventarioService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public HorarioDisponivelResponse criar(HorarioDisponivelRequest request) {
@@ -47,6 +51,7 @@ public class HorarioDisponivelService {
 
         horario = horarioDisponivelRepository.save(horario);
         log.info("Horário disponível criado com ID: {}", horario.getId());
+        agendaAlterada(profissional);
 
         return toResponse(horario);
     }
@@ -58,6 +63,7 @@ public class HorarioDisponivelService {
         validarHorarios(request);
 
         HorarioDisponivel horario = buscarPorId(id);
+        Profissional profissionalAnterior = horario.getProfissional();
         Profissional profissional = profissionalService.buscarPorId(request.getProfissionalId());
 
         horario.setProfissional(profissional);
@@ -68,6 +74,10 @@ public class HorarioDisponivelService {
         horario.setVagasPorHorario(request.getVagasPorHorario());
 
         horario = horarioDisponivelRepository.save(horario);
+        agendaAlterada(profissional);
+        if (!profissionalAnterior.getId().equals(profissional.getId())) {
+            agendaAlterada(profissionalAnterior);
+        }
         return toResponse(horario);
     }
 
@@ -114,6 +124,7 @@ public class HorarioDisponivelService {
         HorarioDisponivel horario = buscarPorId(id);
         horario.setAtivo(false);
         horarioDisponivelRepository.save(horario);
+        agendaAlterada(horario.getProfissional());
     }
 
     @Transactional
@@ -122,6 +133,7 @@ public class HorarioDisponivelService {
         HorarioDisponivel horario = buscarPorId(id);
         horario.setAtivo(true);
         horarioDisponivelRepository.save(horario);
+        agendaAlterada(horario.getProfissional());
     }
 
     @Transactional
@@ -129,6 +141,12 @@ public class HorarioDisponivelService {
         log.info("Excluindo horário disponível ID: {}", id);
         HorarioDisponivel horario = buscarPorId(id);
         horarioDisponivelRepository.delete(horario);
+        agendaAlterada(horario.getProfissional());
+    }
+
+    private void agendaAlterada(Profissional profissional) {
+        vagaInventarioService.regenerarProfissional(profissional.getId());
+        eventPublisher.publishEvent(new AgendaProfissionalAlteradaEvent(profissional.getId(), profissional.getEspecialidade()));
     }
 
     private void validarHorarios(HorarioDisponivelRequest request) {
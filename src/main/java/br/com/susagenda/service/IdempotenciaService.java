@@ -0,0 +1,269 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.ChaveIdempotencia;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.exception.DuplicateResourceException;
+import br.com.susagenda.repository.ChaveIdempotenciaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Respostas de requisições enviadas com {@code Idempotency-Key}.
+ *
+ * <p>A chave é registrada no banco na mesma transação da operação, então uma operação desfeita não
+ * deixa resposta guardada e duas requisições simultâneas com a mesma chave não executam a operação
+ * duas vezes (a segunda espera o commit da primeira no índice único). Depois do commit a resposta
+ * fica também em um cache em memória limitado pelo tamanho estimado das respostas; repetições são
+ * respondidas pelo cache ou, em outra instância, por uma leitura da chave no banco, sem passar pela
+ * operação.</p>
+ */
+@Slf4j
+@Service
+public class IdempotenciaService {
+
+    static final String NOME = "idempotencia";
+    static final int TAMANHO_MAXIMO_CHAVE = 100;
+
+    private static final String SQL_REGISTRAR_CHAVE =
+            "INSERT INTO chaves_idempotencia (chave, hash_requisicao, expira_em, created_at) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+
+    /** Cabeçalhos de objeto, da entrada do cache e das três strings. */
+    private static final int BYTES_POR_ENTRADA = 160;
+
+    private final ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transacao;
+    private final Duration ttl;
+    private final Cache<String, RespostaGuardada> cache;
+    private final Counter repetidasMemoria;
+    private final Counter repetidasBanco;
+    private final Counter novas;
+
+    public IdempotenciaService(ChaveIdempotenciaRepository chaveIdempotenciaRepository,
+                               JdbcTemplate jdbcTemplate,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${susagenda.idempotencia.ttl-horas:24}") long ttlHoras,
+                               @Value("${susagenda.idempotencia.memoria-maxima-bytes:16777216}") long memoriaMaximaBytes) {
+        this.chaveIdempotenciaRepository = chaveIdempotenciaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHoras);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(memoriaMaximaBytes)
+                .weigher((String chave, RespostaGuardada resposta) -> resposta.bytesEstimados(chave))
+                .expireAfter(new ExpiraComAChave())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME);
+        Gauge.builder("susagenda.idempotencia.memoria.bytes", this, IdempotenciaService::getMemoriaBytes)
+                .description("Tamanho estimado das respostas guardadas em memória")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("susagenda.idempotencia.taxa.acerto", this, IdempotenciaService::getTaxaAcerto)
+                .description("Fração das requisições com Idempotency-Key respondidas com a resposta guardada")
+                .register(meterRegistry);
+        this.repetidasMemoria = contador(meterRegistry, "memoria");
+        this.repetidasBanco = contador(meterRegistry, "banco");
+        this.novas = contador(meterRegistry, "nova");
+    }
+
+    /**
+     * Executa a operação uma única vez por chave dentro do escopo, ou devolve a resposta da
+     * primeira execução. Falhas da operação não são guardadas: a repetição executa de novo.
+     *
+     * @param escopo     separa as chaves de endpoints diferentes
+     * @param requisicao corpo da requisição; a mesma chave com outro corpo é recusada
+     * @param statusHttp status da resposta da primeira execução, repetido nas seguintes
+     */
+    public <T> Resultado<T> executar(String escopo, String chave, Object requisicao, int statusHttp,
+                                     Class<T> tipo, Supplier<T> operacao) {
+        validarChave(chave);
+        String id = escopo + ":" + chave;
+        String hash = hash(requisicao);
+
+        RespostaGuardada guardada = cache.getIfPresent(id);
+        if (guardada != null) {
+            repetidasMemoria.increment();
+            return repetir(chave, guardada, hash, tipo);
+        }
+
+        Optional<RespostaGuardada> doBanco = buscarConcluida(id);
+        if (doBanco.isPresent()) {
+            cache.put(id, doBanco.get());
+            repetidasBanco.increment();
+            return repetir(chave, doBanco.get(), hash, tipo);
+        }
+
+        Execucao<T> execucao = transacao.execute(status -> {
+            LocalDateTime agora = LocalDateTime.now();
+            chaveIdempotenciaRepository.removerVencida(id, agora);
+            LocalDateTime expiraEm = agora.plus(ttl);
+            int registradas = jdbcTemplate.update(SQL_REGISTRAR_CHAVE, id, hash,
+                    Timestamp.valueOf(expiraEm), Timestamp.valueOf(agora));
+            if (registradas == 0) {
+                // outra requisição com a mesma chave terminou (ou está terminando) a operação
+                return null;
+            }
+
+            T resposta = operacao.get();
+            String json = escrever(resposta);
+            chaveIdempotenciaRepository.concluir(id, statusHttp, json);
+            return new Execucao<>(resposta, new RespostaGuardada(hash, statusHttp, json, expiraEm));
+        });
+
+        if (execucao == null) {
+            RespostaGuardada concorrente = buscarConcluida(id).orElseThrow(() -> new DuplicateResourceException(
+                    "Já existe uma requisição em andamento com esta Idempotency-Key"));
+            cache.put(id, concorrente);
+            repetidasBanco.increment();
+            return repetir(chave, concorrente, hash, tipo);
+        }
+
+        cache.put(id, execucao.guardada());
+        novas.increment();
+        return new Resultado<>(execucao.resposta(), statusHttp, false);
+    }
+
+    /**
+     * Remove do banco as chaves vencidas; as entradas em memória expiram sozinhas.
+     */
+    @Scheduled(fixedDelayString = "${susagenda.idempotencia.limpeza-intervalo-ms:3600000}",
+            initialDelayString = "${susagenda.idempotencia.limpeza-intervalo-ms:3600000}")
+    public void removerVencidas() {
+        Integer removidas = transacao.execute(status -> chaveIdempotenciaRepository.removerVencidas(LocalDateTime.now()));
+        if (removidas != null && removidas > 0) {
+            log.info("{} chave(s) de idempotência vencida(s) removida(s)", removidas);
+        }
+    }
+
+    public long getMemoriaBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public double getTaxaAcerto() {
+        double repetidas = repetidasMemoria.count() + repetidasBanco.count();
+        double total = repetidas + novas.count();
+        return total == 0 ? 0 : repetidas / total;
+    }
+
+    private <T> Resultado<T> repetir(String chave, RespostaGuardada guardada, String hash, Class<T> tipo) {
+        if (!guardada.hashRequisicao().equals(hash)) {
+            throw new BusinessException("A Idempotency-Key informada já foi usada com outra requisição");
+        }
+        log.debug("Requisição com Idempotency-Key {} respondida com a resposta guardada", chave);
+        try {
+            return new Resultado<>(objectMapper.readValue(guardada.resposta(), tipo), guardada.statusHttp(), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Resposta guardada para a Idempotency-Key é inválida", e);
+        }
+    }
+
+    private Optional<RespostaGuardada> buscarConcluida(String id) {
+        return chaveIdempotenciaRepository.findConcluida(id, LocalDateTime.now())
+                .map(IdempotenciaService::toRespostaGuardada);
+    }
+
+    private static RespostaGuardada toRespostaGuardada(ChaveIdempotencia chave) {
+        return new RespostaGuardada(chave.getHashRequisicao(), chave.getStatusHttp(), chave.getResposta(), chave.getExpiraEm());
+    }
+
+    private static void validarChave(String chave) {
+        if (chave == null || chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new BusinessException(String.format(
+                    "A Idempotency-Key deve ter entre 1 e %d caracteres", TAMANHO_MAXIMO_CHAVE));
+        }
+    }
+
+    private String hash(Object requisicao) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(escrever(requisicao).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private String escrever(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar a resposta idempotente", e);
+        }
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("susagenda.idempotencia.requisicoes")
+                .description("Requisições com Idempotency-Key por origem da resposta")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Resposta da operação e se ela veio de uma execução anterior.
+     */
+    public record Resultado<T>(T resposta, int statusHttp, boolean repetida) {
+    }
+
+    /**
+     * Entradas em memória vencem junto com a chave no banco, inclusive as lidas de lá.
+     */
+    private static final class ExpiraComAChave implements Expiry<String, RespostaGuardada> {
+
+        @Override
+        public long expireAfterCreate(String chave, RespostaGuardada resposta, long agora) {
+            return Math.max(Duration.between(LocalDateTime.now(), resposta.expiraEm()).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String chave, RespostaGuardada resposta, long agora, long duracaoAtual) {
+            return expireAfterCreate(chave, resposta, agora);
+        }
+
+        @Override
+        public long expireAfterRead(String chave, RespostaGuardada resposta, long agora, long duracaoAtual) {
+            return duracaoAtual;
+        }
+    }
+
+    private record Execucao<T>(T resposta, RespostaGuardada guardada) {
+    }
+
+    private record RespostaGuardada(String hashRequisicao, int statusHttp, String resposta, LocalDateTime expiraEm) {
+
+        int bytesEstimados(String chave) {
+            return BYTES_POR_ENTRADA + 2 * (chave.length() + hashRequisicao.length() + resposta.length());
+        }
+    }
+}
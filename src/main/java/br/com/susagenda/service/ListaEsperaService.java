@@ -4,19 +4,28 @@ import br.com.susagenda.domain.entity.ListaEspera;
 import br.com.susagenda.domain.entity.Paciente;
 import br.com.susagenda.domain.entity.UnidadeSaude;
 import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.ListaEsperaAlteradaEvent;
 import br.com.susagenda.dto.request.ListaEsperaRequest;
 import br.com.susagenda.dto.response.ListaEsperaResponse;
 import br.com.susagenda.exception.BusinessException;
 import br.com.susagenda.exception.ResourceNotFoundException;
 import br.com.susagenda.repository.ListaEsperaRepository;
+import br.com.susagenda.service.fila.ContadoresListaEspera;
+import br.com.susagenda.service.fila.IndicePosicoesFila;
+import br.com.susagenda.service.fila.NotificadorPosicaoFila;
+import br.com.susagenda.service.fila.PontuacaoFila;
+import br.com.susagenda.service.fila.PosicaoNaFila;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -27,6 +36,11 @@ public class ListaEsperaService {
     private final ListaEsperaRepository listaEsperaRepository;
     private final PacienteService pacienteService;
     private final UnidadeSaudeService unidadeSaudeService;
+    private final IndicePosicoesFila indicePosicoesFila;
+    private final PontuacaoFila pontuacaoFila;
+    private final ContadoresListaEspera contadoresListaEspera;
+    private final NotificadorPosicaoFila notificadorPosicaoFila;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public ListaEsperaResponse adicionarNaFila(ListaEsperaRequest request) {
@@ -47,20 +61,23 @@ public class ListaEsperaService {
             unidadePreferida = unidadeSaudeService.buscarPorId(request.getUnidadeSaudePreferidaId());
         }
 
+        LocalDateTime agora = LocalDateTime.now();
         ListaEspera listaEspera = ListaEspera.builder()
                 .paciente(paciente)
                 .especialidade(request.getEspecialidade())
                 .unidadeSaudePreferida(unidadePreferida)
                 .prioridade(paciente.getPrioridade())
-                .dataSolicitacao(LocalDateTime.now())
+                .pontuacaoPrioridade(pontuacaoFila.pontuar(paciente.getPrioridade(), agora))
+                .dataSolicitacao(agora)
                 .atendido(false)
                 .observacoes(request.getObservacoes())
                 .build();
 
         listaEspera = listaEsperaRepository.save(listaEspera);
         log.info("Paciente adicionado à fila de espera com ID: {}", listaEspera.getId());
+        eventPublisher.publishEvent(evento(listaEspera));
 
-        return toResponse(listaEspera, calcularPosicaoNaFila(listaEspera));
+        return toResponse(listaEspera, indicePosicoesFila.posicao(listaEspera));
     }
 
     @Transactional
@@ -75,14 +92,35 @@ public class ListaEsperaService {
 
         listaEspera.marcarComoAtendido();
         listaEspera = listaEsperaRepository.save(listaEspera);
+        eventPublisher.publishEvent(evento(listaEspera));
 
-        return toResponse(listaEspera, 0);
+        return toResponse(listaEspera, indicePosicoesFila.posicao(listaEspera));
+    }
+
+    /**
+     * Tira da fila a entrada que recebeu um agendamento, se ela ainda estiver aguardando. A
+     * atualização condicional impede que duas alocações simultâneas usem a mesma entrada.
+     *
+     * @return {@code false} quando a entrada já tinha saído da fila
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean registrarAgendamento(ListaEspera listaEspera) {
+        if (listaEsperaRepository.marcarComoAgendado(listaEspera.getId(), LocalDateTime.now()) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(evento(listaEspera, false));
+        return true;
     }
 
     @Transactional(readOnly = true)
     public ListaEsperaResponse buscarPorIdResponse(Long id) {
         ListaEspera listaEspera = buscarPorId(id);
-        return toResponse(listaEspera, calcularPosicaoNaFila(listaEspera));
+        return toResponse(listaEspera, indicePosicoesFila.posicao(listaEspera));
+    }
+
+    public SseEmitter acompanharPosicao(Long id) {
+        ListaEspera listaEspera = buscarPorId(id);
+        return notificadorPosicaoFila.assinar(listaEspera.getId(), listaEspera.getEspecialidade());
     }
 
     @Transactional(readOnly = true)
@@ -93,28 +131,18 @@ public class ListaEsperaService {
 
     @Transactional(readOnly = true)
     public List<ListaEsperaResponse> buscarFilaPorEspecialidade(Especialidade especialidade) {
-        List<ListaEspera> fila = listaEsperaRepository.findFilaOrdenadaPorPrioridade(especialidade);
-        AtomicInteger posicao = new AtomicInteger(1);
-
-        return fila.stream()
-                .map(le -> toResponse(le, posicao.getAndIncrement()))
-                .collect(Collectors.toList());
+        return emOrdemDeAtendimento(listaEsperaRepository.findFilaOrdenadaPorPrioridade(especialidade));
     }
 
     @Transactional(readOnly = true)
     public List<ListaEsperaResponse> buscarFilaPorUnidade(Long unidadeId) {
-        List<ListaEspera> fila = listaEsperaRepository.findByUnidadeOrdenadoPorPrioridade(unidadeId);
-        AtomicInteger posicao = new AtomicInteger(1);
-
-        return fila.stream()
-                .map(le -> toResponse(le, posicao.getAndIncrement()))
-                .collect(Collectors.toList());
+        return emOrdemDeAtendimento(listaEsperaRepository.findByUnidadeOrdenadoPorPrioridade(unidadeId));
     }
 
     @Transactional(readOnly = true)
     public List<ListaEsperaResponse> buscarPorPaciente(Long pacienteId) {
         return listaEsperaRepository.findByPacienteId(pacienteId).stream()
-                .map(le -> toResponse(le, calcularPosicaoNaFila(le)))
+                .map(le -> toResponse(le, indicePosicoesFila.posicao(le)))
                 .collect(Collectors.toList());
     }
 
@@ -122,13 +150,16 @@ public class ListaEsperaService {
     public List<ListaEsperaResponse> listarTodos() {
         log.info("Listando todas as entradas da lista de espera");
         return listaEsperaRepository.findAll().stream()
-                .map(le -> toResponse(le, calcularPosicaoNaFila(le)))
+                .map(le -> toResponse(le, indicePosicoesFila.posicao(le)))
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
     public long contarPacientesNaFila(Especialidade especialidade) {
-        return listaEsperaRepository.countPacientesNaFila(especialidade);
+        return contadoresListaEspera.aguardando(especialidade);
+    }
+
+    public long contarPacientesNaFilaUnidade(Long unidadeId) {
+        return contadoresListaEspera.aguardandoNaUnidade(unidadeId);
     }
 
     @Transactional
@@ -136,27 +167,37 @@ public class ListaEsperaService {
         log.info("Removendo paciente da lista de espera ID: {}", id);
         ListaEspera listaEspera = buscarPorId(id);
         listaEsperaRepository.delete(listaEspera);
-    }
-
-    private int calcularPosicaoNaFila(ListaEspera listaEspera) {
-        if (listaEspera.getAtendido()) {
-            return 0;
+        // entrada já atendida não estava mais na fila
+        if (!listaEspera.getAtendido()) {
+            eventPublisher.publishEvent(evento(listaEspera, false));
         }
+    }
 
-        List<ListaEspera> fila = listaEsperaRepository.findFilaOrdenadaPorPrioridade(listaEspera.getEspecialidade());
-
+    /**
+     * Numera a fila lida do banco, que já vem na ordem de atendimento (pontuação, data da
+     * solicitação e id, a mesma do índice de posições).
+     */
+    private List<ListaEsperaResponse> emOrdemDeAtendimento(List<ListaEspera> fila) {
+        List<ListaEsperaResponse> respostas = new ArrayList<>(fila.size());
         for (int i = 0; i < fila.size(); i++) {
-            if (fila.get(i).getId().equals(listaEspera.getId())) {
-                return i + 1;
-            }
+            ListaEspera le = fila.get(i);
+            respostas.add(toResponse(le, new PosicaoNaFila(i + 1, indicePosicoesFila.total(le.getEspecialidade()))));
         }
+        return respostas;
+    }
 
-        return 0;
+    private static ListaEsperaAlteradaEvent evento(ListaEspera listaEspera) {
+        return evento(listaEspera, !listaEspera.getAtendido());
     }
 
-    private ListaEsperaResponse toResponse(ListaEspera listaEspera, int posicaoNaFila) {
-        long totalNaFila = listaEsperaRepository.countPacientesNaFila(listaEspera.getEspecialidade());
+    private static ListaEsperaAlteradaEvent evento(ListaEspera listaEspera, boolean aguardando) {
+        return new ListaEsperaAlteradaEvent(listaEspera.getId(), listaEspera.getEspecialidade(),
+                listaEspera.getUnidadeSaudePreferida() != null ? listaEspera.getUnidadeSaudePreferida().getId() : null,
+                listaEspera.getPrioridade(), listaEspera.getPontuacaoPrioridade(), listaEspera.getDataSolicitacao(),
+                aguardando);
+    }
 
+    private ListaEsperaResponse toResponse(ListaEspera listaEspera, PosicaoNaFila posicao) {
         return ListaEsperaResponse.builder()
                 .id(listaEspera.getId())
                 .pacienteId(listaEspera.getPaciente().getId())
@@ -174,8 +215,8 @@ public class ListaEsperaService {
                 .dataAgendamento(listaEspera.getDataAgendamento())
                 .atendido(listaEspera.getAtendido())
                 .observacoes(listaEspera.getObservacoes())
-                .posicaoNaFila(posicaoNaFila)
-                .totalNaFila(totalNaFila)
+                .posicaoNaFila(posicao.posicao())
+                .totalNaFila(posicao.total())
                 .build();
     }
 }
@@ -0,0 +1,129 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.dto.request.TransicaoLoteRequest;
+import br.com.susagenda.dto.response.TransicaoLoteResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Varredura periódica que marca como não compareceu os agendamentos 'AGENDADO' ou 'CONFIRMADO'
+ * sem chegada registrada depois da tolerância configurada após o horário.
+ *
+ * <p>Os agendamentos vencidos são percorridos em lotes por (data, hora, id), cada lote em uma
+ * transação curta. As linhas do lote são reivindicadas com {@code FOR UPDATE SKIP LOCKED}: várias
+ * instâncias podem varrer ao mesmo tempo e cada uma fica com linhas diferentes, sem esperar pelas
+ * outras. A transição usa a mesma operação em lote do endpoint, que devolve as vagas ao inventário
+ * e publica um {@code VagaLiberadaEvent} por agendamento.</p>
+ */
+@Slf4j
+@Service
+public class NaoComparecimentoService {
+
+    private static final String SQL_REIVINDICAR_VENCIDOS =
+            "SELECT id, data_agendamento, hora_agendamento FROM agendamentos " +
+            "WHERE status IN ('AGENDADO', 'CONFIRMADO') AND data_chegada IS NULL " +
+            "AND (data_agendamento, hora_agendamento) <= (?, ?) " +
+            "AND (data_agendamento, hora_agendamento, id) > (?, ?, ?) " +
+            "ORDER BY data_agendamento, hora_agendamento, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AgendamentoLoteService agendamentoLoteService;
+    private final TransactionTemplate transacao;
+    private final Counter marcados;
+    private final boolean habilitada;
+    private final Duration tolerancia;
+    private final int tamanhoLote;
+
+    public NaoComparecimentoService(JdbcTemplate jdbcTemplate,
+                                    AgendamentoLoteService agendamentoLoteService,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${susagenda.nao-comparecimento.varredura.habilitada:true}") boolean habilitada,
+                                    @Value("${susagenda.nao-comparecimento.tolerancia-minutos:60}") long toleranciaMinutos,
+                                    @Value("${susagenda.nao-comparecimento.varredura.tamanho-lote:500}") int tamanhoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.agendamentoLoteService = agendamentoLoteService;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.habilitada = habilitada;
+        this.tolerancia = Duration.ofMinutes(toleranciaMinutos);
+        this.tamanhoLote = tamanhoLote;
+        this.marcados = Counter.builder("susagenda.nao-comparecimentos.marcados")
+                .description("Agendamentos marcados como não compareceu pela varredura")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${susagenda.nao-comparecimento.varredura.intervalo-ms:300000}",
+            initialDelayString = "${susagenda.nao-comparecimento.varredura.intervalo-ms:300000}")
+    public void varrer() {
+        if (habilitada) {
+            varrer(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Marca os agendamentos cujo horário somado à tolerância não passa de {@code agora}.
+     *
+     * @return quantidade de agendamentos marcados por esta instância
+     */
+    public int varrer(LocalDateTime agora) {
+        LocalDateTime limite = agora.minus(tolerancia);
+        Posicao posicao = Posicao.INICIO;
+        int total = 0;
+
+        while (true) {
+            Posicao inicioDoLote = posicao;
+            Lote lote = transacao.execute(status -> processarLote(limite, inicioDoLote));
+            total += lote.marcados();
+            if (lote.reivindicados() < tamanhoLote) {
+                break;
+            }
+            posicao = lote.ultima();
+        }
+
+        if (total > 0) {
+            marcados.increment(total);
+            log.info("{} agendamento(s) marcado(s) como não compareceu (horário até {})", total, limite);
+        }
+        return total;
+    }
+
+    private Lote processarLote(LocalDateTime limite, Posicao apos) {
+        List<Posicao> reivindicados = jdbcTemplate.query(SQL_REIVINDICAR_VENCIDOS,
+                (rs, linha) -> new Posicao(rs.getDate("data_agendamento").toLocalDate(),
+                        rs.getTime("hora_agendamento").toLocalTime(), rs.getLong("id")),
+                Date.valueOf(limite.toLocalDate()), Time.valueOf(limite.toLocalTime()),
+                Date.valueOf(apos.data()), Time.valueOf(apos.hora()), apos.id(), tamanhoLote);
+        if (reivindicados.isEmpty()) {
+            return new Lote(0, 0, apos);
+        }
+
+        TransicaoLoteResponse resultado = agendamentoLoteService.marcarNaoCompareceuEmLote(TransicaoLoteRequest.builder()
+                .ids(reivindicados.stream().map(Posicao::id).toList())
+                .build());
+        return new Lote(reivindicados.size(), resultado.getAlterados(), reivindicados.get(reivindicados.size() - 1));
+    }
+
+    /** Chave da paginação: a varredura continua depois do último agendamento do lote anterior. */
+    private record Posicao(LocalDate data, LocalTime hora, long id) {
+
+        static final Posicao INICIO = new Posicao(LocalDate.of(1900, 1, 1), LocalTime.MIN, 0);
+    }
+
+    private record Lote(int reivindicados, int marcados, Posicao ultima) {
+    }
+}
@@ -3,6 +3,7 @@ package br.com.susagenda.service;
 import br.com.susagenda.domain.entity.Profissional;
 import br.com.susagenda.domain.entity.UnidadeSaude;
 import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.AgendaProfissionalAlteradaEvent;
 import br.com.susagenda.dto.request.ProfissionalRequest;
 import br.com.susagenda.dto.response.ProfissionalResponse;
 import br.com.susagenda.exception.DuplicateResourceException;
@@ -10,6 +11,7 @@ import br.com.susagenda.exception.ResourceNotFoundException;
 import br.com.susagenda.repository.ProfissionalRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +25,7 @@ public class ProfissionalService {
 
     private final ProfissionalRepository profissionalRepository;
     private final UnidadeSaudeService unidadeSaudeService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public ProfissionalResponse criar(ProfissionalRequest request) {
@@ -57,6 +60,7 @@ public class ProfissionalService {
         validarDuplicidade(request.getCpf(), request.getRegistroProfissional(), id);
 
         UnidadeSaude unidade = unidadeSaudeService.buscarPorId(request.getUnidadeSaudeId());
+        Especialidade especialidadeAnterior = profissional.getEspecialidade();
 
         profissional.setNome(request.getNome());
         profissional.setCpf(request.getCpf());
@@ -67,6 +71,10 @@ public class ProfissionalService {
         profissional.setUnidadeSaude(unidade);
 
         profissional = profissionalRepository.save(profissional);
+        eventPublisher.publishEvent(new AgendaProfissionalAlteradaEvent(id, profissional.getEspecialidade()));
+        if (especialidadeAnterior != profissional.getEspecialidade()) {
+            eventPublisher.publishEvent(new AgendaProfissionalAlteradaEvent(id, especialidadeAnterior));
+        }
         return toResponse(profissional);
     }
 
@@ -120,6 +128,7 @@ public class ProfissionalService {
         Profissional profissional = buscarPorId(id);
         profissional.setAtivo(false);
         profissionalRepository.save(profissional);
+        eventPublisher.publishEvent(new AgendaProfissionalAlteradaEvent(id, profissional.getEspecialidade()));
     }
 
     @Transactional
@@ -128,6 +137,7 @@ public class ProfissionalService {
         Profissional profissional = buscarPorId(id);
         profissional.setAtivo(true);
         profissionalRepository.save(profissional);
+        eventPublisher.publishEvent(new AgendaProfissionalAlteradaEvent(id, profissional.getEspecialidade()));
     }
 
     private void validarDuplicidade(String cpf, String registro, Long idAtual) {
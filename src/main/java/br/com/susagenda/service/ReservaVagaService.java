@@ -0,0 +1,203 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.entity.ReservaVaga;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import br.com.susagenda.repository.projection.ExpiracaoReservaProjection;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prazo e liberação das reservas temporárias de vagas.
+ *
+ * <p>Cada reserva criada entra em uma {@link DelayQueue}; uma única thread dorme até o próximo
+ * vencimento e devolve a vaga, sem varrer a tabela. Ao iniciar, a instância carrega os prazos das
+ * reservas pendentes, e uma recuperação periódica pelo índice de {@code expira_em} libera as
+ * reservas vencidas há mais de um intervalo (criadas por instâncias que pararam).</p>
+ */
+@Slf4j
+@Service
+public class ReservaVagaService {
+
+    private static final int TAMANHO_LOTE_RECUPERACAO = 500;
+    private static final Duration ESPERA_APOS_FALHA = Duration.ofSeconds(30);
+
+    private final ReservaVagaRepository reservaVagaRepository;
+    private final VagaInventarioService vagaInventarioService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transacao;
+    private final Duration ttl;
+    private final Duration intervaloRecuperacao;
+
+    private final DelayQueue<Expiracao> fila = new DelayQueue<>();
+    private volatile Thread expirador;
+
+    public ReservaVagaService(ReservaVagaRepository reservaVagaRepository,
+                              VagaInventarioService vagaInventarioService,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${susagenda.reservas.ttl-segundos:300}") long ttlSegundos,
+                              @Value("${susagenda.reservas.recuperacao-intervalo-ms:60000}") long intervaloRecuperacaoMs) {
+        this.reservaVagaRepository = reservaVagaRepository;
+        this.vagaInventarioService = vagaInventarioService;
+        this.eventPublisher = eventPublisher;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofSeconds(ttlSegundos);
+        this.intervaloRecuperacao = Duration.ofMillis(intervaloRecuperacaoMs);
+    }
+
+    public LocalDateTime calcularExpiracao() {
+        return LocalDateTime.now().plus(ttl);
+    }
+
+    public int getPendentes() {
+        return fila.size();
+    }
+
+    /**
+     * Agenda a expiração da reserva para depois do commit da transação atual; se a transação for
+     * desfeita a reserva não existe e a expiração não faz nada.
+     */
+    public void agendarExpiracao(Long reservaId, LocalDateTime expiraEm) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fila.add(new Expiracao(reservaId, expiraEm));
+                }
+            });
+        } else {
+            fila.add(new Expiracao(reservaId, expiraEm));
+        }
+    }
+
+    /**
+     * Devolve ao inventário a vaga de uma reserva que acabou de ser removida pelo chamador.
+     */
+    public void liberar(ReservaVaga reserva) {
+        Profissional profissional = reserva.getProfissional();
+        vagaInventarioService.liberar(profissional.getId(), reserva.getData(), reserva.getHora());
+        eventPublisher.publishEvent(new VagaLiberadaEvent(profissional.getId(), profissional.getEspecialidade(),
+                profissional.getUnidadeSaude().getId(), reserva.getData(), reserva.getHora()));
+    }
+
+    /**
+     * Libera a vaga se a reserva estiver vencida e ainda não tiver sido confirmada, cancelada ou
+     * expirada por outra instância.
+     *
+     * @return {@code true} quando esta chamada liberou a vaga
+     */
+    public boolean expirar(Long reservaId) {
+        Boolean liberada = transacao.execute(status -> reservaVagaRepository.findComProfissionalById(reservaId)
+                .filter(reserva -> reservaVagaRepository.expirar(reservaId, LocalDateTime.now()) == 1)
+                .map(reserva -> {
+                    liberar(reserva);
+                    return true;
+                })
+                .orElse(false));
+
+        if (Boolean.TRUE.equals(liberada)) {
+            log.info("Reserva de vaga ID: {} expirada", reservaId);
+            return true;
+        }
+        return false;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void iniciar() {
+        if (expirador != null) {
+            return;
+        }
+
+        List<ExpiracaoReservaProjection> pendentes = reservaVagaRepository.findExpiracoes();
+        pendentes.forEach(p -> fila.add(new Expiracao(p.id(), p.expiraEm())));
+
+        expirador = new Thread(this::processarFila, "expiracao-reservas");
+        expirador.setDaemon(true);
+        expirador.start();
+        log.info("Expiração de reservas de vagas iniciada com {} reserva(s) pendente(s)", pendentes.size());
+    }
+
+    /**
+     * Libera as reservas vencidas há mais de um intervalo, que nenhuma fila desta instância tem.
+     */
+    @Scheduled(fixedDelayString = "${susagenda.reservas.recuperacao-intervalo-ms:60000}",
+            initialDelayString = "${susagenda.reservas.recuperacao-intervalo-ms:60000}")
+    public void recuperarVencidas() {
+        LocalDateTime limite = LocalDateTime.now().minus(intervaloRecuperacao);
+        List<ExpiracaoReservaProjection> vencidas;
+        int liberadas = 0;
+        do {
+            vencidas = reservaVagaRepository.findVencidasAte(limite, PageRequest.of(0, TAMANHO_LOTE_RECUPERACAO));
+            for (ExpiracaoReservaProjection vencida : vencidas) {
+                if (expirar(vencida.id())) {
+                    liberadas++;
+                }
+            }
+        } while (vencidas.size() == TAMANHO_LOTE_RECUPERACAO);
+
+        if (liberadas > 0) {
+            log.warn("{} reserva(s) de vaga vencida(s) recuperada(s) fora da fila de expiração", liberadas);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        Thread thread = expirador;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void processarFila() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Expiracao expiracao;
+            try {
+                expiracao = fila.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                expirar(expiracao.reservaId());
+            } catch (RuntimeException e) {
+                log.warn("Falha ao expirar reserva de vaga ID: {}; nova tentativa em {}s",
+                        expiracao.reservaId(), ESPERA_APOS_FALHA.toSeconds(), e);
+                fila.add(new Expiracao(expiracao.reservaId(), LocalDateTime.now().plus(ESPERA_APOS_FALHA)));
+            }
+        }
+    }
+
+    private record Expiracao(Long reservaId, LocalDateTime expiraEm) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(), expiraEm));
+        }
+
+        @Override
+        public int compareTo(Delayed outro) {
+            return expiraEm.compareTo(((Expiracao) outro).expiraEm);
+        }
+    }
+}
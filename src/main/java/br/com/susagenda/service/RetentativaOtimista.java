@@ -0,0 +1,100 @@
+package br.com.susagenda.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Executa alterações de entidades versionadas repetindo as que perdem a disputa pela versão.
+ *
+ * <p>O conflito só aparece no flush, quando a transação já está perdida; por isso cada tentativa
+ * roda em uma transação nova e relê o registro, validando a mudança sobre o estado que venceu.
+ * A espera entre tentativas cresce e tem uma parte aleatória, para que os dois terminais em disputa
+ * não colidam de novo. Esgotadas as tentativas, o conflito segue para o chamador (409). Dentro de
+ * uma transação já aberta não há como repetir, e a operação roda uma vez só.</p>
+ */
+@Slf4j
+@Component
+public class RetentativaOtimista {
+
+    private final TransactionTemplate transacao;
+    private final int tentativasMaximas;
+    private final long esperaInicialMs;
+    private final Counter repetidas;
+    private final Counter esgotadas;
+
+    public RetentativaOtimista(PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${susagenda.concorrencia.tentativas-maximas:3}") int tentativasMaximas,
+                               @Value("${susagenda.concorrencia.espera-inicial-ms:10}") long esperaInicialMs) {
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.tentativasMaximas = Math.max(tentativasMaximas, 1);
+        this.esperaInicialMs = Math.max(esperaInicialMs, 0);
+        this.repetidas = contador(meterRegistry, "repetida");
+        this.esgotadas = contador(meterRegistry, "esgotada");
+    }
+
+    /**
+     * Executa a operação em uma transação, repetindo-a quando outra transação alterou a mesma
+     * entidade antes do commit.
+     */
+    public <T> T executar(Supplier<T> operacao) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return operacao.get();
+        }
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return transacao.execute(status -> operacao.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (tentativa >= tentativasMaximas) {
+                    esgotadas.increment();
+                    log.warn("Conflito de versão persistiu após {} tentativa(s): {}", tentativa, e.getMessage());
+                    throw e;
+                }
+                repetidas.increment();
+                log.debug("Conflito de versão na tentativa {}; repetindo", tentativa);
+                esperar(tentativa);
+            }
+        }
+    }
+
+    /**
+     * Executa a operação em uma transação sem repetir: usada quando o cliente informou a versão
+     * que espera alterar e um conflito significa que ele decidiu sobre um estado antigo.
+     */
+    public <T> T executarUmaVez(Supplier<T> operacao) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return operacao.get();
+        }
+        return transacao.execute(status -> operacao.get());
+    }
+
+    private void esperar(int tentativa) {
+        long base = esperaInicialMs << (tentativa - 1);
+        if (base == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(base + ThreadLocalRandom.current().nextLong(base + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido enquanto aguardava nova tentativa", e);
+        }
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("susagenda.concorrencia.conflitos")
+                .description("Conflitos de versão em alterações de agendamentos por desfecho")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+}
@@ -3,12 +3,16 @@ package br.com.susagenda.service;
 import br.com.susagenda.dto.request.TriagemRequest;
 import br.com.susagenda.dto.response.TriagemResponse;
 import br.com.susagenda.dto.response.TriagemResponse.EspecialidadeSugerida;
+import br.com.susagenda.service.triagem.BaseRegrasTriagem;
+import br.com.susagenda.service.triagem.CacheTriagemIA;
+import br.com.susagenda.service.triagem.ReconhecedorSintomas;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.service.OpenAiService;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -16,98 +20,46 @@ import java.util.*;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class TriagemService {
 
     private static final String AVISO_PADRAO = "Esta sugestão é baseada nos sintomas informados e não substitui avaliação médica profissional. " +
             "Procure atendimento presencial para diagnóstico e tratamento adequados.";
 
-    // Mapa de palavras-chave para especialidades (Sistema de Regras)
-    private static final Map<String, List<String>> REGRAS_ESPECIALIDADES = new HashMap<>() {{
-        put("CARDIOLOGIA", Arrays.asList(
-                "dor no peito", "palpitação", "arritmia", "pressão alta", "hipertensão",
-                "coração", "infarto", "angina", "falta de ar", "dispneia"
-        ));
-        put("DERMATOLOGIA", Arrays.asList(
-                "pele", "manchas", "coceira", "alergia", "acne", "espinha",
-                "verruga", "micose", "psoríase", "eczema", "dermatite"
-        ));
-        put("ORTOPEDIA", Arrays.asList(
-                "dor nas costas", "lombar", "joelho", "ombro", "coluna",
-                "fratura", "entorse", "articulação", "osso", "artrite"
-        ));
-        put("PEDIATRIA", Arrays.asList(
-                "criança", "bebê", "filho", "filha", "recém-nascido",
-                "vacinação", "crescimento", "desenvolvimento infantil"
-        ));
-        put("GINECOLOGIA", Arrays.asList(
-                "menstruação", "cólica menstrual", "gravidez", "gestação",
-                "útero", "ovário", "preventivo", "mama", "menopausa"
-        ));
-        put("OFTALMOLOGIA", Arrays.asList(
-                "olho", "visão", "vista", "enxergar", "cegueira",
-                "conjuntivite", "terçol", "catarata", "glaucoma"
-        ));
-        put("OTORRINOLARINGOLOGIA", Arrays.asList(
-                "ouvido", "nariz", "garganta", "sinusite", "rinite",
-                "amigdalite", "surdez", "zumbido", "vertigem", "tontura"
-        ));
-        put("PNEUMOLOGIA", Arrays.asList(
-                "pulmão", "tosse", "asma", "bronquite", "falta de ar",
-                "pneumonia", "tuberculose", "respiração", "chiado no peito"
-        ));
-        put("GASTROENTEROLOGIA", Arrays.asList(
-                "estômago", "intestino", "diarreia", "prisão de ventre",
-                "azia", "refluxo", "gastrite", "úlcera", "fígado", "vesícula"
-        ));
-        put("NEUROLOGIA", Arrays.asList(
-                "cabeça", "enxaqueca", "cefaleia", "tontura", "vertigem",
-                "convulsão", "epilepsia", "parkinson", "alzheimer", "formigamento"
-        ));
-        put("PSIQUIATRIA", Arrays.asList(
-                "ansiedade", "depressão", "insônia", "pânico", "estresse",
-                "tristeza", "medo", "angústia", "pensamentos suicidas"
-        ));
-        put("ENDOCRINOLOGIA", Arrays.asList(
-                "diabetes", "tireoide", "obesidade", "hormônio", "metabolismo",
-                "glicose", "colesterol", "triglicerídeos"
-        ));
-    }};
+    // Sistema de regras: palavras-chave de cada especialidade, da versão ativa da base de regras
+    private final BaseRegrasTriagem baseRegrasTriagem;
+
+    // Respostas da IA guardadas para relatos equivalentes
+    private final CacheTriagemIA cacheTriagemIA;
 
     public TriagemResponse realizarTriagem(TriagemRequest request) {
         log.info("Realizando triagem para sintomas: {}", request.getSintomas());
 
-        String sintomasLower = request.getSintomas().toLowerCase();
-
         // Tentar primeiro com regras simples
-        TriagemResponse respostaRegras = aplicarRegras(sintomasLower);
+        TriagemResponse respostaRegras = aplicarRegras(request.getSintomas());
 
         if (respostaRegras != null && !respostaRegras.getEspecialidades().isEmpty()) {
             log.info("Triagem resolvida por regras");
             return respostaRegras;
         }
 
-        // Se regras não funcionarem, usar IA
-        log.info("Regras não encontraram correspondência, usando IA (mock)");
-        return usarIA(request.getSintomas());
+        // Se regras não funcionarem, usar IA (ou a resposta já obtida para relato equivalente)
+        log.info("Regras não encontraram correspondência, usando IA");
+        TriagemResponse respostaIA = cacheTriagemIA.obter(request.getSintomas(), () -> consultarIA(request.getSintomas()));
+
+        // Fallback em caso de erro
+        return respostaIA != null ? respostaIA : getFallbackResponse();
     }
 
     private TriagemResponse aplicarRegras(String sintomas) {
-        Map<String, Integer> pontuacoes = new HashMap<>();
-
-        // Calcular pontuação para cada especialidade
-        for (Map.Entry<String, List<String>> entry : REGRAS_ESPECIALIDADES.entrySet()) {
-            String especialidade = entry.getKey();
-            List<String> palavrasChave = entry.getValue();
-
-            int pontos = 0;
-            for (String palavra : palavrasChave) {
-                if (sintomas.contains(palavra)) {
-                    pontos += 10;
-                }
-            }
-
-            if (pontos > 0) {
-                pontuacoes.put(especialidade, pontos);
+        Map<String, Integer> pontuacoes = new LinkedHashMap<>();
+
+        // Calcular pontuação para cada especialidade: 10 pontos por palavra-chave encontrada
+        ReconhecedorSintomas reconhecedor = baseRegrasTriagem.ativas().reconhecedor();
+        int[] encontradas = reconhecedor.contar(sintomas);
+        for (int i = 0; i < encontradas.length; i++) {
+            if (encontradas[i] > 0) {
+                pontuacoes.put(reconhecedor.especialidades().get(i), encontradas[i] * 10);
             }
         }
 
@@ -137,7 +89,10 @@ public class TriagemService {
                 .build();
     }
 
-    private TriagemResponse usarIA(String sintomas) {
+    /**
+     * @return sugestões da IA, ou {@code null} quando a consulta falha
+     */
+    private TriagemResponse consultarIA(String sintomas) {
         try {
             // Chamar API OpenAI
             OpenAiService service = new OpenAiService(System.getenv("OPENAI_API_KEY"));
@@ -189,7 +144,7 @@ public class TriagemService {
 
                 if (especialidades.isEmpty()) {
                     log.warn("IA retornou JSON válido, mas sem especialidades sugeridas. Usando fallback.");
-                    return getFallbackResponse();
+                    return null;
                 }
 
                 return TriagemResponse.builder()
@@ -203,8 +158,7 @@ public class TriagemService {
             log.error("Erro ao chamar API OpenAI: {}", e.getMessage(), e);
         }
 
-        // Fallback em caso de erro
-        return getFallbackResponse();
+        return null;
     }
 
     private List<EspecialidadeSugerida> parseJsonResponse(String jsonResponse) {
@@ -0,0 +1,369 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.HorarioDisponivel;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.repository.HorarioDisponivelRepository;
+import br.com.susagenda.repository.ProfissionalRepository;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import br.com.susagenda.repository.VagaRepository;
+import br.com.susagenda.repository.projection.VagaBloqueadaProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Mantém o inventário materializado de vagas ({@code vagas}) para um horizonte móvel de dias.
+ *
+ * <p>As reservas e liberações são feitas com um único {@code UPDATE} condicional, de forma que a
+ * capacidade do horário nunca é ultrapassada mesmo com agendamentos simultâneos.</p>
+ */
+@Slf4j
+@Service
+public class VagaInventarioService {
+
+    private static final int TAMANHO_LOTE_PROFISSIONAIS = 200;
+
+    private static final String SQL_INSERIR_VAGA =
+            "INSERT INTO vagas (profissional_id, data, hora, capacidade, restantes, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /** Quem perde a disputa espera o commit de quem inseriu e segue sem erro, sem abortar a transação. */
+    private static final String SQL_MATERIALIZAR_VAGA = SQL_INSERIR_VAGA +
+            " ON CONFLICT DO NOTHING";
+
+    /** Horários por instrução de bloqueio: três parâmetros por horário, bem abaixo do limite dos drivers. */
+    private static final int TAMANHO_LOTE_BLOQUEIO = 300;
+
+    private static final String SQL_BLOQUEAR_VAGAS =
+            "SELECT id, profissional_id, data, hora, restantes FROM vagas WHERE (profissional_id, data, hora) IN (%s) " +
+            "ORDER BY profissional_id, data, hora FOR UPDATE";
+
+    private static final String SQL_CONSUMIR_VAGAS =
+            "UPDATE vagas SET restantes = restantes - ?, updated_at = ? WHERE id = ?";
+
+    private static final String SQL_LIBERAR_VAGAS =
+            "UPDATE vagas SET restantes = LEAST(capacidade, restantes + ?), updated_at = ? " +
+            "WHERE profissional_id = ? AND data = ? AND hora = ?";
+
+    private static final Comparator<SlotAgenda> ORDEM_SLOTS = Comparator.comparing(SlotAgenda::profissionalId)
+            .thenComparing(SlotAgenda::data)
+            .thenComparing(SlotAgenda::hora);
+
+    private final VagaRepository vagaRepository;
+    private final HorarioDisponivelRepository horarioDisponivelRepository;
+    private final AgendamentoRepository agendamentoRepository;
+    private final ProfissionalRepository profissionalRepository;
+    private final ReservaVagaRepository reservaVagaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate novaTransacao;
+    private final TaskExecutor taskExecutor;
+    private final int horizonteDias;
+    private final boolean gerarNaInicializacao;
+
+    private final ReentrantLock geracaoLock = new ReentrantLock();
+    private volatile LocalDate horizonteGeradoAte;
+
+    public VagaInventarioService(VagaRepository vagaRepository,
+                                 HorarioDisponivelRepository horarioDisponivelRepository,
+                                 AgendamentoRepository agendamentoRepository,
+                                 ProfissionalRepository profissionalRepository,
+                                 ReservaVagaRepository reservaVagaRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                 @Value("${susagenda.vagas.horizonte-dias:90}") int horizonteDias,
+                                 @Value("${susagenda.vagas.gerar-na-inicializacao:true}") boolean gerarNaInicializacao) {
+        this.vagaRepository = vagaRepository;
+        this.horarioDisponivelRepository = horarioDisponivelRepository;
+        this.agendamentoRepository = agendamentoRepository;
+        this.profissionalRepository = profissionalRepository;
+        this.reservaVagaRepository = reservaVagaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.taskExecutor = taskExecutor;
+        this.horizonteDias = horizonteDias;
+        this.gerarNaInicializacao = gerarNaInicializacao;
+    }
+
+    /**
+     * Última data em que o inventário está completo neste nó, ou vazio enquanto a geração
+     * inicial ainda não terminou.
+     */
+    public Optional<LocalDate> getHorizonteGeradoAte() {
+        LocalDate limite = horizonteGeradoAte;
+        return limite == null || limite.isBefore(LocalDate.now()) ? Optional.empty() : Optional.of(limite);
+    }
+
+    /**
+     * Consome uma vaga do horário. Se o horário ainda não foi materializado (ex.: data além do horizonte,
+     * ou linha removida pela regeneração da agenda), cria a linha do inventário com a capacidade do
+     * horário de atendimento antes de decrementar.
+     *
+     * @param capacidade capacidade do horário, consultada apenas quando a linha precisa ser criada; pode
+     *                   lançar exceção quando o horário deixou de existir
+     * @return {@code false} quando o horário já está lotado
+     */
+    @Transactional
+    public boolean reservar(Long profissionalId, LocalDate data, LocalTime hora, IntSupplier capacidade) {
+        if (vagaRepository.decrementar(profissionalId, data, hora) == 1) {
+            return true;
+        }
+
+        if (vagaRepository.existsByProfissionalIdAndDataAndHora(profissionalId, data, hora)) {
+            // a linha pode ter sido recriada por uma regeneração da agenda entre o UPDATE e a consulta
+            return vagaRepository.decrementar(profissionalId, data, hora) == 1;
+        }
+
+        materializar(profissionalId, data, hora, capacidade.getAsInt());
+        return vagaRepository.decrementar(profissionalId, data, hora) == 1;
+    }
+
+    /**
+     * Materializa os horários que ainda não estão no inventário e bloqueia as suas linhas até o fim
+     * da transação, para que a capacidade de um lote de agendamentos seja distribuída em memória.
+     *
+     * <p>As linhas são bloqueadas na ordem (profissional, data, hora), a mesma em qualquer lote, para
+     * que lotes simultâneos não entrem em deadlock; agendamentos individuais continuam disputando
+     * cada linha pelo UPDATE condicional de {@link #reservar}.</p>
+     *
+     * @param capacidades capacidade de cada horário, usada apenas para os horários não materializados
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<SlotAgenda, VagaBloqueadaProjection> bloquear(Map<SlotAgenda, Integer> capacidades) {
+        if (capacidades.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        materializar(capacidades);
+
+        List<SlotAgenda> slots = new ArrayList<>(capacidades.keySet());
+        slots.sort(ORDEM_SLOTS);
+
+        Map<SlotAgenda, VagaBloqueadaProjection> bloqueadas = new HashMap<>();
+        for (int i = 0; i < slots.size(); i += TAMANHO_LOTE_BLOQUEIO) {
+            List<SlotAgenda> lote = slots.subList(i, Math.min(i + TAMANHO_LOTE_BLOQUEIO, slots.size()));
+            Object[] parametros = new Object[lote.size() * 3];
+            int p = 0;
+            for (SlotAgenda slot : lote) {
+                parametros[p++] = slot.profissionalId();
+                parametros[p++] = Date.valueOf(slot.data());
+                parametros[p++] = Time.valueOf(slot.hora());
+            }
+
+            String sql = String.format(SQL_BLOQUEAR_VAGAS, String.join(", ", Collections.nCopies(lote.size(), "(?, ?, ?)")));
+            jdbcTemplate.query(sql, rs -> {
+                SlotAgenda slot = new SlotAgenda(rs.getLong("profissional_id"),
+                        rs.getDate("data").toLocalDate(), rs.getTime("hora").toLocalTime());
+                bloqueadas.put(slot, new VagaBloqueadaProjection(rs.getLong("id"), slot, rs.getInt("restantes")));
+            }, parametros);
+        }
+        return bloqueadas;
+    }
+
+    /**
+     * Desconta as vagas distribuídas de linhas bloqueadas por {@link #bloquear}, em um único lote JDBC.
+     *
+     * @param consumo quantidade de vagas consumidas por id da linha do inventário
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void consumir(Map<Long, Integer> consumo) {
+        if (consumo.isEmpty()) {
+            return;
+        }
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> linhas = new ArrayList<>(consumo.size());
+        consumo.forEach((id, quantidade) -> linhas.add(new Object[]{quantidade, agora, id}));
+        jdbcTemplate.batchUpdate(SQL_CONSUMIR_VAGAS, linhas);
+    }
+
+    /**
+     * Devolve as vagas de vários horários em um único lote JDBC (transições de status em lote), na
+     * mesma ordem de {@link #bloquear} e sem ultrapassar a capacidade de cada horário.
+     *
+     * @param liberacoes quantidade de vagas devolvidas por horário
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void liberar(Map<SlotAgenda, Integer> liberacoes) {
+        if (liberacoes.isEmpty()) {
+            return;
+        }
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> linhas = new ArrayList<>(liberacoes.size());
+        liberacoes.keySet().stream().sorted(ORDEM_SLOTS).forEach(slot -> linhas.add(new Object[]{
+                liberacoes.get(slot), agora, slot.profissionalId(), Date.valueOf(slot.data()), Time.valueOf(slot.hora())}));
+        jdbcTemplate.batchUpdate(SQL_LIBERAR_VAGAS, linhas);
+    }
+
+    /**
+     * Devolve uma vaga ao horário (cancelamento ou não comparecimento).
+     */
+    @Transactional
+    public void liberar(Long profissionalId, LocalDate data, LocalTime hora) {
+        if (vagaRepository.incrementar(profissionalId, data, hora) == 0) {
+            log.debug("Horário {} {} do profissional {} não materializado ou já com capacidade total",
+                    data, hora, profissionalId);
+        }
+    }
+
+    /**
+     * Recria o inventário futuro de um profissional após alteração nos seus horários de atendimento.
+     */
+    @Transactional
+    public void regenerarProfissional(Long profissionalId) {
+        log.info("Regenerando inventário de vagas do profissional ID: {}", profissionalId);
+        LocalDate hoje = LocalDate.now();
+        vagaRepository.deleteByProfissionalIdAPartirDe(profissionalId, hoje);
+        gerar(List.of(profissionalId), hoje, hoje.plusDays(horizonteDias - 1L));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void gerarNaInicializacao() {
+        if (gerarNaInicializacao) {
+            taskExecutor.execute(this::gerarHorizonte);
+        }
+    }
+
+    /**
+     * Completa o inventário até o fim do horizonte e remove os dias que já passaram.
+     */
+    @Scheduled(cron = "${susagenda.vagas.geracao-cron:0 30 0 * * *}")
+    public void gerarHorizonte() {
+        if (!geracaoLock.tryLock()) {
+            log.debug("Geração do inventário de vagas já em andamento");
+            return;
+        }
+
+        try {
+            LocalDate inicio = LocalDate.now();
+            LocalDate fim = inicio.plusDays(horizonteDias - 1L);
+            log.info("Gerando inventário de vagas entre {} e {}", inicio, fim);
+
+            novaTransacao.executeWithoutResult(status -> vagaRepository.deleteAnterioresA(inicio));
+
+            List<Long> profissionalIds = profissionalRepository.findIdsAtivos();
+            int inseridas = 0;
+            boolean completo = true;
+
+            for (int i = 0; i < profissionalIds.size(); i += TAMANHO_LOTE_PROFISSIONAIS) {
+                List<Long> lote = profissionalIds.subList(i, Math.min(i + TAMANHO_LOTE_PROFISSIONAIS, profissionalIds.size()));
+                try {
+                    Integer total = novaTransacao.execute(status -> gerar(lote, inicio, fim));
+                    inseridas += total != null ? total : 0;
+                } catch (DataIntegrityViolationException e) {
+                    // ex.: profissional removido durante a geração; o lote é completado na próxima execução
+                    log.warn("Conflito ao gerar inventário para profissionais {}: {}", lote, e.getMessage());
+                    completo = false;
+                }
+            }
+
+            if (completo) {
+                horizonteGeradoAte = fim;
+            }
+            log.info("Inventário de vagas gerado: {} novos horários para {} profissionais", inseridas, profissionalIds.size());
+        } finally {
+            geracaoLock.unlock();
+        }
+    }
+
+    private int gerar(List<Long> profissionalIds, LocalDate inicio, LocalDate fim) {
+        Map<Long, Map<DayOfWeek, List<HorarioDisponivel>>> horarios = horarioDisponivelRepository.findAtivosAgrupados(profissionalIds);
+        if (horarios.isEmpty()) {
+            return 0;
+        }
+
+        Map<SlotAgenda, Integer> ocupacao = reservaVagaRepository.somarReservas(
+                agendamentoRepository.mapOcupacaoPorHorario(horarios.keySet(), inicio, fim), horarios.keySet(), inicio, fim);
+        Set<SlotAgenda> existentes = new HashSet<>(vagaRepository.findSlotsMaterializados(horarios.keySet(), inicio, fim));
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> linhas = new ArrayList<>();
+
+        horarios.forEach((profissionalId, horariosPorDia) -> {
+            for (LocalDate data = inicio; !data.isAfter(fim); data = data.plusDays(1)) {
+                for (HorarioDisponivel horario : horariosPorDia.getOrDefault(data.getDayOfWeek(), Collections.emptyList())) {
+                    for (LocalTime hora : horario.gerarHorarios()) {
+                        SlotAgenda slot = new SlotAgenda(profissionalId, data, hora);
+                        if (existentes.add(slot)) {
+                            int capacidade = horario.getVagasPorHorario();
+                            int restantes = Math.max(capacidade - ocupacao.getOrDefault(slot, 0), 0);
+                            linhas.add(new Object[]{profissionalId, Date.valueOf(data), Time.valueOf(hora),
+                                    capacidade, restantes, agora, agora});
+                        }
+                    }
+                }
+            }
+        });
+
+        if (!linhas.isEmpty()) {
+            // um agendamento simultâneo pode materializar o mesmo horário; a linha dele é mantida
+            jdbcTemplate.batchUpdate(SQL_MATERIALIZAR_VAGA, linhas);
+        }
+        return linhas.size();
+    }
+
+    private void materializar(Map<SlotAgenda, Integer> capacidades) {
+        Set<Long> profissionalIds = new HashSet<>();
+        LocalDate inicio = LocalDate.MAX;
+        LocalDate fim = LocalDate.MIN;
+        for (SlotAgenda slot : capacidades.keySet()) {
+            profissionalIds.add(slot.profissionalId());
+            inicio = slot.data().isBefore(inicio) ? slot.data() : inicio;
+            fim = slot.data().isAfter(fim) ? slot.data() : fim;
+        }
+
+        Set<SlotAgenda> existentes = new HashSet<>(vagaRepository.findSlotsMaterializados(profissionalIds, inicio, fim));
+        List<SlotAgenda> faltantes = capacidades.keySet().stream()
+                .filter(slot -> !existentes.contains(slot))
+                .toList();
+        if (faltantes.isEmpty()) {
+            return;
+        }
+
+        Map<SlotAgenda, Integer> ocupacao = reservaVagaRepository.somarReservas(
+                agendamentoRepository.mapOcupacaoPorHorario(profissionalIds, inicio, fim), profissionalIds, inicio, fim);
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> linhas = new ArrayList<>(faltantes.size());
+        for (SlotAgenda slot : faltantes) {
+            int capacidade = capacidades.get(slot);
+            linhas.add(new Object[]{slot.profissionalId(), Date.valueOf(slot.data()), Time.valueOf(slot.hora()),
+                    capacidade, Math.max(capacidade - ocupacao.getOrDefault(slot, 0), 0), agora, agora});
+        }
+        jdbcTemplate.batchUpdate(SQL_MATERIALIZAR_VAGA, linhas);
+    }
+
+    private void materializar(Long profissionalId, LocalDate data, LocalTime hora, int capacidade) {
+        // na mesma transação do agendamento: uma transação nova precisaria de uma segunda conexão por
+        // requisição e esgotaria o pool quando muitos agendamentos disputam horários ainda não materializados
+        int ocupados = agendamentoRepository.countAgendamentosNoHorario(profissionalId, data, hora)
+                + reservaVagaRepository.countByProfissionalIdAndDataAndHora(profissionalId, data, hora);
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        int inseridas = jdbcTemplate.update(SQL_MATERIALIZAR_VAGA, profissionalId, Date.valueOf(data), Time.valueOf(hora),
+                capacidade, Math.max(capacidade - ocupados, 0), agora, agora);
+        if (inseridas == 0) {
+            log.debug("Horário {} {} do profissional {} materializado por outra requisição", data, hora, profissionalId);
+        }
+    }
+}
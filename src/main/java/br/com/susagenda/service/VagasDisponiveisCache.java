@@ -0,0 +1,150 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.AgendaProfissionalAlteradaEvent;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.domain.event.VagaOcupadaEvent;
+import br.com.susagenda.dto.response.VagaDisponivelResponse;
+import br.com.susagenda.service.calendario.CalendarioVagas;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache das listas de vagas disponíveis por especialidade, unidade de saúde e período.
+ *
+ * <p>O cache é limitado em quantidade de entradas e expira por tempo; a expiração cobre os
+ * agendamentos feitos em outras instâncias. Os agendamentos, cancelamentos e alterações de agenda
+ * desta instância invalidam apenas as entradas afetadas: a mesma especialidade, a mesma unidade
+ * (ou consultas sem filtro de unidade) e períodos que contêm a data do horário.</p>
+ *
+ * <p>Um contador de geração por especialidade impede que uma lista calculada enquanto uma
+ * invalidação acontecia seja guardada com a ocupação antiga.</p>
+ */
+@Slf4j
+@Component
+public class VagasDisponiveisCache {
+
+    static final String NOME = "vagasDisponiveis";
+
+    private final boolean habilitado;
+    private final Cache<Chave, List<VagaDisponivelResponse>> cache;
+    private final Map<Especialidade, AtomicLong> geracoes = new EnumMap<>(Especialidade.class);
+    private final Counter invalidacoes;
+
+    public VagasDisponiveisCache(MeterRegistry meterRegistry,
+                                 @Value("${susagenda.vagas.cache.habilitado:true}") boolean habilitado,
+                                 @Value("${susagenda.vagas.cache.tamanho-maximo:2000}") long tamanhoMaximo,
+                                 @Value("${susagenda.vagas.cache.ttl-segundos:30}") long ttlSegundos) {
+        this.habilitado = habilitado;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+        for (Especialidade especialidade : Especialidade.values()) {
+            geracoes.put(especialidade, new AtomicLong());
+        }
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME);
+        this.invalidacoes = Counter.builder("susagenda.vagas.cache.invalidacoes")
+                .description("Entradas do cache de vagas removidas por agendamentos e alterações de agenda")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Devolve a lista em cache ou a calcula com o fornecedor, guardando o resultado se nenhuma
+     * invalidação da especialidade aconteceu durante o cálculo.
+     */
+    public List<VagaDisponivelResponse> obter(Especialidade especialidade, Long unidadeSaudeId,
+                                              LocalDate dataInicio, LocalDate dataFim,
+                                              Supplier<List<VagaDisponivelResponse>> calculo) {
+        if (!habilitado) {
+            return calculo.get();
+        }
+
+        Chave chave = new Chave(especialidade, unidadeSaudeId, dataInicio, dataFim);
+        List<VagaDisponivelResponse> vagas = cache.getIfPresent(chave);
+        if (vagas != null) {
+            return vagas;
+        }
+
+        AtomicLong geracao = geracoes.get(especialidade);
+        long antes = geracao.get();
+        vagas = List.copyOf(calculo.get());
+        if (geracao.get() == antes) {
+            cache.put(chave, vagas);
+        }
+        return vagas;
+    }
+
+    public long getTamanho() {
+        return cache.estimatedSize();
+    }
+
+    @Order(CalendarioVagas.ORDEM_EVENTOS + 1)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVagaOcupada(VagaOcupadaEvent event) {
+        invalidarHorario(event.especialidade(), event.unidadeSaudeId(), event.data());
+    }
+
+    @Order(CalendarioVagas.ORDEM_EVENTOS + 1)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVagaLiberada(VagaLiberadaEvent event) {
+        invalidarHorario(event.especialidade(), event.unidadeSaudeId(), event.data());
+    }
+
+    @Order(CalendarioVagas.ORDEM_EVENTOS + 1)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAgendaProfissionalAlterada(AgendaProfissionalAlteradaEvent event) {
+        // a unidade do profissional pode ter mudado junto com a agenda: remove a especialidade inteira
+        invalidar(event.especialidade(), chave -> true);
+    }
+
+    private void invalidarHorario(Especialidade especialidade, Long unidadeSaudeId, LocalDate data) {
+        invalidar(especialidade, chave -> chave.contem(unidadeSaudeId, data));
+    }
+
+    private void invalidar(Especialidade especialidade, Predicate<Chave> afetada) {
+        if (!habilitado || especialidade == null) {
+            return;
+        }
+
+        geracoes.get(especialidade).incrementAndGet();
+        int removidas = 0;
+        for (Chave chave : cache.asMap().keySet()) {
+            if (chave.especialidade() == especialidade && afetada.test(chave) && cache.asMap().remove(chave) != null) {
+                removidas++;
+            }
+        }
+        if (removidas > 0) {
+            invalidacoes.increment(removidas);
+            log.debug("{} consulta(s) de vagas de {} removida(s) do cache", removidas, especialidade);
+        }
+    }
+
+    record Chave(Especialidade especialidade, Long unidadeSaudeId, LocalDate dataInicio, LocalDate dataFim) {
+
+        boolean contem(Long unidade, LocalDate data) {
+            return (unidadeSaudeId == null || unidadeSaudeId.equals(unidade))
+                    && !data.isBefore(dataInicio) && !data.isAfter(dataFim);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package br.com.susagenda.service.calendario;
+
+import br.com.susagenda.domain.entity.HorarioDisponivel;
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.dto.response.VagaDisponivelResponse;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Ocupação de um profissional no horizonte do calendário, em arrays primitivos.
+ *
+ * <p>Os horários de cada dia da semana ficam em uma grade compartilhada por todas as datas
+ * ({@code minutos} e {@code capacidades}); por data só é guardado um {@code short} com as vagas
+ * restantes de cada horário, em um único array contíguo indexado por {@code offsets}.</p>
+ */
+final class AgendaProfissional {
+
+    private static final short[] VAZIO = new short[0];
+
+    private final Long id;
+    private final String nome;
+    private final Especialidade especialidade;
+    private final Long unidadeSaudeId;
+    private final String unidadeSaudeNome;
+    private final String unidadeSaudeEndereco;
+    private final String cidade;
+
+    private final LocalDate inicio;
+    private final short[][] minutos;
+    private final short[][] capacidades;
+    private final short[][] periodos;
+    private final int[] offsets;
+    private final short[] restantes;
+
+    private AgendaProfissional(Profissional profissional, LocalDate inicio, int dias,
+                               short[][] minutos, short[][] capacidades, short[][] periodos) {
+        this.id = profissional.getId();
+        this.nome = profissional.getNome();
+        this.especialidade = profissional.getEspecialidade();
+        this.unidadeSaudeId = profissional.getUnidadeSaude().getId();
+        this.unidadeSaudeNome = profissional.getUnidadeSaude().getNome();
+        this.unidadeSaudeEndereco = profissional.getUnidadeSaude().getEndereco();
+        this.cidade = profissional.getUnidadeSaude().getCidade();
+        this.inicio = inicio;
+        this.minutos = minutos;
+        this.capacidades = capacidades;
+        this.periodos = periodos;
+        this.offsets = new int[dias + 1];
+
+        int total = 0;
+        for (int dia = 0; dia < dias; dia++) {
+            offsets[dia] = total;
+            total += minutos[indice(inicio.plusDays(dia))].length;
+        }
+        offsets[dias] = total;
+        this.restantes = new short[total];
+    }
+
+    static AgendaProfissional criar(Profissional profissional, Map<DayOfWeek, List<HorarioDisponivel>> horarios,
+                                    LocalDate inicio, int dias, Map<SlotAgenda, Integer> ocupacao) {
+        short[][] minutos = new short[7][];
+        short[][] capacidades = new short[7][];
+        short[][] periodos = new short[7][];
+
+        for (DayOfWeek diaSemana : DayOfWeek.values()) {
+            List<HorarioDisponivel> doDia = horarios.getOrDefault(diaSemana, Collections.emptyList());
+            TreeMap<Short, Short> slots = new TreeMap<>();
+            short[] periodosDoDia = doDia.isEmpty() ? VAZIO : new short[doDia.size() * 2];
+
+            int p = 0;
+            for (HorarioDisponivel horario : doDia) {
+                periodosDoDia[p++] = minuto(horario.getHoraInicio());
+                periodosDoDia[p++] = minuto(horario.getHoraFim());
+                for (LocalTime hora : horario.gerarHorarios()) {
+                    // em horários sobrepostos vale o primeiro período que gera o horário, como no inventário
+                    slots.putIfAbsent(minuto(hora), horario.getVagasPorHorario().shortValue());
+                }
+            }
+
+            int d = diaSemana.getValue() - 1;
+            minutos[d] = slots.isEmpty() ? VAZIO : new short[slots.size()];
+            capacidades[d] = slots.isEmpty() ? VAZIO : new short[slots.size()];
+            periodos[d] = periodosDoDia;
+
+            int i = 0;
+            for (Map.Entry<Short, Short> slot : slots.entrySet()) {
+                minutos[d][i] = slot.getKey();
+                capacidades[d][i++] = slot.getValue();
+            }
+        }
+
+        AgendaProfissional agenda = new AgendaProfissional(profissional, inicio, dias, minutos, capacidades, periodos);
+
+        for (int dia = 0; dia < dias; dia++) {
+            LocalDate data = inicio.plusDays(dia);
+            int d = indice(data);
+            for (int slot = 0; slot < minutos[d].length; slot++) {
+                int ocupados = ocupacao.getOrDefault(new SlotAgenda(agenda.id, data, hora(minutos[d][slot])), 0);
+                agenda.restantes[agenda.offsets[dia] + slot] = (short) Math.max(capacidades[d][slot] - ocupados, 0);
+            }
+        }
+
+        return agenda;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    Especialidade getEspecialidade() {
+        return especialidade;
+    }
+
+    Long getUnidadeSaudeId() {
+        return unidadeSaudeId;
+    }
+
+    String getCidade() {
+        return cidade;
+    }
+
+    int getDias() {
+        return offsets.length - 1;
+    }
+
+    int getTotalHorarios() {
+        return restantes.length;
+    }
+
+    /**
+     * Situação de um horário, ou vazio quando a hora está dentro de um período de atendimento
+     * mas não coincide com o início de um horário da grade (validada pelo banco).
+     */
+    synchronized Optional<SituacaoHorario> consultar(LocalDate data, LocalTime hora) {
+        int dia = (int) ChronoUnit.DAYS.between(inicio, data);
+        int d = indice(data);
+
+        if (periodos[d].length == 0) {
+            return Optional.of(SituacaoHorario.semAtendimentoNoDia());
+        }
+
+        short minuto = minuto(hora);
+        boolean dentroDoPeriodo = false;
+        for (int p = 0; p < periodos[d].length; p += 2) {
+            if (minuto >= periodos[d][p] && minuto < periodos[d][p + 1]) {
+                dentroDoPeriodo = true;
+                break;
+            }
+        }
+        if (!dentroDoPeriodo) {
+            return Optional.of(SituacaoHorario.foraDoPeriodo());
+        }
+
+        int slot = Arrays.binarySearch(minutos[d], minuto);
+        if (slot < 0 || hora.getSecond() != 0 || hora.getNano() != 0) {
+            return Optional.empty();
+        }
+
+        return Optional.of(SituacaoHorario.horario(capacidades[d][slot],
+                limitar(restantes[offsets[dia] + slot], capacidades[d][slot])));
+    }
+
+    /*
+     * Os eventos de commits concorrentes podem chegar fora da ordem dos commits (um agendamento
+     * antes do cancelamento que liberou a vaga), então o contador não é limitado na escrita: ele
+     * pode sair da faixa por um instante e converge para o valor do banco. A leitura é que limita.
+     */
+    synchronized void ocupar(LocalDate data, LocalTime hora) {
+        int posicao = posicao(data, hora);
+        if (posicao >= 0) {
+            restantes[posicao]--;
+        }
+    }
+
+    synchronized void liberar(LocalDate data, LocalTime hora) {
+        int posicao = posicao(data, hora);
+        if (posicao >= 0) {
+            restantes[posicao]++;
+        }
+    }
+
+    /**
+     * Emite, em ordem cronológica, as vagas com capacidade restante entre as datas (inclusive).
+     */
+    void paraCadaVaga(LocalDate dataInicio, LocalDate dataFim, Consumer<VagaDisponivelResponse> destino) {
+        LocalDate primeiraData = dataInicio.isBefore(inicio) ? inicio : dataInicio;
+        LocalDate ultimaData = dataFim.isAfter(inicio.plusDays(getDias() - 1L)) ? inicio.plusDays(getDias() - 1L) : dataFim;
+
+        for (LocalDate data = primeiraData; !data.isAfter(ultimaData); data = data.plusDays(1)) {
+            LocalDate dia = data;
+            paraCadaVagaDoDia(data, 0, (minuto, vagas) -> destino.accept(toVaga(dia, minuto, vagas)));
+        }
+    }
+
+    /**
+     * Emite, em ordem de horário, as vagas da data que começam a partir do minuto informado.
+     */
+    void paraCadaVagaDoDia(LocalDate data, int aPartirDoMinuto, VagaDoDia destino) {
+        int dia = (int) ChronoUnit.DAYS.between(inicio, data);
+        if (dia < 0 || dia >= getDias()) {
+            return;
+        }
+
+        short[] minutosDoDia = minutos[indice(data)];
+        short[] capacidadesDoDia = capacidades[indice(data)];
+        if (minutosDoDia.length == 0 || minutosDoDia[minutosDoDia.length - 1] < aPartirDoMinuto) {
+            return;
+        }
+
+        short[] restantesDoDia;
+        synchronized (this) {
+            restantesDoDia = Arrays.copyOfRange(restantes, offsets[dia], offsets[dia + 1]);
+        }
+        for (int slot = 0; slot < minutosDoDia.length; slot++) {
+            if (restantesDoDia[slot] > 0 && minutosDoDia[slot] >= aPartirDoMinuto) {
+                destino.aceitar(minutosDoDia[slot], limitar(restantesDoDia[slot], capacidadesDoDia[slot]));
+            }
+        }
+    }
+
+    /**
+     * Bytes aproximados ocupados pela agenda (cabeçalhos de objetos e arrays incluídos).
+     */
+    long estimarBytes() {
+        long bytes = 64 + 16 + offsets.length * 4L + 16 + restantes.length * 2L;
+        for (int d = 0; d < 7; d++) {
+            bytes += 3 * 16 + (minutos[d].length + capacidades[d].length + periodos[d].length) * 2L;
+        }
+        return bytes;
+    }
+
+    private int posicao(LocalDate data, LocalTime hora) {
+        long dia = ChronoUnit.DAYS.between(inicio, data);
+        if (dia < 0 || dia >= getDias()) {
+            return -1;
+        }
+        int slot = Arrays.binarySearch(minutos[indice(data)], minuto(hora));
+        return slot < 0 ? -1 : offsets[(int) dia] + slot;
+    }
+
+    VagaDisponivelResponse toVaga(LocalDate data, int minuto, int vagasDisponiveis) {
+        return VagaDisponivelResponse.builder()
+                .profissionalId(id)
+                .profissionalNome(nome)
+                .especialidade(especialidade.getDescricao())
+                .unidadeSaudeId(unidadeSaudeId)
+                .unidadeSaudeNome(unidadeSaudeNome)
+                .unidadeSaudeEndereco(unidadeSaudeEndereco)
+                .data(data)
+                .horario(hora((short) minuto))
+                .vagasDisponiveis(vagasDisponiveis)
+                .build();
+    }
+
+    @FunctionalInterface
+    interface VagaDoDia {
+        void aceitar(int minuto, int vagasDisponiveis);
+    }
+
+    private static int limitar(int restantes, int capacidade) {
+        return Math.max(0, Math.min(restantes, capacidade));
+    }
+
+    private static int indice(LocalDate data) {
+        return data.getDayOfWeek().getValue() - 1;
+    }
+
+    static short minuto(LocalTime hora) {
+        return (short) (hora.getHour() * 60 + hora.getMinute());
+    }
+
+    private static LocalTime hora(short minuto) {
+        return LocalTime.of(minuto / 60, minuto % 60);
+    }
+}
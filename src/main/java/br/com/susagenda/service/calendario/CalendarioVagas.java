@@ -0,0 +1,361 @@
+package br.com.susagenda.service.calendario;
+
+import br.com.susagenda.domain.entity.HorarioDisponivel;
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.AgendaProfissionalAlteradaEvent;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.domain.event.VagaOcupadaEvent;
+import br.com.susagenda.domain.model.CursorVaga;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.dto.response.VagaDisponivelResponse;
+import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.repository.HorarioDisponivelRepository;
+import br.com.susagenda.repository.ProfissionalRepository;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Calendário de ocupação em memória de todos os profissionais ativos, usado para listar vagas e
+ * validar agendamentos sem consultar o banco.
+ *
+ * <p>É reconstruído a partir do banco na inicialização e periodicamente (o que também avança o
+ * horizonte e corrige agendamentos feitos por outras instâncias). Entre reconstruções é mantido
+ * pelos eventos publicados após o commit de agendamentos, cancelamentos e alterações de horários.
+ * A reserva continua sendo feita no inventário do banco, que é a fonte de verdade da capacidade.</p>
+ */
+@Slf4j
+@Component
+public class CalendarioVagas {
+
+    /**
+     * Ordem dos listeners de eventos de vaga: o calendário é atualizado antes dos caches derivados
+     * dele serem invalidados, para que uma leitura entre os dois passos não reconstrua o cache com
+     * a ocupação antiga.
+     */
+    public static final int ORDEM_EVENTOS = 0;
+
+    private static final int TAMANHO_LOTE_PROFISSIONAIS = 500;
+
+    private final ProfissionalRepository profissionalRepository;
+    private final HorarioDisponivelRepository horarioDisponivelRepository;
+    private final AgendamentoRepository agendamentoRepository;
+    private final ReservaVagaRepository reservaVagaRepository;
+    private final TransactionTemplate leitura;
+    private final TaskExecutor taskExecutor;
+    private final int horizonteDias;
+    private final boolean construirNaInicializacao;
+
+    private final ReentrantLock escritaLock = new ReentrantLock();
+    private final Set<Long> alteradosDuranteReconstrucao = ConcurrentHashMap.newKeySet();
+    private volatile boolean reconstruindo;
+    private volatile Snapshot snapshot;
+
+    public CalendarioVagas(ProfissionalRepository profissionalRepository,
+                           HorarioDisponivelRepository horarioDisponivelRepository,
+                           AgendamentoRepository agendamentoRepository,
+                           ReservaVagaRepository reservaVagaRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                           @Value("${susagenda.calendario.horizonte-dias:${susagenda.vagas.horizonte-dias:90}}") int horizonteDias,
+                           @Value("${susagenda.calendario.construir-na-inicializacao:true}") boolean construirNaInicializacao) {
+        this.profissionalRepository = profissionalRepository;
+        this.horarioDisponivelRepository = horarioDisponivelRepository;
+        this.agendamentoRepository = agendamentoRepository;
+        this.reservaVagaRepository = reservaVagaRepository;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.horizonteDias = horizonteDias;
+        this.construirNaInicializacao = construirNaInicializacao;
+    }
+
+    /**
+     * Indica se o calendário está carregado e cobre todo o período informado.
+     */
+    public boolean cobre(LocalDate dataInicio, LocalDate dataFim) {
+        Snapshot atual = snapshot;
+        return atual != null && atual.cobre(dataInicio) && atual.cobre(dataFim);
+    }
+
+    /**
+     * Vagas com capacidade restante no período, na mesma ordem da consulta ao banco
+     * (profissional, data e hora), ou vazio quando o período não está no calendário.
+     */
+    public Optional<List<VagaDisponivelResponse>> buscarVagas(Especialidade especialidade, LocalDate dataInicio, LocalDate dataFim) {
+        Snapshot atual = snapshot;
+        if (atual == null || !atual.cobre(dataInicio) || !atual.cobre(dataFim)) {
+            return Optional.empty();
+        }
+
+        List<VagaDisponivelResponse> vagas = new ArrayList<>();
+        for (AgendaProfissional agenda : atual.porEspecialidade().getOrDefault(especialidade, Collections.emptyList())) {
+            agenda.paraCadaVaga(dataInicio, dataFim, vagas::add);
+        }
+        return Optional.of(vagas);
+    }
+
+    /**
+     * Última data coberta pelo calendário, ou vazio enquanto ele não foi construído.
+     */
+    public Optional<LocalDate> getCoberturaAte() {
+        Snapshot atual = snapshot;
+        return atual == null ? Optional.empty() : Optional.of(atual.inicio().plusDays(atual.dias() - 1L));
+    }
+
+    /**
+     * Primeiras vagas posteriores ao cursor, em ordem de data, hora e profissional. Percorre o
+     * calendário dia a dia até {@code dataFim} (limitada à cobertura do calendário) e para assim que
+     * encontra a quantidade pedida; retorna vazio quando o calendário não cobre a data do cursor.
+     *
+     * @param unidadeSaudeId filtro opcional por unidade de saúde
+     * @param cidade         filtro opcional por cidade da unidade (sem diferenciar maiúsculas)
+     */
+    public Optional<List<VagaDisponivelResponse>> buscarVagasApos(Especialidade especialidade, Long unidadeSaudeId, String cidade,
+                                                                  CursorVaga apos, LocalDate dataFim, int quantidade) {
+        Snapshot atual = snapshot;
+        if (atual == null || !atual.cobre(apos.data())) {
+            return Optional.empty();
+        }
+
+        List<AgendaProfissional> agendas = atual.porEspecialidade().getOrDefault(especialidade, Collections.emptyList()).stream()
+                .filter(a -> unidadeSaudeId == null || unidadeSaudeId.equals(a.getUnidadeSaudeId()))
+                .filter(a -> cidade == null || cidade.equalsIgnoreCase(a.getCidade()))
+                .collect(Collectors.toList());
+
+        List<VagaDisponivelResponse> vagas = new ArrayList<>(Math.min(quantidade, 1024));
+        List<Candidata> doDia = new ArrayList<>();
+        int minutoCursor = AgendaProfissional.minuto(apos.hora());
+
+        for (LocalDate data = apos.data(); atual.cobre(data) && !data.isAfter(dataFim) && vagas.size() < quantidade;
+             data = data.plusDays(1)) {
+            boolean diaDoCursor = data.equals(apos.data());
+            doDia.clear();
+            for (AgendaProfissional agenda : agendas) {
+                boolean incluiMinutoDoCursor = !diaDoCursor || apos.profissionalId() == null || agenda.getId() > apos.profissionalId();
+                int aPartirDoMinuto = !diaDoCursor ? 0 : incluiMinutoDoCursor ? minutoCursor : minutoCursor + 1;
+                agenda.paraCadaVagaDoDia(data, aPartirDoMinuto, (minuto, restantes) -> doDia.add(new Candidata(minuto, restantes, agenda)));
+            }
+
+            // as agendas já estão em ordem de id; a ordenação estável por minuto mantém o desempate por profissional
+            doDia.sort(Comparator.comparingInt(Candidata::minuto));
+            for (int i = 0; i < doDia.size() && vagas.size() < quantidade; i++) {
+                Candidata candidata = doDia.get(i);
+                vagas.add(candidata.agenda().toVaga(data, candidata.minuto(), candidata.restantes()));
+            }
+        }
+
+        return Optional.of(vagas);
+    }
+
+    /**
+     * Situação do horário no calendário, ou vazio quando a resposta depende do banco
+     * (data fora do horizonte, profissional inativo ou hora fora da grade).
+     */
+    public Optional<SituacaoHorario> consultar(Long profissionalId, LocalDate data, LocalTime hora) {
+        Snapshot atual = snapshot;
+        if (atual == null || !atual.cobre(data)) {
+            return Optional.empty();
+        }
+
+        AgendaProfissional agenda = atual.porId().get(profissionalId);
+        return agenda == null ? Optional.empty() : agenda.consultar(data, hora);
+    }
+
+    @Order(ORDEM_EVENTOS)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVagaOcupada(VagaOcupadaEvent event) {
+        AgendaProfissional agenda = agendaAtual(event.profissionalId());
+        if (agenda != null) {
+            agenda.ocupar(event.data(), event.hora());
+        }
+    }
+
+    @Order(ORDEM_EVENTOS)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVagaLiberada(VagaLiberadaEvent event) {
+        AgendaProfissional agenda = agendaAtual(event.profissionalId());
+        if (agenda != null) {
+            agenda.liberar(event.data(), event.hora());
+        }
+    }
+
+    @Order(ORDEM_EVENTOS)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAgendaProfissionalAlterada(AgendaProfissionalAlteradaEvent event) {
+        if (snapshot == null) {
+            return;
+        }
+        recarregarProfissional(event.profissionalId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirNaInicializacao() {
+        if (construirNaInicializacao) {
+            taskExecutor.execute(this::reconstruir);
+        }
+    }
+
+    /**
+     * Reconstrói o calendário inteiro a partir do banco e troca a versão em uso de uma só vez.
+     */
+    @Scheduled(fixedDelayString = "${susagenda.calendario.reconstrucao-intervalo-ms:300000}",
+            initialDelayString = "${susagenda.calendario.reconstrucao-intervalo-ms:300000}")
+    public void reconstruir() {
+        if (!escritaLock.tryLock()) {
+            log.debug("Reconstrução do calendário de vagas já em andamento");
+            return;
+        }
+
+        try {
+            long inicioNanos = System.nanoTime();
+            LocalDate inicio = LocalDate.now();
+            alteradosDuranteReconstrucao.clear();
+            reconstruindo = true;
+
+            Map<Long, AgendaProfissional> porId = new LinkedHashMap<>();
+            List<Profissional> profissionais = leitura.execute(status -> profissionalRepository.findAtivosComUnidade());
+            for (int i = 0; i < profissionais.size(); i += TAMANHO_LOTE_PROFISSIONAIS) {
+                List<Profissional> lote = profissionais.subList(i, Math.min(i + TAMANHO_LOTE_PROFISSIONAIS, profissionais.size()));
+                leitura.executeWithoutResult(status -> construir(lote, inicio).forEach(a -> porId.put(a.getId(), a)));
+            }
+
+            long duracaoMs = (System.nanoTime() - inicioNanos) / 1_000_000;
+            snapshot = Snapshot.de(inicio, horizonteDias, porId, LocalDateTime.now(), duracaoMs);
+            reconstruindo = false;
+
+            // agendamentos confirmados durante a leitura podem não estar na nova versão
+            for (Long profissionalId : alteradosDuranteReconstrucao) {
+                recarregarProfissional(profissionalId);
+            }
+            alteradosDuranteReconstrucao.clear();
+
+            log.info("Calendário de vagas reconstruído: {} profissionais, {} dias, {} horários, ~{} KB em {} ms",
+                    porId.size(), horizonteDias, snapshot.totalHorarios(), snapshot.bytesEstimados() / 1024, duracaoMs);
+        } finally {
+            reconstruindo = false;
+            escritaLock.unlock();
+        }
+    }
+
+    /**
+     * Resumo do uso de memória, exposto no endpoint {@code calendariovagas} do actuator.
+     */
+    public Map<String, Object> relatorio() {
+        Snapshot atual = snapshot;
+        Map<String, Object> relatorio = new LinkedHashMap<>();
+        relatorio.put("carregado", atual != null);
+        if (atual == null) {
+            return relatorio;
+        }
+
+        relatorio.put("inicio", atual.inicio());
+        relatorio.put("fim", atual.inicio().plusDays(atual.dias() - 1L));
+        relatorio.put("profissionais", atual.porId().size());
+        relatorio.put("horarios", atual.totalHorarios());
+        relatorio.put("bytesEstimados", atual.bytesEstimados());
+        relatorio.put("bytesPorProfissional", atual.porId().isEmpty() ? 0 : atual.bytesEstimados() / atual.porId().size());
+        relatorio.put("profissionaisPorEspecialidade", atual.porEspecialidade().entrySet().stream()
+                .collect(Collectors.toMap(e -> e.getKey().name(), e -> e.getValue().size(), (a, b) -> a, TreeMap::new)));
+        relatorio.put("construidoEm", atual.construidoEm());
+        relatorio.put("duracaoConstrucaoMs", atual.duracaoMs());
+        return relatorio;
+    }
+
+    private AgendaProfissional agendaAtual(Long profissionalId) {
+        if (reconstruindo) {
+            alteradosDuranteReconstrucao.add(profissionalId);
+        }
+        Snapshot atual = snapshot;
+        return atual == null ? null : atual.porId().get(profissionalId);
+    }
+
+    private void recarregarProfissional(Long profissionalId) {
+        if (reconstruindo) {
+            alteradosDuranteReconstrucao.add(profissionalId);
+            return;
+        }
+
+        escritaLock.lock();
+        try {
+            Snapshot atual = snapshot;
+            if (atual == null) {
+                return;
+            }
+
+            Optional<AgendaProfissional> agenda = leitura.execute(status -> profissionalRepository.findAtivoComUnidadeById(profissionalId)
+                    .map(profissional -> construir(List.of(profissional), atual.inicio()).get(0)));
+
+            Map<Long, AgendaProfissional> porId = new LinkedHashMap<>(atual.porId());
+            porId.remove(profissionalId);
+            agenda.ifPresent(a -> porId.put(a.getId(), a));
+            snapshot = Snapshot.de(atual.inicio(), atual.dias(), porId, atual.construidoEm(), atual.duracaoMs());
+            log.debug("Calendário do profissional ID: {} recarregado", profissionalId);
+        } finally {
+            escritaLock.unlock();
+        }
+    }
+
+    private List<AgendaProfissional> construir(List<Profissional> profissionais, LocalDate inicio) {
+        List<Long> ids = profissionais.stream().map(Profissional::getId).collect(Collectors.toList());
+        Map<Long, Map<DayOfWeek, List<HorarioDisponivel>>> horarios = horarioDisponivelRepository.findAtivosAgrupados(ids);
+        LocalDate fim = inicio.plusDays(horizonteDias - 1L);
+        Map<SlotAgenda, Integer> ocupacao = horarios.isEmpty()
+                ? Collections.emptyMap()
+                : reservaVagaRepository.somarReservas(agendamentoRepository.mapOcupacaoPorHorario(horarios.keySet(), inicio, fim),
+                        horarios.keySet(), inicio, fim);
+
+        return profissionais.stream()
+                .map(p -> AgendaProfissional.criar(p, horarios.getOrDefault(p.getId(), Collections.emptyMap()),
+                        inicio, horizonteDias, ocupacao))
+                .collect(Collectors.toList());
+    }
+
+    private record Candidata(int minuto, int restantes, AgendaProfissional agenda) {
+    }
+
+    private record Snapshot(LocalDate inicio, int dias, Map<Long, AgendaProfissional> porId,
+                            Map<Especialidade, List<AgendaProfissional>> porEspecialidade,
+                            long totalHorarios, long bytesEstimados,
+                            LocalDateTime construidoEm, long duracaoMs) {
+
+        static Snapshot de(LocalDate inicio, int dias, Map<Long, AgendaProfissional> porId,
+                           LocalDateTime construidoEm, long duracaoMs) {
+            Map<Especialidade, List<AgendaProfissional>> porEspecialidade = new EnumMap<>(Especialidade.class);
+            long totalHorarios = 0;
+            long bytes = 0;
+            for (AgendaProfissional agenda : porId.values()) {
+                porEspecialidade.computeIfAbsent(agenda.getEspecialidade(), e -> new ArrayList<>()).add(agenda);
+                totalHorarios += agenda.getTotalHorarios();
+                bytes += agenda.estimarBytes();
+            }
+            porEspecialidade.values().forEach(lista -> lista.sort(Comparator.comparing(AgendaProfissional::getId)));
+            return new Snapshot(inicio, dias, porId, porEspecialidade, totalHorarios, bytes, construidoEm, duracaoMs);
+        }
+
+        boolean cobre(LocalDate data) {
+            return !data.isBefore(inicio) && data.isBefore(inicio.plusDays(dias));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package br.com.susagenda.service.calendario;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Expõe em {@code /actuator/calendariovagas} o tamanho e a memória estimada do calendário de vagas.
+ */
+@Component
+@Endpoint(id = "calendariovagas")
+@RequiredArgsConstructor
+public class CalendarioVagasEndpoint {
+
+    private final CalendarioVagas calendarioVagas;
+
+    @ReadOperation
+    public Map<String, Object> relatorio() {
+        return calendarioVagas.relatorio();
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.susagenda.service.calendario;
+
+/**
+ * Resultado da consulta de um horário no calendário em memória.
+ */
+public record SituacaoHorario(Estado estado, int capacidade, int restantes) {
+
+    public enum Estado {
+        SEM_ATENDIMENTO_NO_DIA,
+        FORA_DO_PERIODO,
+        LOTADO,
+        DISPONIVEL
+    }
+
+    static SituacaoHorario semAtendimentoNoDia() {
+        return new SituacaoHorario(Estado.SEM_ATENDIMENTO_NO_DIA, 0, 0);
+    }
+
+    static SituacaoHorario foraDoPeriodo() {
+        return new SituacaoHorario(Estado.FORA_DO_PERIODO, 0, 0);
+    }
+
+    static SituacaoHorario horario(int capacidade, int restantes) {
+        return new SituacaoHorario(restantes > 0 ? Estado.DISPONIVEL : Estado.LOTADO, capacidade, restantes);
+    }
+}
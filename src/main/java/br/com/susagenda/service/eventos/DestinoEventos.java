@@ -0,0 +1,15 @@
+package br.com.susagenda.service.eventos;
+
+import br.com.susagenda.domain.event.AgendamentoAlteradoEvent;
+
+import java.util.List;
+
+/**
+ * Destino externo dos eventos de agendamento (arquivo, HTTP, broker...). Recebe um lote por vez, em
+ * ordem de gravação; uma exceção desfaz a publicação do lote, que é entregue de novo na próxima
+ * rodada, por isso o destino precisa tolerar repetições.
+ */
+public interface DestinoEventos {
+
+    void publicar(List<AgendamentoAlteradoEvent> eventos);
+}
@@ -0,0 +1,54 @@
+package br.com.susagenda.service.eventos;
+
+import br.com.susagenda.domain.event.AgendamentoAlteradoEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Acrescenta os eventos a um arquivo, um JSON por linha. Útil em desenvolvimento e como entrada
+ * de coletores de log que encaminham para a análise de dados.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "susagenda.eventos.destino.tipo", havingValue = "arquivo")
+public class DestinoEventosArquivo implements DestinoEventos {
+
+    private final ObjectMapper objectMapper;
+    private final Path arquivo;
+
+    public DestinoEventosArquivo(ObjectMapper objectMapper,
+                                 @Value("${susagenda.eventos.destino.arquivo:eventos-agendamento.jsonl}") String arquivo) {
+        this.objectMapper = objectMapper;
+        this.arquivo = Path.of(arquivo);
+        log.info("Eventos de agendamento publicados em {}", this.arquivo.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void publicar(List<AgendamentoAlteradoEvent> eventos) {
+        List<String> linhas = new ArrayList<>(eventos.size());
+        for (AgendamentoAlteradoEvent evento : eventos) {
+            try {
+                linhas.add(objectMapper.writeValueAsString(evento));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Não foi possível serializar o evento " + evento.id(), e);
+            }
+        }
+        try {
+            Files.write(arquivo, linhas, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível gravar os eventos em " + arquivo, e);
+        }
+    }
+}
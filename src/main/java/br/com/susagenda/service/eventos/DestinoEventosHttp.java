@@ -0,0 +1,46 @@
+package br.com.susagenda.service.eventos;
+
+import br.com.susagenda.domain.event.AgendamentoAlteradoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+/**
+ * Envia cada lote de eventos como um array JSON em um {@code POST}. Respostas fora de 2xx e falhas
+ * de conexão desfazem a publicação do lote, que é reenviado na próxima rodada.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "susagenda.eventos.destino.tipo", havingValue = "http")
+public class DestinoEventosHttp implements DestinoEventos {
+
+    private final RestClient restClient;
+    private final String url;
+
+    public DestinoEventosHttp(RestClient.Builder restClientBuilder,
+                              @Value("${susagenda.eventos.destino.url}") String url,
+                              @Value("${susagenda.eventos.destino.timeout-ms:2000}") int timeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+        this.url = url;
+        log.info("Eventos de agendamento publicados em {}", url);
+    }
+
+    @Override
+    public void publicar(List<AgendamentoAlteradoEvent> eventos) {
+        restClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(eventos)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
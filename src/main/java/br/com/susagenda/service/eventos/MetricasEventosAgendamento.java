@@ -0,0 +1,35 @@
+package br.com.susagenda.service.eventos;
+
+import br.com.susagenda.domain.enums.TipoEventoAgendamento;
+import br.com.susagenda.domain.event.AgendamentoAlteradoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Contadores de agendamentos por tipo de mudança, atualizados pelo publicador de eventos e não pela
+ * requisição que fez a mudança.
+ */
+@Component
+public class MetricasEventosAgendamento {
+
+    private final Map<TipoEventoAgendamento, Counter> contadores = new EnumMap<>(TipoEventoAgendamento.class);
+
+    public MetricasEventosAgendamento(MeterRegistry meterRegistry) {
+        for (TipoEventoAgendamento tipo : TipoEventoAgendamento.values()) {
+            contadores.put(tipo, Counter.builder("susagenda.agendamentos.eventos")
+                    .description("Mudanças em agendamentos por tipo")
+                    .tag("tipo", tipo.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    @EventListener
+    public void onAgendamentoAlterado(AgendamentoAlteradoEvent event) {
+        contadores.get(event.tipo()).increment();
+    }
+}
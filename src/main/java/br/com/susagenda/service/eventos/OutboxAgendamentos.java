@@ -0,0 +1,67 @@
+package br.com.susagenda.service.eventos;
+
+import br.com.susagenda.domain.entity.Agendamento;
+import br.com.susagenda.domain.enums.TipoEventoAgendamento;
+import br.com.susagenda.domain.event.AgendamentoAlteradoEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Grava os eventos de agendamento na tabela de eventos, sempre dentro da transação da mudança:
+ * o evento existe se, e somente se, a mudança foi confirmada. Nada é publicado aqui; a entrega
+ * fica com o {@link PublicadorOutbox}, fora da requisição.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxAgendamentos {
+
+    private static final String SQL_INSERIR_EVENTO =
+            "INSERT INTO eventos_agendamento (agendamento_id, tipo, status, versao, paciente_id, profissional_id, " +
+            "unidade_saude_id, data_agendamento, hora_agendamento, ocorrido_em) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Registra o evento com o estado do agendamento já gravado (status e versão após a mudança).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(Agendamento agendamento, TipoEventoAgendamento tipo) {
+        registrarTodos(List.of(evento(agendamento, tipo, LocalDateTime.now())));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarTodos(List<AgendamentoAlteradoEvent> eventos) {
+        if (eventos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERIR_EVENTO, eventos, eventos.size(), (ps, evento) -> {
+            ps.setLong(1, evento.agendamentoId());
+            ps.setString(2, evento.tipo().name());
+            ps.setString(3, evento.status().name());
+            ps.setLong(4, evento.versao());
+            ps.setLong(5, evento.pacienteId());
+            ps.setLong(6, evento.profissionalId());
+            ps.setLong(7, evento.unidadeSaudeId());
+            ps.setDate(8, Date.valueOf(evento.data()));
+            ps.setTime(9, Time.valueOf(evento.hora()));
+            ps.setTimestamp(10, Timestamp.valueOf(evento.ocorridoEm()));
+        });
+    }
+
+    public static AgendamentoAlteradoEvent evento(Agendamento agendamento, TipoEventoAgendamento tipo,
+                                                  LocalDateTime ocorridoEm) {
+        return new AgendamentoAlteradoEvent(null, agendamento.getId(), tipo, agendamento.getStatus(),
+                agendamento.getVersao(), agendamento.getPaciente().getId(), agendamento.getProfissional().getId(),
+                agendamento.getUnidadeSaude().getId(), agendamento.getDataAgendamento(),
+                agendamento.getHoraAgendamento(), ocorridoEm);
+    }
+}
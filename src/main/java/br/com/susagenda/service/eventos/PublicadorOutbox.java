@@ -0,0 +1,137 @@
+package br.com.susagenda.service.eventos;
+
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoEventoAgendamento;
+import br.com.susagenda.domain.event.AgendamentoAlteradoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Publica em lotes os eventos gravados pelo {@link OutboxAgendamentos}.
+ *
+ * <p>Cada lote é reivindicado em ordem de gravação com {@code FOR UPDATE SKIP LOCKED}, entregue aos
+ * destinos externos e aos assinantes da aplicação e apagado, tudo na mesma transação curta: várias
+ * instâncias podem publicar ao mesmo tempo sem entregar o mesmo evento duas vezes. Uma falha no
+ * destino desfaz o lote, que volta na próxima rodada (entrega pelo menos uma vez). Os assinantes da
+ * aplicação ({@code @EventListener} de {@link AgendamentoAlteradoEvent}) rodam na thread do
+ * publicador e só depois do destino; a falha de um deles é registrada e não segura a fila.</p>
+ */
+@Slf4j
+@Component
+public class PublicadorOutbox {
+
+    private static final String SQL_REIVINDICAR_EVENTOS =
+            "SELECT id, agendamento_id, tipo, status, versao, paciente_id, profissional_id, unidade_saude_id, " +
+            "data_agendamento, hora_agendamento, ocorrido_em FROM eventos_agendamento " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String SQL_REMOVER_EVENTOS = "DELETE FROM eventos_agendamento WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final List<DestinoEventos> destinos;
+    private final TransactionTemplate transacao;
+    private final Counter publicados;
+    private final boolean habilitada;
+    private final int tamanhoLote;
+
+    public PublicadorOutbox(JdbcTemplate jdbcTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            ObjectProvider<DestinoEventos> destinos,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${susagenda.eventos.publicacao.habilitada:true}") boolean habilitada,
+                            @Value("${susagenda.eventos.publicacao.tamanho-lote:500}") int tamanhoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.destinos = destinos.orderedStream().toList();
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.publicados = Counter.builder("susagenda.eventos.publicados")
+                .description("Eventos de agendamento entregues pelo publicador")
+                .register(meterRegistry);
+        this.habilitada = habilitada;
+        this.tamanhoLote = Math.max(tamanhoLote, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${susagenda.eventos.publicacao.intervalo-ms:1000}",
+            initialDelayString = "${susagenda.eventos.publicacao.intervalo-ms:1000}")
+    public void publicarAgendado() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            publicarPendentes();
+        } catch (RuntimeException e) {
+            log.warn("Falha ao publicar eventos de agendamento; nova tentativa na próxima rodada: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Publica lotes até esvaziar a fila (ou até os lotes restantes estarem com outras instâncias).
+     *
+     * @return quantidade de eventos publicados por esta instância
+     */
+    public int publicarPendentes() {
+        int total = 0;
+        while (true) {
+            Integer publicadosNoLote = transacao.execute(status -> publicarLote());
+            total += publicadosNoLote;
+            if (publicadosNoLote < tamanhoLote) {
+                break;
+            }
+        }
+        if (total > 0) {
+            publicados.increment(total);
+            log.debug("{} evento(s) de agendamento publicado(s)", total);
+        }
+        return total;
+    }
+
+    private int publicarLote() {
+        List<AgendamentoAlteradoEvent> eventos = jdbcTemplate.query(SQL_REIVINDICAR_EVENTOS,
+                (rs, linha) -> new AgendamentoAlteradoEvent(
+                        rs.getLong("id"),
+                        rs.getLong("agendamento_id"),
+                        TipoEventoAgendamento.valueOf(rs.getString("tipo")),
+                        StatusAgendamento.valueOf(rs.getString("status")),
+                        rs.getLong("versao"),
+                        rs.getLong("paciente_id"),
+                        rs.getLong("profissional_id"),
+                        rs.getLong("unidade_saude_id"),
+                        rs.getDate("data_agendamento").toLocalDate(),
+                        rs.getTime("hora_agendamento").toLocalTime(),
+                        rs.getTimestamp("ocorrido_em").toLocalDateTime()),
+                tamanhoLote);
+        if (eventos.isEmpty()) {
+            return 0;
+        }
+
+        for (DestinoEventos destino : destinos) {
+            destino.publicar(eventos);
+        }
+        for (AgendamentoAlteradoEvent evento : eventos) {
+            try {
+                eventPublisher.publishEvent(evento);
+            } catch (RuntimeException e) {
+                log.warn("Assinante falhou ao tratar o evento {} do agendamento {}: {}",
+                        evento.id(), evento.agendamentoId(), e.getMessage());
+            }
+        }
+
+        jdbcTemplate.update(String.format(SQL_REMOVER_EVENTOS, String.join(", ", Collections.nCopies(eventos.size(), "?"))),
+                eventos.stream().map(AgendamentoAlteradoEvent::id).toArray());
+        return eventos.size();
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.ListaEspera;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.response.AgendamentoResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.exception.HorarioIndisponivelException;
+import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.service.AgendamentoService;
+import br.com.susagenda.service.ListaEsperaService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Consumer;
+
+/**
+ * Agenda um paciente da lista de espera em um horário, em uma transação: tira a entrada da fila
+ * com uma atualização condicional (duas alocações não usam a mesma entrada) e cria o agendamento
+ * pelo fluxo normal, que confere a capacidade no inventário. Qualquer recusa desfaz as duas coisas.
+ */
+@Slf4j
+@Component
+public class AgendadorListaEspera {
+
+    private static final String OBSERVACAO_AGENDAMENTO = "Agendado automaticamente pela lista de espera";
+
+    public enum Resultado {
+        AGENDADO,
+        /** A entrada já saiu da fila ou o paciente não pode ocupar o horário. */
+        PACIENTE_INDISPONIVEL,
+        /** O horário não tem mais vaga. */
+        VAGA_INDISPONIVEL
+    }
+
+    private final ListaEsperaService listaEsperaService;
+    private final AgendamentoService agendamentoService;
+    private final AgendamentoRepository agendamentoRepository;
+    private final TransactionTemplate transacao;
+
+    public AgendadorListaEspera(ListaEsperaService listaEsperaService,
+                                AgendamentoService agendamentoService,
+                                AgendamentoRepository agendamentoRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.listaEsperaService = listaEsperaService;
+        this.agendamentoService = agendamentoService;
+        this.agendamentoRepository = agendamentoRepository;
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @param aoAgendar executado na mesma transação com o id do agendamento criado
+     */
+    public Resultado agendar(ListaEspera candidato, SlotAgenda vaga, Consumer<Long> aoAgendar) {
+        return transacao.execute(status -> {
+            Long pacienteId = candidato.getPaciente().getId();
+            if (agendamentoRepository.existsPacienteNoHorario(pacienteId, vaga.data(), vaga.hora())
+                    || !listaEsperaService.registrarAgendamento(candidato)) {
+                return Resultado.PACIENTE_INDISPONIVEL;
+            }
+            try {
+                AgendamentoResponse agendamento = agendamentoService.criar(AgendamentoRequest.builder()
+                        .pacienteId(pacienteId)
+                        .profissionalId(vaga.profissionalId())
+                        .dataAgendamento(vaga.data())
+                        .horaAgendamento(vaga.hora())
+                        .tipoAtendimento(TipoAtendimento.CONSULTA)
+                        .observacoes(OBSERVACAO_AGENDAMENTO)
+                        .build());
+                aoAgendar.accept(agendamento.getId());
+                log.info("Paciente ID: {} da lista de espera ID: {} agendado em {} {} (agendamento ID: {})",
+                        pacienteId, candidato.getId(), vaga.data(), vaga.hora(), agendamento.getId());
+                return Resultado.AGENDADO;
+            } catch (HorarioIndisponivelException e) {
+                status.setRollbackOnly();
+                return Resultado.VAGA_INDISPONIVEL;
+            } catch (BusinessException e) {
+                status.setRollbackOnly();
+                return Resultado.PACIENTE_INDISPONIVEL;
+            }
+        });
+    }
+}
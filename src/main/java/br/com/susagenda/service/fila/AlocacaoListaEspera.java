@@ -0,0 +1,225 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.ListaEspera;
+import br.com.susagenda.domain.entity.UnidadeSaude;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.repository.ListaEsperaRepository;
+import br.com.susagenda.service.fila.AgendadorListaEspera.Resultado;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Oferece aos pacientes da lista de espera as vagas devolvidas por cancelamentos, não
+ * comparecimentos e reservas vencidas, agendando o paciente escolhido direto no horário liberado.
+ *
+ * <p>As vagas liberadas (eventos publicados após o commit) entram em uma fila limitada e são
+ * alocadas em lotes pela rodada periódica: cada vaga espera no máximo um intervalo da rodada, e
+ * rajadas como o cancelamento do dia inteiro de um profissional viram uma única leitura de
+ * candidatos por especialidade. As vagas mais próximas são preenchidas primeiro. Para cada uma,
+ * vence o primeiro candidato, na ordem da fila, entre os próximos {@code janela-candidatos} que
+ * preferem a unidade da vaga ou não têm preferência; sem nenhum assim, o primeiro da janela.</p>
+ *
+ * <p>Cada alocação é feita pelo {@link AgendadorListaEspera}, segura entre instâncias, e o
+ * paciente fica sabendo pelo evento {@code CRIADO} do agendamento. Vagas que não cabem na fila
+ * são descartadas e continuam disponíveis para busca.</p>
+ */
+@Slf4j
+@Component
+public class AlocacaoListaEspera {
+
+    private record VagaLiberada(VagaLiberadaEvent vaga, long liberadaEm) {
+    }
+
+    private final IndicePosicoesFila indicePosicoesFila;
+    private final ListaEsperaRepository listaEsperaRepository;
+    private final AgendadorListaEspera agendadorListaEspera;
+    private final TransactionTemplate leitura;
+    private final BlockingQueue<VagaLiberada> pendentes;
+    private final boolean habilitada;
+    private final int tamanhoLote;
+    private final int janelaCandidatos;
+    private final Duration antecedenciaMinima;
+    private final Counter agendadas;
+    private final Counter semCandidato;
+    private final Counter vagasIndisponiveis;
+    private final Counter descartadas;
+    private final Timer latencia;
+
+    public AlocacaoListaEspera(IndicePosicoesFila indicePosicoesFila,
+                               ListaEsperaRepository listaEsperaRepository,
+                               AgendadorListaEspera agendadorListaEspera,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${susagenda.lista-espera.alocacao.habilitada:true}") boolean habilitada,
+                               @Value("${susagenda.lista-espera.alocacao.capacidade:10000}") int capacidade,
+                               @Value("${susagenda.lista-espera.alocacao.tamanho-lote:200}") int tamanhoLote,
+                               @Value("${susagenda.lista-espera.alocacao.janela-candidatos:50}") int janelaCandidatos,
+                               @Value("${susagenda.lista-espera.alocacao.antecedencia-minima-minutos:120}") long antecedenciaMinimaMinutos) {
+        this.indicePosicoesFila = indicePosicoesFila;
+        this.listaEsperaRepository = listaEsperaRepository;
+        this.agendadorListaEspera = agendadorListaEspera;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.pendentes = new ArrayBlockingQueue<>(Math.max(capacidade, 1));
+        this.habilitada = habilitada;
+        this.tamanhoLote = Math.max(tamanhoLote, 1);
+        this.janelaCandidatos = Math.max(janelaCandidatos, 1);
+        this.antecedenciaMinima = Duration.ofMinutes(antecedenciaMinimaMinutos);
+
+        this.agendadas = contador(meterRegistry, "agendada");
+        this.semCandidato = contador(meterRegistry, "sem-candidato");
+        this.vagasIndisponiveis = contador(meterRegistry, "vaga-indisponivel");
+        this.descartadas = contador(meterRegistry, "descartada");
+        this.latencia = Timer.builder("susagenda.lista-espera.alocacao.latencia")
+                .description("Tempo entre a liberação da vaga e o agendamento de um paciente da lista de espera")
+                .register(meterRegistry);
+        Gauge.builder("susagenda.lista-espera.alocacao.pendentes", pendentes, Collection::size)
+                .description("Vagas liberadas aguardando a próxima rodada de alocação")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVagaLiberada(VagaLiberadaEvent event) {
+        if (!habilitada || event.data().atTime(event.hora()).isBefore(LocalDateTime.now().plus(antecedenciaMinima))) {
+            return;
+        }
+        if (!pendentes.offer(new VagaLiberada(event, System.nanoTime()))) {
+            descartadas.increment();
+            log.warn("Fila de alocação cheia; a vaga de {} {} do profissional {} não será oferecida à lista de espera",
+                    event.data(), event.hora(), event.profissionalId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${susagenda.lista-espera.alocacao.intervalo-ms:1000}",
+            initialDelayString = "${susagenda.lista-espera.alocacao.intervalo-ms:1000}")
+    public void alocarAgendado() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            alocarPendentes();
+        } catch (RuntimeException e) {
+            log.warn("Falha na alocação da lista de espera; nova tentativa na próxima rodada: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Aloca as vagas liberadas até esvaziar a fila.
+     *
+     * @return quantidade de pacientes da lista de espera agendados
+     */
+    public int alocarPendentes() {
+        int total = 0;
+        List<VagaLiberada> lote = new ArrayList<>(tamanhoLote);
+        while (pendentes.drainTo(lote, tamanhoLote) > 0) {
+            total += alocarLote(lote);
+            lote.clear();
+        }
+        if (total > 0) {
+            log.info("{} paciente(s) da lista de espera agendado(s) em vagas liberadas", total);
+        }
+        return total;
+    }
+
+    private int alocarLote(List<VagaLiberada> lote) {
+        Map<Especialidade, List<VagaLiberada>> porEspecialidade = lote.stream()
+                .sorted(Comparator.comparing((VagaLiberada v) -> v.vaga().data()).thenComparing(v -> v.vaga().hora()))
+                .collect(Collectors.groupingBy(v -> v.vaga().especialidade(), LinkedHashMap::new, Collectors.toList()));
+
+        int agendados = 0;
+        for (Map.Entry<Especialidade, List<VagaLiberada>> vagas : porEspecialidade.entrySet()) {
+            List<ListaEspera> candidatos = candidatos(vagas.getKey(), vagas.getValue().size() + janelaCandidatos);
+            for (VagaLiberada vaga : vagas.getValue()) {
+                try {
+                    if (alocar(vaga, candidatos)) {
+                        agendados++;
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Falha ao alocar a vaga de {} {} do profissional {}: {}", vaga.vaga().data(),
+                            vaga.vaga().hora(), vaga.vaga().profissionalId(), e.getMessage());
+                }
+            }
+        }
+        return agendados;
+    }
+
+    /**
+     * Primeiras entradas da fila da especialidade, em ordem de atendimento.
+     */
+    private List<ListaEspera> candidatos(Especialidade especialidade, int quantidade) {
+        List<Long> ids = indicePosicoesFila.primeiros(especialidade, quantidade);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ListaEspera> porId = leitura.execute(status -> listaEsperaRepository.findAllById(ids)).stream()
+                .collect(Collectors.toMap(ListaEspera::getId, Function.identity()));
+        return ids.stream()
+                .map(porId::get)
+                .filter(le -> le != null && !le.getAtendido())
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private boolean alocar(VagaLiberada liberada, List<ListaEspera> candidatos) {
+        VagaLiberadaEvent vaga = liberada.vaga();
+        while (true) {
+            int escolhido = escolher(vaga, candidatos);
+            if (escolhido < 0) {
+                semCandidato.increment();
+                return false;
+            }
+            ListaEspera candidato = candidatos.get(escolhido);
+            Resultado resultado = agendadorListaEspera.agendar(candidato,
+                    new SlotAgenda(vaga.profissionalId(), vaga.data(), vaga.hora()), agendamentoId -> { });
+            if (resultado == Resultado.VAGA_INDISPONIVEL) {
+                // outro paciente ficou com a vaga antes da rodada: o candidato continua na disputa
+                vagasIndisponiveis.increment();
+                return false;
+            }
+            candidatos.remove(escolhido);
+            if (resultado == Resultado.AGENDADO) {
+                agendadas.increment();
+                latencia.record(System.nanoTime() - liberada.liberadaEm(), TimeUnit.NANOSECONDS);
+                return true;
+            }
+        }
+    }
+
+    private int escolher(VagaLiberadaEvent vaga, List<ListaEspera> candidatos) {
+        int limite = Math.min(candidatos.size(), janelaCandidatos);
+        for (int i = 0; i < limite; i++) {
+            UnidadeSaude preferida = candidatos.get(i).getUnidadeSaudePreferida();
+            if (preferida == null || preferida.getId().equals(vaga.unidadeSaudeId())) {
+                return i;
+            }
+        }
+        return limite > 0 ? 0 : -1;
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("susagenda.lista-espera.alocacoes")
+                .description("Vagas liberadas oferecidas à lista de espera, por resultado")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.ListaEspera;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Ordem de atendimento da lista de espera: maior pontuação primeiro ({@link PontuacaoFila}, peso
+ * da prioridade somado ao tempo de espera), depois a solicitação mais antiga; o id desempata
+ * solicitações feitas no mesmo instante. É a mesma ordem do índice da fila no banco.
+ */
+public record ChaveFila(long pontuacao, LocalDateTime dataSolicitacao, Long id) implements Comparable<ChaveFila> {
+
+    private static final Comparator<ChaveFila> ORDEM = Comparator.comparingLong(ChaveFila::pontuacao).reversed()
+            .thenComparing(ChaveFila::dataSolicitacao, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ChaveFila::id);
+
+    public static ChaveFila de(Long id, Long pontuacao, LocalDateTime dataSolicitacao) {
+        return new ChaveFila(pontuacao, dataSolicitacao, id);
+    }
+
+    public static ChaveFila de(ListaEspera listaEspera) {
+        return de(listaEspera.getId(), listaEspera.getPontuacaoPrioridade(), listaEspera.getDataSolicitacao());
+    }
+
+    @Override
+    public int compareTo(ChaveFila outra) {
+        return ORDEM.compare(this, outra);
+    }
+}
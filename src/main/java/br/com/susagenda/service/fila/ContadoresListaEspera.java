@@ -0,0 +1,128 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.ListaEsperaAlteradaEvent;
+import br.com.susagenda.repository.ListaEsperaRepository;
+import br.com.susagenda.repository.projection.ContagemEspecialidadeProjection;
+import br.com.susagenda.repository.projection.ContagemUnidadeProjection;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quantidade de entradas aguardando na lista de espera por especialidade e por unidade preferida,
+ * em contadores atômicos: a contagem consultada pelas telas de sala de espera não vai ao banco.
+ *
+ * <p>Os contadores mudam com os eventos publicados após o commit de inclusões, atendimentos e
+ * remoções, e são reconciliados com o banco na inicialização e periodicamente, o que incorpora
+ * mudanças feitas por outras instâncias. Entre duas reconciliações a contagem pode diferir do banco
+ * por alterações concorrentes à própria reconciliação. Cada contador é exportado como gauge.</p>
+ */
+@Slf4j
+@Component
+public class ContadoresListaEspera {
+
+    private final ListaEsperaRepository listaEsperaRepository;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate leitura;
+    private final Map<Especialidade, AtomicLong> porEspecialidade = new EnumMap<>(Especialidade.class);
+    private final Map<Long, AtomicLong> porUnidade = new ConcurrentHashMap<>();
+
+    public ContadoresListaEspera(ListaEsperaRepository listaEsperaRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.listaEsperaRepository = listaEsperaRepository;
+        this.meterRegistry = meterRegistry;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+
+        for (Especialidade especialidade : Especialidade.values()) {
+            AtomicLong contador = new AtomicLong();
+            porEspecialidade.put(especialidade, contador);
+            Gauge.builder("susagenda.lista-espera.aguardando", contador, AtomicLong::get)
+                    .description("Pacientes aguardando na lista de espera, por especialidade")
+                    .tag("especialidade", especialidade.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    public long aguardando(Especialidade especialidade) {
+        return porEspecialidade.get(especialidade).get();
+    }
+
+    public long aguardandoNaUnidade(Long unidadeSaudeId) {
+        AtomicLong contador = porUnidade.get(unidadeSaudeId);
+        return contador == null ? 0 : contador.get();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onListaEsperaAlterada(ListaEsperaAlteradaEvent event) {
+        long delta = event.aguardando() ? 1 : -1;
+        porEspecialidade.get(event.especialidade()).addAndGet(delta);
+        if (event.unidadeSaudePreferidaId() != null) {
+            daUnidade(event.unidadeSaudePreferidaId()).addAndGet(delta);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconciliarNaInicializacao() {
+        reconciliarAgendado();
+    }
+
+    @Scheduled(fixedDelayString = "${susagenda.lista-espera.contadores.reconciliacao-intervalo-ms:60000}",
+            initialDelayString = "${susagenda.lista-espera.contadores.reconciliacao-intervalo-ms:60000}")
+    public void reconciliarAgendado() {
+        try {
+            reconciliar();
+        } catch (RuntimeException e) {
+            log.warn("Falha ao reconciliar os contadores da lista de espera: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Substitui os contadores pelas contagens do banco.
+     */
+    public void reconciliar() {
+        List<ContagemEspecialidadeProjection> especialidades = leitura.execute(status ->
+                listaEsperaRepository.contarAguardandoPorEspecialidade());
+        List<ContagemUnidadeProjection> unidades = leitura.execute(status ->
+                listaEsperaRepository.contarAguardandoPorUnidade());
+
+        Map<Especialidade, Long> contagemEspecialidade = new EnumMap<>(Especialidade.class);
+        for (ContagemEspecialidadeProjection contagem : especialidades) {
+            contagemEspecialidade.put(contagem.especialidade(), contagem.quantidade());
+        }
+        porEspecialidade.forEach((especialidade, contador) ->
+                contador.set(contagemEspecialidade.getOrDefault(especialidade, 0L)));
+
+        Set<Long> semFila = new HashSet<>(porUnidade.keySet());
+        for (ContagemUnidadeProjection contagem : unidades) {
+            daUnidade(contagem.unidadeSaudeId()).set(contagem.quantidade());
+            semFila.remove(contagem.unidadeSaudeId());
+        }
+        semFila.forEach(unidade -> porUnidade.get(unidade).set(0));
+    }
+
+    private AtomicLong daUnidade(Long unidadeSaudeId) {
+        return porUnidade.computeIfAbsent(unidadeSaudeId, unidade -> {
+            AtomicLong contador = new AtomicLong();
+            Gauge.builder("susagenda.lista-espera.aguardando.unidade", contador, AtomicLong::get)
+                    .description("Pacientes aguardando na lista de espera, por unidade de saúde preferida")
+                    .tag("unidade", unidade.toString())
+                    .register(meterRegistry);
+            return contador;
+        });
+    }
+}
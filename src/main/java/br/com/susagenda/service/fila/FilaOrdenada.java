@@ -0,0 +1,171 @@
+package br.com.susagenda.service.fila;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Conjunto ordenado que responde a posição de um elemento sem percorrer os anteriores: uma treap
+ * em que cada nó guarda o tamanho da própria subárvore. Inclusão, remoção e posição custam
+ * O(log n) esperado.
+ *
+ * <p>Não é thread-safe; quem compartilha a instância sincroniza o acesso.</p>
+ */
+public class FilaOrdenada<K extends Comparable<K>> {
+
+    private final SplittableRandom aleatorio = new SplittableRandom();
+    private No<K> raiz;
+
+    public int tamanho() {
+        return tamanho(raiz);
+    }
+
+    public boolean contem(K chave) {
+        No<K> no = raiz;
+        while (no != null) {
+            int comparacao = chave.compareTo(no.chave);
+            if (comparacao == 0) {
+                return true;
+            }
+            no = comparacao < 0 ? no.esquerda : no.direita;
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code false} quando a chave já estava no conjunto
+     */
+    public boolean adicionar(K chave) {
+        if (contem(chave)) {
+            return false;
+        }
+        Par<K> partes = dividir(raiz, chave);
+        raiz = unir(unir(partes.menores, new No<>(chave, aleatorio.nextInt())), partes.demais);
+        return true;
+    }
+
+    /**
+     * @return {@code false} quando a chave não estava no conjunto
+     */
+    public boolean remover(K chave) {
+        if (!contem(chave)) {
+            return false;
+        }
+        raiz = remover(raiz, chave);
+        return true;
+    }
+
+    /**
+     * Quantidade de chaves estritamente menores que a informada, esteja ela no conjunto ou não.
+     */
+    public int contarMenores(K chave) {
+        int menores = 0;
+        No<K> no = raiz;
+        while (no != null) {
+            if (chave.compareTo(no.chave) <= 0) {
+                no = no.esquerda;
+            } else {
+                menores += tamanho(no.esquerda) + 1;
+                no = no.direita;
+            }
+        }
+        return menores;
+    }
+
+    /**
+     * As {@code quantidade} primeiras chaves, em ordem.
+     */
+    public List<K> primeiros(int quantidade) {
+        List<K> primeiros = new ArrayList<>(Math.min(quantidade, tamanho()));
+        Deque<No<K>> pendentes = new ArrayDeque<>();
+        No<K> no = raiz;
+        while (primeiros.size() < quantidade && (no != null || !pendentes.isEmpty())) {
+            while (no != null) {
+                pendentes.push(no);
+                no = no.esquerda;
+            }
+            no = pendentes.pop();
+            primeiros.add(no.chave);
+            no = no.direita;
+        }
+        return primeiros;
+    }
+
+    public void limpar() {
+        raiz = null;
+    }
+
+    private Par<K> dividir(No<K> no, K chave) {
+        if (no == null) {
+            return new Par<>(null, null);
+        }
+        if (no.chave.compareTo(chave) < 0) {
+            Par<K> direita = dividir(no.direita, chave);
+            no.direita = direita.menores;
+            no.atualizar();
+            return new Par<>(no, direita.demais);
+        }
+        Par<K> esquerda = dividir(no.esquerda, chave);
+        no.esquerda = esquerda.demais;
+        no.atualizar();
+        return new Par<>(esquerda.menores, no);
+    }
+
+    private No<K> unir(No<K> menores, No<K> demais) {
+        if (menores == null) {
+            return demais;
+        }
+        if (demais == null) {
+            return menores;
+        }
+        if (menores.prioridade > demais.prioridade) {
+            menores.direita = unir(menores.direita, demais);
+            menores.atualizar();
+            return menores;
+        }
+        demais.esquerda = unir(menores, demais.esquerda);
+        demais.atualizar();
+        return demais;
+    }
+
+    private No<K> remover(No<K> no, K chave) {
+        int comparacao = chave.compareTo(no.chave);
+        if (comparacao == 0) {
+            return unir(no.esquerda, no.direita);
+        }
+        if (comparacao < 0) {
+            no.esquerda = remover(no.esquerda, chave);
+        } else {
+            no.direita = remover(no.direita, chave);
+        }
+        no.atualizar();
+        return no;
+    }
+
+    private static int tamanho(No<?> no) {
+        return no == null ? 0 : no.tamanho;
+    }
+
+    private static final class No<K> {
+
+        private final K chave;
+        private final int prioridade;
+        private int tamanho = 1;
+        private No<K> esquerda;
+        private No<K> direita;
+
+        private No(K chave, int prioridade) {
+            this.chave = chave;
+            this.prioridade = prioridade;
+        }
+
+        private void atualizar() {
+            tamanho = tamanho(esquerda) + tamanho(direita) + 1;
+        }
+    }
+
+    private record Par<K>(No<K> menores, No<K> demais) {
+    }
+}
@@ -0,0 +1,298 @@
+package br.com.susagenda.service.fila;
+
+import java.util.Arrays;
+
+/**
+ * Fluxo máximo de custo mínimo por caminhos mínimos sucessivos com potenciais (primal-dual).
+ *
+ * <p>Cada fase calcula as distâncias com custos reduzidos não negativos (Dijkstra), atualiza os
+ * potenciais e empurra todo o fluxo possível pelos arcos de custo reduzido zero em fluxo bloqueante
+ * (como no Dinic), em vez de um único caminho por fase. Com poucos valores distintos de custo, o
+ * número de fases fica pequeno mesmo com milhões de unidades de fluxo. Os arcos ficam em vetores
+ * primitivos, contíguos por vértice de origem; custos devem ser não negativos.</p>
+ */
+public class FluxoCustoMinimo {
+
+    public static final int INFINITO = Integer.MAX_VALUE;
+
+    private static final long DISTANCIA_INFINITA = Long.MAX_VALUE / 4;
+
+    private final int vertices;
+    private int[] origemAresta;
+    private int[] destinoAresta;
+    private int[] capacidadeAresta;
+    private long[] custoAresta;
+    private int arestas;
+
+    // arcos (arestas e reversos) agrupados por vértice de origem, montados em resolver
+    private int[] primeiro;
+    private int[] destino;
+    private int[] capacidade;
+    private long[] custo;
+    private int[] reverso;
+    private int[] arcoDaAresta;
+
+    public FluxoCustoMinimo(int vertices, int arestasEstimadas) {
+        this.vertices = vertices;
+        int capacidadeInicial = Math.max(arestasEstimadas, 16);
+        this.origemAresta = new int[capacidadeInicial];
+        this.destinoAresta = new int[capacidadeInicial];
+        this.capacidadeAresta = new int[capacidadeInicial];
+        this.custoAresta = new long[capacidadeInicial];
+    }
+
+    /**
+     * @return identificador da aresta, para consultar o fluxo depois com {@link #fluxo(int)}
+     */
+    public int adicionarAresta(int origem, int destino, int capacidade, long custo) {
+        if (custo < 0) {
+            throw new IllegalArgumentException("Custo negativo: " + custo);
+        }
+        if (arestas == origemAresta.length) {
+            int novo = arestas * 2;
+            origemAresta = Arrays.copyOf(origemAresta, novo);
+            destinoAresta = Arrays.copyOf(destinoAresta, novo);
+            capacidadeAresta = Arrays.copyOf(capacidadeAresta, novo);
+            custoAresta = Arrays.copyOf(custoAresta, novo);
+        }
+        origemAresta[arestas] = origem;
+        destinoAresta[arestas] = destino;
+        capacidadeAresta[arestas] = capacidade;
+        custoAresta[arestas] = custo;
+        return arestas++;
+    }
+
+    public int origem(int aresta) {
+        return origemAresta[aresta];
+    }
+
+    public int destino(int aresta) {
+        return destinoAresta[aresta];
+    }
+
+    public long custo(int aresta) {
+        return custoAresta[aresta];
+    }
+
+    /**
+     * Fluxo que passa pela aresta depois de {@link #resolver}.
+     */
+    public int fluxo(int aresta) {
+        return arcoDaAresta == null ? 0 : capacidade[reverso[arcoDaAresta[aresta]]];
+    }
+
+    public int arestas() {
+        return arestas;
+    }
+
+    /**
+     * Envia o máximo de fluxo de {@code fonte} a {@code sumidouro} com o menor custo total.
+     */
+    public Resultado resolver(int fonte, int sumidouro) {
+        montarArcos();
+        long[] potencial = new long[vertices];
+        long[] distancia = new long[vertices];
+        int[] nivel = new int[vertices];
+        int[] atual = new int[vertices];
+        int[] fila = new int[vertices];
+        HeapMinimo heap = new HeapMinimo(vertices);
+
+        long fluxoTotal = 0;
+        long custoTotal = 0;
+        int fases = 0;
+        while (caminhosMinimos(fonte, sumidouro, potencial, distancia, heap)) {
+            fases++;
+            for (int v = 0; v < vertices; v++) {
+                if (distancia[v] < DISTANCIA_INFINITA) {
+                    potencial[v] += distancia[v];
+                }
+            }
+            while (niveisAdmissiveis(fonte, sumidouro, potencial, nivel, fila)) {
+                System.arraycopy(primeiro, 0, atual, 0, vertices);
+                long enviado;
+                while ((enviado = empurrar(fonte, sumidouro, INFINITO, potencial, nivel, atual)) > 0) {
+                    fluxoTotal += enviado;
+                    custoTotal += enviado * (potencial[sumidouro] - potencial[fonte]);
+                }
+            }
+        }
+        return new Resultado(fluxoTotal, custoTotal, fases);
+    }
+
+    /**
+     * Distribui as arestas em arcos contíguos por vértice de origem (cada aresta com seu reverso),
+     * para que as varreduras de cada fase leiam a memória em sequência.
+     */
+    private void montarArcos() {
+        primeiro = new int[vertices + 1];
+        for (int a = 0; a < arestas; a++) {
+            primeiro[origemAresta[a] + 1]++;
+            primeiro[destinoAresta[a] + 1]++;
+        }
+        for (int v = 0; v < vertices; v++) {
+            primeiro[v + 1] += primeiro[v];
+        }
+        int arcos = 2 * arestas;
+        destino = new int[arcos];
+        capacidade = new int[arcos];
+        custo = new long[arcos];
+        reverso = new int[arcos];
+        arcoDaAresta = new int[arestas];
+        int[] livre = Arrays.copyOf(primeiro, vertices);
+        for (int a = 0; a < arestas; a++) {
+            int ida = livre[origemAresta[a]]++;
+            int volta = livre[destinoAresta[a]]++;
+            destino[ida] = destinoAresta[a];
+            capacidade[ida] = capacidadeAresta[a];
+            custo[ida] = custoAresta[a];
+            reverso[ida] = volta;
+            destino[volta] = origemAresta[a];
+            custo[volta] = -custoAresta[a];
+            reverso[volta] = ida;
+            arcoDaAresta[a] = ida;
+        }
+    }
+
+    private boolean caminhosMinimos(int fonte, int sumidouro, long[] potencial, long[] distancia, HeapMinimo heap) {
+        Arrays.fill(distancia, DISTANCIA_INFINITA);
+        distancia[fonte] = 0;
+        heap.limpar();
+        heap.inserir(fonte, 0);
+        while (!heap.vazio()) {
+            long d = heap.menorChave();
+            int u = heap.remover();
+            if (d > distancia[u]) {
+                continue;
+            }
+            for (int a = primeiro[u], ultimo = primeiro[u + 1]; a < ultimo; a++) {
+                if (capacidade[a] == 0) {
+                    continue;
+                }
+                int v = destino[a];
+                long candidata = d + custo[a] + potencial[u] - potencial[v];
+                if (candidata < distancia[v]) {
+                    distancia[v] = candidata;
+                    heap.inserir(v, candidata);
+                }
+            }
+        }
+        return distancia[sumidouro] < DISTANCIA_INFINITA;
+    }
+
+    private boolean niveisAdmissiveis(int fonte, int sumidouro, long[] potencial, int[] nivel, int[] fila) {
+        Arrays.fill(nivel, -1);
+        nivel[fonte] = 0;
+        int inicio = 0;
+        int fim = 0;
+        fila[fim++] = fonte;
+        while (inicio < fim) {
+            int u = fila[inicio++];
+            for (int a = primeiro[u], ultimo = primeiro[u + 1]; a < ultimo; a++) {
+                int v = destino[a];
+                if (capacidade[a] > 0 && nivel[v] < 0 && custo[a] + potencial[u] - potencial[v] == 0) {
+                    nivel[v] = nivel[u] + 1;
+                    fila[fim++] = v;
+                }
+            }
+        }
+        return nivel[sumidouro] >= 0;
+    }
+
+    private long empurrar(int u, int sumidouro, int limite, long[] potencial, int[] nivel, int[] atual) {
+        if (u == sumidouro) {
+            return limite;
+        }
+        for (int ultimo = primeiro[u + 1]; atual[u] < ultimo; atual[u]++) {
+            int a = atual[u];
+            int v = destino[a];
+            if (capacidade[a] > 0 && nivel[v] == nivel[u] + 1 && custo[a] + potencial[u] - potencial[v] == 0) {
+                long enviado = empurrar(v, sumidouro, Math.min(limite, capacidade[a]), potencial, nivel, atual);
+                if (enviado > 0) {
+                    if (capacidade[a] != INFINITO) {
+                        capacidade[a] -= (int) enviado;
+                    }
+                    if (capacidade[reverso[a]] != INFINITO) {
+                        capacidade[reverso[a]] += (int) enviado;
+                    }
+                    return enviado;
+                }
+            }
+        }
+        return 0;
+    }
+
+    public record Resultado(long fluxo, long custo, int fases) {
+    }
+
+    /**
+     * Heap binário de (chave, vértice) com remoção preguiçosa das entradas desatualizadas.
+     */
+    private static final class HeapMinimo {
+
+        private long[] chaves;
+        private int[] valores;
+        private int tamanho;
+
+        private HeapMinimo(int capacidadeInicial) {
+            chaves = new long[Math.max(capacidadeInicial, 16)];
+            valores = new int[chaves.length];
+        }
+
+        private void limpar() {
+            tamanho = 0;
+        }
+
+        private boolean vazio() {
+            return tamanho == 0;
+        }
+
+        private long menorChave() {
+            return chaves[0];
+        }
+
+        private void inserir(int valor, long chave) {
+            if (tamanho == chaves.length) {
+                chaves = Arrays.copyOf(chaves, tamanho * 2);
+                valores = Arrays.copyOf(valores, tamanho * 2);
+            }
+            int i = tamanho++;
+            while (i > 0) {
+                int pai = (i - 1) >>> 1;
+                if (chaves[pai] <= chave) {
+                    break;
+                }
+                chaves[i] = chaves[pai];
+                valores[i] = valores[pai];
+                i = pai;
+            }
+            chaves[i] = chave;
+            valores[i] = valor;
+        }
+
+        private int remover() {
+            int topo = valores[0];
+            tamanho--;
+            long chave = chaves[tamanho];
+            int valor = valores[tamanho];
+            int i = 0;
+            while (true) {
+                int filho = 2 * i + 1;
+                if (filho >= tamanho) {
+                    break;
+                }
+                if (filho + 1 < tamanho && chaves[filho + 1] < chaves[filho]) {
+                    filho++;
+                }
+                if (chaves[filho] >= chave) {
+                    break;
+                }
+                chaves[i] = chaves[filho];
+                valores[i] = valores[filho];
+                i = filho;
+            }
+            chaves[i] = chave;
+            valores[i] = valor;
+            return topo;
+        }
+    }
+}
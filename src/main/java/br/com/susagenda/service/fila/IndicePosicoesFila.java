@@ -0,0 +1,245 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.ListaEspera;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.ListaEsperaAlteradaEvent;
+import br.com.susagenda.repository.ListaEsperaRepository;
+import br.com.susagenda.repository.projection.EntradaFilaProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Posição de cada paciente na fila de espera da sua especialidade, em memória, para não carregar a
+ * fila inteira a cada entrada consultada.
+ *
+ * <p>A fila de uma especialidade é carregada do banco na primeira consulta e mantida pelos eventos
+ * publicados após o commit de inclusões, atendimentos e remoções. A recarga periódica incorpora
+ * mudanças feitas por outras instâncias.</p>
+ *
+ * <p>A carga é feita fora do monitor da fila, na transação do chamador quando há uma (sem pedir
+ * outra conexão ao pool), e só a troca da fila montada acontece sob o monitor; as mudanças que
+ * chegam durante a carga são guardadas e reaplicadas sobre ela. Consultas simultâneas a uma fila
+ * ainda não carregada carregam cada uma a sua e a primeira a terminar é a que fica. Se a transação
+ * do chamador que carregou a fila for desfeita, a fila é descartada, pois pode conter mudanças dela
+ * que não foram confirmadas.</p>
+ */
+@Slf4j
+@Component
+public class IndicePosicoesFila {
+
+    private final ListaEsperaRepository listaEsperaRepository;
+    private final TransactionTemplate leitura;
+    private final Map<Especialidade, Fila> filas = new ConcurrentHashMap<>();
+
+    public IndicePosicoesFila(ListaEsperaRepository listaEsperaRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.listaEsperaRepository = listaEsperaRepository;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+    }
+
+    /**
+     * Posição da entrada como ela está na transação corrente: uma entrada recém-incluída ou
+     * atendida ainda não confirmada já conta (ou deixa de contar) na posição e no total.
+     */
+    public PosicaoNaFila posicao(ListaEspera listaEspera) {
+        Fila fila = carregada(listaEspera.getEspecialidade());
+        synchronized (fila) {
+            return fila.posicao(ChaveFila.de(listaEspera), !listaEspera.getAtendido());
+        }
+    }
+
+    /**
+     * Posições das entradas confirmadas, consultadas de uma vez no índice e sem ir ao banco; uma
+     * entrada que não está aguardando tem posição 0.
+     */
+    public Map<Long, PosicaoNaFila> posicoes(Especialidade especialidade, Collection<Long> ids) {
+        Fila fila = carregada(especialidade);
+        Map<Long, PosicaoNaFila> posicoes = new HashMap<>();
+        synchronized (fila) {
+            int total = fila.ordem.tamanho();
+            for (Long id : ids) {
+                ChaveFila chave = fila.chaves.get(id);
+                posicoes.put(id, new PosicaoNaFila(chave == null ? 0 : fila.ordem.contarMenores(chave) + 1, total));
+            }
+        }
+        return posicoes;
+    }
+
+    /**
+     * Quantidade de entradas aguardando atendimento na especialidade.
+     */
+    public long total(Especialidade especialidade) {
+        Fila fila = carregada(especialidade);
+        synchronized (fila) {
+            return fila.ordem.tamanho();
+        }
+    }
+
+    /**
+     * Ids das {@code quantidade} primeiras entradas aguardando na especialidade, em ordem de atendimento.
+     */
+    public List<Long> primeiros(Especialidade especialidade, int quantidade) {
+        Fila fila = carregada(especialidade);
+        synchronized (fila) {
+            return fila.ordem.primeiros(quantidade).stream().map(ChaveFila::id).toList();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onListaEsperaAlterada(ListaEsperaAlteradaEvent event) {
+        Fila fila = filas.get(event.especialidade());
+        if (fila == null) {
+            return;
+        }
+        synchronized (fila) {
+            if (fila.carregada) {
+                fila.aplicar(event);
+            } else if (fila.cargas > 0) {
+                // a carga em andamento pode ter lido o banco antes da mudança: reaplicada na troca
+                fila.duranteCarga.add(event);
+            }
+        }
+    }
+
+    /**
+     * Descarta as filas carregadas; cada uma é recarregada do banco na próxima consulta.
+     */
+    @Scheduled(fixedDelayString = "${susagenda.lista-espera.indice.recarga-intervalo-ms:300000}",
+            initialDelayString = "${susagenda.lista-espera.indice.recarga-intervalo-ms:300000}")
+    public void descartar() {
+        filas.clear();
+    }
+
+    private Fila carregada(Especialidade especialidade) {
+        Fila fila = filas.computeIfAbsent(especialidade, e -> new Fila());
+        synchronized (fila) {
+            if (fila.carregada) {
+                return fila;
+            }
+            fila.cargas++;
+        }
+
+        long inicio = System.nanoTime();
+        List<EntradaFilaProjection> entradas;
+        try {
+            entradas = leitura.execute(status -> listaEsperaRepository.findEntradasNaFila(especialidade));
+        } catch (RuntimeException e) {
+            synchronized (fila) {
+                fila.encerrarCarga();
+            }
+            throw e;
+        }
+        FilaOrdenada<ChaveFila> ordem = new FilaOrdenada<>();
+        Map<Long, ChaveFila> chaves = new HashMap<>();
+        for (EntradaFilaProjection entrada : entradas) {
+            ChaveFila chave = ChaveFila.de(entrada.id(), entrada.pontuacaoPrioridade(), entrada.dataSolicitacao());
+            chaves.put(chave.id(), chave);
+            ordem.adicionar(chave);
+        }
+
+        boolean trocada;
+        synchronized (fila) {
+            trocada = fila.trocar(ordem, chaves);
+        }
+        if (trocada) {
+            descartarSeDesfeita(especialidade, fila);
+            log.debug("Fila de espera de {} carregada: {} entrada(s) em {} ms", especialidade,
+                    entradas.size(), (System.nanoTime() - inicio) / 1_000_000);
+        }
+        return fila;
+    }
+
+    private void descartarSeDesfeita(Especialidade especialidade, Fila fila) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        filas.remove(especialidade, fila);
+                    }
+                }
+            });
+        }
+    }
+
+    private static final class Fila {
+
+        private FilaOrdenada<ChaveFila> ordem = new FilaOrdenada<>();
+        private Map<Long, ChaveFila> chaves = new HashMap<>();
+        private boolean carregada;
+        private int cargas;
+        private final List<ListaEsperaAlteradaEvent> duranteCarga = new ArrayList<>();
+
+        /**
+         * Passa a usar a fila lida do banco, se nenhuma outra carga terminou antes.
+         *
+         * @return se a fila lida foi a usada
+         */
+        private boolean trocar(FilaOrdenada<ChaveFila> lida, Map<Long, ChaveFila> chavesLidas) {
+            boolean trocar = !carregada;
+            if (trocar) {
+                ordem = lida;
+                chaves = chavesLidas;
+                carregada = true;
+                // reaplicar o que a leitura já viu não muda nada; o que ela não viu passa a valer
+                duranteCarga.forEach(this::aplicar);
+            }
+            encerrarCarga();
+            return trocar;
+        }
+
+        private void encerrarCarga() {
+            cargas--;
+            if (carregada || cargas == 0) {
+                duranteCarga.clear();
+            }
+        }
+
+        private void aplicar(ListaEsperaAlteradaEvent event) {
+            if (event.aguardando()) {
+                adicionar(ChaveFila.de(event.id(), event.pontuacaoPrioridade(), event.dataSolicitacao()));
+            } else {
+                remover(event.id());
+            }
+        }
+
+        private void adicionar(ChaveFila chave) {
+            ChaveFila anterior = chaves.put(chave.id(), chave);
+            if (anterior != null) {
+                ordem.remover(anterior);
+            }
+            ordem.adicionar(chave);
+        }
+
+        private void remover(Long id) {
+            ChaveFila anterior = chaves.remove(id);
+            if (anterior != null) {
+                ordem.remover(anterior);
+            }
+        }
+
+        private PosicaoNaFila posicao(ChaveFila chave, boolean aguardando) {
+            boolean indexada = chaves.containsKey(chave.id());
+            if (!aguardando) {
+                return new PosicaoNaFila(0, ordem.tamanho() - (indexada ? 1 : 0));
+            }
+            ChaveFila atual = indexada ? chaves.get(chave.id()) : chave;
+            return new PosicaoNaFila(ordem.contarMenores(atual) + 1, ordem.tamanho() + (indexada ? 0 : 1));
+        }
+    }
+}
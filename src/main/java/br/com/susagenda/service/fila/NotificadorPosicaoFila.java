@@ -0,0 +1,352 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.ListaEsperaAlteradaEvent;
+import br.com.susagenda.dto.response.PosicaoFilaResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Envia por Server-Sent Events a posição na fila a quem acompanha uma entrada da lista de espera,
+ * só quando ela muda, em vez de cada tela consultar a entrada repetidamente.
+ *
+ * <p>Uma conexão aberta é só um {@link SseEmitter} em requisição assíncrona, sem thread presa.
+ * Os eventos de mudança da fila, após o commit, apenas marcam a especialidade; a rodada periódica
+ * calcula de uma vez no {@link IndicePosicoesFila} as posições de quem acompanha as especialidades
+ * marcadas e envia a quem mudou de posição, agrupando rajadas de mudanças em um envio. A cada
+ * {@code verificacao-completa-ms} todas as especialidades são conferidas, o que incorpora as
+ * recargas do índice, e as conexões sem mudança recebem um comentário para não serem derrubadas
+ * por proxies. Quando a entrada sai da fila, a posição 0 é enviada e o fluxo é encerrado.</p>
+ *
+ * <p>A rodada só calcula as posições e deixa o evento pendente na assinatura; a escrita nas conexões
+ * é feita por um pool próprio de {@code envio.threads} threads, com até {@code envio.capacidade}
+ * envios na fila, e nunca na thread das tarefas agendadas. Cada assinatura tem no máximo um evento
+ * pendente, substituído pelo mais novo enquanto o anterior não sai; o que não couber na fila fica
+ * pendente para a próxima rodada.</p>
+ *
+ * <p>A conexão que está há mais de {@code envio.atraso-maximo-ms} em um mesmo envio é descartada.
+ * A escrita bloqueada não pode ser interrompida com segurança de outra thread e só termina no tempo
+ * limite de escrita do servidor, então o pool ganha uma thread substituta para cada envio preso, até
+ * {@code envio.threads-maximo} threads, e a devolve quando o envio termina; a conexão descartada é
+ * encerrada nesse momento. Assim clientes lentos não tomam as threads dos demais.</p>
+ */
+@Slf4j
+@Component
+public class NotificadorPosicaoFila {
+
+    /** Evento pendente de uma assinatura: a posição a enviar, ou só o comentário que mantém a conexão. */
+    private record Envio(PosicaoNaFila posicao) {
+    }
+
+    private static final class Assinatura {
+        private final Long listaEsperaId;
+        private final Especialidade especialidade;
+        private final SseEmitter emitter;
+        private final AtomicReference<Envio> pendente = new AtomicReference<>();
+        private final AtomicBoolean emEnvio = new AtomicBoolean();
+        /** Thread do envio em andamento; retirada no descarte quando o envio é dado como preso. */
+        private final AtomicReference<Thread> enviando = new AtomicReference<>();
+        private volatile long enviandoDesde;
+        private volatile boolean descartada;
+        private volatile int ultimaPosicao = -1;
+
+        private Assinatura(Long listaEsperaId, Especialidade especialidade, SseEmitter emitter) {
+            this.listaEsperaId = listaEsperaId;
+            this.especialidade = especialidade;
+            this.emitter = emitter;
+        }
+    }
+
+    private static final Envio MANTER_CONEXAO = new Envio(null);
+
+    private final IndicePosicoesFila indicePosicoesFila;
+    private final Map<Especialidade, Set<Assinatura>> assinaturas = new ConcurrentHashMap<>();
+    private final Set<Especialidade> alteradas = ConcurrentHashMap.newKeySet();
+    private final Set<Assinatura> enviosEmAndamento = ConcurrentHashMap.newKeySet();
+    private final boolean habilitada;
+    private final long timeoutMs;
+    private final long verificacaoCompletaNanos;
+    private final long atrasoMaximoNanos;
+    private final ThreadPoolExecutor envios;
+    private final int threads;
+    private final Counter descartadas;
+    private int enviosPresos;
+    private long ultimaVerificacaoCompleta = System.nanoTime();
+
+    public NotificadorPosicaoFila(IndicePosicoesFila indicePosicoesFila,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${susagenda.lista-espera.notificacao.habilitada:true}") boolean habilitada,
+                                  @Value("${susagenda.lista-espera.notificacao.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${susagenda.lista-espera.notificacao.verificacao-completa-ms:30000}") long verificacaoCompletaMs,
+                                  @Value("${susagenda.lista-espera.notificacao.envio.threads:4}") int threads,
+                                  @Value("${susagenda.lista-espera.notificacao.envio.threads-maximo:32}") int threadsMaximo,
+                                  @Value("${susagenda.lista-espera.notificacao.envio.capacidade:10000}") int capacidade,
+                                  @Value("${susagenda.lista-espera.notificacao.envio.atraso-maximo-ms:10000}") long atrasoMaximoMs) {
+        this.indicePosicoesFila = indicePosicoesFila;
+        this.habilitada = habilitada;
+        this.timeoutMs = timeoutMs;
+        this.verificacaoCompletaNanos = TimeUnit.MILLISECONDS.toNanos(verificacaoCompletaMs);
+        this.atrasoMaximoNanos = TimeUnit.MILLISECONDS.toNanos(atrasoMaximoMs);
+
+        this.threads = Math.max(threads, 1);
+        AtomicInteger contador = new AtomicInteger();
+        this.envios = new ThreadPoolExecutor(this.threads, Math.max(threadsMaximo, this.threads), 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(capacidade, 1)), tarefa -> {
+                    Thread thread = new Thread(tarefa, "posicao-fila-sse-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.descartadas = Counter.builder("susagenda.lista-espera.notificacao.descartadas")
+                .description("Conexões encerradas por não acompanharem os envios de posição")
+                .register(meterRegistry);
+
+        Gauge.builder("susagenda.lista-espera.notificacao.envios-presos", this, NotificadorPosicaoFila::getEnviosPresos)
+                .description("Envios dados como presos que ainda ocupam uma thread do pool")
+                .register(meterRegistry);
+        Gauge.builder("susagenda.lista-espera.notificacao.assinaturas", assinaturas,
+                        a -> a.values().stream().mapToInt(Set::size).sum())
+                .description("Conexões acompanhando a posição de entradas da lista de espera")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Abre o acompanhamento da entrada, já com a posição atual como primeiro evento.
+     */
+    public SseEmitter assinar(Long listaEsperaId, Especialidade especialidade) {
+        return assinar(listaEsperaId, especialidade, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter assinar(Long listaEsperaId, Especialidade especialidade, SseEmitter emitter) {
+        Assinatura assinatura = new Assinatura(listaEsperaId, especialidade, emitter);
+        emitter.onCompletion(() -> remover(assinatura));
+        emitter.onTimeout(() -> remover(assinatura));
+        emitter.onError(e -> remover(assinatura));
+        assinaturas.compute(especialidade, (e, daEspecialidade) -> {
+            Set<Assinatura> atual = daEspecialidade != null ? daEspecialidade : ConcurrentHashMap.newKeySet();
+            atual.add(assinatura);
+            return atual;
+        });
+
+        PosicaoNaFila posicao = indicePosicoesFila.posicoes(especialidade, List.of(listaEsperaId)).get(listaEsperaId);
+        assinatura.ultimaPosicao = posicao.posicao();
+        enfileirar(assinatura, new Envio(posicao));
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onListaEsperaAlterada(ListaEsperaAlteradaEvent event) {
+        if (assinaturas.containsKey(event.especialidade())) {
+            alteradas.add(event.especialidade());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${susagenda.lista-espera.notificacao.intervalo-ms:1000}",
+            initialDelayString = "${susagenda.lista-espera.notificacao.intervalo-ms:1000}")
+    public void notificarAgendado() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            notificar();
+        } catch (RuntimeException e) {
+            log.warn("Falha ao notificar posições da lista de espera: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Envia a nova posição a quem acompanha entradas das especialidades alteradas desde a última
+     * rodada (ou de todas, na verificação completa).
+     *
+     * @return quantidade de posições deixadas para envio
+     */
+    public int notificar() {
+        Map<Assinatura, Envio> pendentes = calcular();
+        pendentes.forEach(this::enfileirar);
+        return (int) pendentes.values().stream().filter(envio -> envio != MANTER_CONEXAO).count();
+    }
+
+    /**
+     * Calcula, uma rodada por vez, o evento de cada assinatura que precisa receber algo; as
+     * conexões que não acompanham os envios são descartadas aqui.
+     */
+    private synchronized Map<Assinatura, Envio> calcular() {
+        long agora = System.nanoTime();
+        for (Assinatura assinatura : enviosEmAndamento) {
+            long desde = assinatura.enviandoDesde;
+            if (desde != 0 && agora - desde > atrasoMaximoNanos && enviosEmAndamento.remove(assinatura)) {
+                descartar(assinatura);
+            }
+        }
+
+        boolean completa = System.nanoTime() - ultimaVerificacaoCompleta >= verificacaoCompletaNanos;
+        List<Especialidade> especialidades = new ArrayList<>();
+        if (completa) {
+            ultimaVerificacaoCompleta = System.nanoTime();
+            alteradas.clear();
+            especialidades.addAll(assinaturas.keySet());
+        } else {
+            for (Iterator<Especialidade> it = alteradas.iterator(); it.hasNext(); ) {
+                especialidades.add(it.next());
+                it.remove();
+            }
+        }
+
+        Map<Assinatura, Envio> pendentes = new LinkedHashMap<>();
+        for (Especialidade especialidade : especialidades) {
+            calcular(especialidade, completa, pendentes);
+        }
+        return pendentes;
+    }
+
+    private void calcular(Especialidade especialidade, boolean manterConexao, Map<Assinatura, Envio> pendentes) {
+        Set<Assinatura> daEspecialidade = assinaturas.get(especialidade);
+        if (daEspecialidade == null || daEspecialidade.isEmpty()) {
+            return;
+        }
+        List<Assinatura> lista = new ArrayList<>(daEspecialidade);
+        Map<Long, PosicaoNaFila> posicoes = indicePosicoesFila.posicoes(especialidade,
+                lista.stream().map(a -> a.listaEsperaId).toList());
+
+        for (Assinatura assinatura : lista) {
+            PosicaoNaFila posicao = posicoes.get(assinatura.listaEsperaId);
+            if (posicao.posicao() != assinatura.ultimaPosicao) {
+                assinatura.ultimaPosicao = posicao.posicao();
+                pendentes.put(assinatura, new Envio(posicao));
+            } else if (manterConexao) {
+                pendentes.put(assinatura, MANTER_CONEXAO);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        envios.shutdownNow();
+    }
+
+    /**
+     * Deixa o evento pendente na assinatura, no lugar de um ainda não enviado, e agenda o envio
+     * se nenhum estiver em andamento. O comentário de manutenção não substitui uma posição.
+     */
+    private void enfileirar(Assinatura assinatura, Envio envio) {
+        if (envio == MANTER_CONEXAO) {
+            assinatura.pendente.compareAndSet(null, envio);
+        } else {
+            assinatura.pendente.set(envio);
+        }
+        if (assinatura.emEnvio.compareAndSet(false, true)) {
+            try {
+                envios.execute(() -> enviar(assinatura));
+            } catch (RejectedExecutionException e) {
+                // pool cheio: o evento continua pendente e sai quando a assinatura for enfileirada de novo
+                assinatura.emEnvio.set(false);
+                log.debug("Envio de posição da entrada {} adiado: fila de envios cheia", assinatura.listaEsperaId);
+            }
+        }
+    }
+
+    private void enviar(Assinatura assinatura) {
+        while (true) {
+            if (assinatura.descartada) {
+                assinatura.emitter.complete();
+                return;
+            }
+            Envio envio = assinatura.pendente.getAndSet(null);
+            if (envio == null) {
+                assinatura.emEnvio.set(false);
+                // evento ou descarte chegados entre a leitura e a liberação: segue se ninguém assumiu
+                boolean restante = assinatura.pendente.get() != null || assinatura.descartada;
+                if (!restante || !assinatura.emEnvio.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            assinatura.enviandoDesde = System.nanoTime();
+            assinatura.enviando.set(Thread.currentThread());
+            enviosEmAndamento.add(assinatura);
+            try {
+                if (envio == MANTER_CONEXAO) {
+                    assinatura.emitter.send(SseEmitter.event().comment(""));
+                    continue;
+                }
+                assinatura.emitter.send(SseEmitter.event()
+                        .name("posicao")
+                        .data(PosicaoFilaResponse.builder()
+                                .listaEsperaId(assinatura.listaEsperaId)
+                                .posicaoNaFila(envio.posicao().posicao())
+                                .totalNaFila(envio.posicao().total())
+                                .build()));
+                if (envio.posicao().posicao() == 0) {
+                    remover(assinatura);
+                    assinatura.emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // cliente desconectado
+                remover(assinatura);
+                return;
+            } finally {
+                enviosEmAndamento.remove(assinatura);
+                assinatura.enviandoDesde = 0;
+                if (!assinatura.enviando.compareAndSet(Thread.currentThread(), null)) {
+                    // o envio foi dado como preso no descarte: a thread substituta deixa de ser necessária
+                    ajustarEnviosPresos(-1);
+                }
+            }
+        }
+    }
+
+    private void descartar(Assinatura assinatura) {
+        assinatura.descartada = true;
+        remover(assinatura);
+        descartadas.increment();
+        log.debug("Conexão da entrada {} da lista de espera descartada por não acompanhar os envios",
+                assinatura.listaEsperaId);
+        Thread presa = assinatura.enviando.get();
+        if (presa != null && assinatura.enviando.compareAndSet(presa, null)) {
+            // a conexão presa em um envio é encerrada pela thread dele, quando o envio terminar
+            ajustarEnviosPresos(1);
+        } else if (assinatura.emEnvio.compareAndSet(false, true)) {
+            assinatura.emitter.complete();
+        }
+    }
+
+    /**
+     * Mantém {@code envio.threads} threads livres para os envios, descontados os presos, dentro do
+     * máximo do pool. Threads acima do necessário terminam ao ficarem ociosas.
+     */
+    private void ajustarEnviosPresos(int delta) {
+        synchronized (envios) {
+            enviosPresos += delta;
+            envios.setCorePoolSize(Math.min(threads + enviosPresos, envios.getMaximumPoolSize()));
+        }
+    }
+
+    int getEnviosPresos() {
+        synchronized (envios) {
+            return enviosPresos;
+        }
+    }
+
+    private void remover(Assinatura assinatura) {
+        assinaturas.computeIfPresent(assinatura.especialidade, (e, daEspecialidade) -> {
+            daEspecialidade.remove(assinatura);
+            return daEspecialidade.isEmpty() ? null : daEspecialidade;
+        });
+    }
+}
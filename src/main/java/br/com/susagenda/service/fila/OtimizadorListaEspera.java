@@ -0,0 +1,341 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.ItemPlanoAlocacao;
+import br.com.susagenda.domain.entity.ListaEspera;
+import br.com.susagenda.domain.entity.PlanoAlocacao;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.StatusItemPlanoAlocacao;
+import br.com.susagenda.domain.enums.StatusPlanoAlocacao;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.dto.response.ItemPlanoAlocacaoResponse;
+import br.com.susagenda.dto.response.PlanoAlocacaoResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.exception.ResourceNotFoundException;
+import br.com.susagenda.repository.ItemPlanoAlocacaoRepository;
+import br.com.susagenda.repository.ListaEsperaRepository;
+import br.com.susagenda.repository.PlanoAlocacaoRepository;
+import br.com.susagenda.repository.VagaRepository;
+import br.com.susagenda.repository.projection.CandidatoAlocacaoProjection;
+import br.com.susagenda.repository.projection.ContagemItensPlanoProjection;
+import br.com.susagenda.repository.projection.VagaLivreProjection;
+import br.com.susagenda.service.fila.AgendadorListaEspera.Resultado;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Gera e aplica planos globais de alocação da lista de espera (ver {@link PlanejadorAlocacao}).
+ *
+ * <p>A geração lê os pacientes aguardando e as vagas livres da especialidade a partir de amanhã até
+ * o fim do horizonte, resolve a atribuição e grava o plano com os itens em lote, sem agendar nada;
+ * um plano novo descarta o anterior ainda não aplicado da mesma especialidade. A aplicação percorre
+ * os itens pendentes na ordem da fila, em lotes do tamanho pedido, e agenda cada um pelo
+ * {@link AgendadorListaEspera}: o item vira {@code AGENDADO} na mesma transação do agendamento, ou
+ * {@code RECUSADO} com o motivo quando o paciente ou o horário não estão mais disponíveis.</p>
+ */
+@Slf4j
+@Service
+public class OtimizadorListaEspera {
+
+    private static final int TAMANHO_MAXIMO_LOTE = 5000;
+    private static final int TAMANHO_MAXIMO_PAGINA = 500;
+    private static final int ITENS_POR_LEITURA = 200;
+
+    private static final String SQL_INSERIR_ITEM =
+            "INSERT INTO itens_plano_alocacao (plano_id, lista_espera_id, paciente_id, prioridade, dias_espera, " +
+            "profissional_id, unidade_saude_id, data_agendamento, hora_agendamento, unidade_preferida, status) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'PENDENTE')";
+
+    private final ListaEsperaRepository listaEsperaRepository;
+    private final VagaRepository vagaRepository;
+    private final PlanoAlocacaoRepository planoAlocacaoRepository;
+    private final ItemPlanoAlocacaoRepository itemPlanoAlocacaoRepository;
+    private final AgendadorListaEspera agendadorListaEspera;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate leitura;
+    private final TransactionTemplate transacao;
+    private final PlanejadorAlocacao planejador;
+    private final ReentrantLock geracaoLock = new ReentrantLock();
+    private final boolean habilitada;
+    private final int horizonteDias;
+    private final int tamanhoLoteGravacao;
+
+    public OtimizadorListaEspera(ListaEsperaRepository listaEsperaRepository,
+                                 VagaRepository vagaRepository,
+                                 PlanoAlocacaoRepository planoAlocacaoRepository,
+                                 ItemPlanoAlocacaoRepository itemPlanoAlocacaoRepository,
+                                 AgendadorListaEspera agendadorListaEspera,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${susagenda.lista-espera.otimizacao.habilitada:true}") boolean habilitada,
+                                 @Value("${susagenda.lista-espera.otimizacao.horizonte-dias:30}") int horizonteDias,
+                                 @Value("${susagenda.lista-espera.otimizacao.dias-penalidade-unidade:14}") int diasPenalidadeUnidade,
+                                 @Value("${susagenda.lista-espera.otimizacao.tamanho-lote-gravacao:1000}") int tamanhoLoteGravacao) {
+        this.listaEsperaRepository = listaEsperaRepository;
+        this.vagaRepository = vagaRepository;
+        this.planoAlocacaoRepository = planoAlocacaoRepository;
+        this.itemPlanoAlocacaoRepository = itemPlanoAlocacaoRepository;
+        this.agendadorListaEspera = agendadorListaEspera;
+        this.jdbcTemplate = jdbcTemplate;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.planejador = new PlanejadorAlocacao(diasPenalidadeUnidade);
+        this.habilitada = habilitada;
+        this.horizonteDias = Math.max(horizonteDias, 1);
+        this.tamanhoLoteGravacao = Math.max(tamanhoLoteGravacao, 1);
+    }
+
+    /**
+     * Gera à noite um plano para cada especialidade com pacientes aguardando. Os planos ficam para
+     * revisão; nenhum é aplicado automaticamente.
+     */
+    @Scheduled(cron = "${susagenda.lista-espera.otimizacao.cron:0 0 2 * * *}")
+    public void gerarPlanosAgendado() {
+        if (!habilitada) {
+            return;
+        }
+        for (Especialidade especialidade : Especialidade.values()) {
+            try {
+                if (listaEsperaRepository.countPacientesNaFila(especialidade) > 0) {
+                    gerarPlano(especialidade);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Falha ao gerar o plano de alocação de {}: {}", especialidade, e.getMessage());
+            }
+        }
+    }
+
+    public PlanoAlocacaoResponse gerarPlano(Especialidade especialidade) {
+        if (!geracaoLock.tryLock()) {
+            throw new BusinessException("Já existe um plano de alocação sendo gerado. Tente novamente em instantes.");
+        }
+        try {
+            long inicio = System.nanoTime();
+            LocalDate hoje = LocalDate.now();
+            LocalDate dataInicio = hoje.plusDays(1);
+            LocalDate dataFim = hoje.plusDays(horizonteDias);
+
+            List<CandidatoAlocacaoProjection> candidatos =
+                    leitura.execute(status -> listaEsperaRepository.findCandidatosAlocacao(especialidade));
+            List<VagaLivreProjection> vagas =
+                    leitura.execute(status -> vagaRepository.findLivresPorEspecialidade(especialidade, dataInicio, dataFim));
+            PlanejadorAlocacao.Plano plano = planejador.planejar(candidatos, vagas, hoje);
+            long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+            PlanoAlocacao salvo = transacao.execute(status -> {
+                planoAlocacaoRepository.atualizarStatus(especialidade, StatusPlanoAlocacao.GERADO, StatusPlanoAlocacao.DESCARTADO);
+                PlanoAlocacao novo = planoAlocacaoRepository.save(PlanoAlocacao.builder()
+                        .especialidade(especialidade)
+                        .status(StatusPlanoAlocacao.GERADO)
+                        .dataInicio(dataInicio)
+                        .dataFim(dataFim)
+                        .candidatos(candidatos.size())
+                        .vagas(vagas.stream().mapToInt(VagaLivreProjection::restantes).sum())
+                        .itens(plano.atribuicoes().size())
+                        .duracaoMs(duracaoMs)
+                        .build());
+                gravarItens(novo.getId(), plano.atribuicoes());
+                return novo;
+            });
+
+            log.info("Plano de alocação ID: {} de {}: {} de {} paciente(s) em {} vaga(s) livre(s), {} classes e {} grupos " +
+                            "de vagas resolvidos em {} fases ({} ms)", salvo.getId(), especialidade, salvo.getItens(),
+                    salvo.getCandidatos(), salvo.getVagas(), plano.classes(), plano.grupos(), plano.fases(), duracaoMs);
+            return toResponse(salvo, Map.of(StatusItemPlanoAlocacao.PENDENTE, (long) salvo.getItens()));
+        } finally {
+            geracaoLock.unlock();
+        }
+    }
+
+    /**
+     * Agenda até {@code quantidade} itens pendentes do plano, na ordem da fila.
+     */
+    public PlanoAlocacaoResponse aplicar(Long planoId, int quantidade) {
+        if (quantidade < 1 || quantidade > TAMANHO_MAXIMO_LOTE) {
+            throw new BusinessException("A quantidade de itens por aplicação deve estar entre 1 e " + TAMANHO_MAXIMO_LOTE);
+        }
+        PlanoAlocacao plano = buscarPlano(planoId);
+        if (plano.getStatus() != StatusPlanoAlocacao.GERADO) {
+            throw new BusinessException("Plano de alocação com status " + plano.getStatus().getDescricao()
+                    + " não pode ser aplicado");
+        }
+
+        int agendados = 0;
+        int restantes = quantidade;
+        while (restantes > 0) {
+            int tamanho = Math.min(restantes, ITENS_POR_LEITURA);
+            List<ItemPlanoAlocacao> itens = leitura.execute(status -> itemPlanoAlocacaoRepository
+                    .findByPlanoIdAndStatusOrderById(planoId, StatusItemPlanoAlocacao.PENDENTE, PageRequest.of(0, tamanho)));
+            if (itens.isEmpty()) {
+                break;
+            }
+            List<Long> ids = itens.stream().map(ItemPlanoAlocacao::getListaEsperaId).toList();
+            Map<Long, ListaEspera> entradas = leitura.execute(status -> listaEsperaRepository.findAllById(ids)).stream()
+                    .collect(Collectors.toMap(ListaEspera::getId, Function.identity()));
+            for (ItemPlanoAlocacao item : itens) {
+                if (aplicarItem(item, entradas.get(item.getListaEsperaId()))) {
+                    agendados++;
+                }
+            }
+            restantes -= itens.size();
+        }
+
+        PlanoAlocacao atualizado = transacao.execute(status -> {
+            PlanoAlocacao atual = buscarPlano(planoId);
+            if (atual.getStatus() == StatusPlanoAlocacao.GERADO
+                    && !itemPlanoAlocacaoRepository.existsByPlanoIdAndStatus(planoId, StatusItemPlanoAlocacao.PENDENTE)) {
+                atual.setStatus(StatusPlanoAlocacao.APLICADO);
+                atual = planoAlocacaoRepository.save(atual);
+            }
+            return atual;
+        });
+        log.info("Plano de alocação ID: {}: {} paciente(s) agendado(s) nesta aplicação", planoId, agendados);
+        return toResponse(atualizado);
+    }
+
+    public PlanoAlocacaoResponse descartar(Long planoId) {
+        PlanoAlocacao descartado = transacao.execute(status -> {
+            PlanoAlocacao plano = buscarPlano(planoId);
+            if (plano.getStatus() != StatusPlanoAlocacao.GERADO) {
+                throw new BusinessException("Plano de alocação com status " + plano.getStatus().getDescricao()
+                        + " não pode ser descartado");
+            }
+            plano.setStatus(StatusPlanoAlocacao.DESCARTADO);
+            return planoAlocacaoRepository.save(plano);
+        });
+        log.info("Plano de alocação ID: {} descartado", planoId);
+        return toResponse(descartado);
+    }
+
+    public PlanoAlocacaoResponse buscar(Long planoId) {
+        return toResponse(leitura.execute(status -> buscarPlano(planoId)));
+    }
+
+    public List<PlanoAlocacaoResponse> listar(Especialidade especialidade) {
+        return leitura.execute(status -> planoAlocacaoRepository.findByEspecialidadeOrderByCreatedAtDesc(especialidade))
+                .stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    public List<ItemPlanoAlocacaoResponse> listarItens(Long planoId, int pagina, int tamanho) {
+        if (pagina < 0 || tamanho < 1 || tamanho > TAMANHO_MAXIMO_PAGINA) {
+            throw new BusinessException("Página deve ser maior ou igual a 0 e tamanho entre 1 e " + TAMANHO_MAXIMO_PAGINA);
+        }
+        return leitura.execute(status -> {
+            buscarPlano(planoId);
+            return itemPlanoAlocacaoRepository.findByPlanoIdOrderById(planoId, PageRequest.of(pagina, tamanho))
+                    .map(this::toItemResponse)
+                    .getContent();
+        });
+    }
+
+    private boolean aplicarItem(ItemPlanoAlocacao item, ListaEspera entrada) {
+        if (entrada == null || entrada.getAtendido()) {
+            recusar(item, "Paciente não está mais na lista de espera");
+            return false;
+        }
+        Resultado resultado = agendadorListaEspera.agendar(entrada,
+                new SlotAgenda(item.getProfissionalId(), item.getDataAgendamento(), item.getHoraAgendamento()),
+                agendamentoId -> itemPlanoAlocacaoRepository.marcarAgendado(item.getId(), agendamentoId));
+        switch (resultado) {
+            case AGENDADO -> {
+                return true;
+            }
+            case VAGA_INDISPONIVEL -> recusar(item, "Horário não tem mais vaga");
+            case PACIENTE_INDISPONIVEL -> recusar(item, "Paciente já saiu da lista de espera ou tem outro agendamento no horário");
+        }
+        return false;
+    }
+
+    private void recusar(ItemPlanoAlocacao item, String motivo) {
+        transacao.executeWithoutResult(status -> itemPlanoAlocacaoRepository.marcarRecusado(item.getId(), motivo));
+        log.debug("Item ID: {} do plano de alocação ID: {} recusado: {}", item.getId(), item.getPlanoId(), motivo);
+    }
+
+    private void gravarItens(Long planoId, List<PlanejadorAlocacao.Atribuicao> atribuicoes) {
+        jdbcTemplate.batchUpdate(SQL_INSERIR_ITEM, atribuicoes, tamanhoLoteGravacao, (ps, atribuicao) -> {
+            ps.setLong(1, planoId);
+            ps.setLong(2, atribuicao.candidato().id());
+            ps.setLong(3, atribuicao.candidato().pacienteId());
+            ps.setString(4, atribuicao.candidato().prioridade().name());
+            ps.setInt(5, (int) Math.min(atribuicao.diasEspera(), Integer.MAX_VALUE));
+            ps.setLong(6, atribuicao.vaga().profissionalId());
+            ps.setLong(7, atribuicao.vaga().unidadeSaudeId());
+            ps.setDate(8, Date.valueOf(atribuicao.vaga().data()));
+            ps.setTime(9, Time.valueOf(atribuicao.vaga().hora()));
+            if (atribuicao.unidadePreferida() == null) {
+                ps.setNull(10, Types.BOOLEAN);
+            } else {
+                ps.setBoolean(10, atribuicao.unidadePreferida());
+            }
+        });
+    }
+
+    private PlanoAlocacao buscarPlano(Long planoId) {
+        return planoAlocacaoRepository.findById(planoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Plano de alocação", planoId));
+    }
+
+    private PlanoAlocacaoResponse toResponse(PlanoAlocacao plano) {
+        Map<StatusItemPlanoAlocacao, Long> contagem = new EnumMap<>(StatusItemPlanoAlocacao.class);
+        for (ContagemItensPlanoProjection c : leitura.execute(status -> itemPlanoAlocacaoRepository.contarPorStatus(plano.getId()))) {
+            contagem.put(c.status(), c.quantidade());
+        }
+        return toResponse(plano, contagem);
+    }
+
+    private PlanoAlocacaoResponse toResponse(PlanoAlocacao plano, Map<StatusItemPlanoAlocacao, Long> contagem) {
+        return PlanoAlocacaoResponse.builder()
+                .id(plano.getId())
+                .especialidade(plano.getEspecialidade())
+                .status(plano.getStatus())
+                .dataInicio(plano.getDataInicio())
+                .dataFim(plano.getDataFim())
+                .candidatos(plano.getCandidatos())
+                .vagas(plano.getVagas())
+                .itens(plano.getItens())
+                .pendentes(contagem.getOrDefault(StatusItemPlanoAlocacao.PENDENTE, 0L))
+                .agendados(contagem.getOrDefault(StatusItemPlanoAlocacao.AGENDADO, 0L))
+                .recusados(contagem.getOrDefault(StatusItemPlanoAlocacao.RECUSADO, 0L))
+                .duracaoMs(plano.getDuracaoMs())
+                .createdAt(plano.getCreatedAt())
+                .updatedAt(plano.getUpdatedAt())
+                .build();
+    }
+
+    private ItemPlanoAlocacaoResponse toItemResponse(ItemPlanoAlocacao item) {
+        return ItemPlanoAlocacaoResponse.builder()
+                .id(item.getId())
+                .listaEsperaId(item.getListaEsperaId())
+                .pacienteId(item.getPacienteId())
+                .prioridade(item.getPrioridade())
+                .diasEspera(item.getDiasEspera())
+                .profissionalId(item.getProfissionalId())
+                .unidadeSaudeId(item.getUnidadeSaudeId())
+                .dataAgendamento(item.getDataAgendamento())
+                .horaAgendamento(item.getHoraAgendamento())
+                .unidadePreferida(item.getUnidadePreferida())
+                .status(item.getStatus())
+                .agendamentoId(item.getAgendamentoId())
+                .motivoRecusa(item.getMotivoRecusa())
+                .build();
+    }
+}
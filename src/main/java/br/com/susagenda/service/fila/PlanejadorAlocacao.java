@@ -0,0 +1,254 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.repository.projection.CandidatoAlocacaoProjection;
+import br.com.susagenda.repository.projection.VagaLivreProjection;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Atribuição global dos pacientes da lista de espera de uma especialidade às vagas livres, como
+ * fluxo máximo de custo mínimo: preenche o maior número possível de vagas e, entre as atribuições
+ * que fazem isso, a de menor custo.
+ *
+ * <p>Um vértice por paciente e uma aresta por par paciente-vaga não cabem em memória com centenas
+ * de milhares de cada lado. Por isso os dois lados são agregados: pacientes com o mesmo peso de
+ * prioridade, a mesma faixa de espera (semanas, até {@value #FAIXAS_ESPERA}) e a mesma unidade
+ * preferida formam uma classe; as vagas de uma unidade em um dia formam um grupo. O grafo tem
+ * classes × dias arestas, qualquer que seja o número de pacientes e de vagas.</p>
+ *
+ * <p>O custo de uma classe em um dia é menor quanto mais urgente a classe e mais próximo o dia,
+ * então as vagas mais cedo vão para os mais urgentes. Uma vaga fora da unidade preferida custa
+ * como {@code diasPenalidadeUnidade} dias a mais de espera. Dentro de uma classe, as vagas recebidas
+ * são entregues em ordem cronológica aos pacientes na ordem da fila.</p>
+ */
+public class PlanejadorAlocacao {
+
+    static final int FAIXAS_ESPERA = 13;
+
+    private static final int FONTE = 0;
+    private static final int SUMIDOURO = 1;
+
+    private final int diasPenalidadeUnidade;
+
+    public PlanejadorAlocacao(int diasPenalidadeUnidade) {
+        this.diasPenalidadeUnidade = Math.max(diasPenalidadeUnidade, 0);
+    }
+
+    /**
+     * @param unidadePreferida {@code null} quando o paciente não tem unidade preferida
+     */
+    public record Atribuicao(CandidatoAlocacaoProjection candidato, VagaLivreProjection vaga,
+                             Boolean unidadePreferida, long diasEspera) {
+    }
+
+    public record Plano(List<Atribuicao> atribuicoes, int classes, int grupos, int arestas, int fases) {
+
+        static Plano vazio() {
+            return new Plano(List.of(), 0, 0, 0, 0);
+        }
+    }
+
+    private record ChaveClasse(int peso, int faixa, Long unidadeSaudeId) {
+    }
+
+    private record Recebida(VagaLivreProjection vaga, Boolean unidadePreferida) {
+    }
+
+    private static final class Classe {
+        private final Long unidadeSaudeId;
+        private final int urgencia;
+        private final List<CandidatoAlocacaoProjection> pacientes = new ArrayList<>();
+        private final List<Recebida> recebidas = new ArrayList<>();
+        private int vertice;
+
+        private Classe(ChaveClasse chave) {
+            this.unidadeSaudeId = chave.unidadeSaudeId();
+            this.urgencia = chave.peso() * FAIXAS_ESPERA + chave.faixa() + 1;
+        }
+    }
+
+    private static final class Grupo {
+        private final Long unidadeSaudeId;
+        private final List<VagaLivreProjection> vagas = new ArrayList<>();
+        private int capacidade;
+        private int vertice;
+        private int arestaDia;
+        private int proximaVaga;
+        private int usadasNaVaga;
+
+        private Grupo(Long unidadeSaudeId) {
+            this.unidadeSaudeId = unidadeSaudeId;
+        }
+
+        /**
+         * Próxima unidade de vaga do grupo, em ordem de horário.
+         */
+        private VagaLivreProjection retirar() {
+            VagaLivreProjection vaga = vagas.get(proximaVaga);
+            if (++usadasNaVaga == vaga.restantes()) {
+                proximaVaga++;
+                usadasNaVaga = 0;
+            }
+            return vaga;
+        }
+    }
+
+    public Plano planejar(List<CandidatoAlocacaoProjection> candidatos, List<VagaLivreProjection> vagas, LocalDate hoje) {
+        List<VagaLivreProjection> livres = vagas.stream()
+                .filter(v -> v.restantes() != null && v.restantes() > 0)
+                .sorted(Comparator.comparing(VagaLivreProjection::data)
+                        .thenComparing(VagaLivreProjection::hora)
+                        .thenComparing(VagaLivreProjection::profissionalId))
+                .toList();
+        if (candidatos.isEmpty() || livres.isEmpty()) {
+            return Plano.vazio();
+        }
+
+        List<LocalDate> dias = new ArrayList<>();
+        List<List<Grupo>> gruposPorDia = new ArrayList<>();
+        Map<Long, Grupo[]> gruposPorUnidade = new HashMap<>();
+        List<Grupo> grupos = new ArrayList<>();
+        LocalDate diaAtual = null;
+        for (VagaLivreProjection vaga : livres) {
+            if (!vaga.data().equals(diaAtual)) {
+                diaAtual = vaga.data();
+                dias.add(diaAtual);
+                gruposPorDia.add(new ArrayList<>());
+            }
+            int dia = dias.size() - 1;
+            Grupo[] daUnidade = gruposPorUnidade.computeIfAbsent(vaga.unidadeSaudeId(), u -> new Grupo[0]);
+            if (daUnidade.length < dias.size()) {
+                daUnidade = Arrays.copyOf(daUnidade, Math.max(dias.size(), 2 * daUnidade.length));
+                gruposPorUnidade.put(vaga.unidadeSaudeId(), daUnidade);
+            }
+            Grupo grupo = daUnidade[dia];
+            if (grupo == null) {
+                grupo = new Grupo(vaga.unidadeSaudeId());
+                daUnidade[dia] = grupo;
+                gruposPorDia.get(dia).add(grupo);
+                grupos.add(grupo);
+            }
+            grupo.vagas.add(vaga);
+            grupo.capacidade = (int) Math.min((long) grupo.capacidade + vaga.restantes(), FluxoCustoMinimo.INFINITO - 1);
+        }
+
+        Map<ChaveClasse, Classe> porChave = new LinkedHashMap<>();
+        for (CandidatoAlocacaoProjection candidato : candidatos) {
+            int faixa = (int) Math.min(Math.max(semanasEsperando(candidato, hoje), 0), FAIXAS_ESPERA - 1);
+            ChaveClasse chave = new ChaveClasse(candidato.prioridade().getPeso(), faixa, candidato.unidadeSaudePreferidaId());
+            porChave.computeIfAbsent(chave, Classe::new).pacientes.add(candidato);
+        }
+        List<Classe> classes = new ArrayList<>(porChave.values());
+
+        int vertices = 2;
+        for (Classe classe : classes) {
+            classe.vertice = vertices++;
+        }
+        int primeiroDia = vertices;
+        vertices += dias.size();
+        for (Grupo grupo : grupos) {
+            grupo.vertice = vertices++;
+        }
+
+        long[] diasAte = new long[dias.size()];
+        for (int d = 0; d < dias.size(); d++) {
+            diasAte[d] = Math.max(ChronoUnit.DAYS.between(hoje, dias.get(d)), 0);
+        }
+        long horizonte = diasAte[dias.size() - 1] + 1;
+        long urgenciaMaxima = classes.stream().mapToInt(c -> c.urgencia).max().orElse(1);
+
+        FluxoCustoMinimo fluxo = new FluxoCustoMinimo(vertices,
+                classes.size() * (2 * dias.size() + 1) + 2 * grupos.size());
+        int[][] arestasDia = new int[classes.size()][dias.size()];
+        int[][] arestasPreferida = new int[classes.size()][];
+        for (int c = 0; c < classes.size(); c++) {
+            Classe classe = classes.get(c);
+            fluxo.adicionarAresta(FONTE, classe.vertice, classe.pacientes.size(), 0);
+            long penalidade = classe.unidadeSaudeId == null ? 0 : (long) classe.urgencia * diasPenalidadeUnidade;
+            Grupo[] preferidos = classe.unidadeSaudeId == null ? null : gruposPorUnidade.get(classe.unidadeSaudeId);
+            if (preferidos != null) {
+                arestasPreferida[c] = new int[dias.size()];
+                Arrays.fill(arestasPreferida[c], -1);
+            }
+            for (int d = 0; d < dias.size(); d++) {
+                // custo >= 0: urgência máxima no último dia do horizonte menos o benefício da classe no dia
+                long custo = urgenciaMaxima * horizonte - classe.urgencia * (horizonte - diasAte[d]);
+                arestasDia[c][d] = fluxo.adicionarAresta(classe.vertice, primeiroDia + d, FluxoCustoMinimo.INFINITO,
+                        custo + penalidade);
+                if (preferidos != null && d < preferidos.length && preferidos[d] != null) {
+                    arestasPreferida[c][d] = fluxo.adicionarAresta(classe.vertice, preferidos[d].vertice,
+                            FluxoCustoMinimo.INFINITO, custo);
+                }
+            }
+        }
+        for (int d = 0; d < dias.size(); d++) {
+            for (Grupo grupo : gruposPorDia.get(d)) {
+                grupo.arestaDia = fluxo.adicionarAresta(primeiroDia + d, grupo.vertice, FluxoCustoMinimo.INFINITO, 0);
+                fluxo.adicionarAresta(grupo.vertice, SUMIDOURO, grupo.capacidade, 0);
+            }
+        }
+
+        FluxoCustoMinimo.Resultado resultado = fluxo.resolver(FONTE, SUMIDOURO);
+
+        for (int c = 0; c < classes.size(); c++) {
+            if (arestasPreferida[c] == null) {
+                continue;
+            }
+            Classe classe = classes.get(c);
+            Grupo[] preferidos = gruposPorUnidade.get(classe.unidadeSaudeId);
+            for (int d = 0; d < dias.size(); d++) {
+                if (arestasPreferida[c][d] >= 0) {
+                    receber(classe, preferidos[d], fluxo.fluxo(arestasPreferida[c][d]));
+                }
+            }
+        }
+        for (int d = 0; d < dias.size(); d++) {
+            Iterator<Grupo> gruposDoDia = gruposPorDia.get(d).iterator();
+            Grupo grupo = null;
+            int restanteGrupo = 0;
+            for (int c = 0; c < classes.size(); c++) {
+                int restanteClasse = fluxo.fluxo(arestasDia[c][d]);
+                while (restanteClasse > 0) {
+                    while (restanteGrupo == 0) {
+                        grupo = gruposDoDia.next();
+                        restanteGrupo = fluxo.fluxo(grupo.arestaDia);
+                    }
+                    int quantidade = Math.min(restanteClasse, restanteGrupo);
+                    receber(classes.get(c), grupo, quantidade);
+                    restanteClasse -= quantidade;
+                    restanteGrupo -= quantidade;
+                }
+            }
+        }
+
+        List<Atribuicao> atribuicoes = new ArrayList<>((int) resultado.fluxo());
+        for (Classe classe : classes) {
+            classe.pacientes.sort(Comparator.comparing(CandidatoAlocacaoProjection::dataSolicitacao)
+                    .thenComparing(CandidatoAlocacaoProjection::id));
+            classe.recebidas.sort(Comparator.comparing((Recebida r) -> r.vaga().data())
+                    .thenComparing(r -> r.vaga().hora()));
+            for (int i = 0; i < classe.recebidas.size(); i++) {
+                CandidatoAlocacaoProjection paciente = classe.pacientes.get(i);
+                Recebida recebida = classe.recebidas.get(i);
+                atribuicoes.add(new Atribuicao(paciente, recebida.vaga(), recebida.unidadePreferida(),
+                        Math.max(ChronoUnit.DAYS.between(paciente.dataSolicitacao().toLocalDate(), hoje), 0)));
+            }
+        }
+        atribuicoes.sort(Comparator.comparing((Atribuicao a) -> ChaveFila.de(a.candidato().id(),
+                a.candidato().pontuacaoPrioridade(), a.candidato().dataSolicitacao())));
+        return new Plano(atribuicoes, classes.size(), grupos.size(), fluxo.arestas(), resultado.fases());
+    }
+
+    private static void receber(Classe classe, Grupo grupo, int quantidade) {
+        Boolean preferida = classe.unidadeSaudeId == null ? null : classe.unidadeSaudeId.equals(grupo.unidadeSaudeId);
+        for (int i = 0; i < quantidade; i++) {
+            classe.recebidas.add(new Recebida(grupo.retirar(), preferida));
+        }
+    }
+
+    private static long semanasEsperando(CandidatoAlocacaoProjection candidato, LocalDate hoje) {
+        return ChronoUnit.DAYS.between(candidato.dataSolicitacao().toLocalDate(), hoje) / 7;
+    }
+}
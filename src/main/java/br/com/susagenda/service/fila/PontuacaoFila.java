@@ -0,0 +1,33 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.enums.Prioridade;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Pontuação da lista de espera com envelhecimento: cada nível de peso da prioridade vale
+ * {@code dias-por-nivel} dias de espera, para que pacientes de prioridade normal não fiquem para
+ * sempre atrás dos que chegam depois com prioridade maior.
+ *
+ * <p>No instante {@code t}, a pontuação de uma entrada é {@code peso × S + (t − dataSolicitacao)}, em
+ * segundos, com {@code S} o valor de um nível. O termo {@code t} é o mesmo para todas as entradas,
+ * então a ordem entre elas é a de {@code peso × S − dataSolicitacao}, que não muda com o tempo: é
+ * esse valor que fica gravado, calculado uma vez na inclusão, sem reescritas periódicas. Só uma
+ * mudança de {@code dias-por-nivel} exige recalcular a fila ({@link RepontuacaoFila}).</p>
+ */
+@Component
+public class PontuacaoFila {
+
+    private final long segundosPorNivel;
+
+    public PontuacaoFila(@Value("${susagenda.lista-espera.envelhecimento.dias-por-nivel:30}") long diasPorNivel) {
+        this.segundosPorNivel = Math.max(diasPorNivel, 0) * 86_400;
+    }
+
+    public long pontuar(Prioridade prioridade, LocalDateTime dataSolicitacao) {
+        return prioridade.getPeso() * segundosPorNivel - dataSolicitacao.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.susagenda.service.fila;
+
+/**
+ * Posição de uma entrada na fila da sua especialidade (0 quando já atendida) e o total aguardando.
+ */
+public record PosicaoNaFila(int posicao, long total) {
+}
@@ -0,0 +1,85 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.repository.ListaEsperaRepository;
+import br.com.susagenda.repository.projection.PontuacaoFilaProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recalcula a pontuação gravada das entradas aguardando quando ela não bate com a configuração
+ * atual de {@link PontuacaoFila}, o que só acontece depois de mudar {@code dias-por-nivel}.
+ *
+ * <p>Roda na inicialização, percorrendo a fila em lotes por id e gravando só as entradas com
+ * pontuação diferente; com a configuração inalterada é uma leitura da fila sem escritas.</p>
+ */
+@Slf4j
+@Component
+public class RepontuacaoFila {
+
+    private static final String SQL_ATUALIZAR = "UPDATE lista_espera SET pontuacao_prioridade = ? WHERE id = ?";
+
+    private final ListaEsperaRepository listaEsperaRepository;
+    private final PontuacaoFila pontuacaoFila;
+    private final IndicePosicoesFila indicePosicoesFila;
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanhoLote;
+
+    public RepontuacaoFila(ListaEsperaRepository listaEsperaRepository,
+                           PontuacaoFila pontuacaoFila,
+                           IndicePosicoesFila indicePosicoesFila,
+                           JdbcTemplate jdbcTemplate,
+                           @Value("${susagenda.lista-espera.envelhecimento.tamanho-lote:1000}") int tamanhoLote) {
+        this.listaEsperaRepository = listaEsperaRepository;
+        this.pontuacaoFila = pontuacaoFila;
+        this.indicePosicoesFila = indicePosicoesFila;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanhoLote = Math.max(tamanhoLote, 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void repontuarNaInicializacao() {
+        try {
+            repontuar();
+        } catch (RuntimeException e) {
+            log.warn("Falha ao recalcular a pontuação da lista de espera: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return quantidade de entradas com a pontuação corrigida
+     */
+    public int repontuar() {
+        int corrigidas = 0;
+        long ultimoId = 0;
+        List<PontuacaoFilaProjection> lote;
+        do {
+            lote = listaEsperaRepository.findPontuacoesNaFila(ultimoId, PageRequest.ofSize(tamanhoLote));
+            List<Object[]> alteradas = new ArrayList<>();
+            for (PontuacaoFilaProjection entrada : lote) {
+                long pontuacao = pontuacaoFila.pontuar(entrada.prioridade(), entrada.dataSolicitacao());
+                if (entrada.pontuacaoPrioridade() == null || entrada.pontuacaoPrioridade() != pontuacao) {
+                    alteradas.add(new Object[]{pontuacao, entrada.id()});
+                }
+                ultimoId = entrada.id();
+            }
+            if (!alteradas.isEmpty()) {
+                jdbcTemplate.batchUpdate(SQL_ATUALIZAR, alteradas);
+                corrigidas += alteradas.size();
+            }
+        } while (lote.size() == tamanhoLote);
+
+        if (corrigidas > 0) {
+            indicePosicoesFila.descartar();
+            log.info("Pontuação recalculada em {} entrada(s) da lista de espera", corrigidas);
+        }
+        return corrigidas;
+    }
+}
@@ -0,0 +1,276 @@
+package br.com.susagenda.service.triagem;
+
+import br.com.susagenda.domain.entity.PalavraRegraTriagem;
+import br.com.susagenda.domain.entity.VersaoRegrasTriagem;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.dto.request.RegrasTriagemRequest;
+import br.com.susagenda.dto.request.RegrasTriagemRequest.RegraEspecialidade;
+import br.com.susagenda.dto.response.RegrasTriagemResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.exception.DuplicateResourceException;
+import br.com.susagenda.exception.ResourceNotFoundException;
+import br.com.susagenda.repository.PalavraRegraTriagemRepository;
+import br.com.susagenda.repository.VersaoRegrasTriagemRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Base versionada de regras da triagem: as palavras-chave de sintomas de cada especialidade ficam
+ * no banco e mudam sem novo deploy.
+ *
+ * <p>Cada versão publicada é imutável. A versão ativa é compilada em um {@link ReconhecedorSintomas}
+ * fora do caminho das requisições e trocada por inteiro em uma referência atômica: a triagem lê a
+ * referência uma vez por requisição, então nunca vê regras pela metade e não espera pela troca.
+ * Nesta instância a troca acontece logo após o commit da ativação; as demais conferem a versão
+ * ativa no banco a cada {@code recarga-intervalo-ms}. Com a base vazia, as {@link RegrasTriagem#PADRAO}
+ * são publicadas como versão 1 na inicialização, e são elas que atendem até a primeira carga.</p>
+ *
+ * <p>Publicações e ativações de todas as instâncias são serializadas no banco pelo bloqueio da
+ * primeira versão publicada, tomado antes de numerar a nova versão ou trocar a ativa. A única
+ * corrida que o bloqueio não cobre, duas primeiras publicações com a base vazia, esbarra nos
+ * índices únicos e é devolvida como {@link DuplicateResourceException}. O {@code synchronized}
+ * dos métodos só mantém a ordem das trocas da referência nesta instância.</p>
+ */
+@Slf4j
+@Service
+public class BaseRegrasTriagem {
+
+    private final VersaoRegrasTriagemRepository versaoRepository;
+    private final PalavraRegraTriagemRepository palavraRepository;
+    private final TransactionTemplate transacao;
+    private final TransactionTemplate leitura;
+    private final AtomicReference<RegrasTriagemAtivas> ativas =
+            new AtomicReference<>(new RegrasTriagemAtivas(0, ReconhecedorSintomas.compilar(RegrasTriagem.PADRAO)));
+
+    public BaseRegrasTriagem(VersaoRegrasTriagemRepository versaoRepository,
+                             PalavraRegraTriagemRepository palavraRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.versaoRepository = versaoRepository;
+        this.palavraRepository = palavraRepository;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+
+        Gauge.builder("susagenda.triagem.regras.versao", ativas, a -> a.get().versao())
+                .description("Versão das regras de triagem em uso nesta instância")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Regras em uso; o chamador deve guardar o retorno e usá-lo durante toda a requisição.
+     */
+    public RegrasTriagemAtivas ativas() {
+        return ativas.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarNaInicializacao() {
+        try {
+            if (leitura.execute(status -> versaoRepository.count()) == 0) {
+                publicarPadrao();
+            }
+            recarregar();
+        } catch (RuntimeException e) {
+            log.warn("Falha ao carregar as regras de triagem; usando as regras padrão: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${susagenda.triagem.regras.recarga-intervalo-ms:30000}",
+            initialDelayString = "${susagenda.triagem.regras.recarga-intervalo-ms:30000}")
+    public void recarregarAgendado() {
+        try {
+            recarregar();
+        } catch (RuntimeException e) {
+            log.warn("Falha ao recarregar as regras de triagem: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Passa a usar a versão ativa no banco, se for outra que a em uso.
+     *
+     * @return se as regras em uso foram trocadas
+     */
+    public boolean recarregar() {
+        RegrasTriagemAtivas atuais = ativas.get();
+        RegrasTriagemAtivas novas = leitura.execute(status -> versaoRepository.findByAtivaTrue()
+                .filter(versao -> versao.getVersao() != atuais.versao())
+                .map(versao -> compilar(versao.getVersao(), palavraRepository.findByVersaoIdOrderByOrdem(versao.getId())))
+                .orElse(null));
+        // uma ativação feita nesta instância durante a leitura prevalece sobre o que foi lido
+        if (novas == null || !ativas.compareAndSet(atuais, novas)) {
+            return false;
+        }
+        log.info("Regras de triagem trocadas da versão {} para a {}", atuais.versao(), novas.versao());
+        return true;
+    }
+
+    /**
+     * Grava as regras como uma versão nova e, se pedido, passa a usá-la.
+     */
+    public synchronized RegrasTriagemResponse publicar(RegrasTriagemRequest request, boolean ativar) {
+        Set<Especialidade> especialidades = EnumSet.noneOf(Especialidade.class);
+        List<PalavraRegraTriagem> palavras = new ArrayList<>();
+        for (RegraEspecialidade regra : request.getRegras()) {
+            if (!especialidades.add(regra.getEspecialidade())) {
+                throw new BusinessException("Especialidade repetida nas regras: " + regra.getEspecialidade());
+            }
+            for (String palavra : regra.getPalavrasChave()) {
+                palavras.add(PalavraRegraTriagem.builder()
+                        .especialidade(regra.getEspecialidade())
+                        .palavra(palavra.strip())
+                        .ordem(palavras.size())
+                        .build());
+            }
+        }
+        // compilada antes de gravar: a troca após o commit é só a atribuição da referência
+        ReconhecedorSintomas reconhecedor = ReconhecedorSintomas.compilar(porEspecialidade(palavras));
+
+        VersaoRegrasTriagem versao = gravar(status -> {
+            versaoRepository.findFirstByOrderByVersaoAsc();
+            VersaoRegrasTriagem nova = versaoRepository.save(VersaoRegrasTriagem.builder()
+                    .versao(versaoRepository.findUltimaVersao() + 1)
+                    .descricao(request.getDescricao())
+                    .ativa(false)
+                    .palavras(palavras.size())
+                    .build());
+            palavras.forEach(palavra -> palavra.setVersaoId(nova.getId()));
+            palavraRepository.saveAll(palavras);
+            if (ativar) {
+                marcarAtiva(nova);
+            }
+            return nova;
+        });
+
+        log.info("Regras de triagem publicadas na versão {} ({} palavras-chave)", versao.getVersao(), palavras.size());
+        if (ativar) {
+            trocar(new RegrasTriagemAtivas(versao.getVersao(), reconhecedor));
+        }
+        return toResponse(versao, palavras);
+    }
+
+    /**
+     * Passa a usar uma versão já publicada, inclusive anterior à ativa (para desfazer uma publicação).
+     */
+    public synchronized RegrasTriagemResponse ativar(Integer versao) {
+        VersaoRegrasTriagem ativada = gravar(status -> {
+            versaoRepository.findFirstByOrderByVersaoAsc();
+            VersaoRegrasTriagem encontrada = buscarVersao(versao);
+            if (!encontrada.getAtiva()) {
+                marcarAtiva(encontrada);
+            }
+            return encontrada;
+        });
+        List<PalavraRegraTriagem> palavras = leitura.execute(status ->
+                palavraRepository.findByVersaoIdOrderByOrdem(ativada.getId()));
+
+        trocar(compilar(ativada.getVersao(), palavras));
+        return toResponse(ativada, palavras);
+    }
+
+    public List<RegrasTriagemResponse> listar() {
+        return leitura.execute(status -> versaoRepository.findAllByOrderByVersaoDesc().stream()
+                .map(versao -> toResponse(versao, null))
+                .toList());
+    }
+
+    public RegrasTriagemResponse buscar(Integer versao) {
+        return leitura.execute(status -> {
+            VersaoRegrasTriagem encontrada = buscarVersao(versao);
+            return toResponse(encontrada, palavraRepository.findByVersaoIdOrderByOrdem(encontrada.getId()));
+        });
+    }
+
+    public RegrasTriagemResponse buscarAtiva() {
+        return leitura.execute(status -> {
+            VersaoRegrasTriagem ativa = versaoRepository.findByAtivaTrue()
+                    .orElseThrow(() -> new ResourceNotFoundException("Nenhuma versão de regras de triagem está ativa"));
+            return toResponse(ativa, palavraRepository.findByVersaoIdOrderByOrdem(ativa.getId()));
+        });
+    }
+
+    private void publicarPadrao() {
+        List<RegraEspecialidade> regras = RegrasTriagem.PADRAO.entrySet().stream()
+                .map(regra -> RegraEspecialidade.builder()
+                        .especialidade(Especialidade.valueOf(regra.getKey()))
+                        .palavrasChave(regra.getValue())
+                        .build())
+                .toList();
+        try {
+            publicar(RegrasTriagemRequest.builder().descricao("Regras padrão").regras(regras).build(), true);
+        } catch (DuplicateResourceException e) {
+            // outra instância publicou ao mesmo tempo; a recarga usa a versão dela
+            log.debug("Regras padrão já publicadas por outra instância");
+        }
+    }
+
+    private VersaoRegrasTriagem gravar(TransactionCallback<VersaoRegrasTriagem> alteracao) {
+        try {
+            return transacao.execute(alteracao);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateResourceException(
+                    "Outra versão das regras de triagem foi publicada ou ativada ao mesmo tempo; tente novamente");
+        }
+    }
+
+    private VersaoRegrasTriagem buscarVersao(Integer versao) {
+        return versaoRepository.findByVersao(versao)
+                .orElseThrow(() -> new ResourceNotFoundException("Versão de regras de triagem", "versão", String.valueOf(versao)));
+    }
+
+    private void marcarAtiva(VersaoRegrasTriagem versao) {
+        versaoRepository.desativarTodas();
+        versao.setAtiva(true);
+        versao.setAtivadaEm(LocalDateTime.now());
+        versaoRepository.save(versao);
+    }
+
+    private void trocar(RegrasTriagemAtivas novas) {
+        RegrasTriagemAtivas anteriores = ativas.getAndSet(novas);
+        log.info("Regras de triagem trocadas da versão {} para a {}", anteriores.versao(), novas.versao());
+    }
+
+    private static RegrasTriagemAtivas compilar(int versao, List<PalavraRegraTriagem> palavras) {
+        return new RegrasTriagemAtivas(versao, ReconhecedorSintomas.compilar(porEspecialidade(palavras)));
+    }
+
+    private static Map<String, List<String>> porEspecialidade(List<PalavraRegraTriagem> palavras) {
+        Map<String, List<String>> regras = new LinkedHashMap<>();
+        for (PalavraRegraTriagem palavra : palavras) {
+            regras.computeIfAbsent(palavra.getEspecialidade().name(), e -> new ArrayList<>()).add(palavra.getPalavra());
+        }
+        return regras;
+    }
+
+    private static RegrasTriagemResponse toResponse(VersaoRegrasTriagem versao, List<PalavraRegraTriagem> palavras) {
+        RegrasTriagemResponse.RegrasTriagemResponseBuilder response = RegrasTriagemResponse.builder()
+                .versao(versao.getVersao())
+                .descricao(versao.getDescricao())
+                .ativa(versao.getAtiva())
+                .palavras(versao.getPalavras())
+                .createdAt(versao.getCreatedAt())
+                .ativadaEm(versao.getAtivadaEm());
+        if (palavras != null) {
+            response.regras(porEspecialidade(palavras).entrySet().stream()
+                    .map(regra -> RegrasTriagemResponse.RegraEspecialidade.builder()
+                            .especialidade(Especialidade.valueOf(regra.getKey()))
+                            .palavrasChave(regra.getValue())
+                            .build())
+                    .toList());
+        }
+        return response.build();
+    }
+}
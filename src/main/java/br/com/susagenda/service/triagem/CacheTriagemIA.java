@@ -0,0 +1,294 @@
+package br.com.susagenda.service.triagem;
+
+import br.com.susagenda.dto.response.TriagemResponse;
+import br.com.susagenda.repository.RespostaTriagemIARepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Respostas da triagem por IA guardadas pela {@link FormaCanonicaSintomas forma canônica} dos
+ * sintomas, para que relatos equivalentes não consultem o modelo remoto de novo.
+ *
+ * <p>A primeira camada fica em memória, limitada em quantidade de entradas (as menos usadas saem
+ * primeiro) e com prazo de validade. A segunda, opcional, fica no banco e é compartilhada entre as
+ * instâncias: uma resposta obtida em uma instância vale para as outras até vencer. Só respostas da
+ * IA são guardadas; falhas da consulta seguem para o fallback e são repetidas na próxima vez.
+ * Relatos equivalentes que chegam enquanto um deles está sendo consultado esperam a mesma
+ * consulta, em vez de abrir outra.</p>
+ */
+@Slf4j
+@Service
+public class CacheTriagemIA {
+
+    static final String NOME = "triagemIA";
+
+    private static final String SQL_GUARDAR =
+            "INSERT INTO respostas_triagem_ia (chave, forma_canonica, resposta, duracao_ms, expira_em, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final RespostaTriagemIARepository respostaTriagemIARepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transacao;
+    private final boolean habilitado;
+    private final boolean persistente;
+    private final Duration ttl;
+    private final Cache<String, RespostaGuardada> cache;
+    private final Map<String, CompletableFuture<RespostaGuardada>> emAndamento = new ConcurrentHashMap<>();
+    private final Timer consultas;
+    private final Counter latenciaEconomizada;
+    private final Counter respondidasMemoria;
+    private final Counter respondidasBanco;
+    private final Counter compartilhadas;
+    private final Counter consultadas;
+
+    public CacheTriagemIA(RespostaTriagemIARepository respostaTriagemIARepository,
+                          JdbcTemplate jdbcTemplate,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${susagenda.triagem.ia.cache.habilitado:true}") boolean habilitado,
+                          @Value("${susagenda.triagem.ia.cache.persistente:true}") boolean persistente,
+                          @Value("${susagenda.triagem.ia.cache.tamanho-maximo:10000}") long tamanhoMaximo,
+                          @Value("${susagenda.triagem.ia.cache.ttl-horas:168}") long ttlHoras) {
+        this.respostaTriagemIARepository = respostaTriagemIARepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.persistente = persistente;
+        this.ttl = Duration.ofHours(ttlHoras);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfter(new ExpiraComAResposta())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME);
+        Gauge.builder("susagenda.triagem.ia.taxa.acerto", this, CacheTriagemIA::getTaxaAcerto)
+                .description("Fração das triagens por IA respondidas sem consultar o modelo")
+                .register(meterRegistry);
+        this.consultas = Timer.builder("susagenda.triagem.ia.consultas")
+                .description("Duração das consultas ao modelo da triagem por IA")
+                .register(meterRegistry);
+        this.latenciaEconomizada = Counter.builder("susagenda.triagem.ia.latencia.economizada")
+                .description("Soma da duração das consultas ao modelo evitadas por respostas guardadas")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.respondidasMemoria = contador(meterRegistry, "memoria");
+        this.respondidasBanco = contador(meterRegistry, "banco");
+        this.compartilhadas = contador(meterRegistry, "compartilhada");
+        this.consultadas = contador(meterRegistry, "consulta");
+    }
+
+    /**
+     * Devolve a resposta guardada para os sintomas ou executa a consulta ao modelo e guarda o
+     * resultado.
+     *
+     * @param consulta chamada ao modelo; devolve {@code null} quando falha
+     * @return resposta da IA, ou {@code null} se a consulta falhou
+     */
+    public TriagemResponse obter(String sintomas, Supplier<TriagemResponse> consulta) {
+        String formaCanonica = FormaCanonicaSintomas.de(sintomas);
+        if (!habilitado || formaCanonica.isEmpty()) {
+            consultadas.increment();
+            return consultas.record(consulta);
+        }
+
+        RespostaGuardada guardada = cache.getIfPresent(formaCanonica);
+        if (guardada != null) {
+            return repetir(guardada, respondidasMemoria);
+        }
+
+        CompletableFuture<RespostaGuardada> consultaPropria = new CompletableFuture<>();
+        CompletableFuture<RespostaGuardada> emCurso = emAndamento.putIfAbsent(formaCanonica, consultaPropria);
+        if (emCurso != null) {
+            RespostaGuardada compartilhada = emCurso.join();
+            compartilhadas.increment();
+            return compartilhada == null ? null : ler(compartilhada);
+        }
+
+        RespostaGuardada obtida = null;
+        try {
+            // a consulta que estava em curso pode ter terminado entre a leitura do cache e o registro
+            obtida = cache.getIfPresent(formaCanonica);
+            if (obtida != null) {
+                return repetir(obtida, respondidasMemoria);
+            }
+            obtida = buscarNoBanco(formaCanonica);
+            if (obtida != null) {
+                cache.put(formaCanonica, obtida);
+                return repetir(obtida, respondidasBanco);
+            }
+
+            consultadas.increment();
+            long inicio = System.nanoTime();
+            TriagemResponse resposta = consulta.get();
+            long duracaoNanos = System.nanoTime() - inicio;
+            consultas.record(duracaoNanos, TimeUnit.NANOSECONDS);
+            if (resposta == null) {
+                return null;
+            }
+
+            obtida = new RespostaGuardada(escrever(resposta), TimeUnit.NANOSECONDS.toMillis(duracaoNanos),
+                    LocalDateTime.now().plus(ttl));
+            guardarNoBanco(formaCanonica, obtida);
+            cache.put(formaCanonica, obtida);
+            return resposta;
+        } finally {
+            emAndamento.remove(formaCanonica, consultaPropria);
+            consultaPropria.complete(obtida);
+        }
+    }
+
+    /**
+     * Remove do banco as respostas vencidas; as entradas em memória expiram sozinhas.
+     */
+    @Scheduled(fixedDelayString = "${susagenda.triagem.ia.cache.limpeza-intervalo-ms:3600000}",
+            initialDelayString = "${susagenda.triagem.ia.cache.limpeza-intervalo-ms:3600000}")
+    public void removerVencidas() {
+        if (!persistente) {
+            return;
+        }
+        Integer removidas = transacao.execute(status -> respostaTriagemIARepository.removerVencidas(LocalDateTime.now()));
+        if (removidas != null && removidas > 0) {
+            log.info("{} resposta(s) vencida(s) da triagem por IA removida(s)", removidas);
+        }
+    }
+
+    /**
+     * Esvazia a camada em memória; as respostas no banco continuam valendo.
+     */
+    public void descartarMemoria() {
+        cache.invalidateAll();
+    }
+
+    public double getTaxaAcerto() {
+        double acertos = respondidasMemoria.count() + respondidasBanco.count() + compartilhadas.count();
+        double total = acertos + consultadas.count();
+        return total == 0 ? 0 : acertos / total;
+    }
+
+    private TriagemResponse repetir(RespostaGuardada guardada, Counter origem) {
+        origem.increment();
+        latenciaEconomizada.increment(guardada.duracaoMs());
+        return ler(guardada);
+    }
+
+    private RespostaGuardada buscarNoBanco(String formaCanonica) {
+        if (!persistente) {
+            return null;
+        }
+        try {
+            return respostaTriagemIARepository.findValida(hash(formaCanonica), LocalDateTime.now())
+                    .map(resposta -> new RespostaGuardada(resposta.getResposta(), resposta.getDuracaoMs(), resposta.getExpiraEm()))
+                    .orElse(null);
+        } catch (DataAccessException e) {
+            log.warn("Falha ao buscar resposta guardada da triagem por IA: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void guardarNoBanco(String formaCanonica, RespostaGuardada guardada) {
+        if (!persistente) {
+            return;
+        }
+        String chave = hash(formaCanonica);
+        try {
+            transacao.executeWithoutResult(status -> {
+                LocalDateTime agora = LocalDateTime.now();
+                respostaTriagemIARepository.removerVencida(chave, agora);
+                jdbcTemplate.update(SQL_GUARDAR, chave, formaCanonica, guardada.resposta(), guardada.duracaoMs(),
+                        Timestamp.valueOf(guardada.expiraEm()), Timestamp.valueOf(agora));
+            });
+        } catch (DataAccessException e) {
+            // a resposta continua valendo nesta instância
+            log.warn("Falha ao guardar resposta da triagem por IA: {}", e.getMessage());
+        }
+    }
+
+    private TriagemResponse ler(RespostaGuardada guardada) {
+        try {
+            return objectMapper.readValue(guardada.resposta(), TriagemResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Resposta guardada da triagem por IA é inválida", e);
+        }
+    }
+
+    private String escrever(TriagemResponse resposta) {
+        try {
+            return objectMapper.writeValueAsString(resposta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar a resposta da triagem por IA", e);
+        }
+    }
+
+    private static String hash(String formaCanonica) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(formaCanonica.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("susagenda.triagem.ia.requisicoes")
+                .description("Triagens por IA por origem da resposta")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Entradas em memória vencem junto com a resposta no banco, inclusive as lidas de lá.
+     */
+    private static final class ExpiraComAResposta implements Expiry<String, RespostaGuardada> {
+
+        @Override
+        public long expireAfterCreate(String chave, RespostaGuardada resposta, long agora) {
+            return Math.max(Duration.between(LocalDateTime.now(), resposta.expiraEm()).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String chave, RespostaGuardada resposta, long agora, long duracaoAtual) {
+            return expireAfterCreate(chave, resposta, agora);
+        }
+
+        @Override
+        public long expireAfterRead(String chave, RespostaGuardada resposta, long agora, long duracaoAtual) {
+            return duracaoAtual;
+        }
+    }
+
+    private record RespostaGuardada(String resposta, long duracaoMs, LocalDateTime expiraEm) {
+    }
+}
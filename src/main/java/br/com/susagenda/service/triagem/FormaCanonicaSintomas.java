@@ -0,0 +1,77 @@
+package br.com.susagenda.service.triagem;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Forma canônica de um relato de sintomas, para reconhecer relatos que dizem a mesma coisa com
+ * outras palavras de ligação, outra ordem ou outra acentuação: "Doutor, estou com dor de cabeça e
+ * febre" e "febre, dor na cabeca" ficam iguais ({@code "cabeca dor febre"}).
+ *
+ * <p>O texto é normalizado por {@link NormalizacaoTexto}, quebrado em palavras (letras e dígitos),
+ * sem as palavras vazias do português, e as palavras restantes ficam sem repetição e em ordem
+ * alfabética. Negações ("não", "sem", "nunca") e intensidades ("muito", "pouco") mudam o sentido
+ * da palavra seguinte e são presas a ela antes da ordenação: "febre sem tosse" fica
+ * {@code "febre sem_tosse"} e "tosse sem febre" fica {@code "sem_febre tosse"}.</p>
+ */
+public final class FormaCanonicaSintomas {
+
+    private static final Set<String> PALAVRAS_VAZIAS = Set.of(
+            "a", "o", "as", "os", "um", "uma", "uns", "umas",
+            "de", "do", "da", "dos", "das", "em", "no", "na", "nos", "nas", "num", "numa",
+            "ao", "aos", "pelo", "pela", "pelos", "pelas", "por", "para", "pra", "com",
+            "e", "ou", "mas", "que", "se", "quando", "como", "porque",
+            "eu", "me", "mim", "meu", "minha", "meus", "minhas", "ele", "ela", "lhe",
+            "estou", "esta", "estava", "tenho", "tem", "tive", "ando", "sinto", "sentindo", "senti",
+            "ja", "ha", "tambem",
+            "ola", "doutor", "doutora"
+    );
+
+    /** Negações e intensidades, que valem para a palavra seguinte e ficam presas a ela. */
+    private static final Set<String> MODIFICADORES = Set.of(
+            "nao", "sem", "nunca", "nem", "muito", "muita", "pouco", "pouca", "mais", "menos"
+    );
+
+    private FormaCanonicaSintomas() {
+    }
+
+    public static String de(String sintomas) {
+        String normalizado = NormalizacaoTexto.normalizar(sintomas);
+        Set<String> palavras = new TreeSet<>();
+        StringBuilder modificadores = new StringBuilder();
+        int inicio = -1;
+        int fimAnterior = 0;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean letra = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (letra && inicio < 0) {
+                inicio = i;
+                // pontuação entre o modificador e a palavra seguinte encerra o alcance dele
+                if (!normalizado.substring(fimAnterior, i).isBlank()) {
+                    soltarModificadores(modificadores, palavras);
+                }
+            } else if (!letra && inicio >= 0) {
+                String palavra = normalizado.substring(inicio, i);
+                if (MODIFICADORES.contains(palavra)) {
+                    modificadores.append(palavra).append('_');
+                } else if (!PALAVRAS_VAZIAS.contains(palavra)) {
+                    palavras.add(modificadores + palavra);
+                    modificadores.setLength(0);
+                }
+                inicio = -1;
+                fimAnterior = i;
+            }
+        }
+        soltarModificadores(modificadores, palavras);
+        return String.join(" ", palavras);
+    }
+
+    /**
+     * Modificadores sem palavra seguinte ficam como uma palavra própria.
+     */
+    private static void soltarModificadores(StringBuilder modificadores, Set<String> palavras) {
+        if (!modificadores.isEmpty()) {
+            palavras.add(modificadores.substring(0, modificadores.length() - 1));
+            modificadores.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package br.com.susagenda.service.triagem;
+
+import java.text.Normalizer;
+
+/**
+ * Forma canônica dos textos de sintomas: minúsculas, sem acentos ("Coração" e "coracao" ficam
+ * iguais) e com qualquer sequência de espaços reduzida a um espaço.
+ *
+ * <p>A remoção de acentos de cada caractere latino é pré-calculada em uma tabela, para que o texto
+ * possa ser normalizado caractere a caractere durante a varredura, sem criar outra string. Textos
+ * decompostos (NFD, como os enviados por alguns celulares e pelo macOS) trazem o acento como uma
+ * marca separada depois da letra; essas marcas são {@link #ignorar ignoradas}.</p>
+ */
+public final class NormalizacaoTexto {
+
+    private static final int LIMITE_TABELA = 0x250;
+    private static final char[] DOBRADOS = new char[LIMITE_TABELA];
+
+    static {
+        for (char c = 0; c < LIMITE_TABELA; c++) {
+            String semAcento = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "");
+            char base = semAcento.length() == 1 ? semAcento.charAt(0) : c;
+            DOBRADOS[c] = Character.isWhitespace(base) || Character.isSpaceChar(base) ? ' ' : Character.toLowerCase(base);
+        }
+    }
+
+    private NormalizacaoTexto() {
+    }
+
+    /**
+     * Caractere em minúscula e sem acento; espaços de qualquer tipo viram {@code ' '}.
+     */
+    public static char dobrar(char c) {
+        if (c < LIMITE_TABELA) {
+            return DOBRADOS[c];
+        }
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) ? ' ' : Character.toLowerCase(c);
+    }
+
+    /**
+     * Marcas combinantes (acentos de texto decomposto), que não fazem parte da forma normalizada.
+     */
+    public static boolean ignorar(char c) {
+        return c >= 0x300 && Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+
+    public static String normalizar(String texto) {
+        StringBuilder normalizado = new StringBuilder(texto.length());
+        char anterior = ' ';
+        for (int i = 0; i < texto.length(); i++) {
+            if (ignorar(texto.charAt(i))) {
+                continue;
+            }
+            char c = dobrar(texto.charAt(i));
+            if (c != ' ' || anterior != ' ') {
+                normalizado.append(c);
+            }
+            anterior = c;
+        }
+        int fim = normalizado.length();
+        if (fim > 0 && normalizado.charAt(fim - 1) == ' ') {
+            normalizado.setLength(fim - 1);
+        }
+        return normalizado.toString();
+    }
+}
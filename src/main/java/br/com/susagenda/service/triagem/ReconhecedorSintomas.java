@@ -0,0 +1,172 @@
+package br.com.susagenda.service.triagem;
+
+import java.util.*;
+
+/**
+ * Reconhece de uma vez, em uma única passada pelo texto, todas as palavras-chave das regras de
+ * triagem (autômato de Aho-Corasick) e conta quantas palavras distintas de cada especialidade
+ * aparecem.
+ *
+ * <p>Palavras-chave e texto são comparados na forma de {@link NormalizacaoTexto}: o texto é
+ * normalizado caractere a caractere durante a varredura. As transições ficam em uma tabela
+ * completa (estado × caractere do alfabeto das palavras), então cada caractere custa uma leitura
+ * de vetor, qualquer que seja o número de regras. Uma palavra pode pertencer a mais de uma
+ * especialidade. A instância é imutável e pode ser compartilhada entre threads.</p>
+ */
+public final class ReconhecedorSintomas {
+
+    private final List<String> especialidades;
+    private final int palavras;
+    private final int larguraAlfabeto;
+    private final int[] colunaAscii;
+    private final Map<Character, Integer> colunaOutros;
+    private final int[] transicoes;
+    private final int[][] saidas;
+    private final int[][] especialidadesDaPalavra;
+
+    private ReconhecedorSintomas(List<String> especialidades, int palavras, int larguraAlfabeto, int[] colunaAscii,
+                                 Map<Character, Integer> colunaOutros, int[] transicoes, int[][] saidas,
+                                 int[][] especialidadesDaPalavra) {
+        this.especialidades = especialidades;
+        this.palavras = palavras;
+        this.larguraAlfabeto = larguraAlfabeto;
+        this.colunaAscii = colunaAscii;
+        this.colunaOutros = colunaOutros;
+        this.transicoes = transicoes;
+        this.saidas = saidas;
+        this.especialidadesDaPalavra = especialidadesDaPalavra;
+    }
+
+    private static final class No {
+        private final Map<Character, No> filhos = new TreeMap<>();
+        private final List<Integer> palavras = new ArrayList<>();
+        private No falha;
+        private int id;
+    }
+
+    /**
+     * @param palavrasPorEspecialidade palavras-chave de cada especialidade, na ordem de desempate
+     */
+    public static ReconhecedorSintomas compilar(Map<String, ? extends Collection<String>> palavrasPorEspecialidade) {
+        List<String> especialidades = List.copyOf(palavrasPorEspecialidade.keySet());
+        Map<String, Integer> idPalavra = new LinkedHashMap<>();
+        List<Set<Integer>> especialidadesPorPalavra = new ArrayList<>();
+        for (int e = 0; e < especialidades.size(); e++) {
+            for (String palavra : palavrasPorEspecialidade.get(especialidades.get(e))) {
+                String normalizada = NormalizacaoTexto.normalizar(palavra);
+                if (normalizada.isEmpty()) {
+                    continue;
+                }
+                int id = idPalavra.computeIfAbsent(normalizada, p -> {
+                    especialidadesPorPalavra.add(new TreeSet<>());
+                    return especialidadesPorPalavra.size() - 1;
+                });
+                especialidadesPorPalavra.get(id).add(e);
+            }
+        }
+
+        No raiz = new No();
+        SortedSet<Character> alfabeto = new TreeSet<>();
+        for (Map.Entry<String, Integer> palavra : idPalavra.entrySet()) {
+            No no = raiz;
+            for (char c : palavra.getKey().toCharArray()) {
+                alfabeto.add(c);
+                no = no.filhos.computeIfAbsent(c, k -> new No());
+            }
+            no.palavras.add(palavra.getValue());
+        }
+
+        // coluna 0: caracteres fora do alfabeto das palavras, que sempre voltam à raiz
+        int[] colunaAscii = new int[128];
+        Map<Character, Integer> colunaOutros = new HashMap<>();
+        int largura = 1;
+        for (char c : alfabeto) {
+            if (c < 128) {
+                colunaAscii[c] = largura++;
+            } else {
+                colunaOutros.put(c, largura++);
+            }
+        }
+
+        // estados em ordem de largura: a falha de cada estado é numerada antes dele
+        List<No> estados = new ArrayList<>();
+        Deque<No> fila = new ArrayDeque<>();
+        raiz.id = 0;
+        raiz.falha = raiz;
+        estados.add(raiz);
+        fila.add(raiz);
+        while (!fila.isEmpty()) {
+            No no = fila.poll();
+            for (Map.Entry<Character, No> filho : no.filhos.entrySet()) {
+                No proximo = filho.getValue();
+                proximo.id = estados.size();
+                estados.add(proximo);
+                fila.add(proximo);
+            }
+        }
+
+        int[] transicoes = new int[estados.size() * largura];
+        int[][] saidas = new int[estados.size()][];
+        for (No no : estados) {
+            for (char c : alfabeto) {
+                int coluna = c < 128 ? colunaAscii[c] : colunaOutros.get(c);
+                No filho = no.filhos.get(c);
+                if (filho != null) {
+                    filho.falha = no == raiz ? raiz : estados.get(transicoes[no.falha.id * largura + coluna]);
+                    transicoes[no.id * largura + coluna] = filho.id;
+                } else {
+                    transicoes[no.id * largura + coluna] = no == raiz ? 0 : transicoes[no.falha.id * largura + coluna];
+                }
+            }
+            int[] proprias = no.palavras.stream().mapToInt(Integer::intValue).toArray();
+            int[] herdadas = no == raiz ? new int[0] : saidas[no.falha.id];
+            int[] todas = Arrays.copyOf(proprias, proprias.length + herdadas.length);
+            System.arraycopy(herdadas, 0, todas, proprias.length, herdadas.length);
+            saidas[no.id] = todas;
+        }
+
+        int[][] especialidadesDaPalavra = especialidadesPorPalavra.stream()
+                .map(e -> e.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        return new ReconhecedorSintomas(especialidades, idPalavra.size(), largura, colunaAscii,
+                Map.copyOf(colunaOutros), transicoes, saidas, especialidadesDaPalavra);
+    }
+
+    /**
+     * Especialidades das regras, na ordem usada por {@link #contar(String)}.
+     */
+    public List<String> especialidades() {
+        return especialidades;
+    }
+
+    /**
+     * @return quantidade de palavras-chave distintas de cada especialidade presentes no texto
+     */
+    public int[] contar(String texto) {
+        int[] contagens = new int[especialidades.size()];
+        boolean[] encontradas = new boolean[palavras];
+        int estado = 0;
+        char anterior = ' ';
+        for (int i = 0; i < texto.length(); i++) {
+            if (NormalizacaoTexto.ignorar(texto.charAt(i))) {
+                continue;
+            }
+            char c = NormalizacaoTexto.dobrar(texto.charAt(i));
+            if (c == ' ' && anterior == ' ') {
+                continue;
+            }
+            anterior = c;
+            int coluna = c < 128 ? colunaAscii[c] : colunaOutros.getOrDefault(c, 0);
+            estado = transicoes[estado * larguraAlfabeto + coluna];
+            for (int palavra : saidas[estado]) {
+                if (!encontradas[palavra]) {
+                    encontradas[palavra] = true;
+                    for (int especialidade : especialidadesDaPalavra[palavra]) {
+                        contagens[especialidade]++;
+                    }
+                }
+            }
+        }
+        return contagens;
+    }
+}
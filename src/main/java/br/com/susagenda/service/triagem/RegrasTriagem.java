@@ -0,0 +1,72 @@
+package br.com.susagenda.service.triagem;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Palavras-chave de sintomas de cada especialidade usadas pela triagem por regras, na ordem de
+ * desempate entre especialidades com a mesma pontuação. São publicadas como a primeira versão da
+ * {@link BaseRegrasTriagem} quando ela está vazia.
+ */
+public final class RegrasTriagem {
+
+    public static final Map<String, List<String>> PADRAO;
+
+    static {
+        Map<String, List<String>> regras = new LinkedHashMap<>();
+        regras.put("CARDIOLOGIA", List.of(
+                "dor no peito", "palpitação", "arritmia", "pressão alta", "hipertensão",
+                "coração", "infarto", "angina", "falta de ar", "dispneia"
+        ));
+        regras.put("DERMATOLOGIA", List.of(
+                "pele", "manchas", "coceira", "alergia", "acne", "espinha",
+                "verruga", "micose", "psoríase", "eczema", "dermatite"
+        ));
+        regras.put("ORTOPEDIA", List.of(
+                "dor nas costas", "lombar", "joelho", "ombro", "coluna",
+                "fratura", "entorse", "articulação", "osso", "artrite"
+        ));
+        regras.put("PEDIATRIA", List.of(
+                "criança", "bebê", "filho", "filha", "recém-nascido",
+                "vacinação", "crescimento", "desenvolvimento infantil"
+        ));
+        regras.put("GINECOLOGIA", List.of(
+                "menstruação", "cólica menstrual", "gravidez", "gestação",
+                "útero", "ovário", "preventivo", "mama", "menopausa"
+        ));
+        regras.put("OFTALMOLOGIA", List.of(
+                "olho", "visão", "vista", "enxergar", "cegueira",
+                "conjuntivite", "terçol", "catarata", "glaucoma"
+        ));
+        regras.put("OTORRINOLARINGOLOGIA", List.of(
+                "ouvido", "nariz", "garganta", "sinusite", "rinite",
+                "amigdalite", "surdez", "zumbido", "vertigem", "tontura"
+        ));
+        regras.put("PNEUMOLOGIA", List.of(
+                "pulmão", "tosse", "asma", "bronquite", "falta de ar",
+                "pneumonia", "tuberculose", "respiração", "chiado no peito"
+        ));
+        regras.put("GASTROENTEROLOGIA", List.of(
+                "estômago", "intestino", "diarreia", "prisão de ventre",
+                "azia", "refluxo", "gastrite", "úlcera", "fígado", "vesícula"
+        ));
+        regras.put("NEUROLOGIA", List.of(
+                "cabeça", "enxaqueca", "cefaleia", "tontura", "vertigem",
+                "convulsão", "epilepsia", "parkinson", "alzheimer", "formigamento"
+        ));
+        regras.put("PSIQUIATRIA", List.of(
+                "ansiedade", "depressão", "insônia", "pânico", "estresse",
+                "tristeza", "medo", "angústia", "pensamentos suicidas"
+        ));
+        regras.put("ENDOCRINOLOGIA", List.of(
+                "diabetes", "tireoide", "obesidade", "hormônio", "metabolismo",
+                "glicose", "colesterol", "triglicerídeos"
+        ));
+        PADRAO = Collections.unmodifiableMap(regras);
+    }
+
+    private RegrasTriagem() {
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.susagenda.service.triagem;
+
+/**
+ * Versão da base de regras em uso e o reconhecedor compilado a partir dela, trocados juntos.
+ *
+ * @param versao versão ativa, ou 0 para as {@link RegrasTriagem#PADRAO} antes da primeira carga
+ */
+public record RegrasTriagemAtivas(int versao, ReconhecedorSintomas reconhecedor) {
+}
@@ -0,0 +1,38 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V10: Planos de alocação da lista de espera, revisados antes de virarem agendamentos
+
+CREATE TABLE planos_alocacao (
+    id BIGSERIAL PRIMARY KEY,
+    especialidade VARCHAR(50) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    data_inicio DATE NOT NULL,
+    data_fim DATE NOT NULL,
+    candidatos INTEGER NOT NULL,
+    vagas INTEGER NOT NULL,
+    itens INTEGER NOT NULL,
+    duracao_ms BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
+CREATE TABLE itens_plano_alocacao (
+    id BIGSERIAL PRIMARY KEY,
+    plano_id BIGINT NOT NULL,
+    lista_espera_id BIGINT NOT NULL,
+    paciente_id BIGINT NOT NULL,
+    prioridade VARCHAR(20) NOT NULL,
+    dias_espera INTEGER NOT NULL,
+    profissional_id BIGINT NOT NULL,
+    unidade_saude_id BIGINT NOT NULL,
+    data_agendamento DATE NOT NULL,
+    hora_agendamento TIME NOT NULL,
+    unidade_preferida BOOLEAN,
+    status VARCHAR(20) NOT NULL,
+    agendamento_id BIGINT,
+    motivo_recusa VARCHAR(255),
+    CONSTRAINT fk_item_plano_alocacao FOREIGN KEY (plano_id) REFERENCES planos_alocacao(id) ON DELETE CASCADE
+);
+
+-- Aplicação em lotes (próximos itens pendentes na ordem da fila), contagens e listagem por plano
+CREATE INDEX idx_itens_plano_alocacao_plano_status ON itens_plano_alocacao(plano_id, status, id);
+CREATE INDEX idx_planos_alocacao_especialidade_status ON planos_alocacao(especialidade, status);
@@ -0,0 +1,24 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V11: Pontuação numérica da prioridade na lista de espera, para a fila sair do índice já na
+-- ordem de atendimento (a coluna prioridade é texto e ordená-la segue a ordem alfabética)
+
+ALTER TABLE lista_espera ADD COLUMN pontuacao_prioridade BIGINT NOT NULL DEFAULT 0;
+
+UPDATE lista_espera SET pontuacao_prioridade = CASE prioridade
+    WHEN 'URGENTE' THEN 3
+    WHEN 'GESTANTE' THEN 2
+    WHEN 'DEFICIENTE' THEN 2
+    WHEN 'IDOSO' THEN 1
+    WHEN 'CRIANCA' THEN 1
+    ELSE 0
+END;
+
+ALTER TABLE lista_espera ALTER COLUMN pontuacao_prioridade DROP DEFAULT;
+
+-- Fila aguardando por especialidade e por unidade preferida, na ordem de atendimento
+CREATE INDEX idx_lista_espera_fila ON lista_espera(especialidade, pontuacao_prioridade DESC, data_solicitacao, id)
+    WHERE atendido = false;
+CREATE INDEX idx_lista_espera_fila_unidade ON lista_espera(unidade_saude_id, pontuacao_prioridade DESC, data_solicitacao, id)
+    WHERE atendido = false;
+
+DROP INDEX idx_lista_espera_prioridade;
@@ -0,0 +1,6 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V12: Pontuação da lista de espera com envelhecimento (peso x 30 dias em segundos menos o
+-- instante da solicitação); outro valor de dias-por-nivel é aplicado pela aplicação na inicialização
+
+UPDATE lista_espera
+SET pontuacao_prioridade = pontuacao_prioridade * 2592000 - FLOOR(EXTRACT(EPOCH FROM data_solicitacao))::BIGINT;
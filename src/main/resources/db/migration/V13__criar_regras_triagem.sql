@@ -0,0 +1,25 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V13: Base versionada de regras da triagem (palavras-chave de sintomas por especialidade)
+
+CREATE TABLE versoes_regras_triagem (
+    id BIGSERIAL PRIMARY KEY,
+    versao INTEGER NOT NULL UNIQUE,
+    descricao VARCHAR(255),
+    ativa BOOLEAN NOT NULL DEFAULT FALSE,
+    palavras INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    ativada_em TIMESTAMP
+);
+
+CREATE TABLE palavras_regras_triagem (
+    id BIGSERIAL PRIMARY KEY,
+    versao_id BIGINT NOT NULL,
+    especialidade VARCHAR(50) NOT NULL,
+    palavra VARCHAR(100) NOT NULL,
+    ordem INTEGER NOT NULL,
+    CONSTRAINT fk_palavra_regra_triagem_versao FOREIGN KEY (versao_id) REFERENCES versoes_regras_triagem(id) ON DELETE CASCADE
+);
+
+-- No máximo uma versão ativa; ativações concorrentes falham em vez de deixar duas ativas
+CREATE UNIQUE INDEX uk_versoes_regras_triagem_ativa ON versoes_regras_triagem(ativa) WHERE ativa = true;
+CREATE INDEX idx_palavras_regras_triagem_versao ON palavras_regras_triagem(versao_id, ordem);
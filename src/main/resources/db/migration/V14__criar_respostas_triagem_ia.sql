@@ -0,0 +1,14 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V14: Respostas da triagem por IA guardadas pela forma canônica dos sintomas
+
+CREATE TABLE respostas_triagem_ia (
+    chave VARCHAR(64) PRIMARY KEY,
+    forma_canonica TEXT NOT NULL,
+    resposta TEXT NOT NULL,
+    duracao_ms BIGINT NOT NULL,
+    expira_em TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Limpeza periódica das respostas vencidas
+CREATE INDEX idx_respostas_triagem_ia_expira_em ON respostas_triagem_ia(expira_em);
@@ -0,0 +1,18 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V3: Inventário materializado de vagas (uma linha por profissional/data/hora)
+
+CREATE TABLE vagas (
+    id BIGSERIAL PRIMARY KEY,
+    profissional_id BIGINT NOT NULL,
+    data DATE NOT NULL,
+    hora TIME NOT NULL,
+    capacidade INTEGER NOT NULL,
+    restantes INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP,
+    CONSTRAINT fk_vaga_profissional FOREIGN KEY (profissional_id) REFERENCES profissionais(id),
+    CONSTRAINT uk_vaga_profissional_data_hora UNIQUE (profissional_id, data, hora)
+);
+
+-- A restrição única já atende as buscas por (profissional, período); este índice atende a limpeza diária
+CREATE INDEX idx_vagas_data ON vagas(data);
@@ -0,0 +1,7 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V4: Garantia no banco de que um horário nunca fica com mais agendamentos que a capacidade
+
+UPDATE vagas SET restantes = capacidade WHERE restantes > capacidade;
+UPDATE vagas SET restantes = 0 WHERE restantes < 0;
+
+ALTER TABLE vagas ADD CONSTRAINT ck_vagas_restantes CHECK (restantes >= 0 AND restantes <= capacidade);
@@ -0,0 +1,19 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V5: Reservas temporárias de vagas (uma por paciente) durante o preenchimento do agendamento
+
+CREATE TABLE reservas_vaga (
+    id BIGSERIAL PRIMARY KEY,
+    paciente_id BIGINT NOT NULL,
+    profissional_id BIGINT NOT NULL,
+    data DATE NOT NULL,
+    hora TIME NOT NULL,
+    expira_em TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_reserva_paciente FOREIGN KEY (paciente_id) REFERENCES pacientes(id),
+    CONSTRAINT fk_reserva_profissional FOREIGN KEY (profissional_id) REFERENCES profissionais(id),
+    CONSTRAINT uk_reserva_paciente UNIQUE (paciente_id)
+);
+
+-- Ocupação por horário (reconstrução do inventário e do calendário) e recuperação de reservas vencidas
+CREATE INDEX idx_reservas_vaga_profissional_data ON reservas_vaga(profissional_id, data, hora);
+CREATE INDEX idx_reservas_vaga_expira_em ON reservas_vaga(expira_em);
@@ -0,0 +1,14 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V6: Respostas guardadas por Idempotency-Key, compartilhadas entre as instâncias
+
+CREATE TABLE chaves_idempotencia (
+    chave VARCHAR(150) PRIMARY KEY,
+    hash_requisicao VARCHAR(64) NOT NULL,
+    status_http INTEGER,
+    resposta TEXT,
+    expira_em TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Limpeza periódica das chaves vencidas
+CREATE INDEX idx_chaves_idempotencia_expira_em ON chaves_idempotencia(expira_em);
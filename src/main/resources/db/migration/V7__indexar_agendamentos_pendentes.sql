@@ -0,0 +1,5 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V7: Agendamentos ainda sem desfecho, em ordem de horário, para a varredura de não comparecimentos
+
+CREATE INDEX idx_agendamentos_pendentes_horario ON agendamentos(data_agendamento, hora_agendamento, id)
+    WHERE status IN ('AGENDADO', 'CONFIRMADO') AND data_chegada IS NULL;
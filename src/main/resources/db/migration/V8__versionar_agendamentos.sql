@@ -0,0 +1,4 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V8: Versão dos agendamentos para o controle otimista de concorrência nas mudanças de status
+
+ALTER TABLE agendamentos ADD COLUMN versao BIGINT NOT NULL DEFAULT 0;
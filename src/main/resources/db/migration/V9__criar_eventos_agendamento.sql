@@ -0,0 +1,16 @@
+-- SUS Agenda - Sistema de Agendamento de Consultas
+-- Migration V9: Eventos de agendamento gravados na mesma transação da mudança, até serem publicados
+
+CREATE TABLE eventos_agendamento (
+    id BIGSERIAL PRIMARY KEY,
+    agendamento_id BIGINT NOT NULL,
+    tipo VARCHAR(30) NOT NULL,
+    status VARCHAR(30) NOT NULL,
+    versao BIGINT NOT NULL,
+    paciente_id BIGINT NOT NULL,
+    profissional_id BIGINT NOT NULL,
+    unidade_saude_id BIGINT NOT NULL,
+    data_agendamento DATE NOT NULL,
+    hora_agendamento TIME NOT NULL,
+    ocorrido_em TIMESTAMP NOT NULL
+);
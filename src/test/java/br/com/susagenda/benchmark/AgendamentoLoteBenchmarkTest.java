@@ -0,0 +1,163 @@
+package br.com.susagenda.benchmark;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.response.AgendamentoLoteResponse;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.service.AgendamentoLoteService;
+import br.com.susagenda.service.AgendamentoService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara a vazão de {@value #AGENDAMENTOS} agendamentos feitos um a um pelo
+ * {@link AgendamentoService#criar} com o mesmo volume enviado em um único lote pelo
+ * {@link AgendamentoLoteService}: 20 profissionais, 8 horários por dia e 10 vagas por horário.
+ *
+ * <p>Executar com {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.br.com.susagenda=WARN"
+})
+@ActiveProfiles("test")
+class AgendamentoLoteBenchmarkTest {
+
+    private static final int PROFISSIONAIS = 20;
+    private static final int VAGAS_POR_HORARIO = 10;
+    private static final int AGENDAMENTOS = 1500;
+    private static final List<LocalTime> HORARIOS = List.of(
+            LocalTime.of(8, 0), LocalTime.of(8, 30), LocalTime.of(9, 0), LocalTime.of(9, 30),
+            LocalTime.of(10, 0), LocalTime.of(10, 30), LocalTime.of(11, 0), LocalTime.of(11, 30));
+
+    @Autowired
+    private AgendamentoService agendamentoService;
+
+    @Autowired
+    private AgendamentoLoteService agendamentoLoteService;
+
+    @Autowired
+    private UnidadeSaudeRepository unidadeSaudeRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private ProfissionalRepository profissionalRepository;
+
+    @Autowired
+    private HorarioDisponivelRepository horarioDisponivelRepository;
+
+    @Test
+    @DisplayName("O lote deve sustentar pelo menos 10x a vazão dos agendamentos individuais")
+    void compararVazao() {
+        LocalDate segunda = LocalDate.now().plusWeeks(4).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        List<Paciente> pacientes = criarPacientes();
+
+        // aquecimento em outra data, fora da medição
+        List<AgendamentoRequest> aquecimento = requisicoes(criarProfissionais(1), pacientes, segunda.plusWeeks(1), 80);
+        aquecimento.subList(0, 40).forEach(agendamentoService::criar);
+        agendamentoLoteService.criarEmLote(aquecimento.subList(40, 80));
+
+        List<AgendamentoRequest> individuais = requisicoes(criarProfissionais(PROFISSIONAIS), pacientes, segunda, AGENDAMENTOS);
+        long inicio = System.nanoTime();
+        individuais.forEach(agendamentoService::criar);
+        long tempoIndividual = System.nanoTime() - inicio;
+
+        List<AgendamentoRequest> lote = requisicoes(criarProfissionais(PROFISSIONAIS), pacientes, segunda, AGENDAMENTOS);
+        inicio = System.nanoTime();
+        AgendamentoLoteResponse response = agendamentoLoteService.criarEmLote(lote);
+        long tempoLote = System.nanoTime() - inicio;
+
+        assertThat(response.getAgendados()).isEqualTo(AGENDAMENTOS);
+        double porSegundoIndividual = AGENDAMENTOS / (tempoIndividual / 1e9);
+        double porSegundoLote = AGENDAMENTOS / (tempoLote / 1e9);
+        System.out.printf("%n%d agendamentos: individual %.0f ms (%.0f/s), lote %.0f ms (%.0f/s), %.1fx%n",
+                AGENDAMENTOS, tempoIndividual / 1e6, porSegundoIndividual, tempoLote / 1e6, porSegundoLote,
+                porSegundoLote / porSegundoIndividual);
+
+        assertThat(porSegundoLote).isGreaterThanOrEqualTo(10 * porSegundoIndividual);
+    }
+
+    private static List<AgendamentoRequest> requisicoes(List<Profissional> profissionais, List<Paciente> pacientes,
+                                                        LocalDate data, int quantidade) {
+        List<AgendamentoRequest> requisicoes = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Profissional profissional = profissionais.get(i % profissionais.size());
+            LocalTime hora = HORARIOS.get((i / profissionais.size()) % HORARIOS.size());
+            requisicoes.add(AgendamentoRequest.builder()
+                    .pacienteId(pacientes.get(i % pacientes.size()).getId())
+                    .profissionalId(profissional.getId())
+                    .dataAgendamento(data)
+                    .horaAgendamento(hora)
+                    .tipoAtendimento(TipoAtendimento.CONSULTA)
+                    .build());
+        }
+        return requisicoes;
+    }
+
+    private List<Profissional> criarProfissionais(int quantidade) {
+        long base = System.nanoTime() % 1_000_000;
+        UnidadeSaude unidade = unidadeSaudeRepository.save(UnidadeSaude.builder()
+                .nome("UBS Mutirão " + base)
+                .cnes(String.format("%07d", base))
+                .endereco("Av. da Campanha, " + base)
+                .cidade("São Paulo")
+                .estado("SP")
+                .ativo(true)
+                .build());
+
+        List<Profissional> profissionais = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            long n = base * 100 + i;
+            Profissional profissional = profissionalRepository.save(Profissional.builder()
+                    .nome("Dr. Mutirão " + n)
+                    .cpf(String.format("%011d", 40000000000L + n))
+                    .registroProfissional("CRM-SP-M" + n)
+                    .especialidade(Especialidade.CLINICO_GERAL)
+                    .unidadeSaude(unidade)
+                    .ativo(true)
+                    .build());
+            horarioDisponivelRepository.save(HorarioDisponivel.builder()
+                    .profissional(profissional)
+                    .diaSemana(DayOfWeek.MONDAY)
+                    .horaInicio(LocalTime.of(8, 0))
+                    .horaFim(LocalTime.of(12, 0))
+                    .duracaoConsultaMinutos(30)
+                    .vagasPorHorario(VAGAS_POR_HORARIO)
+                    .ativo(true)
+                    .build());
+            profissionais.add(profissional);
+        }
+        return profissionais;
+    }
+
+    private List<Paciente> criarPacientes() {
+        List<Paciente> pacientes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            pacientes.add(pacienteRepository.save(Paciente.builder()
+                    .nome("Paciente Mutirão " + i)
+                    .cpf(String.format("%011d", 30000000000L + i))
+                    .cartaoSus(String.format("%015d", 300000000000000L + i))
+                    .dataNascimento(LocalDate.of(1970, 1, 1).plusDays(i))
+                    .build()));
+        }
+        return pacientes;
+    }
+}
@@ -0,0 +1,161 @@
+package br.com.susagenda.benchmark;
+
+import br.com.susagenda.domain.entity.ListaEspera;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.dto.response.ListaEsperaResponse;
+import br.com.susagenda.repository.ListaEsperaRepository;
+import br.com.susagenda.service.ListaEsperaService;
+import br.com.susagenda.service.fila.ChaveFila;
+import br.com.susagenda.service.fila.IndicePosicoesFila;
+import br.com.susagenda.service.fila.PontuacaoFila;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara o cálculo da posição na fila com {@value #PACIENTES} pacientes aguardando: a varredura da
+ * fila inteira que era feita para cada entrada consultada e a consulta ao índice de posições em
+ * memória (depois de carregado).
+ *
+ * <p>Executar com {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.br.com.susagenda=WARN"
+})
+@ActiveProfiles("test")
+class ListaEsperaPosicaoBenchmarkTest {
+
+    private static final Especialidade ESPECIALIDADE = Especialidade.PNEUMOLOGIA;
+    private static final int PACIENTES = 100_000;
+    private static final int CONSULTAS_VARREDURA = 5;
+    private static final int CONSULTAS_INDICE = 2_000;
+    private static final Prioridade[] PRIORIDADES = Prioridade.values();
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+
+    @Autowired
+    private IndicePosicoesFila indicePosicoesFila;
+
+    @Autowired
+    private PontuacaoFila pontuacaoFila;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("O índice deve responder a posição pelo menos 100x mais rápido que a varredura da fila")
+    void compararPosicao() {
+        List<Long> ids = popularFila();
+        Random aleatorio = new Random(7);
+        TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+
+        long inicio = System.nanoTime();
+        indicePosicoesFila.total(ESPECIALIDADE);
+        long tempoCarga = System.nanoTime() - inicio;
+
+        // aquecimento fora da medição
+        for (int i = 0; i < 200; i++) {
+            listaEsperaService.buscarPorIdResponse(ids.get(aleatorio.nextInt(ids.size())));
+        }
+
+        List<Integer> porVarredura = new ArrayList<>();
+        List<Long> consultados = new ArrayList<>();
+        inicio = System.nanoTime();
+        for (int i = 0; i < CONSULTAS_VARREDURA; i++) {
+            Long id = ids.get(aleatorio.nextInt(ids.size()));
+            consultados.add(id);
+            porVarredura.add(leitura.execute(status -> posicaoPorVarredura(id)));
+        }
+        double msPorVarredura = (System.nanoTime() - inicio) / 1e6 / CONSULTAS_VARREDURA;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < CONSULTAS_INDICE; i++) {
+            listaEsperaService.buscarPorIdResponse(ids.get(aleatorio.nextInt(ids.size())));
+        }
+        double msPorIndice = (System.nanoTime() - inicio) / 1e6 / CONSULTAS_INDICE;
+
+        for (int i = 0; i < consultados.size(); i++) {
+            ListaEsperaResponse response = listaEsperaService.buscarPorIdResponse(consultados.get(i));
+            assertThat(response.getPosicaoNaFila()).isEqualTo(porVarredura.get(i));
+            assertThat(response.getTotalNaFila()).isEqualTo(PACIENTES);
+        }
+
+        System.out.printf("%n%d na fila: carga do índice %.0f ms, varredura %.1f ms/consulta, índice %.3f ms/consulta, %.0fx%n",
+                PACIENTES, tempoCarga / 1e6, msPorVarredura, msPorIndice, msPorVarredura / msPorIndice);
+
+        assertThat(msPorVarredura).isGreaterThanOrEqualTo(100 * msPorIndice);
+    }
+
+    /**
+     * Cálculo anterior ao índice: carrega a fila inteira e procura a entrada, na ordem de atendimento.
+     */
+    private int posicaoPorVarredura(Long id) {
+        List<ListaEspera> fila = new ArrayList<>(listaEsperaRepository.findFilaOrdenadaPorPrioridade(ESPECIALIDADE));
+        fila.sort(Comparator.comparing(ChaveFila::de));
+        for (int i = 0; i < fila.size(); i++) {
+            if (fila.get(i).getId().equals(id)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private List<Long> popularFila() {
+        long base = System.nanoTime() % 1_000_000;
+        LocalDateTime agora = LocalDateTime.now();
+        List<Object[]> pacientes = new ArrayList<>(PACIENTES);
+        for (int i = 0; i < PACIENTES; i++) {
+            long n = base * 1_000_000 + i;
+            pacientes.add(new Object[]{"Paciente Fila " + n, String.format("%011d", 96000000000L + n % 1_000_000_000L),
+                    String.format("%015d", 960000000000000L + n), Date.valueOf(LocalDate.of(1980, 1, 1)),
+                    PRIORIDADES[i % PRIORIDADES.length].name(), Timestamp.valueOf(agora)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO pacientes (nome, cpf, cartao_sus, data_nascimento, prioridade, ativo, " +
+                "created_at) VALUES (?, ?, ?, ?, ?, true, ?)", pacientes);
+
+        List<Object[]> entradas = jdbcTemplate.query("SELECT id, prioridade FROM pacientes WHERE cartao_sus >= ? " +
+                        "AND cartao_sus < ? ORDER BY id",
+                (rs, linha) -> {
+                    LocalDateTime dataSolicitacao = agora.minusMinutes(PACIENTES - linha);
+                    return new Object[]{rs.getLong("id"), ESPECIALIDADE.name(), rs.getString("prioridade"),
+                            pontuacaoFila.pontuar(Prioridade.valueOf(rs.getString("prioridade")), dataSolicitacao),
+                            Timestamp.valueOf(dataSolicitacao), Timestamp.valueOf(agora)};
+                },
+                String.format("%015d", 960000000000000L + base * 1_000_000),
+                String.format("%015d", 960000000000000L + base * 1_000_000 + PACIENTES));
+        jdbcTemplate.batchUpdate("INSERT INTO lista_espera (paciente_id, especialidade, prioridade, pontuacao_prioridade, " +
+                "data_solicitacao, atendido, created_at) VALUES (?, ?, ?, ?, ?, false, ?)", entradas);
+        indicePosicoesFila.descartar();
+
+        return jdbcTemplate.queryForList("SELECT id FROM lista_espera WHERE especialidade = ? AND atendido = false",
+                Long.class, ESPECIALIDADE.name());
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.susagenda.benchmark;
+
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.repository.projection.CandidatoAlocacaoProjection;
+import br.com.susagenda.repository.projection.VagaLivreProjection;
+import br.com.susagenda.service.fila.PlanejadorAlocacao;
+import br.com.susagenda.service.fila.PontuacaoFila;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mede o planejamento global da lista de espera de uma especialidade com {@value #PACIENTES}
+ * pacientes aguardando e {@value #HORARIOS} horários livres em {@value #UNIDADES} unidades e
+ * {@value #DIAS} dias: tempo de resolução e memória ocupada além das entradas.
+ *
+ * <p>Executar com {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+class PlanoAlocacaoBenchmarkTest {
+
+    private static final int PACIENTES = 200_000;
+    private static final int HORARIOS = 500_000;
+    private static final int UNIDADES = 100;
+    private static final int DIAS = 90;
+    private static final LocalDate HOJE = LocalDate.of(2024, 3, 4);
+    private static final Prioridade[] PRIORIDADES = Prioridade.values();
+    private static final PontuacaoFila PONTUACAO = new PontuacaoFila(30);
+
+    @Test
+    @DisplayName("Deve planejar 200 mil pacientes em 500 mil horários em poucos minutos")
+    void planejarEmEscala() {
+        Random aleatorio = new Random(3);
+        List<CandidatoAlocacaoProjection> candidatos = new ArrayList<>(PACIENTES);
+        for (int i = 0; i < PACIENTES; i++) {
+            Long preferida = aleatorio.nextInt(4) == 0 ? null : (long) aleatorio.nextInt(UNIDADES);
+            Prioridade prioridade = PRIORIDADES[aleatorio.nextInt(PRIORIDADES.length)];
+            LocalDateTime dataSolicitacao = HOJE.minusDays(aleatorio.nextInt(180)).atTime(8, 0).plusMinutes(aleatorio.nextInt(600));
+            candidatos.add(new CandidatoAlocacaoProjection((long) i, (long) i, prioridade,
+                    PONTUACAO.pontuar(prioridade, dataSolicitacao), dataSolicitacao, preferida));
+        }
+        List<VagaLivreProjection> vagas = new ArrayList<>(HORARIOS);
+        for (int i = 0; i < HORARIOS; i++) {
+            long profissional = i % (UNIDADES * 10);
+            vagas.add(new VagaLivreProjection(profissional, profissional % UNIDADES,
+                    HOJE.plusDays(1 + (i / (UNIDADES * 10)) % DIAS), LocalTime.of(7, 0).plusMinutes(20L * (i / (UNIDADES * 10 * DIAS))),
+                    1));
+        }
+
+        // unidades concentradas: metade da procura prefere as 10 primeiras, que têm 10% das vagas
+        for (int i = 0; i < PACIENTES; i += 2) {
+            CandidatoAlocacaoProjection c = candidatos.get(i);
+            if (c.unidadeSaudePreferidaId() != null) {
+                candidatos.set(i, new CandidatoAlocacaoProjection(c.id(), c.pacienteId(), c.prioridade(),
+                        c.pontuacaoPrioridade(), c.dataSolicitacao(), c.unidadeSaudePreferidaId() % 10));
+            }
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long memoriaAntes = runtime.totalMemory() - runtime.freeMemory();
+        long inicio = System.nanoTime();
+        PlanejadorAlocacao.Plano plano = new PlanejadorAlocacao(14).planejar(candidatos, vagas, HOJE);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        long memoriaDepois = runtime.totalMemory() - runtime.freeMemory();
+
+        long naPreferida = plano.atribuicoes().stream().filter(a -> Boolean.TRUE.equals(a.unidadePreferida())).count();
+        long comPreferencia = plano.atribuicoes().stream().filter(a -> a.unidadePreferida() != null).count();
+        System.out.printf("%n%d pacientes x %d horários: %d atribuições em %.1f s (%d classes, %d grupos, %d arestas, " +
+                        "%d fases), %.0f MB além das entradas, %.1f%% na unidade preferida%n",
+                PACIENTES, HORARIOS, plano.atribuicoes().size(), segundos, plano.classes(), plano.grupos(),
+                plano.arestas(), plano.fases(), (memoriaDepois - memoriaAntes) / 1e6, 100.0 * naPreferida / comPreferencia);
+
+        assertThat(plano.atribuicoes()).hasSize(PACIENTES);
+        assertThat(segundos).isLessThan(300);
+    }
+}
@@ -0,0 +1,138 @@
+package br.com.susagenda.benchmark;
+
+import br.com.susagenda.service.triagem.ReconhecedorSintomas;
+import br.com.susagenda.service.triagem.RegrasTriagem;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara a pontuação das regras de triagem em {@value #TEXTOS} relatos de sintomas: a busca de
+ * cada palavra-chave no texto, feita antes, e a passada única do {@link ReconhecedorSintomas}.
+ *
+ * <p>Executar com {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+class TriagemRegrasBenchmarkTest {
+
+    private static final int TEXTOS = 2_000;
+    private static final int RODADAS = 20;
+
+    private static final String[] ABERTURAS = {
+            "Olá, ", "Bom dia. ", "Doutor, ", "Há três dias ", "Desde a semana passada ", "Meu marido disse que ", ""
+    };
+    private static final String[] FRASES = {
+            "estou sentindo muito cansaço e não consigo dormir direito",
+            "piora quando subo escadas ou faço qualquer esforço",
+            "já tomei dipirona mas não adiantou",
+            "começou depois do almoço e foi aumentando ao longo do dia",
+            "não tenho histórico na família",
+            "tenho 54 anos e sou hipertenso controlado",
+            "às vezes melhora um pouco de manhã",
+            "fui na UPA mas me mandaram procurar o posto",
+            "a dor vai e volta, principalmente à noite",
+            "estou preocupada porque nunca tive isso antes"
+    };
+
+    private static final ReconhecedorSintomas RECONHECEDOR = ReconhecedorSintomas.compilar(RegrasTriagem.PADRAO);
+
+    @Test
+    @DisplayName("O autômato deve pontuar as especialidades pelo menos 3x mais rápido que a busca por palavra")
+    void compararPontuacao() {
+        List<String> textos = gerarTextos();
+
+        for (String texto : textos) {
+            assertThat(RECONHECEDOR.contar(texto)).as(texto).containsExactly(contarPorBusca(texto));
+        }
+
+        // aquecimento fora da medição
+        long ignorado = 0;
+        for (int i = 0; i < 5; i++) {
+            ignorado += rodadaBusca(textos) + rodadaAutomato(textos);
+        }
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < RODADAS; i++) {
+            ignorado += rodadaBusca(textos);
+        }
+        double nsPorBusca = (double) (System.nanoTime() - inicio) / RODADAS / TEXTOS;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < RODADAS; i++) {
+            ignorado += rodadaAutomato(textos);
+        }
+        double nsPorAutomato = (double) (System.nanoTime() - inicio) / RODADAS / TEXTOS;
+
+        System.out.printf("%n%d textos (%d caracteres em média): busca %.0f ns/texto, autômato %.0f ns/texto, %.1fx (%d)%n",
+                TEXTOS, textos.stream().mapToInt(String::length).sum() / TEXTOS, nsPorBusca, nsPorAutomato,
+                nsPorBusca / nsPorAutomato, ignorado);
+
+        assertThat(nsPorBusca).isGreaterThanOrEqualTo(3 * nsPorAutomato);
+    }
+
+    private static long rodadaBusca(List<String> textos) {
+        long total = 0;
+        for (String texto : textos) {
+            total += Arrays.stream(contarPorBusca(texto)).sum();
+        }
+        return total;
+    }
+
+    private static long rodadaAutomato(List<String> textos) {
+        long total = 0;
+        for (String texto : textos) {
+            total += Arrays.stream(RECONHECEDOR.contar(texto)).sum();
+        }
+        return total;
+    }
+
+    /**
+     * Pontuação anterior ao autômato: procura cada palavra-chave no texto em minúsculas.
+     */
+    private static int[] contarPorBusca(String texto) {
+        String sintomas = texto.toLowerCase();
+        int[] contagens = new int[RegrasTriagem.PADRAO.size()];
+        int i = 0;
+        for (Map.Entry<String, List<String>> regra : RegrasTriagem.PADRAO.entrySet()) {
+            for (String palavra : regra.getValue()) {
+                if (sintomas.contains(palavra)) {
+                    contagens[i]++;
+                }
+            }
+            i++;
+        }
+        return contagens;
+    }
+
+    /**
+     * Relatos com acentuação correta, para que as duas formas encontrem as mesmas palavras.
+     */
+    private static List<String> gerarTextos() {
+        List<String> palavras = new ArrayList<>();
+        RegrasTriagem.PADRAO.values().forEach(palavras::addAll);
+        Random aleatorio = new Random(23);
+        List<String> textos = new ArrayList<>(TEXTOS);
+        for (int n = 0; n < TEXTOS; n++) {
+            StringBuilder texto = new StringBuilder(ABERTURAS[aleatorio.nextInt(ABERTURAS.length)]);
+            texto.append("tenho ").append(palavras.get(aleatorio.nextInt(palavras.size())));
+            for (int i = aleatorio.nextInt(6); i >= 0; i--) {
+                texto.append(aleatorio.nextBoolean() ? ", " : ". ");
+                if (aleatorio.nextInt(3) == 0) {
+                    texto.append("também ").append(palavras.get(aleatorio.nextInt(palavras.size())));
+                } else {
+                    texto.append(FRASES[aleatorio.nextInt(FRASES.length)]);
+                }
+            }
+            textos.add(texto.append('.').toString());
+        }
+        return textos;
+    }
+}
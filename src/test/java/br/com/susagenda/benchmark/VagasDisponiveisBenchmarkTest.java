@@ -0,0 +1,328 @@
+package br.com.susagenda.benchmark;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.*;
+import br.com.susagenda.domain.model.CursorVaga;
+import br.com.susagenda.dto.response.PaginaVagasResponse;
+import br.com.susagenda.dto.response.VagaDisponivelResponse;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.service.DisponibilidadeService;
+import br.com.susagenda.service.VagaInventarioService;
+import br.com.susagenda.service.calendario.CalendarioVagas;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara a busca de vagas original (um COUNT por horário) com o cálculo agregado, com a leitura
+ * do inventário materializado e com o calendário em memória do {@link DisponibilidadeService}:
+ * 40 profissionais de cardiologia em uma janela de 30 dias (o cálculo agregado roda em 4 lotes paralelos).
+ *
+ * <p>Cada teste usa um contexto novo para que o calendário em memória só exista quando o teste o
+ * constrói. Executar com {@code mvn test -Pbenchmark}.</p>
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.br.com.susagenda=INFO",
+        "susagenda.disponibilidade.paralelo.profissionais-por-tarefa=10"
+})
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class VagasDisponiveisBenchmarkTest {
+
+    private static final int PROFISSIONAIS = 40;
+    private static final int DIAS = 30;
+    private static final int REPETICOES = 5;
+
+    @Autowired
+    private DisponibilidadeService disponibilidadeService;
+
+    @Autowired
+    private VagaInventarioService vagaInventarioService;
+
+    @Autowired
+    private CalendarioVagas calendarioVagas;
+
+    @Autowired
+    private UnidadeSaudeRepository unidadeSaudeRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private ProfissionalRepository profissionalRepository;
+
+    @Autowired
+    private HorarioDisponivelRepository horarioDisponivelRepository;
+
+    @Autowired
+    private AgendamentoRepository agendamentoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final LocalDate dataInicio = LocalDate.now().plusDays(1);
+    private final LocalDate dataFim = dataInicio.plusDays(DIAS - 1);
+
+    @BeforeEach
+    void setUp() {
+        if (profissionalRepository.count() > 0) {
+            return;
+        }
+
+        UnidadeSaude unidade = unidadeSaudeRepository.save(UnidadeSaude.builder()
+                .nome("Hospital Municipal")
+                .cnes("9999999")
+                .endereco("Rua da Saúde, 1000")
+                .cidade("São Paulo")
+                .estado("SP")
+                .ativo(true)
+                .build());
+
+        Paciente paciente = pacienteRepository.save(Paciente.builder()
+                .nome("Paciente Benchmark")
+                .cpf("11122233344")
+                .cartaoSus("111222333444555")
+                .dataNascimento(LocalDate.of(1980, 1, 1))
+                .build());
+
+        List<HorarioDisponivel> horarios = new ArrayList<>();
+        List<Agendamento> agendamentos = new ArrayList<>();
+
+        for (int i = 0; i < PROFISSIONAIS; i++) {
+            Profissional profissional = profissionalRepository.save(Profissional.builder()
+                    .nome("Dr. Cardiologista " + i)
+                    .cpf(String.format("%011d", 50000000000L + i))
+                    .registroProfissional("CRM-SP-B" + i)
+                    .especialidade(Especialidade.CARDIOLOGIA)
+                    .unidadeSaude(unidade)
+                    .ativo(true)
+                    .build());
+
+            for (DayOfWeek dia : List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY,
+                    DayOfWeek.THURSDAY, DayOfWeek.FRIDAY)) {
+                horarios.add(horario(profissional, dia, LocalTime.of(8, 0), LocalTime.of(12, 0)));
+                horarios.add(horario(profissional, dia, LocalTime.of(14, 0), LocalTime.of(18, 0)));
+            }
+
+            for (LocalDate data = dataInicio; !data.isAfter(dataFim); data = data.plusDays(2)) {
+                agendamentos.add(Agendamento.builder()
+                        .paciente(paciente)
+                        .profissional(profissional)
+                        .unidadeSaude(unidade)
+                        .dataAgendamento(data)
+                        .horaAgendamento(LocalTime.of(9, 0))
+                        .tipoAtendimento(TipoAtendimento.CONSULTA)
+                        .status(StatusAgendamento.AGENDADO)
+                        .build());
+            }
+        }
+
+        horarioDisponivelRepository.saveAll(horarios);
+        agendamentoRepository.saveAll(agendamentos);
+        vagaInventarioService.gerarHorizonte();
+    }
+
+    @Test
+    @DisplayName("Benchmark: busca de vagas por horário x busca agregada")
+    void compararBuscaDeVagas() {
+        Resultado original = medir("original (COUNT por horário)", this::buscarVagasOriginal);
+        Resultado agregado = medir("agregado (horários + ocupação)",
+                () -> disponibilidadeService.calcularVagasDisponiveis(Especialidade.CARDIOLOGIA, dataInicio, dataFim));
+        Resultado inventario = medir("inventário materializado",
+                () -> disponibilidadeService.buscarVagasDisponiveis(Especialidade.CARDIOLOGIA, dataInicio, dataFim));
+
+        calendarioVagas.reconstruir();
+        Resultado calendario = medir("calendário em memória",
+                () -> disponibilidadeService.buscarVagasDisponiveis(Especialidade.CARDIOLOGIA, dataInicio, dataFim));
+
+        System.out.printf("%n%-36s %12s %14s %10s%n", "Implementação", "Consultas", "Latência (ms)", "Vagas");
+        System.out.println(original);
+        System.out.println(agregado);
+        System.out.println(inventario);
+        System.out.println(calendario);
+        System.out.println("Calendário: " + calendarioVagas.relatorio());
+
+        assertThat(agregado.vagas()).isEqualTo(original.vagas());
+        assertThat(inventario.vagas()).isEqualTo(original.vagas());
+        assertThat(calendario.vagas()).isEqualTo(original.vagas());
+        assertThat(agregado.consultas()).isLessThanOrEqualTo(1 + 2 * 4);
+        assertThat(inventario.consultas()).isLessThanOrEqualTo(2);
+        assertThat(calendario.consultas()).isZero();
+    }
+
+    @Test
+    @DisplayName("Benchmark: próximas vagas pelo calendário em memória")
+    void medirProximasVagas() {
+        calendarioVagas.reconstruir();
+        List<VagaDisponivelResponse> esperadas = disponibilidadeService
+                .calcularVagasDisponiveis(Especialidade.CARDIOLOGIA, dataInicio, dataFim).stream()
+                .sorted(Comparator.comparing(VagaDisponivelResponse::getData)
+                        .thenComparing(VagaDisponivelResponse::getHorario)
+                        .thenComparing(VagaDisponivelResponse::getProfissionalId))
+                .limit(10)
+                .toList();
+
+        for (int i = 0; i < 500; i++) {
+            calendarioVagas.buscarVagasApos(Especialidade.CARDIOLOGIA, null, null,
+                    CursorVaga.inicioDe(dataInicio), dataFim, 10);
+        }
+
+        long[] latenciasNanos = new long[2_000];
+        List<VagaDisponivelResponse> vagas = List.of();
+        for (int i = 0; i < latenciasNanos.length; i++) {
+            long inicio = System.nanoTime();
+            vagas = calendarioVagas.buscarVagasApos(Especialidade.CARDIOLOGIA, null, null,
+                    CursorVaga.inicioDe(dataInicio), dataFim, 10).orElseThrow();
+            latenciasNanos[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(latenciasNanos);
+
+        System.out.printf("%nPróximas 10 vagas (%d profissionais): p50 %.3f ms, p99 %.3f ms%n", PROFISSIONAIS,
+                latenciasNanos[latenciasNanos.length / 2] / 1_000_000.0,
+                latenciasNanos[latenciasNanos.length * 99 / 100] / 1_000_000.0);
+
+        assertThat(vagas).isEqualTo(esperadas);
+    }
+
+    @Test
+    @DisplayName("Benchmark: paginação por cursor pelo inventário e pelo calendário")
+    void compararPaginacaoPorCursor() {
+        List<VagaDisponivelResponse> esperadas = disponibilidadeService
+                .calcularVagasDisponiveis(Especialidade.CARDIOLOGIA, dataInicio, dataFim).stream()
+                .sorted(Comparator.comparing(VagaDisponivelResponse::getData)
+                        .thenComparing(VagaDisponivelResponse::getHorario)
+                        .thenComparing(VagaDisponivelResponse::getProfissionalId))
+                .toList();
+
+        long inicio = System.nanoTime();
+        List<VagaDisponivelResponse> peloInventario = paginarTudo();
+        double inventarioMs = (System.nanoTime() - inicio) / 1_000_000.0;
+
+        calendarioVagas.reconstruir();
+        inicio = System.nanoTime();
+        List<VagaDisponivelResponse> peloCalendario = paginarTudo();
+        double calendarioMs = (System.nanoTime() - inicio) / 1_000_000.0;
+
+        System.out.printf("%nPaginação de %d vagas em páginas de 500: inventário %.1f ms, calendário %.1f ms%n",
+                esperadas.size(), inventarioMs, calendarioMs);
+
+        assertThat(peloInventario).isEqualTo(esperadas);
+        assertThat(peloCalendario).isEqualTo(esperadas);
+    }
+
+    private List<VagaDisponivelResponse> paginarTudo() {
+        List<VagaDisponivelResponse> vagas = new ArrayList<>();
+        CursorVaga cursor = null;
+        PaginaVagasResponse pagina;
+        do {
+            pagina = disponibilidadeService.buscarPaginaVagas(Especialidade.CARDIOLOGIA, dataInicio, dataFim, cursor, 500);
+            vagas.addAll(pagina.getVagas());
+            cursor = pagina.getTemMais() ? CursorVaga.decodificar(pagina.getProximoCursor()) : null;
+        } while (cursor != null);
+        return vagas;
+    }
+
+    private Resultado medir(String nome, Supplier<List<VagaDisponivelResponse>> busca) {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        transacao.setReadOnly(true);
+
+        List<VagaDisponivelResponse> vagas = transacao.execute(status -> busca.get());
+
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICOES; i++) {
+            transacao.execute(status -> busca.get());
+        }
+        double latenciaMs = (System.nanoTime() - inicio) / 1_000_000.0 / REPETICOES;
+        long consultas = estatisticas.getPrepareStatementCount() / REPETICOES;
+
+        return new Resultado(nome, consultas, latenciaMs, vagas);
+    }
+
+    /**
+     * Reprodução fiel do algoritmo anterior: um COUNT por profissional x dia x horário.
+     */
+    private List<VagaDisponivelResponse> buscarVagasOriginal() {
+        List<VagaDisponivelResponse> vagas = new ArrayList<>();
+
+        for (Profissional profissional : profissionalRepository.findByEspecialidadeAndAtivoTrue(Especialidade.CARDIOLOGIA)) {
+            LocalDate data = dataInicio;
+            while (!data.isAfter(dataFim)) {
+                for (HorarioDisponivel horario : horarioDisponivelRepository.findHorariosOrdenados(
+                        profissional.getId(), data.getDayOfWeek())) {
+                    LocalTime horaAtual = horario.getHoraInicio();
+                    while (horaAtual.isBefore(horario.getHoraFim())) {
+                        int ocupados = agendamentoRepository.countAgendamentosNoHorario(profissional.getId(), data, horaAtual);
+                        int disponiveis = horario.getVagasPorHorario() - ocupados;
+                        if (disponiveis > 0) {
+                            vagas.add(VagaDisponivelResponse.builder()
+                                    .profissionalId(profissional.getId())
+                                    .profissionalNome(profissional.getNome())
+                                    .especialidade(profissional.getEspecialidade().getDescricao())
+                                    .unidadeSaudeId(profissional.getUnidadeSaude().getId())
+                                    .unidadeSaudeNome(profissional.getUnidadeSaude().getNome())
+                                    .unidadeSaudeEndereco(profissional.getUnidadeSaude().getEndereco())
+                                    .data(data)
+                                    .horario(horaAtual)
+                                    .vagasDisponiveis(disponiveis)
+                                    .build());
+                        }
+                        horaAtual = horaAtual.plusMinutes(horario.getDuracaoConsultaMinutos());
+                    }
+                }
+                data = data.plusDays(1);
+            }
+        }
+
+        return vagas;
+    }
+
+    private HorarioDisponivel horario(Profissional profissional, DayOfWeek dia, LocalTime inicio, LocalTime fim) {
+        return HorarioDisponivel.builder()
+                .profissional(profissional)
+                .diaSemana(dia)
+                .horaInicio(inicio)
+                .horaFim(fim)
+                .duracaoConsultaMinutos(30)
+                .vagasPorHorario(1)
+                .ativo(true)
+                .build();
+    }
+
+    private record Resultado(String nome, long consultas, double latenciaMs, List<VagaDisponivelResponse> vagas) {
+
+        @Override
+        public String toString() {
+            return String.format("%-36s %12d %14.1f %10d", nome, consultas, latenciaMs, vagas.size());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.request.CancelarAgendamentoRequest;
+import br.com.susagenda.dto.response.AgendamentoResponse;
+import br.com.susagenda.exception.HorarioIndisponivelException;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.service.calendario.CalendarioVagas;
+import br.com.susagenda.support.DadosTeste;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Agendamentos e cancelamentos simultâneos nos mesmos horários: nenhum horário pode terminar com
+ * mais agendamentos ativos que a capacidade, e o inventário precisa refletir exatamente a ocupação.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class AgendamentoConcorrenciaTest {
+
+    private static final int THREADS = 24;
+    private static final int TENTATIVAS_POR_THREAD = 15;
+    private static final int CAPACIDADE = 3;
+    private static final List<LocalTime> HORARIOS = List.of(
+            LocalTime.of(8, 0), LocalTime.of(8, 30), LocalTime.of(9, 0), LocalTime.of(9, 30));
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private AgendamentoService agendamentoService;
+
+    @Autowired
+    private VagaInventarioService vagaInventarioService;
+
+    @Autowired
+    private CalendarioVagas calendarioVagas;
+
+    @Autowired
+    private AgendamentoRepository agendamentoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Horários materializados sob demanda não devem ultrapassar a capacidade")
+    void naoDeveUltrapassarCapacidadeAoMaterializarSobDemanda() throws Exception {
+        // sem inventário gerado nem calendário: a primeira reserva de cada horário cria a linha de vagas
+        Profissional profissional = dados.criarProfissional("Concorrência", CAPACIDADE);
+        LocalDate data = LocalDate.now().plusWeeks(2).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+        Resultado resultado = disputar(profissional, data);
+
+        verificarOcupacao(profissional, data, resultado);
+    }
+
+    @Test
+    @DisplayName("Horários do inventário e do calendário não devem ultrapassar a capacidade")
+    void naoDeveUltrapassarCapacidadeComInventarioECalendario() throws Exception {
+        Profissional profissional = dados.criarProfissional("Concorrência", CAPACIDADE);
+        LocalDate data = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        vagaInventarioService.gerarHorizonte();
+        calendarioVagas.reconstruir();
+
+        Resultado resultado = disputar(profissional, data);
+
+        verificarOcupacao(profissional, data, resultado);
+        for (LocalTime hora : HORARIOS) {
+            int ativos = contarAtivos(profissional, data, hora);
+            assertThat(calendarioVagas.consultar(profissional.getId(), data, hora))
+                    .hasValueSatisfying(situacao -> assertThat(situacao.restantes()).isEqualTo(CAPACIDADE - ativos));
+        }
+    }
+
+    private Resultado disputar(Profissional profissional, LocalDate data) throws Exception {
+        Paciente paciente = dados.criarPaciente("Concorrência");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger agendados = new AtomicInteger();
+        AtomicInteger recusados = new AtomicInteger();
+        AtomicInteger cancelados = new AtomicInteger();
+        List<Future<?>> futuros = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    Random aleatorio = new Random(thread);
+                    for (int i = 0; i < TENTATIVAS_POR_THREAD; i++) {
+                        LocalTime hora = HORARIOS.get(aleatorio.nextInt(HORARIOS.size()));
+                        try {
+                            AgendamentoResponse agendamento = agendamentoService.criar(
+                                    requisicao(paciente, profissional, data, hora));
+                            agendados.incrementAndGet();
+                            if (aleatorio.nextBoolean()) {
+                                agendamentoService.cancelar(agendamento.getId(), cancelamento());
+                                cancelados.incrementAndGet();
+                            }
+                        } catch (HorarioIndisponivelException e) {
+                            recusados.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            largada.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new Resultado(agendados.get(), recusados.get(), cancelados.get());
+    }
+
+    private void verificarOcupacao(Profissional profissional, LocalDate data, Resultado resultado) {
+        assertThat(resultado.agendados() + resultado.recusados()).isEqualTo(THREADS * TENTATIVAS_POR_THREAD);
+        assertThat(resultado.recusados()).as("houve disputa pelos horários").isPositive();
+        assertThat(resultado.agendados()).as("vagas canceladas foram reaproveitadas")
+                .isGreaterThan(CAPACIDADE * HORARIOS.size());
+
+        int ativosNoTotal = 0;
+        for (LocalTime hora : HORARIOS) {
+            int ativos = contarAtivos(profissional, data, hora);
+            ativosNoTotal += ativos;
+            assertThat(ativos).as("agendamentos ativos às %s", hora).isLessThanOrEqualTo(CAPACIDADE);
+            assertThat(restantes(profissional, data, hora)).as("vagas restantes às %s", hora)
+                    .isEqualTo(CAPACIDADE - ativos);
+        }
+        assertThat(ativosNoTotal).isEqualTo(resultado.agendados() - resultado.cancelados());
+    }
+
+    private int contarAtivos(Profissional profissional, LocalDate data, LocalTime hora) {
+        return (int) agendamentoRepository.findByProfissionalIdAndData(profissional.getId(), data).stream()
+                .filter(a -> a.getHoraAgendamento().equals(hora))
+                .filter(a -> a.getStatus().ocupaVaga())
+                .count();
+    }
+
+    private int restantes(Profissional profissional, LocalDate data, LocalTime hora) {
+        return jdbcTemplate.queryForObject(
+                "SELECT restantes FROM vagas WHERE profissional_id = ? AND data = ? AND hora = ?",
+                Integer.class, profissional.getId(), data, hora);
+    }
+
+    private static AgendamentoRequest requisicao(Paciente paciente, Profissional profissional,
+                                                 LocalDate data, LocalTime hora) {
+        return AgendamentoRequest.builder()
+                .pacienteId(paciente.getId())
+                .profissionalId(profissional.getId())
+                .dataAgendamento(data)
+                .horaAgendamento(hora)
+                .tipoAtendimento(TipoAtendimento.CONSULTA)
+                .build();
+    }
+
+    private static CancelarAgendamentoRequest cancelamento() {
+        return CancelarAgendamentoRequest.builder()
+                .motivo("Teste de concorrência")
+                .build();
+    }
+
+    private record Resultado(int agendados, int recusados, int cancelados) {
+    }
+}
@@ -0,0 +1,197 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.request.TransicaoLoteRequest;
+import br.com.susagenda.dto.response.AgendamentoLoteResponse;
+import br.com.susagenda.dto.response.AgendamentoResponse;
+import br.com.susagenda.dto.response.ResultadoAgendamentoLoteResponse;
+import br.com.susagenda.dto.response.TransicaoLoteResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.exception.HorarioIndisponivelException;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.support.DadosTeste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class AgendamentoLoteServiceTest {
+
+    private static final int CAPACIDADE = 2;
+    private static final LocalTime HORA = LocalTime.of(8, 0);
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private AgendamentoLoteService agendamentoLoteService;
+
+    @Autowired
+    private AgendamentoService agendamentoService;
+
+    @Autowired
+    private AgendamentoRepository agendamentoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Profissional profissional;
+    private Paciente paciente;
+    private LocalDate segunda;
+
+    @BeforeEach
+    void setUp() {
+        profissional = dados.criarProfissional("Lote", CAPACIDADE);
+        paciente = dados.criarPaciente("Lote");
+        segunda = LocalDate.now().plusWeeks(3).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    @DisplayName("Deve agendar os itens válidos e recusar os demais com a mensagem de cada um")
+    void deveRetornarResultadoPorItem() {
+        List<AgendamentoRequest> itens = List.of(
+                requisicao(paciente.getId(), profissional.getId(), segunda, HORA),
+                requisicao(999_999L, profissional.getId(), segunda, HORA),
+                requisicao(paciente.getId(), 999_999L, segunda, HORA),
+                requisicao(paciente.getId(), profissional.getId(), segunda.plusDays(1), HORA),
+                requisicao(paciente.getId(), profissional.getId(), segunda, LocalTime.of(11, 0)),
+                requisicao(paciente.getId(), profissional.getId(), segunda, LocalTime.of(8, 30)));
+
+        AgendamentoLoteResponse response = agendamentoLoteService.criarEmLote(itens);
+
+        assertThat(response.getTotal()).isEqualTo(6);
+        assertThat(response.getAgendados()).isEqualTo(2);
+        assertThat(response.getRecusados()).isEqualTo(4);
+        assertThat(response.getResultados()).extracting(ResultadoAgendamentoLoteResponse::getIndice)
+                .containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(response.getResultados()).extracting(ResultadoAgendamentoLoteResponse::isSucesso)
+                .containsExactly(true, false, false, false, false, true);
+        assertThat(response.getResultados().get(1).getMensagem()).contains("Paciente não encontrado");
+        assertThat(response.getResultados().get(2).getMensagem()).contains("Profissional não encontrado");
+        assertThat(response.getResultados().get(3).getMensagem())
+                .isEqualTo("O profissional não possui horário de atendimento configurado para esta data");
+        assertThat(response.getResultados().get(4).getMensagem())
+                .isEqualTo("O horário solicitado não está dentro do período de atendimento do profissional");
+
+        Agendamento agendamento = agendamentoRepository.findById(response.getResultados().get(0).getAgendamentoId())
+                .orElseThrow();
+        assertThat(agendamento.getStatus()).isEqualTo(StatusAgendamento.AGENDADO);
+        assertThat(agendamento.getHoraAgendamento()).isEqualTo(HORA);
+        assertThat(agendamento.getCreatedAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve respeitar a capacidade do horário dentro do lote e entre lote e agendamento individual")
+    void deveRespeitarCapacidade() {
+        agendamentoService.criar(requisicao(paciente.getId(), profissional.getId(), segunda, HORA));
+
+        List<AgendamentoRequest> itens = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            itens.add(requisicao(paciente.getId(), profissional.getId(), segunda, HORA));
+        }
+        AgendamentoLoteResponse response = agendamentoLoteService.criarEmLote(itens);
+
+        assertThat(response.getResultados()).extracting(ResultadoAgendamentoLoteResponse::isSucesso)
+                .containsExactly(true, false, false);
+        assertThat(response.getResultados().get(1).getMensagem())
+                .isEqualTo("Não há vagas disponíveis neste horário. Tente outro horário.");
+        assertThat(restantes(HORA)).isZero();
+
+        assertThatThrownBy(() -> agendamentoService.criar(
+                requisicao(paciente.getId(), profissional.getId(), segunda, HORA)))
+                .isInstanceOf(HorarioIndisponivelException.class);
+    }
+
+    @Test
+    @DisplayName("Deve confirmar em lote apenas os agendamentos 'AGENDADO' e devolver os demais IDs como recusados")
+    void deveConfirmarEmLote() {
+        Long agendado = agendar(HORA);
+        Long cancelado = agendar(LocalTime.of(8, 30));
+        agendamentoLoteService.cancelarEmLote(TransicaoLoteRequest.builder()
+                .ids(List.of(cancelado)).motivo("Paciente pediu cancelamento").build());
+
+        TransicaoLoteResponse response = agendamentoLoteService.confirmarEmLote(TransicaoLoteRequest.builder()
+                .ids(List.of(agendado, cancelado, 999_999L, agendado))
+                .build());
+
+        assertThat(response.getSolicitados()).isEqualTo(3);
+        assertThat(response.getAlterados()).isEqualTo(1);
+        assertThat(response.getRecusados()).containsExactly(cancelado, 999_999L);
+        Agendamento confirmado = agendamentoRepository.findById(agendado).orElseThrow();
+        assertThat(confirmado.getStatus()).isEqualTo(StatusAgendamento.CONFIRMADO);
+        assertThat(confirmado.getDataConfirmacao()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve marcar não comparecimento da unidade na data e devolver as vagas ao inventário")
+    void deveMarcarNaoCompareceuPorUnidadeEData() {
+        Long primeiro = agendar(HORA);
+        Long segundo = agendar(HORA);
+        assertThat(restantes(HORA)).isZero();
+
+        TransicaoLoteResponse response = agendamentoLoteService.marcarNaoCompareceuEmLote(TransicaoLoteRequest.builder()
+                .unidadeSaudeId(profissional.getUnidadeSaude().getId())
+                .data(segunda)
+                .build());
+
+        assertThat(response.getSolicitados()).isEqualTo(2);
+        assertThat(response.getAlterados()).isEqualTo(2);
+        assertThat(response.getRecusados()).isEmpty();
+        assertThat(agendamentoRepository.findAllById(List.of(primeiro, segundo)))
+                .extracting(Agendamento::getStatus)
+                .containsOnly(StatusAgendamento.NAO_COMPARECEU);
+        assertThat(restantes(HORA)).isEqualTo(CAPACIDADE);
+        assertThat(agendar(HORA)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve exigir o motivo no cancelamento e os IDs ou a unidade e a data")
+    void deveValidarTransicaoEmLote() {
+        assertThatThrownBy(() -> agendamentoLoteService.cancelarEmLote(TransicaoLoteRequest.builder()
+                .ids(List.of(1L)).build()))
+                .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> agendamentoLoteService.confirmarEmLote(TransicaoLoteRequest.builder()
+                .unidadeSaudeId(1L).build()))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    private Long agendar(LocalTime hora) {
+        AgendamentoResponse agendamento = agendamentoService.criar(
+                requisicao(paciente.getId(), profissional.getId(), segunda, hora));
+        return agendamento.getId();
+    }
+
+    private int restantes(LocalTime hora) {
+        return jdbcTemplate.queryForObject(
+                "SELECT restantes FROM vagas WHERE profissional_id = ? AND data = ? AND hora = ?",
+                Integer.class, profissional.getId(), segunda, hora);
+    }
+
+    private static AgendamentoRequest requisicao(Long pacienteId, Long profissionalId, LocalDate data, LocalTime hora) {
+        return AgendamentoRequest.builder()
+                .pacienteId(pacienteId)
+                .profissionalId(profissionalId)
+                .dataAgendamento(data)
+                .horaAgendamento(hora)
+                .tipoAtendimento(TipoAtendimento.CONSULTA)
+                .build();
+    }
+}
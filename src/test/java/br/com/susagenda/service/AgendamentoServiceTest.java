@@ -2,12 +2,21 @@ package br.com.susagenda.service;
 
 import br.com.susagenda.domain.entity.*;
 import br.com.susagenda.domain.enums.*;
+import br.com.susagenda.domain.event.VagaOcupadaEvent;
 import br.com.susagenda.dto.request.AgendamentoRequest;
 import br.com.susagenda.dto.request.CancelarAgendamentoRequest;
+import br.com.susagenda.dto.request.ConfirmarReservaRequest;
+import br.com.susagenda.dto.request.ReservaVagaRequest;
 import br.com.susagenda.dto.response.AgendamentoResponse;
+import br.com.susagenda.dto.response.ReservaVagaResponse;
 import br.com.susagenda.exception.BusinessException;
 import br.com.susagenda.exception.HorarioIndisponivelException;
+import br.com.susagenda.exception.VersaoDesatualizadaException;
 import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import br.com.susagenda.service.calendario.CalendarioVagas;
+import br.com.susagenda.service.calendario.SituacaoHorario;
+import br.com.susagenda.service.eventos.OutboxAgendamentos;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +24,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
@@ -22,10 +32,13 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +47,9 @@ class AgendamentoServiceTest {
     @Mock
     private AgendamentoRepository agendamentoRepository;
 
+    @Mock
+    private ReservaVagaRepository reservaVagaRepository;
+
     @Mock
     private PacienteService pacienteService;
 
@@ -43,6 +59,30 @@ class AgendamentoServiceTest {
     @Mock
     private HorarioDisponivelService horarioDisponivelService;
 
+    @Mock
+    private DisponibilidadeService disponibilidadeService;
+
+    @Mock
+    private VagaInventarioService vagaInventarioService;
+
+    @Mock
+    private CalendarioVagas calendarioVagas;
+
+    @Mock
+    private VagasDisponiveisCache vagasDisponiveisCache;
+
+    @Mock
+    private ReservaVagaService reservaVagaService;
+
+    @Mock
+    private RetentativaOtimista retentativaOtimista;
+
+    @Mock
+    private OutboxAgendamentos outboxAgendamentos;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private AgendamentoService agendamentoService;
 
@@ -55,6 +95,11 @@ class AgendamentoServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(retentativaOtimista.executar(any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(0).get());
+        lenient().when(retentativaOtimista.executarUmaVez(any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(0).get());
+
         unidadeSaude = UnidadeSaude.builder()
                 .id(1L)
                 .nome("UBS Centro")
@@ -106,6 +151,7 @@ class AgendamentoServiceTest {
                 .tipoAtendimento(TipoAtendimento.CONSULTA)
                 .status(StatusAgendamento.AGENDADO)
                 .createdAt(LocalDateTime.now())
+                .versao(3L)
                 .build();
 
         agendamentoRequest = AgendamentoRequest.builder()
@@ -125,7 +171,7 @@ class AgendamentoServiceTest {
         when(profissionalService.buscarPorId(1L)).thenReturn(profissional);
         when(horarioDisponivelService.buscarPorProfissionalEData(any(), any()))
                 .thenReturn(List.of(horarioDisponivel));
-        when(agendamentoRepository.countAgendamentosNoHorario(any(), any(), any())).thenReturn(0);
+        when(vagaInventarioService.reservar(any(), any(), any(), any())).thenReturn(true);
         when(agendamentoRepository.save(any(Agendamento.class))).thenReturn(agendamento);
 
         AgendamentoResponse response = agendamentoService.criar(agendamentoRequest);
@@ -136,6 +182,64 @@ class AgendamentoServiceTest {
         assertThat(response.getStatus()).isEqualTo(StatusAgendamento.AGENDADO);
 
         verify(agendamentoRepository).save(any(Agendamento.class));
+        verify(eventPublisher).publishEvent(any(VagaOcupadaEvent.class));
+        verify(outboxAgendamentos).registrar(agendamento, TipoEventoAgendamento.CRIADO);
+    }
+
+    @Test
+    @DisplayName("Deve conferir no banco o horário lotado pelo calendário em memória")
+    void deveConferirNoBancoHorarioLotadoPeloCalendario() {
+        // o calendário não vê os cancelamentos feitos em outro nó até a próxima reconstrução
+        when(pacienteService.buscarPorId(1L)).thenReturn(paciente);
+        when(profissionalService.buscarPorId(1L)).thenReturn(profissional);
+        when(calendarioVagas.consultar(any(), any(), any()))
+                .thenReturn(Optional.of(new SituacaoHorario(SituacaoHorario.Estado.LOTADO, 2, 0)));
+        when(horarioDisponivelService.buscarPorProfissionalEData(any(), any()))
+                .thenReturn(List.of(horarioDisponivel));
+        when(vagaInventarioService.reservar(any(), any(), any(), any())).thenReturn(true);
+        when(agendamentoRepository.save(any(Agendamento.class))).thenReturn(agendamento);
+
+        AgendamentoResponse response = agendamentoService.criar(agendamentoRequest);
+
+        assertThat(response).isNotNull();
+        verify(vagaInventarioService).reservar(eq(1L), eq(agendamentoRequest.getDataAgendamento()),
+                eq(agendamentoRequest.getHoraAgendamento()), any());
+    }
+
+    @Test
+    @DisplayName("Deve reservar sem consultar os horários quando o calendário em memória indica vaga")
+    void deveReservarPeloCalendarioSemConsultarHorarios() {
+        when(pacienteService.buscarPorId(1L)).thenReturn(paciente);
+        when(profissionalService.buscarPorId(1L)).thenReturn(profissional);
+        when(calendarioVagas.consultar(any(), any(), any()))
+                .thenReturn(Optional.of(new SituacaoHorario(SituacaoHorario.Estado.DISPONIVEL, 2, 1)));
+        when(vagaInventarioService.reservar(eq(1L), eq(agendamentoRequest.getDataAgendamento()),
+                eq(agendamentoRequest.getHoraAgendamento()), any())).thenReturn(true);
+        when(agendamentoRepository.save(any(Agendamento.class))).thenReturn(agendamento);
+
+        AgendamentoResponse response = agendamentoService.criar(agendamentoRequest);
+
+        assertThat(response).isNotNull();
+        verifyNoInteractions(horarioDisponivelService);
+    }
+
+    @Test
+    @DisplayName("Deve conferir os horários antes de recriar a vaga indicada pelo calendário em memória")
+    void deveConferirHorariosAntesDeRecriarVagaDoCalendario() {
+        // horário desativado em outro nó: a regeneração removeu a linha do inventário
+        when(pacienteService.buscarPorId(1L)).thenReturn(paciente);
+        when(profissionalService.buscarPorId(1L)).thenReturn(profissional);
+        when(calendarioVagas.consultar(any(), any(), any()))
+                .thenReturn(Optional.of(new SituacaoHorario(SituacaoHorario.Estado.DISPONIVEL, 2, 1)));
+        when(horarioDisponivelService.buscarPorProfissionalEData(any(), any())).thenReturn(List.of());
+        when(vagaInventarioService.reservar(any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<IntSupplier>getArgument(3).getAsInt() > 0);
+
+        assertThatThrownBy(() -> agendamentoService.criar(agendamentoRequest))
+                .isInstanceOf(HorarioIndisponivelException.class)
+                .hasMessageContaining("horário de atendimento");
+
+        verify(agendamentoRepository, never()).save(any());
     }
 
     @Test
@@ -160,7 +264,7 @@ class AgendamentoServiceTest {
         when(profissionalService.buscarPorId(1L)).thenReturn(profissional);
         when(horarioDisponivelService.buscarPorProfissionalEData(any(), any()))
                 .thenReturn(List.of(horarioDisponivel));
-        when(agendamentoRepository.countAgendamentosNoHorario(any(), any(), any())).thenReturn(1);
+        when(vagaInventarioService.reservar(any(), any(), any(), any())).thenReturn(false);
 
         assertThatThrownBy(() -> agendamentoService.criar(agendamentoRequest))
                 .isInstanceOf(HorarioIndisponivelException.class)
@@ -169,6 +273,17 @@ class AgendamentoServiceTest {
         verify(agendamentoRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("Deve rejeitar cursor de paginação de vagas inválido")
+    void deveRejeitarCursorDeVagasInvalido() {
+        assertThatThrownBy(() -> agendamentoService.buscarPaginaVagas(Especialidade.CARDIOLOGIA,
+                LocalDate.now(), LocalDate.now().plusDays(7), "cursor-invalido", 50))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Cursor");
+
+        verifyNoInteractions(disponibilidadeService);
+    }
+
     @Test
     @DisplayName("Deve confirmar agendamento com sucesso")
     void deveConfirmarAgendamentoComSucesso() {
@@ -179,6 +294,7 @@ class AgendamentoServiceTest {
 
         assertThat(response).isNotNull();
         verify(agendamentoRepository).save(any(Agendamento.class));
+        verify(outboxAgendamentos).registrar(agendamento, TipoEventoAgendamento.CONFIRMADO);
     }
 
     @Test
@@ -192,6 +308,34 @@ class AgendamentoServiceTest {
                 .hasMessageContaining("AGENDADO");
     }
 
+    @Test
+    @DisplayName("Deve aplicar a transição quando o If-Match corresponde à versão atual")
+    void deveConfirmarComVersaoAtual() {
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(agendamentoRepository.save(any(Agendamento.class))).thenReturn(agendamento);
+
+        AgendamentoResponse response = agendamentoService.confirmar(1L, 3L);
+
+        assertThat(response.getStatus()).isEqualTo(StatusAgendamento.CONFIRMADO);
+        verify(retentativaOtimista).executarUmaVez(any());
+        verify(agendamentoRepository).flush();
+    }
+
+    @Test
+    @DisplayName("Deve recusar a transição decidida sobre uma versão antiga")
+    void deveRecusarVersaoDesatualizada() {
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+
+        assertThatThrownBy(() -> agendamentoService.cancelar(1L,
+                CancelarAgendamentoRequest.builder().motivo("Paciente desistiu da consulta").build(), 2L))
+                .isInstanceOf(VersaoDesatualizadaException.class);
+
+        assertThat(agendamento.getStatus()).isEqualTo(StatusAgendamento.AGENDADO);
+        verify(agendamentoRepository, never()).save(any());
+        verifyNoInteractions(vagaInventarioService);
+        verifyNoInteractions(outboxAgendamentos);
+    }
+
     @Test
     @DisplayName("Deve registrar chegada do paciente com sucesso")
     void deveRegistrarChegadaComSucesso() {
@@ -254,6 +398,7 @@ class AgendamentoServiceTest {
 
         assertThat(response).isNotNull();
         verify(agendamentoRepository).save(any(Agendamento.class));
+        verify(vagaInventarioService).liberar(1L, agendamento.getDataAgendamento(), agendamento.getHoraAgendamento());
     }
 
     @Test
@@ -281,6 +426,7 @@ class AgendamentoServiceTest {
 
         assertThat(response).isNotNull();
         verify(agendamentoRepository).save(any(Agendamento.class));
+        verify(vagaInventarioService).liberar(1L, agendamento.getDataAgendamento(), agendamento.getHoraAgendamento());
     }
 
     @Test
@@ -293,4 +439,76 @@ class AgendamentoServiceTest {
         assertThat(historico).hasSize(1);
         assertThat(historico.get(0).getPacienteNome()).isEqualTo("Maria Silva");
     }
+
+    @Test
+    @DisplayName("Deve confirmar reserva sem disputar a vaga novamente")
+    void deveConfirmarReservaSemReservarNovamente() {
+        ReservaVaga reserva = reserva(1L, LocalTime.of(9, 0));
+        when(reservaVagaRepository.findComProfissionalById(10L)).thenReturn(Optional.of(reserva));
+        when(reservaVagaRepository.consumir(eq(10L), any())).thenReturn(1);
+        when(agendamentoRepository.save(any(Agendamento.class))).thenReturn(agendamento);
+
+        AgendamentoResponse response = agendamentoService.confirmarReserva(10L,
+                ConfirmarReservaRequest.builder().tipoAtendimento(TipoAtendimento.CONSULTA).build());
+
+        assertThat(response.getStatus()).isEqualTo(StatusAgendamento.AGENDADO);
+        verify(agendamentoRepository).save(argThat(a -> a.getHoraAgendamento().equals(LocalTime.of(9, 0))
+                && a.getPaciente() == paciente));
+        verifyNoInteractions(vagaInventarioService, calendarioVagas);
+    }
+
+    @Test
+    @DisplayName("Deve recusar confirmação de reserva expirada")
+    void deveRecusarConfirmacaoDeReservaExpirada() {
+        when(reservaVagaRepository.findComProfissionalById(10L)).thenReturn(Optional.of(reserva(1L, LocalTime.of(9, 0))));
+        when(reservaVagaRepository.consumir(eq(10L), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> agendamentoService.confirmarReserva(10L,
+                ConfirmarReservaRequest.builder().tipoAtendimento(TipoAtendimento.CONSULTA).build()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("expirou");
+
+        verify(agendamentoRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Nova reserva do paciente deve devolver a vaga da reserva anterior")
+    void novaReservaDeveLiberarReservaAnterior() {
+        ReservaVaga anterior = reserva(5L, LocalTime.of(8, 0));
+        when(pacienteService.buscarPorId(1L)).thenReturn(paciente);
+        when(profissionalService.buscarPorId(1L)).thenReturn(profissional);
+        when(reservaVagaRepository.findComProfissionalByPacienteId(1L)).thenReturn(Optional.of(anterior));
+        when(reservaVagaRepository.remover(5L)).thenReturn(1);
+        when(horarioDisponivelService.buscarPorProfissionalEData(any(), any())).thenReturn(List.of(horarioDisponivel));
+        when(vagaInventarioService.reservar(any(), any(), any(), any())).thenReturn(true);
+        when(reservaVagaRepository.save(any(ReservaVaga.class))).thenAnswer(invocation -> {
+            ReservaVaga nova = invocation.getArgument(0);
+            nova.setId(6L);
+            return nova;
+        });
+
+        ReservaVagaResponse response = agendamentoService.reservarHorario(ReservaVagaRequest.builder()
+                .pacienteId(1L)
+                .profissionalId(1L)
+                .dataAgendamento(agendamentoRequest.getDataAgendamento())
+                .horaAgendamento(LocalTime.of(9, 0))
+                .build());
+
+        assertThat(response.getId()).isEqualTo(6L);
+        assertThat(response.getHoraAgendamento()).isEqualTo(LocalTime.of(9, 0));
+        verify(reservaVagaService).liberar(anterior);
+        verify(reservaVagaService).agendarExpiracao(eq(6L), any());
+        verify(eventPublisher).publishEvent(any(VagaOcupadaEvent.class));
+    }
+
+    private ReservaVaga reserva(Long id, LocalTime hora) {
+        return ReservaVaga.builder()
+                .id(id)
+                .paciente(paciente)
+                .profissional(profissional)
+                .data(agendamentoRequest.getDataAgendamento())
+                .hora(hora)
+                .expiraEm(LocalDateTime.now().plusMinutes(5))
+                .build();
+    }
 }
@@ -0,0 +1,198 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.entity.UnidadeSaude;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.model.CursorVaga;
+import br.com.susagenda.dto.response.PaginaVagasResponse;
+import br.com.susagenda.dto.response.VagaDisponivelResponse;
+import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.repository.HorarioDisponivelRepository;
+import br.com.susagenda.repository.ProfissionalRepository;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import br.com.susagenda.repository.VagaRepository;
+import br.com.susagenda.service.calendario.CalendarioVagas;
+import br.com.susagenda.support.DadosTeste;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Paginação de vagas fora do calendário em memória: o inventário materializado até o horizonte e o
+ * cálculo semana a semana depois dele. O calendário e o horizonte vêm de mocks, para que o caminho
+ * não dependa do que os demais testes do mesmo contexto construíram.
+ *
+ * <p>Três profissionais atendem às segundas às 8h e às 8h30, duas vagas por horário, em três
+ * segundas seguidas. O inventário informa uma vaga restante em cada horário, o que identifica nas
+ * respostas as vagas lidas dele.</p>
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class DisponibilidadeServiceTest {
+
+    private static final Especialidade ESPECIALIDADE = Especialidade.UROLOGIA;
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private ProfissionalRepository profissionalRepository;
+
+    @Autowired
+    private HorarioDisponivelRepository horarioDisponivelRepository;
+
+    @Autowired
+    private AgendamentoRepository agendamentoRepository;
+
+    @Autowired
+    private VagaRepository vagaRepository;
+
+    @Autowired
+    private ReservaVagaRepository reservaVagaRepository;
+
+    @Autowired
+    private VagaInventarioService vagaInventarioService;
+
+    @Autowired
+    private ExecucaoParalela execucaoParalela;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDate segunda = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    private final LocalDate ultimaSegunda = segunda.plusWeeks(2);
+
+    private List<Long> profissionalIds;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE profissionais SET ativo = false WHERE especialidade = ?", ESPECIALIDADE.name());
+
+        UnidadeSaude unidade = dados.criarUnidade("Paginação");
+        profissionalIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Profissional profissional = dados.criarProfissional("Paginação", ESPECIALIDADE, unidade);
+            dados.criarHorario(profissional, DayOfWeek.MONDAY, LocalTime.of(9, 0), 2);
+            vagaInventarioService.regenerarProfissional(profissional.getId());
+            profissionalIds.add(profissional.getId());
+        }
+        jdbcTemplate.update("UPDATE vagas SET restantes = 1 WHERE profissional_id IN (?, ?, ?)", profissionalIds.toArray());
+    }
+
+    @Test
+    @DisplayName("Páginas que terminam no meio de um horário não devem repetir nem pular vagas ao cruzar o horizonte")
+    void devePaginarPeloInventarioEPeloCalculo() {
+        DisponibilidadeService service = service(Optional.of(segunda.plusWeeks(1)));
+
+        List<PaginaVagasResponse> paginas = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaVagasResponse pagina = service.buscarPaginaVagas(ESPECIALIDADE, segunda, ultimaSegunda,
+                    cursor == null ? null : CursorVaga.decodificar(cursor), 4);
+            paginas.add(pagina);
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+
+        // a terceira página termina no último horário antes do horizonte e a quarta começa depois dele
+        assertThat(paginas).extracting(p -> p.getVagas().size()).containsExactly(4, 4, 4, 4, 2);
+        assertThat(paginas).extracting(PaginaVagasResponse::getTemMais).containsExactly(true, true, true, true, false);
+        assertThat(paginas.stream().flatMap(p -> p.getVagas().stream()).toList())
+                .extracting(VagaDisponivelResponse::getData, VagaDisponivelResponse::getHorario,
+                        VagaDisponivelResponse::getProfissionalId, VagaDisponivelResponse::getVagasDisponiveis)
+                .containsExactlyElementsOf(esperadas(segunda.plusWeeks(1)));
+    }
+
+    @Test
+    @DisplayName("Página iniciada no meio de um horário deve continuar do inventário para o cálculo após o horizonte")
+    void deveContinuarDoCursorAtravesDoHorizonte() {
+        DisponibilidadeService service = service(Optional.of(segunda.plusWeeks(1)));
+
+        PaginaVagasResponse pagina = service.buscarPaginaVagas(ESPECIALIDADE, segunda, ultimaSegunda,
+                new CursorVaga(segunda.plusWeeks(1), LocalTime.of(8, 30), profissionalIds.get(0)), 3);
+
+        assertThat(pagina.getVagas())
+                .extracting(VagaDisponivelResponse::getData, VagaDisponivelResponse::getHorario,
+                        VagaDisponivelResponse::getProfissionalId, VagaDisponivelResponse::getVagasDisponiveis)
+                .containsExactly(
+                        tuple(segunda.plusWeeks(1), LocalTime.of(8, 30), profissionalIds.get(1), 1),
+                        tuple(segunda.plusWeeks(1), LocalTime.of(8, 30), profissionalIds.get(2), 1),
+                        tuple(ultimaSegunda, LocalTime.of(8, 0), profissionalIds.get(0), 2));
+        assertThat(pagina.getTemMais()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Cursor na última vaga deve retornar página vazia sem próxima página")
+    void deveRetornarPaginaVaziaAposUltimaVaga() {
+        DisponibilidadeService service = service(Optional.of(segunda.plusWeeks(1)));
+
+        PaginaVagasResponse pagina = service.buscarPaginaVagas(ESPECIALIDADE, segunda, ultimaSegunda,
+                new CursorVaga(ultimaSegunda, LocalTime.of(8, 30), profissionalIds.get(2)), 4);
+
+        assertThat(pagina.getVagas()).isEmpty();
+        assertThat(pagina.getTemMais()).isFalse();
+        assertThat(pagina.getProximoCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Sem inventário gerado, as vagas devem ser calculadas semana a semana na mesma ordem")
+    void devePercorrerVagasCalculadasSemanaASemana() {
+        DisponibilidadeService service = service(Optional.empty());
+
+        List<List<VagaDisponivelResponse>> lotes = new ArrayList<>();
+        service.percorrerVagas(ESPECIALIDADE, segunda, ultimaSegunda, 6, lotes::add);
+
+        // 18 vagas em lotes de 6: a busca que volta vazia encerra sem entregar um lote vazio
+        assertThat(lotes).extracting(List::size).containsExactly(6, 6, 6);
+        assertThat(lotes.stream().flatMap(List::stream).toList())
+                .extracting(VagaDisponivelResponse::getData, VagaDisponivelResponse::getHorario,
+                        VagaDisponivelResponse::getProfissionalId, VagaDisponivelResponse::getVagasDisponiveis)
+                .containsExactlyElementsOf(esperadas(segunda.minusDays(1)));
+    }
+
+    /**
+     * Serviço com o calendário em memória vazio e o horizonte do inventário informado.
+     */
+    private DisponibilidadeService service(Optional<LocalDate> horizonte) {
+        CalendarioVagas calendarioVagas = mock(CalendarioVagas.class);
+        when(calendarioVagas.getCoberturaAte()).thenReturn(Optional.empty());
+        VagaInventarioService inventario = mock(VagaInventarioService.class);
+        when(inventario.getHorizonteGeradoAte()).thenReturn(horizonte);
+
+        return new DisponibilidadeService(profissionalRepository, horarioDisponivelRepository, agendamentoRepository,
+                vagaRepository, reservaVagaRepository, inventario, calendarioVagas, execucaoParalela);
+    }
+
+    /**
+     * Data, hora, profissional e vagas restantes de todas as vagas do período, em ordem: uma restante
+     * nas segundas lidas do inventário (até o horizonte) e duas nas calculadas.
+     */
+    private List<Tuple> esperadas(LocalDate horizonte) {
+        List<Tuple> vagas = new ArrayList<>();
+        for (LocalDate data = segunda; !data.isAfter(ultimaSegunda); data = data.plusWeeks(1)) {
+            for (LocalTime hora : List.of(LocalTime.of(8, 0), LocalTime.of(8, 30))) {
+                for (Long profissionalId : profissionalIds) {
+                    vagas.add(tuple(data, hora, profissionalId, data.isAfter(horizonte) ? 2 : 1));
+                }
+            }
+        }
+        return vagas;
+    }
+}
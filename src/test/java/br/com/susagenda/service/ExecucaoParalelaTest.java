@@ -0,0 +1,61 @@
+package br.com.susagenda.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExecucaoParalelaTest {
+
+    private final ExecucaoParalela execucaoParalela = new ExecucaoParalela(true, 3, 10, true);
+
+    @AfterEach
+    void tearDown() {
+        execucaoParalela.encerrar();
+    }
+
+    @Test
+    @DisplayName("Deve devolver os resultados na ordem das tarefas respeitando o limite de concorrência")
+    void deveDevolverResultadosEmOrdemComConcorrenciaLimitada() {
+        AtomicInteger emExecucao = new AtomicInteger();
+        AtomicInteger maximoSimultaneo = new AtomicInteger();
+
+        List<Callable<Integer>> tarefas = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int valor = i;
+            tarefas.add(() -> {
+                maximoSimultaneo.accumulateAndGet(emExecucao.incrementAndGet(), Math::max);
+                Thread.sleep(20 - valor);
+                emExecucao.decrementAndGet();
+                return valor;
+            });
+        }
+
+        List<Integer> resultados = execucaoParalela.executarEmOrdem(tarefas);
+
+        assertThat(resultados).containsExactlyElementsOf(IntStream.range(0, 20).boxed().toList());
+        assertThat(maximoSimultaneo.get()).isBetween(1, 3);
+    }
+
+    @Test
+    @DisplayName("Deve relançar a exceção de uma tarefa para o chamador")
+    void deveRelancarExcecaoDaTarefa() {
+        List<Callable<Integer>> tarefas = List.of(
+                () -> 1,
+                () -> {
+                    throw new IllegalArgumentException("falha no lote");
+                });
+
+        assertThatThrownBy(() -> execucaoParalela.executarEmOrdem(tarefas))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("falha no lote");
+    }
+}
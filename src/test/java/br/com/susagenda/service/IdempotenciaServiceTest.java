@@ -0,0 +1,167 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.dto.request.CancelarAgendamentoRequest;
+import br.com.susagenda.dto.response.AgendamentoResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.exception.HorarioIndisponivelException;
+import br.com.susagenda.repository.ChaveIdempotenciaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class IdempotenciaServiceTest {
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger execucoes = new AtomicInteger();
+
+    @Test
+    @DisplayName("Deve repetir a primeira resposta sem executar a operação de novo")
+    void deveRepetirRespostaGuardada() {
+        String chave = UUID.randomUUID().toString();
+
+        IdempotenciaService.Resultado<AgendamentoResponse> primeira = executar(idempotenciaService, chave, requisicao("a"));
+        IdempotenciaService.Resultado<AgendamentoResponse> repetida = executar(idempotenciaService, chave, requisicao("a"));
+
+        assertThat(execucoes).hasValue(1);
+        assertThat(primeira.repetida()).isFalse();
+        assertThat(repetida.repetida()).isTrue();
+        assertThat(repetida.statusHttp()).isEqualTo(201);
+        assertThat(repetida.resposta()).isEqualTo(primeira.resposta());
+        assertThat(idempotenciaService.getMemoriaBytes()).isPositive();
+        assertThat(idempotenciaService.getTaxaAcerto()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Outra instância deve repetir a resposta guardada no banco")
+    void deveRepetirRespostaDoBancoEmOutraInstancia() {
+        String chave = UUID.randomUUID().toString();
+        executar(idempotenciaService, chave, requisicao("a"));
+
+        IdempotenciaService outraInstancia = new IdempotenciaService(chaveIdempotenciaRepository, jdbcTemplate,
+                objectMapper, transactionManager, new SimpleMeterRegistry(), 24, 1024 * 1024);
+        IdempotenciaService.Resultado<AgendamentoResponse> repetida = executar(outraInstancia, chave, requisicao("a"));
+
+        assertThat(execucoes).hasValue(1);
+        assertThat(repetida.repetida()).isTrue();
+        assertThat(repetida.resposta().getDataAgendamento()).isEqualTo(LocalDate.of(2030, 3, 4));
+    }
+
+    @Test
+    @DisplayName("Deve recusar a mesma chave com outra requisição")
+    void deveRecusarChaveComOutraRequisicao() {
+        String chave = UUID.randomUUID().toString();
+        executar(idempotenciaService, chave, requisicao("a"));
+
+        assertThatThrownBy(() -> executar(idempotenciaService, chave, requisicao("b")))
+                .isInstanceOf(BusinessException.class);
+        assertThat(execucoes).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Não deve guardar a chave quando a operação falha")
+    void naoDeveGuardarFalha() {
+        String chave = UUID.randomUUID().toString();
+
+        assertThatThrownBy(() -> idempotenciaService.executar("teste", chave, requisicao("a"), 201,
+                AgendamentoResponse.class, () -> {
+                    throw new HorarioIndisponivelException("Não há vagas disponíveis neste horário. Tente outro horário.");
+                }))
+                .isInstanceOf(HorarioIndisponivelException.class);
+
+        assertThat(chaveIdempotenciaRepository.findById("teste:" + chave)).isEmpty();
+        assertThat(executar(idempotenciaService, chave, requisicao("a")).repetida()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Requisições simultâneas com a mesma chave devem executar a operação uma vez")
+    void deveExecutarUmaVezComRequisicoesSimultaneas() throws Exception {
+        String chave = UUID.randomUUID().toString();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Long>> futuros = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 8; i++) {
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    return executar(idempotenciaService, chave, requisicao("a")).resposta().getId();
+                }));
+            }
+            largada.countDown();
+            for (Future<Long> futuro : futuros) {
+                assertThat(futuro.get(30, TimeUnit.SECONDS)).isEqualTo(1L);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(execucoes).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Deve recusar chave vazia ou longa demais")
+    void deveValidarChave() {
+        assertThatThrownBy(() -> executar(idempotenciaService, " ", requisicao("a")))
+                .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> executar(idempotenciaService, "x".repeat(101), requisicao("a")))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    private IdempotenciaService.Resultado<AgendamentoResponse> executar(IdempotenciaService servico, String chave,
+                                                                         Object requisicao) {
+        return servico.executar("teste", chave, requisicao, 201, AgendamentoResponse.class, () -> {
+            execucoes.incrementAndGet();
+            sleep();
+            return AgendamentoResponse.builder()
+                    .id(1L)
+                    .dataAgendamento(LocalDate.of(2030, 3, 4))
+                    .horaAgendamento(LocalTime.of(9, 0))
+                    .build();
+        });
+    }
+
+    private static Object requisicao(String motivo) {
+        return CancelarAgendamentoRequest.builder().motivo(motivo).build();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.support.DadosTeste;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class NaoComparecimentoServiceTest {
+
+    private static final int TOLERANCIA_MINUTOS = 60;
+    private static final AtomicInteger SEQUENCIA = new AtomicInteger();
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private AgendamentoService agendamentoService;
+
+    @Autowired
+    private AgendamentoLoteService agendamentoLoteService;
+
+    @Autowired
+    private AgendamentoRepository agendamentoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Profissional profissional;
+    private Paciente paciente;
+    private LocalDate segunda;
+
+    @BeforeEach
+    void setUp() {
+        profissional = dados.criarProfissional("Faltas", 3);
+        paciente = dados.criarPaciente("Faltas");
+        segunda = LocalDate.now().plusWeeks(10 + SEQUENCIA.incrementAndGet()).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        // agendamentos pendentes de outros testes, em datas anteriores, ficam fora das contagens
+        varredura(500).varrer(segunda.minusDays(1).atTime(23, 59));
+    }
+
+    @Test
+    @DisplayName("Deve marcar só os agendamentos vencidos há mais que a tolerância e sem chegada registrada")
+    void deveMarcarApenasVencidosSemChegada() {
+        Long vencido = agendar(LocalTime.of(8, 0));
+        Long comChegada = agendar(LocalTime.of(8, 0));
+        agendamentoService.registrarChegada(comChegada);
+        Long dentroDaTolerancia = agendar(LocalTime.of(8, 30));
+
+        int marcados = varredura(500).varrer(segunda.atTime(9, 15));
+
+        assertThat(marcados).isEqualTo(1);
+        assertThat(status(vencido)).isEqualTo(StatusAgendamento.NAO_COMPARECEU);
+        assertThat(status(comChegada)).isEqualTo(StatusAgendamento.AGENDADO);
+        assertThat(status(dentroDaTolerancia)).isEqualTo(StatusAgendamento.AGENDADO);
+        assertThat(restantes(LocalTime.of(8, 0))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve percorrer os vencidos em vários lotes")
+    void devePercorrerEmLotes() {
+        List<Long> ids = new ArrayList<>();
+        for (LocalTime hora = LocalTime.of(8, 0); hora.isBefore(LocalTime.of(10, 0)); hora = hora.plusMinutes(30)) {
+            ids.add(agendar(hora));
+            ids.add(agendar(hora));
+        }
+
+        int marcados = varredura(3).varrer(segunda.atTime(12, 0));
+
+        assertThat(marcados).isEqualTo(ids.size());
+        assertThat(agendamentoRepository.findAllById(ids)).extracting(Agendamento::getStatus)
+                .containsOnly(StatusAgendamento.NAO_COMPARECEU);
+    }
+
+    @Test
+    @DisplayName("Instâncias simultâneas devem marcar cada agendamento uma única vez")
+    void deveDividirAgendamentosEntreInstancias() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (LocalTime hora = LocalTime.of(8, 0); hora.isBefore(LocalTime.of(10, 0)); hora = hora.plusMinutes(30)) {
+            for (int i = 0; i < 3; i++) {
+                ids.add(agendar(hora));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Integer>> futuros = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                NaoComparecimentoService instancia = varredura(2);
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    return instancia.varrer(segunda.atTime(12, 0));
+                }));
+            }
+            largada.countDown();
+            int total = 0;
+            for (Future<Integer> futuro : futuros) {
+                total += futuro.get(1, TimeUnit.MINUTES);
+            }
+            assertThat(total).isEqualTo(ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(agendamentoRepository.findAllById(ids)).extracting(Agendamento::getStatus)
+                .containsOnly(StatusAgendamento.NAO_COMPARECEU);
+        assertThat(restantes(LocalTime.of(8, 0))).isEqualTo(3);
+    }
+
+    private NaoComparecimentoService varredura(int tamanhoLote) {
+        return new NaoComparecimentoService(jdbcTemplate, agendamentoLoteService, transactionManager,
+                new SimpleMeterRegistry(), true, TOLERANCIA_MINUTOS, tamanhoLote);
+    }
+
+    private Long agendar(LocalTime hora) {
+        return agendamentoService.criar(AgendamentoRequest.builder()
+                .pacienteId(paciente.getId())
+                .profissionalId(profissional.getId())
+                .dataAgendamento(segunda)
+                .horaAgendamento(hora)
+                .tipoAtendimento(TipoAtendimento.CONSULTA)
+                .build()).getId();
+    }
+
+    private StatusAgendamento status(Long id) {
+        return agendamentoRepository.findById(id).orElseThrow().getStatus();
+    }
+
+    private int restantes(LocalTime hora) {
+        return jdbcTemplate.queryForObject(
+                "SELECT restantes FROM vagas WHERE profissional_id = ? AND data = ? AND hora = ?",
+                Integer.class, profissional.getId(), segunda, hora);
+    }
+}
@@ -0,0 +1,115 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.entity.ReservaVaga;
+import br.com.susagenda.domain.entity.UnidadeSaude;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import br.com.susagenda.repository.projection.ExpiracaoReservaProjection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservaVagaServiceTest {
+
+    private static final LocalDate DATA = LocalDate.of(2030, 3, 4);
+    private static final LocalTime HORA = LocalTime.of(9, 0);
+
+    @Mock
+    private ReservaVagaRepository reservaVagaRepository;
+
+    @Mock
+    private VagaInventarioService vagaInventarioService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReservaVagaService reservaVagaService;
+    private ReservaVaga reserva;
+
+    @BeforeEach
+    void setUp() {
+        reservaVagaService = new ReservaVagaService(reservaVagaRepository, vagaInventarioService,
+                eventPublisher, transactionManager, 300, 60000);
+
+        Profissional profissional = Profissional.builder()
+                .id(7L)
+                .especialidade(Especialidade.CARDIOLOGIA)
+                .unidadeSaude(UnidadeSaude.builder().id(3L).build())
+                .build();
+        reserva = ReservaVaga.builder()
+                .id(1L)
+                .profissional(profissional)
+                .data(DATA)
+                .hora(HORA)
+                .expiraEm(LocalDateTime.now().minusSeconds(1))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservaVagaService.encerrar();
+    }
+
+    @Test
+    @DisplayName("Deve devolver a vaga quando a reserva vencida é removida")
+    void deveLiberarVagaDaReservaExpirada() {
+        when(reservaVagaRepository.findComProfissionalById(1L)).thenReturn(Optional.of(reserva));
+        when(reservaVagaRepository.expirar(eq(1L), any())).thenReturn(1);
+
+        assertThat(reservaVagaService.expirar(1L)).isTrue();
+
+        verify(vagaInventarioService).liberar(7L, DATA, HORA);
+        verify(eventPublisher).publishEvent(new VagaLiberadaEvent(7L, Especialidade.CARDIOLOGIA, 3L, DATA, HORA));
+    }
+
+    @Test
+    @DisplayName("Não deve devolver a vaga de reserva já confirmada ou expirada por outra instância")
+    void naoDeveLiberarReservaJaRemovida() {
+        when(reservaVagaRepository.findComProfissionalById(1L)).thenReturn(Optional.of(reserva));
+        when(reservaVagaRepository.expirar(eq(1L), any())).thenReturn(0);
+
+        assertThat(reservaVagaService.expirar(1L)).isFalse();
+
+        verifyNoInteractions(vagaInventarioService, eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Deve expirar pela fila as reservas pendentes carregadas na inicialização e as novas")
+    void deveExpirarPelaFila() {
+        when(reservaVagaRepository.findExpiracoes())
+                .thenReturn(List.of(new ExpiracaoReservaProjection(1L, LocalDateTime.now().minusSeconds(1))));
+        when(reservaVagaRepository.findComProfissionalById(any())).thenReturn(Optional.empty());
+
+        reservaVagaService.iniciar();
+        reservaVagaService.agendarExpiracao(2L, LocalDateTime.now().plusNanos(200_000_000));
+        reservaVagaService.agendarExpiracao(3L, LocalDateTime.now().plusHours(1));
+
+        verify(reservaVagaRepository, timeout(2000)).findComProfissionalById(1L);
+        verify(reservaVagaRepository, timeout(2000)).findComProfissionalById(2L);
+        verify(reservaVagaRepository, never()).findComProfissionalById(3L);
+        assertThat(reservaVagaService.getPendentes()).isEqualTo(1);
+    }
+}
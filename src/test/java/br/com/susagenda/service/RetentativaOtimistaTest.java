@@ -0,0 +1,188 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.request.CancelarAgendamentoRequest;
+import br.com.susagenda.dto.request.TransicaoLoteRequest;
+import br.com.susagenda.dto.response.AgendamentoResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.exception.VersaoDesatualizadaException;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.support.DadosTeste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class RetentativaOtimistaTest {
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private RetentativaOtimista retentativaOtimista;
+
+    @Autowired
+    private AgendamentoService agendamentoService;
+
+    @Autowired
+    private AgendamentoLoteService agendamentoLoteService;
+
+    @Autowired
+    private AgendamentoRepository agendamentoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Profissional profissional;
+    private Paciente paciente;
+    private LocalDate segunda;
+
+    @BeforeEach
+    void setUp() {
+        profissional = dados.criarProfissional("Versão", 10);
+        paciente = dados.criarPaciente("Versão");
+        segunda = LocalDate.now().plusWeeks(4).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    @DisplayName("Deve repetir a alteração sobre a versão gravada por outra transação")
+    void deveRepetirAposConflito() {
+        Long id = agendar().getId();
+        AtomicInteger tentativas = new AtomicInteger();
+
+        Long versao = retentativaOtimista.executar(() -> {
+            Agendamento agendamento = agendamentoRepository.findById(id).orElseThrow();
+            if (tentativas.incrementAndGet() == 1) {
+                alterarEmOutraTransacao(id);
+            }
+            agendamento.setObservacoes("Trazer exames anteriores");
+            return agendamentoRepository.saveAndFlush(agendamento).getVersao();
+        });
+
+        assertThat(tentativas).hasValue(2);
+        assertThat(versao).isEqualTo(2L);
+        Agendamento gravado = agendamentoRepository.findById(id).orElseThrow();
+        assertThat(gravado.getObservacoes()).isEqualTo("Trazer exames anteriores");
+        assertThat(gravado.getDataChegada()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve devolver o conflito ao chamador depois do limite de tentativas")
+    void deveDesistirAposLimiteDeTentativas() {
+        Long id = agendar().getId();
+        AtomicInteger tentativas = new AtomicInteger();
+
+        assertThatThrownBy(() -> retentativaOtimista.executar(() -> {
+            Agendamento agendamento = agendamentoRepository.findById(id).orElseThrow();
+            tentativas.incrementAndGet();
+            alterarEmOutraTransacao(id);
+            agendamento.setObservacoes("Nunca gravada");
+            return agendamentoRepository.saveAndFlush(agendamento);
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(tentativas).hasValue(3);
+        assertThat(agendamentoRepository.findById(id).orElseThrow().getObservacoes()).isNull();
+    }
+
+    @Test
+    @DisplayName("Confirmações simultâneas devem confirmar uma vez e recusar as demais pelo status")
+    void deveConfirmarUmaVezComTerminaisSimultaneos() throws Exception {
+        Long id = agendar().getId();
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<AgendamentoResponse>> futuros = new ArrayList<>();
+
+        int confirmados = 0;
+        int recusados = 0;
+        try {
+            for (int i = 0; i < 6; i++) {
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    return agendamentoService.confirmar(id);
+                }));
+            }
+            largada.countDown();
+            for (Future<AgendamentoResponse> futuro : futuros) {
+                try {
+                    futuro.get(30, TimeUnit.SECONDS);
+                    confirmados++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(BusinessException.class);
+                    recusados++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(confirmados).isEqualTo(1);
+        assertThat(recusados).isEqualTo(5);
+        assertThat(agendamentoRepository.findById(id).orElseThrow().getVersao()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar a transição só sobre a versão informada em If-Match")
+    void deveRespeitarVersaoEsperada() {
+        AgendamentoResponse criado = agendar();
+        assertThat(criado.getVersao()).isZero();
+
+        AgendamentoResponse comChegada = agendamentoService.registrarChegada(criado.getId(), 0L);
+        assertThat(comChegada.getVersao()).isEqualTo(1L);
+
+        assertThatThrownBy(() -> agendamentoService.cancelar(criado.getId(),
+                CancelarAgendamentoRequest.builder().motivo("Paciente desistiu da consulta").build(), 0L))
+                .isInstanceOf(VersaoDesatualizadaException.class);
+        assertThat(agendamentoRepository.findById(criado.getId()).orElseThrow().getStatus())
+                .isEqualTo(StatusAgendamento.AGENDADO);
+
+        agendamentoLoteService.confirmarEmLote(TransicaoLoteRequest.builder().ids(List.of(criado.getId())).build());
+        assertThatThrownBy(() -> agendamentoService.iniciarAtendimento(criado.getId(), 1L))
+                .isInstanceOf(VersaoDesatualizadaException.class);
+        assertThat(agendamentoService.iniciarAtendimento(criado.getId(), 2L).getStatus())
+                .isEqualTo(StatusAgendamento.EM_ATENDIMENTO);
+    }
+
+    private void alterarEmOutraTransacao(Long id) {
+        TransactionTemplate outra = new TransactionTemplate(transactionManager);
+        outra.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        outra.executeWithoutResult(status -> jdbcTemplate.update(
+                "UPDATE agendamentos SET data_chegada = CURRENT_TIMESTAMP, versao = versao + 1 WHERE id = ?", id));
+    }
+
+    private AgendamentoResponse agendar() {
+        return agendamentoService.criar(AgendamentoRequest.builder()
+                .pacienteId(paciente.getId())
+                .profissionalId(profissional.getId())
+                .dataAgendamento(segunda)
+                .horaAgendamento(LocalTime.of(8, 0))
+                .tipoAtendimento(TipoAtendimento.CONSULTA)
+                .build());
+    }
+}
@@ -0,0 +1,99 @@
+package br.com.susagenda.service;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.AgendaProfissionalAlteradaEvent;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.domain.event.VagaOcupadaEvent;
+import br.com.susagenda.dto.response.VagaDisponivelResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VagasDisponiveisCacheTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2030, 3, 4);
+    private static final LocalDate FIM = INICIO.plusDays(6);
+
+    private SimpleMeterRegistry meterRegistry;
+    private VagasDisponiveisCache cache;
+    private AtomicInteger calculos;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new VagasDisponiveisCache(meterRegistry, true, 100, 60);
+        calculos = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Deve calcular uma vez e responder as próximas buscas pelo cache")
+    void deveResponderPeloCache() {
+        buscar(Especialidade.CARDIOLOGIA, null, INICIO, FIM);
+        buscar(Especialidade.CARDIOLOGIA, null, INICIO, FIM);
+
+        assertThat(calculos).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vagasDisponiveis").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Agendamento deve invalidar apenas as consultas que contêm o horário")
+    void deveInvalidarApenasConsultasAfetadas() {
+        buscar(Especialidade.CARDIOLOGIA, null, INICIO, FIM);
+        buscar(Especialidade.CARDIOLOGIA, 1L, INICIO, FIM);
+        buscar(Especialidade.CARDIOLOGIA, 2L, INICIO, FIM);
+        buscar(Especialidade.CARDIOLOGIA, null, FIM.plusDays(1), FIM.plusDays(7));
+        buscar(Especialidade.PEDIATRIA, null, INICIO, FIM);
+
+        cache.onVagaOcupada(new VagaOcupadaEvent(10L, Especialidade.CARDIOLOGIA, 1L, INICIO.plusDays(2), LocalTime.of(9, 0)));
+
+        assertThat(cache.getTamanho()).isEqualTo(3);
+        calculos.set(0);
+        buscar(Especialidade.CARDIOLOGIA, null, INICIO, FIM);
+        buscar(Especialidade.CARDIOLOGIA, 1L, INICIO, FIM);
+        buscar(Especialidade.CARDIOLOGIA, 2L, INICIO, FIM);
+        buscar(Especialidade.CARDIOLOGIA, null, FIM.plusDays(1), FIM.plusDays(7));
+        buscar(Especialidade.PEDIATRIA, null, INICIO, FIM);
+        assertThat(calculos).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Alteração de agenda deve invalidar todas as consultas da especialidade")
+    void deveInvalidarEspecialidadeAoAlterarAgenda() {
+        buscar(Especialidade.CARDIOLOGIA, null, INICIO, FIM);
+        buscar(Especialidade.CARDIOLOGIA, 2L, FIM.plusDays(1), FIM.plusDays(7));
+        buscar(Especialidade.PEDIATRIA, null, INICIO, FIM);
+
+        cache.onAgendaProfissionalAlterada(new AgendaProfissionalAlteradaEvent(10L, Especialidade.CARDIOLOGIA));
+
+        assertThat(cache.getTamanho()).isEqualTo(1);
+        assertThat(meterRegistry.get("susagenda.vagas.cache.invalidacoes").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Não deve guardar resultado calculado durante uma invalidação")
+    void naoDeveGuardarResultadoConcorrenteComInvalidacao() {
+        cache.obter(Especialidade.CARDIOLOGIA, null, INICIO, FIM, () -> {
+            cache.onVagaLiberada(new VagaLiberadaEvent(10L, Especialidade.CARDIOLOGIA, 1L, INICIO, LocalTime.of(9, 0)));
+            return List.of();
+        });
+
+        assertThat(cache.getTamanho()).isZero();
+    }
+
+    private List<VagaDisponivelResponse> buscar(Especialidade especialidade, Long unidadeSaudeId,
+                                                LocalDate dataInicio, LocalDate dataFim) {
+        return cache.obter(especialidade, unidadeSaudeId, dataInicio, dataFim, () -> {
+            calculos.incrementAndGet();
+            return List.of();
+        });
+    }
+}
@@ -0,0 +1,210 @@
+package br.com.susagenda.service.calendario;
+
+import br.com.susagenda.domain.entity.HorarioDisponivel;
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.entity.UnidadeSaude;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.domain.event.VagaOcupadaEvent;
+import br.com.susagenda.domain.model.CursorVaga;
+import br.com.susagenda.domain.model.SlotAgenda;
+import br.com.susagenda.dto.response.VagaDisponivelResponse;
+import br.com.susagenda.repository.AgendamentoRepository;
+import br.com.susagenda.repository.HorarioDisponivelRepository;
+import br.com.susagenda.repository.ProfissionalRepository;
+import br.com.susagenda.repository.ReservaVagaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CalendarioVagasTest {
+
+    private static final List<DayOfWeek> DIAS_UTEIS = List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+            DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+
+    @Mock
+    private ProfissionalRepository profissionalRepository;
+
+    @Mock
+    private HorarioDisponivelRepository horarioDisponivelRepository;
+
+    @Mock
+    private AgendamentoRepository agendamentoRepository;
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private ReservaVagaRepository reservaVagaRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TaskExecutor taskExecutor;
+
+    private CalendarioVagas calendarioVagas;
+
+    private final LocalDate segunda = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    private final LocalDate domingo = segunda.minusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        calendarioVagas = new CalendarioVagas(profissionalRepository, horarioDisponivelRepository,
+                agendamentoRepository, reservaVagaRepository, transactionManager, taskExecutor, 14, false);
+    }
+
+    @Test
+    @DisplayName("Deve retornar as próximas vagas em ordem de data, hora e profissional")
+    void deveRetornarProximasVagasEmOrdemCronologica() {
+        carregarCalendario();
+
+        List<VagaDisponivelResponse> vagas = calendarioVagas.buscarVagasApos(
+                Especialidade.CARDIOLOGIA, null, null, CursorVaga.aPartirDe(domingo.atTime(12, 0)), segunda.plusDays(7), 4).orElseThrow();
+
+        assertThat(vagas)
+                .extracting(VagaDisponivelResponse::getProfissionalId, VagaDisponivelResponse::getData,
+                        VagaDisponivelResponse::getHorario, VagaDisponivelResponse::getVagasDisponiveis)
+                .containsExactly(
+                        tuple(2L, segunda, LocalTime.of(8, 0), 2),
+                        tuple(1L, segunda, LocalTime.of(8, 30), 1),
+                        tuple(2L, segunda, LocalTime.of(8, 30), 2),
+                        tuple(1L, segunda, LocalTime.of(9, 0), 1));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar as próximas vagas por cidade e ignorar horários já passados")
+    void deveFiltrarProximasVagasPorCidade() {
+        carregarCalendario();
+
+        List<VagaDisponivelResponse> vagas = calendarioVagas.buscarVagasApos(
+                Especialidade.CARDIOLOGIA, null, "campinas", CursorVaga.aPartirDe(segunda.atTime(9, 10)), segunda.plusDays(7), 2).orElseThrow();
+
+        assertThat(vagas)
+                .extracting(VagaDisponivelResponse::getProfissionalId, VagaDisponivelResponse::getData,
+                        VagaDisponivelResponse::getHorario)
+                .containsExactly(
+                        tuple(2L, segunda, LocalTime.of(9, 30)),
+                        tuple(2L, segunda.plusDays(1), LocalTime.of(8, 0)));
+    }
+
+    @Test
+    @DisplayName("Deve continuar a listagem depois do cursor, inclusive no mesmo horário")
+    void deveContinuarListagemDepoisDoCursor() {
+        carregarCalendario();
+
+        List<VagaDisponivelResponse> vagas = calendarioVagas.buscarVagasApos(Especialidade.CARDIOLOGIA, null, null,
+                new CursorVaga(segunda, LocalTime.of(8, 30), 1L), segunda, 10).orElseThrow();
+
+        assertThat(vagas)
+                .extracting(VagaDisponivelResponse::getProfissionalId, VagaDisponivelResponse::getHorario)
+                .containsExactly(
+                        tuple(2L, LocalTime.of(8, 30)),
+                        tuple(1L, LocalTime.of(9, 0)),
+                        tuple(2L, LocalTime.of(9, 0)),
+                        tuple(1L, LocalTime.of(9, 30)),
+                        tuple(2L, LocalTime.of(9, 30)));
+    }
+
+    @Test
+    @DisplayName("Deve consultar a situação do horário e acompanhar ocupações e liberações")
+    void deveConsultarSituacaoDoHorario() {
+        carregarCalendario();
+
+        assertThat(situacao(1L, domingo, LocalTime.of(8, 0))).isEqualTo(SituacaoHorario.Estado.SEM_ATENDIMENTO_NO_DIA);
+        assertThat(situacao(1L, segunda, LocalTime.of(12, 0))).isEqualTo(SituacaoHorario.Estado.FORA_DO_PERIODO);
+        assertThat(situacao(1L, segunda, LocalTime.of(8, 0))).isEqualTo(SituacaoHorario.Estado.LOTADO);
+        assertThat(calendarioVagas.consultar(1L, segunda, LocalTime.of(8, 15))).isEmpty();
+
+        calendarioVagas.onVagaLiberada(new VagaLiberadaEvent(1L, Especialidade.CARDIOLOGIA, 10L, segunda, LocalTime.of(8, 0)));
+        assertThat(situacao(1L, segunda, LocalTime.of(8, 0))).isEqualTo(SituacaoHorario.Estado.DISPONIVEL);
+
+        calendarioVagas.onVagaOcupada(new VagaOcupadaEvent(2L, Especialidade.CARDIOLOGIA, 20L, segunda, LocalTime.of(8, 0)));
+        calendarioVagas.onVagaOcupada(new VagaOcupadaEvent(2L, Especialidade.CARDIOLOGIA, 20L, segunda, LocalTime.of(8, 0)));
+        assertThat(situacao(2L, segunda, LocalTime.of(8, 0))).isEqualTo(SituacaoHorario.Estado.LOTADO);
+    }
+
+    @Test
+    @DisplayName("Não deve responder enquanto o calendário não foi construído")
+    void naoDeveResponderSemCalendario() {
+        assertThat(calendarioVagas.buscarVagas(Especialidade.CARDIOLOGIA, segunda, segunda)).isEmpty();
+        assertThat(calendarioVagas.buscarVagasApos(Especialidade.CARDIOLOGIA, null, null,
+                CursorVaga.inicioDe(segunda), segunda, 5)).isEmpty();
+        assertThat(calendarioVagas.consultar(1L, segunda, LocalTime.of(8, 0))).isEmpty();
+    }
+
+    private SituacaoHorario.Estado situacao(Long profissionalId, LocalDate data, LocalTime hora) {
+        return calendarioVagas.consultar(profissionalId, data, hora).orElseThrow().estado();
+    }
+
+    private void carregarCalendario() {
+        Profissional primeiro = profissional(1L, unidade(10L, "São Paulo"));
+        Profissional segundo = profissional(2L, unidade(20L, "Campinas"));
+
+        Map<Long, Map<DayOfWeek, List<HorarioDisponivel>>> horarios = new HashMap<>();
+        horarios.put(1L, horariosDiasUteis(primeiro, 1));
+        horarios.put(2L, horariosDiasUteis(segundo, 2));
+
+        when(profissionalRepository.findAtivosComUnidade()).thenReturn(List.of(primeiro, segundo));
+        when(horarioDisponivelRepository.findAtivosAgrupados(any())).thenReturn(horarios);
+        when(agendamentoRepository.mapOcupacaoPorHorario(any(), any(), any()))
+                .thenReturn(Map.of(new SlotAgenda(1L, segunda, LocalTime.of(8, 0)), 1));
+
+        calendarioVagas.reconstruir();
+    }
+
+    private Map<DayOfWeek, List<HorarioDisponivel>> horariosDiasUteis(Profissional profissional, int vagasPorHorario) {
+        Map<DayOfWeek, List<HorarioDisponivel>> porDia = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek dia : DIAS_UTEIS) {
+            porDia.put(dia, List.of(HorarioDisponivel.builder()
+                    .profissional(profissional)
+                    .diaSemana(dia)
+                    .horaInicio(LocalTime.of(8, 0))
+                    .horaFim(LocalTime.of(10, 0))
+                    .duracaoConsultaMinutos(30)
+                    .vagasPorHorario(vagasPorHorario)
+                    .ativo(true)
+                    .build()));
+        }
+        return porDia;
+    }
+
+    private Profissional profissional(Long id, UnidadeSaude unidade) {
+        return Profissional.builder()
+                .id(id)
+                .nome("Dr. Profissional " + id)
+                .cpf(String.format("%011d", id))
+                .registroProfissional("CRM-SP-" + id)
+                .especialidade(Especialidade.CARDIOLOGIA)
+                .unidadeSaude(unidade)
+                .ativo(true)
+                .build();
+    }
+
+    private UnidadeSaude unidade(Long id, String cidade) {
+        return UnidadeSaude.builder()
+                .id(id)
+                .nome("UBS " + cidade)
+                .cnes(String.format("%07d", id))
+                .endereco("Rua Principal, " + id)
+                .cidade(cidade)
+                .estado("SP")
+                .ativo(true)
+                .build();
+    }
+}
@@ -0,0 +1,208 @@
+package br.com.susagenda.service.eventos;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.domain.enums.TipoEventoAgendamento;
+import br.com.susagenda.domain.event.AgendamentoAlteradoEvent;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.request.CancelarAgendamentoRequest;
+import br.com.susagenda.dto.request.TransicaoLoteRequest;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.service.AgendamentoLoteService;
+import br.com.susagenda.service.AgendamentoService;
+import br.com.susagenda.support.DadosTeste;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class PublicadorOutboxTest {
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private AgendamentoService agendamentoService;
+
+    @Autowired
+    private AgendamentoLoteService agendamentoLoteService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Profissional profissional;
+    private Paciente paciente;
+    private LocalDate segunda;
+
+    @BeforeEach
+    void setUp() {
+        profissional = dados.criarProfissional("Eventos", 20);
+        paciente = dados.criarPaciente("Eventos");
+        segunda = LocalDate.now().plusWeeks(5).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    @DisplayName("Cada mudança de status deve gravar seu evento com o status e a versão resultantes")
+    void deveGravarEventoPorMudanca() {
+        Long atendido = agendar();
+        agendamentoService.confirmar(atendido);
+        agendamentoService.registrarChegada(atendido);
+        agendamentoService.iniciarAtendimento(atendido);
+        agendamentoService.concluirAtendimento(atendido);
+        Long cancelado = agendar();
+        agendamentoService.cancelar(cancelado, CancelarAgendamentoRequest.builder().motivo("Paciente viajou").build());
+        Long faltou = agendar();
+        agendamentoLoteService.marcarNaoCompareceuEmLote(TransicaoLoteRequest.builder().ids(List.of(faltou)).build());
+
+        CapturaDestino destino = new CapturaDestino();
+        publicador(destino, evento -> { }, 500).publicarPendentes();
+
+        assertThat(destino.doAgendamento(atendido)).extracting(AgendamentoAlteradoEvent::tipo).containsExactly(
+                TipoEventoAgendamento.CRIADO, TipoEventoAgendamento.CONFIRMADO, TipoEventoAgendamento.CHEGADA_REGISTRADA,
+                TipoEventoAgendamento.ATENDIMENTO_INICIADO, TipoEventoAgendamento.ATENDIMENTO_CONCLUIDO);
+        assertThat(destino.doAgendamento(atendido)).extracting(AgendamentoAlteradoEvent::versao)
+                .containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(destino.doAgendamento(atendido).get(4).status()).isEqualTo(StatusAgendamento.CONCLUIDO);
+        assertThat(destino.doAgendamento(cancelado)).extracting(AgendamentoAlteradoEvent::tipo)
+                .containsExactly(TipoEventoAgendamento.CRIADO, TipoEventoAgendamento.CANCELADO);
+        assertThat(destino.doAgendamento(faltou)).extracting(AgendamentoAlteradoEvent::status)
+                .containsExactly(StatusAgendamento.AGENDADO, StatusAgendamento.NAO_COMPARECEU);
+        assertThat(destino.doAgendamento(faltou).get(1).versao()).isEqualTo(1L);
+        assertThat(destino.doAgendamento(faltou).get(1).pacienteId()).isEqualTo(paciente.getId());
+    }
+
+    @Test
+    @DisplayName("Deve entregar ao destino e aos assinantes e remover os eventos publicados")
+    void deveEntregarERemover() {
+        Long id = agendar();
+        agendamentoService.confirmar(id);
+
+        CapturaDestino destino = new CapturaDestino();
+        List<AgendamentoAlteradoEvent> assinante = new CopyOnWriteArrayList<>();
+        int publicados = publicador(destino, evento -> assinante.add((AgendamentoAlteradoEvent) evento), 1).publicarPendentes();
+
+        assertThat(publicados).isGreaterThanOrEqualTo(2);
+        assertThat(destino.lotes).allMatch(lote -> lote.size() == 1);
+        assertThat(assinante).extracting(AgendamentoAlteradoEvent::id)
+                .containsExactlyElementsOf(destino.eventos().stream().map(AgendamentoAlteradoEvent::id).toList());
+        assertThat(pendentes(id)).isZero();
+        assertThat(publicador(new CapturaDestino(), evento -> { }, 500).publicarPendentes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Falha no destino deve manter os eventos para a próxima rodada")
+    void deveManterEventosQuandoDestinoFalha() {
+        Long id = agendar();
+
+        DestinoEventos indisponivel = eventos -> {
+            throw new IllegalStateException("destino fora do ar");
+        };
+        assertThatThrownBy(() -> publicador(indisponivel, evento -> { }, 500).publicarPendentes())
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(pendentes(id)).isEqualTo(1);
+
+        CapturaDestino destino = new CapturaDestino();
+        publicador(destino, evento -> { }, 500).publicarPendentes();
+        assertThat(destino.doAgendamento(id)).hasSize(1);
+        assertThat(pendentes(id)).isZero();
+    }
+
+    @Test
+    @DisplayName("Publicadores simultâneos não devem entregar o mesmo evento duas vezes")
+    void naoDeveDuplicarEntreInstancias() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Long id = agendar();
+            agendamentoService.confirmar(id);
+            ids.add(id);
+        }
+
+        List<CapturaDestino> destinos = List.of(new CapturaDestino(), new CapturaDestino(), new CapturaDestino());
+        ExecutorService executor = Executors.newFixedThreadPool(destinos.size());
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Integer>> futuros = new ArrayList<>();
+        try {
+            for (CapturaDestino destino : destinos) {
+                PublicadorOutbox instancia = publicador(destino, evento -> { }, 3);
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    return instancia.publicarPendentes();
+                }));
+            }
+            largada.countDown();
+            for (Future<Integer> futuro : futuros) {
+                futuro.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Long> entregues = destinos.stream().flatMap(d -> d.eventos().stream()).map(AgendamentoAlteradoEvent::id).toList();
+        assertThat(entregues).doesNotHaveDuplicates();
+        for (Long id : ids) {
+            assertThat(destinos.stream().mapToLong(d -> d.doAgendamento(id).size()).sum()).isEqualTo(2);
+        }
+    }
+
+    private PublicadorOutbox publicador(DestinoEventos destino, ApplicationEventPublisher assinantes, int tamanhoLote) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("destino", destino));
+        return new PublicadorOutbox(jdbcTemplate, assinantes, beans.getBeanProvider(DestinoEventos.class),
+                transactionManager, new SimpleMeterRegistry(), true, tamanhoLote);
+    }
+
+    private int pendentes(Long agendamentoId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM eventos_agendamento WHERE agendamento_id = ?",
+                Integer.class, agendamentoId);
+    }
+
+    private Long agendar() {
+        return agendamentoService.criar(AgendamentoRequest.builder()
+                .pacienteId(paciente.getId())
+                .profissionalId(profissional.getId())
+                .dataAgendamento(segunda)
+                .horaAgendamento(LocalTime.of(8, 0))
+                .tipoAtendimento(TipoAtendimento.CONSULTA)
+                .build()).getId();
+    }
+
+    private static final class CapturaDestino implements DestinoEventos {
+
+        private final List<List<AgendamentoAlteradoEvent>> lotes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publicar(List<AgendamentoAlteradoEvent> eventos) {
+            lotes.add(List.copyOf(eventos));
+        }
+
+        List<AgendamentoAlteradoEvent> eventos() {
+            return lotes.stream().flatMap(List::stream).toList();
+        }
+
+        List<AgendamentoAlteradoEvent> doAgendamento(Long agendamentoId) {
+            return eventos().stream().filter(e -> e.agendamentoId().equals(agendamentoId)).toList();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.domain.enums.StatusAgendamento;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.domain.event.VagaLiberadaEvent;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.request.CancelarAgendamentoRequest;
+import br.com.susagenda.dto.request.ListaEsperaRequest;
+import br.com.susagenda.dto.request.TransicaoLoteRequest;
+import br.com.susagenda.dto.response.ListaEsperaResponse;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.service.AgendamentoLoteService;
+import br.com.susagenda.service.AgendamentoService;
+import br.com.susagenda.service.ListaEsperaService;
+import br.com.susagenda.support.DadosTeste;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@RecordApplicationEvents
+class AlocacaoListaEsperaTest {
+
+    private static final Especialidade ESPECIALIDADE = Especialidade.ENDOCRINOLOGIA;
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private AgendamentoService agendamentoService;
+
+    @Autowired
+    private AgendamentoLoteService agendamentoLoteService;
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private IndicePosicoesFila indicePosicoesFila;
+
+    @Autowired
+    private ContadoresListaEspera contadoresListaEspera;
+
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+
+    @Autowired
+    private AgendadorListaEspera agendadorListaEspera;
+
+    @Autowired
+    private AgendamentoRepository agendamentoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEvents eventos;
+
+    private AlocacaoListaEspera alocacao;
+    private UnidadeSaude outraUnidade;
+    private Profissional profissional;
+    private LocalDate segunda;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM lista_espera WHERE especialidade = ?", ESPECIALIDADE.name());
+        indicePosicoesFila.descartar();
+        contadoresListaEspera.reconciliar();
+        alocacao = new AlocacaoListaEspera(indicePosicoesFila, listaEsperaRepository, agendadorListaEspera,
+                transactionManager, new SimpleMeterRegistry(),
+                true, 100, 3, 50, 120);
+        profissional = criarProfissional();
+        outraUnidade = dados.criarUnidade("Fila");
+        segunda = LocalDate.now().plusWeeks(6).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    @DisplayName("Vaga cancelada deve ir para o primeiro da fila que prefere a unidade da vaga")
+    void deveAgendarOMelhorCandidato() {
+        Long ocupante = agendar(dados.criarPaciente("Alocação", Prioridade.NORMAL), LocalTime.of(8, 0));
+        ListaEsperaResponse normal = entrarNaFila(dados.criarPaciente("Alocação", Prioridade.NORMAL), null);
+        ListaEsperaResponse urgenteOutraUnidade = entrarNaFila(dados.criarPaciente("Alocação", Prioridade.URGENTE), outraUnidade.getId());
+        ListaEsperaResponse gestante = entrarNaFila(dados.criarPaciente("Alocação", Prioridade.GESTANTE), profissional.getUnidadeSaude().getId());
+
+        agendamentoService.cancelar(ocupante, CancelarAgendamentoRequest.builder().motivo("Paciente viajou").build());
+        assertThat(alocar()).isEqualTo(1);
+
+        assertThat(pacientesNoHorario(LocalTime.of(8, 0))).containsExactly(gestante.getPacienteId());
+        ListaEspera atendida = listaEsperaRepository.findById(gestante.getId()).orElseThrow();
+        assertThat(atendida.getAtendido()).isTrue();
+        assertThat(atendida.getDataAgendamento()).isNotNull();
+        assertThat(listaEsperaService.buscarPorIdResponse(urgenteOutraUnidade.getId()).getPosicaoNaFila()).isEqualTo(1);
+        assertThat(listaEsperaService.buscarPorIdResponse(normal.getId()).getPosicaoNaFila()).isEqualTo(2);
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Cancelamento do dia inteiro deve agendar cada paciente da fila uma única vez, em lotes")
+    void deveAlocarRajadaDeCancelamentos() {
+        Paciente ocupante = dados.criarPaciente("Alocação", Prioridade.NORMAL);
+        List<Long> agendamentos = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            agendamentos.add(agendar(ocupante, LocalTime.of(8, 0).plusMinutes(30L * i)));
+        }
+        List<ListaEsperaResponse> fila = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            fila.add(entrarNaFila(dados.criarPaciente("Alocação", i == 4 ? Prioridade.URGENTE : Prioridade.NORMAL), null));
+        }
+
+        agendamentoLoteService.cancelarEmLote(TransicaoLoteRequest.builder()
+                .ids(agendamentos).motivo("Profissional em licença").build());
+        assertThat(alocar()).isEqualTo(5);
+
+        List<Long> atendidos = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            atendidos.addAll(pacientesNoHorario(LocalTime.of(8, 0).plusMinutes(30L * i)));
+        }
+        assertThat(atendidos).containsExactlyInAnyOrderElementsOf(fila.stream().map(ListaEsperaResponse::getPacienteId).toList());
+        assertThat(pacientesNoHorario(LocalTime.of(8, 0))).containsExactly(fila.get(4).getPacienteId());
+        assertThat(pacientesNoHorario(LocalTime.of(8, 30))).containsExactly(fila.get(0).getPacienteId());
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isZero();
+    }
+
+    @Test
+    @DisplayName("Vaga ocupada antes da rodada não deve tirar o candidato da fila")
+    void deveManterCandidatoQuandoVagaJaFoiOcupada() {
+        Long ocupante = agendar(dados.criarPaciente("Alocação", Prioridade.NORMAL), LocalTime.of(9, 0));
+        ListaEsperaResponse aguardando = entrarNaFila(dados.criarPaciente("Alocação", Prioridade.NORMAL), null);
+
+        agendamentoService.cancelar(ocupante, CancelarAgendamentoRequest.builder().motivo("Remarcado pelo paciente").build());
+        agendar(dados.criarPaciente("Alocação", Prioridade.NORMAL), LocalTime.of(9, 0));
+        assertThat(alocar()).isZero();
+
+        assertThat(listaEsperaRepository.findById(aguardando.getId()).orElseThrow().getAtendido()).isFalse();
+        assertThat(listaEsperaService.buscarPorIdResponse(aguardando.getId()).getPosicaoNaFila()).isEqualTo(1);
+        assertThat(pacientesNoHorario(LocalTime.of(9, 0))).doesNotContain(aguardando.getPacienteId());
+    }
+
+    private int alocar() {
+        eventos.stream(VagaLiberadaEvent.class).forEach(alocacao::onVagaLiberada);
+        return alocacao.alocarPendentes();
+    }
+
+    private List<Long> pacientesNoHorario(LocalTime hora) {
+        return agendamentoRepository.findAgendamentosNoHorario(profissional.getId(), segunda, hora).stream()
+                .filter(a -> a.getStatus() == StatusAgendamento.AGENDADO)
+                .map(a -> a.getPaciente().getId())
+                .toList();
+    }
+
+    private Long agendar(Paciente paciente, LocalTime hora) {
+        return agendamentoService.criar(AgendamentoRequest.builder()
+                .pacienteId(paciente.getId())
+                .profissionalId(profissional.getId())
+                .dataAgendamento(segunda)
+                .horaAgendamento(hora)
+                .tipoAtendimento(TipoAtendimento.CONSULTA)
+                .build()).getId();
+    }
+
+    private ListaEsperaResponse entrarNaFila(Paciente paciente, Long unidadePreferidaId) {
+        return listaEsperaService.adicionarNaFila(ListaEsperaRequest.builder()
+                .pacienteId(paciente.getId())
+                .especialidade(ESPECIALIDADE)
+                .unidadeSaudePreferidaId(unidadePreferidaId)
+                .build());
+    }
+
+    private Profissional criarProfissional() {
+        Profissional novo = dados.criarProfissional("Fila", ESPECIALIDADE, dados.criarUnidade("Fila"));
+        dados.criarHorario(novo, DayOfWeek.MONDAY, LocalTime.of(12, 0), 1);
+        return novo;
+    }
+}
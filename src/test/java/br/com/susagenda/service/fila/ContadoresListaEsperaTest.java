@@ -0,0 +1,85 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.UnidadeSaude;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.dto.request.ListaEsperaRequest;
+import br.com.susagenda.dto.response.ListaEsperaResponse;
+import br.com.susagenda.service.ListaEsperaService;
+import br.com.susagenda.support.DadosTeste;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class ContadoresListaEsperaTest {
+
+    private static final Especialidade ESPECIALIDADE = Especialidade.NEUROLOGIA;
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private ContadoresListaEspera contadoresListaEspera;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM lista_espera WHERE especialidade = ?", ESPECIALIDADE.name());
+        contadoresListaEspera.reconciliar();
+    }
+
+    @Test
+    @DisplayName("Contagens por especialidade e unidade devem acompanhar inclusões, atendimentos e remoções")
+    void deveContarSemConsultarOBanco() {
+        UnidadeSaude unidade = dados.criarUnidade("Contagem");
+        ListaEsperaResponse naUnidade = adicionar(unidade.getId());
+        ListaEsperaResponse outroNaUnidade = adicionar(unidade.getId());
+        ListaEsperaResponse semUnidade = adicionar(null);
+
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isEqualTo(3);
+        assertThat(listaEsperaService.contarPacientesNaFilaUnidade(unidade.getId())).isEqualTo(2);
+        assertThat(meterRegistry.get("susagenda.lista-espera.aguardando")
+                .tag("especialidade", ESPECIALIDADE.name()).gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("susagenda.lista-espera.aguardando.unidade")
+                .tag("unidade", unidade.getId().toString()).gauge().value()).isEqualTo(2);
+
+        listaEsperaService.marcarComoAtendido(naUnidade.getId());
+        // remover uma entrada já atendida não muda a contagem
+        listaEsperaService.removerDaFila(naUnidade.getId());
+        listaEsperaService.removerDaFila(semUnidade.getId());
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isEqualTo(1);
+        assertThat(listaEsperaService.contarPacientesNaFilaUnidade(unidade.getId())).isEqualTo(1);
+
+        // mudança feita por outra instância entra na reconciliação
+        jdbcTemplate.update("DELETE FROM lista_espera WHERE id = ?", outroNaUnidade.getId());
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isEqualTo(1);
+        contadoresListaEspera.reconciliar();
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isZero();
+        assertThat(listaEsperaService.contarPacientesNaFilaUnidade(unidade.getId())).isZero();
+    }
+
+    private ListaEsperaResponse adicionar(Long unidadePreferidaId) {
+        return listaEsperaService.adicionarNaFila(ListaEsperaRequest.builder()
+                .pacienteId(dados.criarPaciente("Contagem").getId())
+                .especialidade(ESPECIALIDADE)
+                .unidadeSaudePreferidaId(unidadePreferidaId)
+                .build());
+    }
+}
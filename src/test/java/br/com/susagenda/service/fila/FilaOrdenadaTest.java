@@ -0,0 +1,74 @@
+package br.com.susagenda.service.fila;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilaOrdenadaTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    @Test
+    @DisplayName("Deve ordenar por peso decrescente, depois pela solicitação mais antiga e pelo id")
+    void deveOrdenarPelaPrioridade() {
+        FilaOrdenada<ChaveFila> fila = new FilaOrdenada<>();
+        ChaveFila normalAntigo = new ChaveFila(0, INICIO, 1L);
+        ChaveFila normalRecente = new ChaveFila(0, INICIO.plusHours(1), 2L);
+        ChaveFila idoso = new ChaveFila(1, INICIO.plusHours(2), 3L);
+        ChaveFila urgente = new ChaveFila(3, INICIO.plusHours(3), 4L);
+        ChaveFila gestanteMesmoInstante = new ChaveFila(2, INICIO, 6L);
+        ChaveFila deficienteMesmoInstante = new ChaveFila(2, INICIO, 5L);
+
+        for (ChaveFila chave : new ChaveFila[]{normalRecente, idoso, urgente, normalAntigo, gestanteMesmoInstante,
+                deficienteMesmoInstante}) {
+            assertThat(fila.adicionar(chave)).isTrue();
+        }
+
+        assertThat(fila.adicionar(idoso)).isFalse();
+        assertThat(fila.tamanho()).isEqualTo(6);
+        assertThat(fila.contarMenores(urgente)).isZero();
+        assertThat(fila.contarMenores(deficienteMesmoInstante)).isEqualTo(1);
+        assertThat(fila.contarMenores(gestanteMesmoInstante)).isEqualTo(2);
+        assertThat(fila.contarMenores(idoso)).isEqualTo(3);
+        assertThat(fila.contarMenores(normalAntigo)).isEqualTo(4);
+        assertThat(fila.contarMenores(normalRecente)).isEqualTo(5);
+
+        assertThat(fila.remover(urgente)).isTrue();
+        assertThat(fila.remover(urgente)).isFalse();
+        assertThat(fila.contarMenores(normalRecente)).isEqualTo(4);
+        assertThat(fila.contarMenores(new ChaveFila(0, INICIO.plusMinutes(30), 7L))).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Posições devem coincidir com um conjunto ordenado após inclusões e remoções aleatórias")
+    void deveCoincidirComConjuntoOrdenado() {
+        FilaOrdenada<ChaveFila> fila = new FilaOrdenada<>();
+        TreeSet<ChaveFila> esperado = new TreeSet<>();
+        Random aleatorio = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            ChaveFila chave = new ChaveFila(aleatorio.nextInt(4), INICIO.plusMinutes(aleatorio.nextInt(500)),
+                    (long) aleatorio.nextInt(3_000));
+            if (aleatorio.nextInt(3) == 0) {
+                assertThat(fila.remover(chave)).isEqualTo(esperado.remove(chave));
+            } else {
+                assertThat(fila.adicionar(chave)).isEqualTo(esperado.add(chave));
+            }
+            if (i % 100 == 0) {
+                assertThat(fila.contarMenores(chave)).isEqualTo(esperado.headSet(chave).size());
+                assertThat(fila.contem(chave)).isEqualTo(esperado.contains(chave));
+            }
+        }
+
+        assertThat(fila.tamanho()).isEqualTo(esperado.size());
+        int posicao = 0;
+        for (ChaveFila chave : esperado) {
+            assertThat(fila.contarMenores(chave)).isEqualTo(posicao++);
+        }
+    }
+}
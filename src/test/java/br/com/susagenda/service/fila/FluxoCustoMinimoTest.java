@@ -0,0 +1,86 @@
+package br.com.susagenda.service.fila;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FluxoCustoMinimoTest {
+
+    @Test
+    @DisplayName("Deve enviar o fluxo máximo pelo caminho mais barato, dividindo quando a capacidade acaba")
+    void deveResolverRedeConhecida() {
+        FluxoCustoMinimo fluxo = new FluxoCustoMinimo(4, 5);
+        int barato = fluxo.adicionarAresta(0, 1, 2, 1);
+        int caro = fluxo.adicionarAresta(0, 2, 3, 4);
+        int atalho = fluxo.adicionarAresta(1, 2, FluxoCustoMinimo.INFINITO, 1);
+        int saidaUm = fluxo.adicionarAresta(1, 3, 1, 5);
+        int saidaDois = fluxo.adicionarAresta(2, 3, 3, 1);
+
+        FluxoCustoMinimo.Resultado resultado = fluxo.resolver(0, 3);
+
+        assertThat(resultado.fluxo()).isEqualTo(4);
+        // a saída 1-3 só é usada porque a 2-3 lota: 0-1-3 (6), 0-1-2-3 (3) e duas vezes 0-2-3 (5)
+        assertThat(resultado.custo()).isEqualTo(6 + 3 + 5 + 5);
+        assertThat(fluxo.fluxo(barato)).isEqualTo(2);
+        assertThat(fluxo.fluxo(caro)).isEqualTo(2);
+        assertThat(fluxo.fluxo(atalho)).isEqualTo(1);
+        assertThat(fluxo.fluxo(saidaUm)).isEqualTo(1);
+        assertThat(fluxo.fluxo(saidaDois)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Atribuições aleatórias devem coincidir com a busca exaustiva: máximo de pares com o menor custo")
+    void deveCoincidirComBuscaExaustiva() {
+        Random aleatorio = new Random(7);
+        for (int caso = 0; caso < 300; caso++) {
+            int pacientes = 1 + aleatorio.nextInt(6);
+            int vagas = 1 + aleatorio.nextInt(6);
+            long[][] custos = new long[pacientes][vagas];
+            FluxoCustoMinimo fluxo = new FluxoCustoMinimo(2 + pacientes + vagas, pacientes * vagas + pacientes + vagas);
+            for (int p = 0; p < pacientes; p++) {
+                fluxo.adicionarAresta(0, 2 + p, 1, 0);
+                for (int v = 0; v < vagas; v++) {
+                    custos[p][v] = aleatorio.nextInt(4) == 0 ? -1 : aleatorio.nextInt(20);
+                    if (custos[p][v] >= 0) {
+                        fluxo.adicionarAresta(2 + p, 2 + pacientes + v, 1, custos[p][v]);
+                    }
+                }
+            }
+            for (int v = 0; v < vagas; v++) {
+                fluxo.adicionarAresta(2 + pacientes + v, 1, 1, 0);
+            }
+
+            FluxoCustoMinimo.Resultado resultado = fluxo.resolver(0, 1);
+
+            long[] esperado = melhor(custos, 0, 0);
+            assertThat(resultado.fluxo()).as("caso %d", caso).isEqualTo(esperado[0]);
+            assertThat(resultado.custo()).as("caso %d", caso).isEqualTo(esperado[1]);
+        }
+    }
+
+    /**
+     * {pares, custo} da melhor atribuição dos pacientes a partir de {@code paciente}, com as vagas
+     * de {@code ocupadas} já usadas.
+     */
+    private static long[] melhor(long[][] custos, int paciente, int ocupadas) {
+        if (paciente == custos.length) {
+            return new long[]{0, 0};
+        }
+        long[] melhor = melhor(custos, paciente + 1, ocupadas);
+        for (int v = 0; v < custos[paciente].length; v++) {
+            if (custos[paciente][v] < 0 || (ocupadas & (1 << v)) != 0) {
+                continue;
+            }
+            long[] resto = melhor(custos, paciente + 1, ocupadas | (1 << v));
+            long[] opcao = {resto[0] + 1, resto[1] + custos[paciente][v]};
+            if (opcao[0] > melhor[0] || (opcao[0] == melhor[0] && opcao[1] < melhor[1])) {
+                melhor = Arrays.copyOf(opcao, 2);
+            }
+        }
+        return melhor;
+    }
+}
@@ -0,0 +1,179 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.Paciente;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.dto.request.ListaEsperaRequest;
+import br.com.susagenda.dto.response.ListaEsperaResponse;
+import br.com.susagenda.service.ListaEsperaService;
+import br.com.susagenda.support.DadosTeste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class IndicePosicoesFilaTest {
+
+    private static final Especialidade ESPECIALIDADE = Especialidade.REUMATOLOGIA;
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private IndicePosicoesFila indicePosicoesFila;
+
+    @Autowired
+    private ContadoresListaEspera contadoresListaEspera;
+
+    @Autowired
+    private PontuacaoFila pontuacaoFila;
+
+    @Autowired
+    private RepontuacaoFila repontuacaoFila;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM lista_espera WHERE especialidade = ?", ESPECIALIDADE.name());
+        indicePosicoesFila.descartar();
+        contadoresListaEspera.reconciliar();
+    }
+
+    @Test
+    @DisplayName("Deve posicionar pelo peso da prioridade e manter as posições em inclusões, atendimentos e remoções")
+    void deveManterPosicoes() {
+        ListaEsperaResponse normal = adicionar(dados.criarPaciente("Fila", LocalDate.of(1985, 1, 1), Prioridade.NORMAL));
+        ListaEsperaResponse normalDepois = adicionar(dados.criarPaciente("Fila", LocalDate.of(1990, 1, 1), Prioridade.NORMAL));
+        ListaEsperaResponse idoso = adicionar(dados.criarPaciente("Fila", LocalDate.of(1950, 1, 1), Prioridade.NORMAL));
+        ListaEsperaResponse urgente = adicionar(dados.criarPaciente("Fila", LocalDate.of(1980, 1, 1), Prioridade.URGENTE));
+
+        assertThat(idoso.getPrioridade()).isEqualTo(Prioridade.IDOSO);
+        assertThat(idoso.getPosicaoNaFila()).isEqualTo(1);
+        assertThat(urgente.getPosicaoNaFila()).isEqualTo(1);
+        assertThat(urgente.getTotalNaFila()).isEqualTo(4);
+        assertThat(posicoes(normal, normalDepois, idoso, urgente)).containsExactly(3, 4, 2, 1);
+        assertThat(listaEsperaService.buscarFilaPorEspecialidade(ESPECIALIDADE))
+                .extracting(ListaEsperaResponse::getId)
+                .containsExactly(urgente.getId(), idoso.getId(), normal.getId(), normalDepois.getId());
+        assertThat(listaEsperaService.buscarPorPaciente(normal.getPacienteId()))
+                .extracting(ListaEsperaResponse::getPosicaoNaFila).containsExactly(3);
+
+        ListaEsperaResponse atendido = listaEsperaService.marcarComoAtendido(urgente.getId());
+        assertThat(atendido.getPosicaoNaFila()).isZero();
+        assertThat(atendido.getTotalNaFila()).isEqualTo(3);
+        assertThat(posicoes(normal, normalDepois, idoso, urgente)).containsExactly(2, 3, 1, 0);
+
+        listaEsperaService.removerDaFila(normal.getId());
+        assertThat(posicoes(normalDepois, idoso)).containsExactly(2, 1);
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Inclusão desfeita não deve entrar na fila e inclusões de outra instância entram na recarga")
+    void deveRefletirSoMudancasConfirmadas() {
+        ListaEsperaResponse primeiro = adicionar(dados.criarPaciente("Fila", LocalDate.of(1985, 1, 1), Prioridade.NORMAL));
+        Paciente desistente = dados.criarPaciente("Fila", LocalDate.of(1970, 1, 1), Prioridade.URGENTE);
+
+        ListaEsperaResponse desfeito = new TransactionTemplate(transactionManager).execute(status -> {
+            status.setRollbackOnly();
+            return adicionar(desistente);
+        });
+        assertThat(desfeito.getPosicaoNaFila()).isEqualTo(1);
+        assertThat(desfeito.getTotalNaFila()).isEqualTo(2);
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isEqualTo(1);
+        assertThat(listaEsperaService.buscarPorIdResponse(primeiro.getId()).getPosicaoNaFila()).isEqualTo(1);
+
+        inserir(desistente, LocalDateTime.now(), pontuacaoFila.pontuar(Prioridade.URGENTE, LocalDateTime.now()));
+        assertThat(listaEsperaService.buscarPorIdResponse(primeiro.getId()).getPosicaoNaFila()).isEqualTo(1);
+
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isEqualTo(1);
+
+        indicePosicoesFila.descartar();
+        contadoresListaEspera.reconciliar();
+        ListaEsperaResponse recarregado = listaEsperaService.buscarPorIdResponse(primeiro.getId());
+        assertThat(recarregado.getPosicaoNaFila()).isEqualTo(2);
+        assertThat(recarregado.getTotalNaFila()).isEqualTo(2);
+        assertThat(listaEsperaService.contarPacientesNaFila(ESPECIALIDADE)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Fila carregada na transação do chamador deve ser descartada se a transação for desfeita")
+    void deveDescartarFilaCarregadaEmTransacaoDesfeita() {
+        adicionar(dados.criarPaciente("Fila", LocalDate.of(1985, 1, 1), Prioridade.NORMAL));
+        Paciente desistente = dados.criarPaciente("Fila", LocalDate.of(1970, 1, 1), Prioridade.URGENTE);
+        indicePosicoesFila.descartar();
+
+        Long totalNaTransacao = new TransactionTemplate(transactionManager).execute(status -> {
+            status.setRollbackOnly();
+            inserir(desistente, LocalDateTime.now(), pontuacaoFila.pontuar(Prioridade.URGENTE, LocalDateTime.now()));
+            // carregada pela conexão da transação, que já vê a inclusão ainda não confirmada
+            return indicePosicoesFila.total(ESPECIALIDADE);
+        });
+
+        assertThat(totalNaTransacao).isEqualTo(2);
+        assertThat(indicePosicoesFila.total(ESPECIALIDADE)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Espera longa deve passar à frente de prioridade maior e pontuação desatualizada deve ser recalculada")
+    void deveEnvelhecerPrioridade() {
+        LocalDateTime agora = LocalDateTime.now();
+        Paciente normalHa40Dias = dados.criarPaciente("Fila", LocalDate.of(1985, 1, 1), Prioridade.NORMAL);
+        Paciente normalHa20Dias = dados.criarPaciente("Fila", LocalDate.of(1986, 1, 1), Prioridade.NORMAL);
+        inserir(normalHa40Dias, agora.minusDays(40), pontuacaoFila.pontuar(Prioridade.NORMAL, agora.minusDays(40)));
+        // gravada com a pontuação de outra configuração
+        inserir(normalHa20Dias, agora.minusDays(20), 0);
+        ListaEsperaResponse idoso = adicionar(dados.criarPaciente("Fila", LocalDate.of(1950, 1, 1), Prioridade.NORMAL));
+
+        assertThat(repontuacaoFila.repontuar()).isPositive();
+        assertThat(repontuacaoFila.repontuar()).isZero();
+
+        assertThat(listaEsperaService.buscarFilaPorEspecialidade(ESPECIALIDADE))
+                .extracting(ListaEsperaResponse::getPacienteId)
+                .containsExactly(normalHa40Dias.getId(), idoso.getPacienteId(), normalHa20Dias.getId());
+        assertThat(listaEsperaService.buscarPorIdResponse(idoso.getId()).getPosicaoNaFila()).isEqualTo(2);
+    }
+
+    private void inserir(Paciente paciente, LocalDateTime dataSolicitacao, long pontuacao) {
+        jdbcTemplate.update("INSERT INTO lista_espera (paciente_id, especialidade, prioridade, pontuacao_prioridade, " +
+                        "data_solicitacao, atendido, created_at) VALUES (?, ?, ?, ?, ?, false, CURRENT_TIMESTAMP)",
+                paciente.getId(), ESPECIALIDADE.name(), paciente.getPrioridade().name(), pontuacao,
+                Timestamp.valueOf(dataSolicitacao));
+    }
+
+    private List<Integer> posicoes(ListaEsperaResponse... entradas) {
+        return Arrays.stream(entradas)
+                .map(entrada -> listaEsperaService.buscarPorIdResponse(entrada.getId()).getPosicaoNaFila())
+                .toList();
+    }
+
+    private ListaEsperaResponse adicionar(Paciente paciente) {
+        return listaEsperaService.adicionarNaFila(ListaEsperaRequest.builder()
+                .pacienteId(paciente.getId())
+                .especialidade(ESPECIALIDADE)
+                .build());
+    }
+}
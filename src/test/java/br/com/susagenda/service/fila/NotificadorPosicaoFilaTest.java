@@ -0,0 +1,236 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.dto.request.ListaEsperaRequest;
+import br.com.susagenda.dto.response.ListaEsperaResponse;
+import br.com.susagenda.service.ListaEsperaService;
+import br.com.susagenda.support.DadosTeste;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class NotificadorPosicaoFilaTest {
+
+    private static final Especialidade ESPECIALIDADE = Especialidade.OFTALMOLOGIA;
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private NotificadorPosicaoFila notificadorPosicaoFila;
+
+    @Autowired
+    private IndicePosicoesFila indicePosicoesFila;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM lista_espera WHERE especialidade = ?", ESPECIALIDADE.name());
+        indicePosicoesFila.descartar();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    @DisplayName("Deve enviar a posição só quando ela muda e encerrar quando a entrada sai da fila")
+    void deveEnviarMudancasDePosicao() throws Exception {
+        adicionar(Prioridade.NORMAL);
+        ListaEsperaResponse acompanhada = adicionar(Prioridade.NORMAL);
+
+        MvcResult fluxo = mockMvc.perform(get("/api/v1/lista-espera/{id}/posicao", acompanhada.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(eventos(fluxo, 1)).containsExactly("\"posicaoNaFila\":2,\"totalNaFila\":2");
+        assertThat(fluxo.getResponse().getContentType()).startsWith("text/event-stream");
+
+        adicionar(Prioridade.URGENTE);
+        assertThat(notificadorPosicaoFila.notificar()).isEqualTo(1);
+        assertThat(eventos(fluxo, 2)).endsWith("\"posicaoNaFila\":3,\"totalNaFila\":3");
+
+        // entrou atrás: a posição acompanhada não muda e nada é enviado
+        adicionar(Prioridade.NORMAL);
+        assertThat(notificadorPosicaoFila.notificar()).isZero();
+        assertThat(eventos(fluxo, 2)).hasSize(2);
+
+        listaEsperaService.marcarComoAtendido(acompanhada.getId());
+        assertThat(notificadorPosicaoFila.notificar()).isEqualTo(1);
+        assertThat(eventos(fluxo, 3)).endsWith("\"posicaoNaFila\":0,\"totalNaFila\":3");
+    }
+
+    @Test
+    @DisplayName("Conexão presa em um envio deve ser descartada sem atrasar a rodada nem as demais conexões")
+    void deveDescartarConexaoLenta() throws Exception {
+        ListaEsperaResponse lenta = adicionar(Prioridade.NORMAL);
+        ListaEsperaResponse acompanhada = adicionar(Prioridade.NORMAL);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch encerrada = new CountDownLatch(1);
+        SseEmitter presa = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder evento) throws IOException {
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public synchronized void complete() {
+                encerrada.countDown();
+            }
+        };
+        double descartadasAntes = descartadas();
+
+        notificadorPosicaoFila.assinar(lenta.getId(), ESPECIALIDADE, presa);
+        MvcResult fluxo = mockMvc.perform(get("/api/v1/lista-espera/{id}/posicao", acompanhada.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(eventos(fluxo, 1)).hasSize(1);
+        // passa do atraso máximo do perfil de teste com o primeiro envio ainda preso
+        Thread.sleep(300);
+
+        adicionar(Prioridade.URGENTE);
+        assertThat(notificadorPosicaoFila.notificar()).isEqualTo(1);
+        assertThat(eventos(fluxo, 2)).endsWith("\"posicaoNaFila\":3,\"totalNaFila\":3");
+        assertThat(descartadas() - descartadasAntes).isEqualTo(1);
+
+        // a conexão descartada é encerrada quando o envio preso termina
+        assertThat(encerrada.getCount()).isEqualTo(1);
+        liberar.countDown();
+        assertThat(encerrada.await(5, TimeUnit.SECONDS)).isTrue();
+
+        listaEsperaService.marcarComoAtendido(acompanhada.getId());
+        assertThat(notificadorPosicaoFila.notificar()).isEqualTo(1);
+        assertThat(eventos(fluxo, 3)).endsWith("\"posicaoNaFila\":0,\"totalNaFila\":2");
+    }
+
+    @Test
+    @DisplayName("Envios que nunca terminam não devem tomar as threads das demais conexões")
+    void naoDeveEsgotarThreadsComEnviosPresos() throws Exception {
+        // mais conexões presas que as 4 threads de envio
+        int presas = 6;
+        CountDownLatch liberar = new CountDownLatch(1);
+        double descartadasAntes = descartadas();
+        try {
+            for (int i = 0; i < presas; i++) {
+                notificadorPosicaoFila.assinar(adicionar(Prioridade.NORMAL).getId(), ESPECIALIDADE, new SseEmitter() {
+                    @Override
+                    public void send(SseEventBuilder evento) throws IOException {
+                        try {
+                            liberar.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            ListaEsperaResponse acompanhada = adicionar(Prioridade.NORMAL);
+            MvcResult fluxo = mockMvc.perform(get("/api/v1/lista-espera/{id}/posicao", acompanhada.getId()))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            // cada rodada após o atraso máximo descarta os envios presos e repõe as suas threads
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((eventos(fluxo, 0).length == 0 || descartadas() - descartadasAntes < presas)
+                    && System.nanoTime() < limite) {
+                Thread.sleep(250);
+                notificadorPosicaoFila.notificar();
+            }
+            assertThat(eventos(fluxo, 1)).containsExactly("\"posicaoNaFila\":7,\"totalNaFila\":7");
+            assertThat(descartadas() - descartadasAntes).isEqualTo(presas);
+            assertThat(notificadorPosicaoFila.getEnviosPresos()).isEqualTo(presas);
+
+            adicionar(Prioridade.URGENTE);
+            assertThat(notificadorPosicaoFila.notificar()).isEqualTo(1);
+            assertThat(eventos(fluxo, 2)).endsWith("\"posicaoNaFila\":8,\"totalNaFila\":8");
+
+            listaEsperaService.marcarComoAtendido(acompanhada.getId());
+            assertThat(notificadorPosicaoFila.notificar()).isEqualTo(1);
+            assertThat(eventos(fluxo, 3)).endsWith("\"posicaoNaFila\":0,\"totalNaFila\":7");
+        } finally {
+            liberar.countDown();
+        }
+
+        // os envios presos que terminam devolvem as threads substitutas
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (notificadorPosicaoFila.getEnviosPresos() > 0 && System.nanoTime() < limite) {
+            pausa();
+        }
+        assertThat(notificadorPosicaoFila.getEnviosPresos()).isZero();
+    }
+
+    @Test
+    @DisplayName("Acompanhar entrada inexistente deve retornar 404")
+    void deveRecusarEntradaInexistente() throws Exception {
+        mockMvc.perform(get("/api/v1/lista-espera/{id}/posicao", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Posição e total de cada evento {@code posicao} recebido, na ordem, esperando até chegarem
+     * ao menos {@code esperados} (os envios saem em outra thread).
+     */
+    private static String[] eventos(MvcResult fluxo, int esperados) throws Exception {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String[] eventos;
+        do {
+            String conteudo = fluxo.getResponse().getContentAsString();
+            // só eventos completos: um envio pode estar sendo escrito durante a leitura
+            eventos = conteudo.substring(0, conteudo.lastIndexOf("\n\n") + 1).lines()
+                    .filter(linha -> linha.startsWith("data:"))
+                    .map(linha -> linha.substring(linha.indexOf("\"posicaoNaFila\""), linha.lastIndexOf('}')))
+                    .toArray(String[]::new);
+        } while (eventos.length < esperados && System.nanoTime() < limite && pausa());
+        return eventos;
+    }
+
+    private static boolean pausa() throws InterruptedException {
+        Thread.sleep(10);
+        return true;
+    }
+
+    private double descartadas() {
+        return meterRegistry.get("susagenda.lista-espera.notificacao.descartadas").counter().count();
+    }
+
+    private ListaEsperaResponse adicionar(Prioridade prioridade) {
+        return listaEsperaService.adicionarNaFila(ListaEsperaRequest.builder()
+                .pacienteId(dados.criarPaciente("Acompanhamento", prioridade).getId())
+                .especialidade(ESPECIALIDADE)
+                .build());
+    }
+}
@@ -0,0 +1,175 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.entity.*;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.domain.enums.StatusItemPlanoAlocacao;
+import br.com.susagenda.domain.enums.StatusPlanoAlocacao;
+import br.com.susagenda.domain.enums.TipoAtendimento;
+import br.com.susagenda.dto.request.AgendamentoRequest;
+import br.com.susagenda.dto.request.ListaEsperaRequest;
+import br.com.susagenda.dto.response.ItemPlanoAlocacaoResponse;
+import br.com.susagenda.dto.response.ListaEsperaResponse;
+import br.com.susagenda.dto.response.PlanoAlocacaoResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.repository.*;
+import br.com.susagenda.service.AgendamentoService;
+import br.com.susagenda.service.ListaEsperaService;
+import br.com.susagenda.service.VagaInventarioService;
+import br.com.susagenda.support.DadosTeste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class OtimizadorListaEsperaTest {
+
+    private static final Especialidade ESPECIALIDADE = Especialidade.GASTROENTEROLOGIA;
+
+    @Autowired
+    private DadosTeste dados;
+
+    @Autowired
+    private OtimizadorListaEspera otimizador;
+
+    @Autowired
+    private ListaEsperaService listaEsperaService;
+
+    @Autowired
+    private AgendamentoService agendamentoService;
+
+    @Autowired
+    private VagaInventarioService vagaInventarioService;
+
+    @Autowired
+    private IndicePosicoesFila indicePosicoesFila;
+
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+
+    @Autowired
+    private AgendamentoRepository agendamentoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LocalDate dia;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM lista_espera WHERE especialidade = ?", ESPECIALIDADE.name());
+        jdbcTemplate.update("UPDATE profissionais SET ativo = false WHERE especialidade = ?", ESPECIALIDADE.name());
+        indicePosicoesFila.descartar();
+        dia = LocalDate.now().plusDays(10);
+    }
+
+    @Test
+    @DisplayName("Plano deve dar as vagas aos mais urgentes na unidade preferida e ser aplicado em lotes")
+    void deveGerarEAplicarPlano() {
+        Profissional primeiraUnidade = criarProfissional(dados.criarUnidade("Plano"), LocalTime.of(9, 0));
+        Profissional segundaUnidade = criarProfissional(dados.criarUnidade("Plano"), LocalTime.of(8, 30));
+        ListaEsperaResponse normalAntigo = entrarNaFila(Prioridade.NORMAL, null);
+        ListaEsperaResponse normalRecente = entrarNaFila(Prioridade.NORMAL, null);
+        ListaEsperaResponse gestante = entrarNaFila(Prioridade.GESTANTE, primeiraUnidade.getUnidadeSaude().getId());
+        ListaEsperaResponse urgente = entrarNaFila(Prioridade.URGENTE, segundaUnidade.getUnidadeSaude().getId());
+
+        PlanoAlocacaoResponse plano = otimizador.gerarPlano(ESPECIALIDADE);
+
+        assertThat(plano.getCandidatos()).isEqualTo(4);
+        assertThat(plano.getVagas()).isEqualTo(3);
+        assertThat(plano.getItens()).isEqualTo(3);
+        assertThat(plano.getPendentes()).isEqualTo(3);
+        Map<Long, ItemPlanoAlocacaoResponse> itens = otimizador.listarItens(plano.getId(), 0, 100).stream()
+                .collect(Collectors.toMap(ItemPlanoAlocacaoResponse::getListaEsperaId, i -> i));
+        assertThat(itens).containsOnlyKeys(urgente.getId(), gestante.getId(), normalAntigo.getId());
+        assertThat(itens.get(urgente.getId()).getProfissionalId()).isEqualTo(segundaUnidade.getId());
+        assertThat(itens.get(urgente.getId()).getUnidadePreferida()).isTrue();
+        assertThat(itens.get(gestante.getId()).getProfissionalId()).isEqualTo(primeiraUnidade.getId());
+        assertThat(itens.get(gestante.getId()).getHoraAgendamento()).isEqualTo(LocalTime.of(8, 0));
+        assertThat(itens.get(normalAntigo.getId()).getHoraAgendamento()).isEqualTo(LocalTime.of(8, 30));
+        assertThat(itens.get(normalAntigo.getId()).getUnidadePreferida()).isNull();
+
+        PlanoAlocacaoResponse primeiroLote = otimizador.aplicar(plano.getId(), 2);
+        assertThat(primeiroLote.getAgendados()).isEqualTo(2);
+        assertThat(primeiroLote.getPendentes()).isEqualTo(1);
+        assertThat(primeiroLote.getStatus()).isEqualTo(StatusPlanoAlocacao.GERADO);
+
+        PlanoAlocacaoResponse segundoLote = otimizador.aplicar(plano.getId(), 500);
+        assertThat(segundoLote.getAgendados()).isEqualTo(3);
+        assertThat(segundoLote.getStatus()).isEqualTo(StatusPlanoAlocacao.APLICADO);
+
+        for (ItemPlanoAlocacaoResponse item : otimizador.listarItens(plano.getId(), 0, 100)) {
+            assertThat(item.getStatus()).isEqualTo(StatusItemPlanoAlocacao.AGENDADO);
+            Agendamento agendamento = agendamentoRepository.findById(item.getAgendamentoId()).orElseThrow();
+            assertThat(agendamento.getPaciente().getId()).isEqualTo(item.getPacienteId());
+            assertThat(agendamento.getHoraAgendamento()).isEqualTo(item.getHoraAgendamento());
+            assertThat(listaEsperaRepository.findById(item.getListaEsperaId()).orElseThrow().getAtendido()).isTrue();
+        }
+        assertThat(listaEsperaService.buscarPorIdResponse(normalRecente.getId()).getPosicaoNaFila()).isEqualTo(1);
+        assertThatThrownBy(() -> otimizador.aplicar(plano.getId(), 10)).isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    @DisplayName("Itens cujo paciente saiu da fila ou cujo horário lotou devem ser recusados na aplicação")
+    void deveRecusarItensDesatualizados() {
+        Profissional profissional = criarProfissional(dados.criarUnidade("Plano"), LocalTime.of(9, 0));
+        ListaEsperaResponse desistente = entrarNaFila(Prioridade.URGENTE, null);
+        ListaEsperaResponse aguardando = entrarNaFila(Prioridade.NORMAL, null);
+        PlanoAlocacaoResponse anterior = otimizador.gerarPlano(ESPECIALIDADE);
+        PlanoAlocacaoResponse plano = otimizador.gerarPlano(ESPECIALIDADE);
+        assertThat(otimizador.buscar(anterior.getId()).getStatus()).isEqualTo(StatusPlanoAlocacao.DESCARTADO);
+        assertThatThrownBy(() -> otimizador.aplicar(anterior.getId(), 10)).isInstanceOf(BusinessException.class);
+
+        Map<Long, ItemPlanoAlocacaoResponse> itens = otimizador.listarItens(plano.getId(), 0, 100).stream()
+                .collect(Collectors.toMap(ItemPlanoAlocacaoResponse::getListaEsperaId, i -> i));
+        listaEsperaService.removerDaFila(desistente.getId());
+        agendamentoService.criar(AgendamentoRequest.builder()
+                .pacienteId(dados.criarPaciente("Plano", Prioridade.NORMAL).getId())
+                .profissionalId(profissional.getId())
+                .dataAgendamento(dia)
+                .horaAgendamento(itens.get(aguardando.getId()).getHoraAgendamento())
+                .tipoAtendimento(TipoAtendimento.CONSULTA)
+                .build());
+
+        PlanoAlocacaoResponse aplicado = otimizador.aplicar(plano.getId(), 500);
+
+        assertThat(aplicado.getRecusados()).isEqualTo(2);
+        assertThat(aplicado.getStatus()).isEqualTo(StatusPlanoAlocacao.APLICADO);
+        assertThat(otimizador.listarItens(plano.getId(), 0, 100))
+                .extracting(ItemPlanoAlocacaoResponse::getMotivoRecusa)
+                .containsExactly("Paciente não está mais na lista de espera", "Horário não tem mais vaga");
+        assertThat(listaEsperaRepository.findById(aguardando.getId()).orElseThrow().getAtendido()).isFalse();
+    }
+
+    private ListaEsperaResponse entrarNaFila(Prioridade prioridade, Long unidadePreferidaId) {
+        return listaEsperaService.adicionarNaFila(ListaEsperaRequest.builder()
+                .pacienteId(dados.criarPaciente("Plano", prioridade).getId())
+                .especialidade(ESPECIALIDADE)
+                .unidadeSaudePreferidaId(unidadePreferidaId)
+                .build());
+    }
+
+    /**
+     * Profissional atendendo das 8h até {@code fim}, de 30 em 30 minutos, com inventário só em {@link #dia}.
+     */
+    private Profissional criarProfissional(UnidadeSaude unidade, LocalTime fim) {
+        Profissional novo = dados.criarProfissional("Plano", ESPECIALIDADE, unidade);
+        dados.criarHorario(novo, dia.getDayOfWeek(), fim, 1);
+        vagaInventarioService.regenerarProfissional(novo.getId());
+        jdbcTemplate.update("DELETE FROM vagas WHERE profissional_id = ? AND data <> ?", novo.getId(), dia);
+        return novo;
+    }
+}
@@ -0,0 +1,116 @@
+package br.com.susagenda.service.fila;
+
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.repository.projection.CandidatoAlocacaoProjection;
+import br.com.susagenda.repository.projection.VagaLivreProjection;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlanejadorAlocacaoTest {
+
+    private static final LocalDate HOJE = LocalDate.of(2024, 3, 4);
+    private static final long UNIDADE_A = 1L;
+    private static final long UNIDADE_B = 2L;
+
+    private static final PontuacaoFila PONTUACAO = new PontuacaoFila(30);
+
+    private final PlanejadorAlocacao planejador = new PlanejadorAlocacao(14);
+
+    @Test
+    @DisplayName("Vagas mais próximas devem ir para os mais urgentes e, no empate, para quem espera há mais tempo")
+    void deveDarVagasMaisCedoAosMaisUrgentes() {
+        CandidatoAlocacaoProjection normalAntigo = candidato(1, Prioridade.NORMAL, 60, null);
+        CandidatoAlocacaoProjection normalRecente = candidato(2, Prioridade.NORMAL, 2, null);
+        CandidatoAlocacaoProjection urgente = candidato(3, Prioridade.URGENTE, 1, null);
+        List<VagaLivreProjection> vagas = List.of(
+                vaga(10, UNIDADE_A, 1, 8, 1),
+                vaga(10, UNIDADE_A, 3, 8, 1));
+
+        PlanejadorAlocacao.Plano plano = planejador.planejar(List.of(normalRecente, urgente, normalAntigo), vagas, HOJE);
+
+        assertThat(porPaciente(plano)).containsOnly(
+                Map.entry(3L, HOJE.plusDays(1)),
+                Map.entry(1L, HOJE.plusDays(3)));
+        assertThat(plano.atribuicoes()).extracting(a -> a.candidato().id()).containsExactly(3L, 1L);
+        assertThat(plano.atribuicoes().get(1).diasEspera()).isEqualTo(60);
+    }
+
+    @Test
+    @DisplayName("Paciente deve ficar na unidade preferida quando a troca não deixa vaga vazia")
+    void deveRespeitarUnidadePreferida() {
+        CandidatoAlocacaoProjection preferePrimeira = candidato(1, Prioridade.NORMAL, 10, UNIDADE_A);
+        CandidatoAlocacaoProjection prefereSegunda = candidato(2, Prioridade.NORMAL, 10, UNIDADE_B);
+        CandidatoAlocacaoProjection semPreferencia = candidato(3, Prioridade.NORMAL, 10, null);
+        List<VagaLivreProjection> vagas = List.of(
+                vaga(10, UNIDADE_A, 2, 9, 1),
+                vaga(20, UNIDADE_B, 2, 9, 1),
+                vaga(20, UNIDADE_B, 5, 9, 1));
+
+        PlanejadorAlocacao.Plano plano = planejador.planejar(List.of(semPreferencia, prefereSegunda, preferePrimeira),
+                vagas, HOJE);
+
+        Map<Long, PlanejadorAlocacao.Atribuicao> atribuicoes = plano.atribuicoes().stream()
+                .collect(Collectors.toMap(a -> a.candidato().id(), a -> a));
+        assertThat(atribuicoes).hasSize(3);
+        assertThat(atribuicoes.get(1L).vaga().unidadeSaudeId()).isEqualTo(UNIDADE_A);
+        assertThat(atribuicoes.get(1L).unidadePreferida()).isTrue();
+        assertThat(atribuicoes.get(2L).vaga().data()).isEqualTo(HOJE.plusDays(2));
+        assertThat(atribuicoes.get(2L).unidadePreferida()).isTrue();
+        assertThat(atribuicoes.get(3L).vaga().data()).isEqualTo(HOJE.plusDays(5));
+        assertThat(atribuicoes.get(3L).unidadePreferida()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve preencher o máximo de vagas sem passar da capacidade de nenhum horário")
+    void devePreencherOMaximoDeVagas() {
+        Random aleatorio = new Random(11);
+        List<CandidatoAlocacaoProjection> candidatos = new ArrayList<>();
+        Prioridade[] prioridades = Prioridade.values();
+        for (int i = 0; i < 3_000; i++) {
+            candidatos.add(candidato(i, prioridades[aleatorio.nextInt(prioridades.length)], aleatorio.nextInt(200),
+                    aleatorio.nextInt(3) == 0 ? null : (long) (1 + aleatorio.nextInt(5))));
+        }
+        List<VagaLivreProjection> vagas = new ArrayList<>();
+        int capacidade = 0;
+        for (int i = 0; i < 1_500; i++) {
+            int restantes = 1 + aleatorio.nextInt(3);
+            capacidade += restantes;
+            vagas.add(vaga(i, 1 + aleatorio.nextInt(5), 1 + aleatorio.nextInt(60), 7 + aleatorio.nextInt(10), restantes));
+        }
+
+        PlanejadorAlocacao.Plano plano = planejador.planejar(candidatos, vagas, HOJE);
+
+        assertThat(plano.atribuicoes()).hasSize(Math.min(candidatos.size(), capacidade));
+        assertThat(plano.atribuicoes()).extracting(a -> a.candidato().id()).doesNotHaveDuplicates();
+        Map<VagaLivreProjection, Long> ocupacao = plano.atribuicoes().stream()
+                .collect(Collectors.groupingBy(PlanejadorAlocacao.Atribuicao::vaga, IdentityHashMap::new, Collectors.counting()));
+        ocupacao.forEach((vaga, ocupadas) -> assertThat(ocupadas).isLessThanOrEqualTo(vaga.restantes()));
+        // quem fica de fora nunca é mais urgente que alguém atendido
+        int menorPesoAtendido = plano.atribuicoes().stream().mapToInt(a -> a.candidato().prioridade().getPeso()).min().orElseThrow();
+        Set<Long> atendidos = plano.atribuicoes().stream().map(a -> a.candidato().id()).collect(Collectors.toSet());
+        assertThat(candidatos).filteredOn(c -> !atendidos.contains(c.id()))
+                .allSatisfy(c -> assertThat(c.prioridade().getPeso()).isLessThanOrEqualTo(menorPesoAtendido));
+    }
+
+    private static Map<Long, LocalDate> porPaciente(PlanejadorAlocacao.Plano plano) {
+        return plano.atribuicoes().stream().collect(Collectors.toMap(a -> a.candidato().id(), a -> a.vaga().data()));
+    }
+
+    private static CandidatoAlocacaoProjection candidato(long id, Prioridade prioridade, int diasEsperando, Long unidade) {
+        LocalDateTime dataSolicitacao = HOJE.minusDays(diasEsperando).atTime(10, 0);
+        return new CandidatoAlocacaoProjection(id, 1_000 + id, prioridade,
+                PONTUACAO.pontuar(prioridade, dataSolicitacao), dataSolicitacao, unidade);
+    }
+
+    private static VagaLivreProjection vaga(long profissional, long unidade, int diasAFrente, int hora, int restantes) {
+        return new VagaLivreProjection(profissional, unidade, HOJE.plusDays(diasAFrente), LocalTime.of(hora, 0), restantes);
+    }
+}
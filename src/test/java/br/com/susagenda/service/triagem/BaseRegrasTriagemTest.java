@@ -0,0 +1,168 @@
+package br.com.susagenda.service.triagem;
+
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.dto.request.RegrasTriagemRequest;
+import br.com.susagenda.dto.request.RegrasTriagemRequest.RegraEspecialidade;
+import br.com.susagenda.dto.request.TriagemRequest;
+import br.com.susagenda.dto.response.RegrasTriagemResponse;
+import br.com.susagenda.dto.response.TriagemResponse;
+import br.com.susagenda.exception.BusinessException;
+import br.com.susagenda.exception.ResourceNotFoundException;
+import br.com.susagenda.repository.VersaoRegrasTriagemRepository;
+import br.com.susagenda.service.TriagemService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class BaseRegrasTriagemTest {
+
+    private static final String SINTOMAS = "Sinto taquicardia quando subo escadas";
+
+    @Autowired
+    private BaseRegrasTriagem baseRegrasTriagem;
+
+    @Autowired
+    private TriagemService triagemService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VersaoRegrasTriagemRepository versaoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private int versaoInicial;
+
+    @BeforeEach
+    void setUp() {
+        versaoInicial = baseRegrasTriagem.buscarAtiva().getVersao();
+    }
+
+    @AfterEach
+    void restaurar() {
+        baseRegrasTriagem.ativar(versaoInicial);
+    }
+
+    @Test
+    @DisplayName("Deve publicar as regras padrão na inicialização quando a base está vazia")
+    void devePublicarRegrasPadrao() {
+        RegrasTriagemResponse primeira = baseRegrasTriagem.buscar(1);
+
+        assertThat(primeira.getPalavras())
+                .isEqualTo(RegrasTriagem.PADRAO.values().stream().mapToInt(List::size).sum());
+        assertThat(primeira.getRegras()).extracting(RegrasTriagemResponse.RegraEspecialidade::getEspecialidade)
+                .extracting(Especialidade::name)
+                .containsExactlyElementsOf(RegrasTriagem.PADRAO.keySet());
+    }
+
+    @Test
+    @DisplayName("Versão publicada deve valer na próxima triagem sem alterar as regras já em uso por uma requisição")
+    void deveTrocarRegrasPorInteiro() {
+        RegrasTriagemAtivas emUso = baseRegrasTriagem.ativas();
+
+        RegrasTriagemResponse publicada = baseRegrasTriagem.publicar(regras("taquicardia", "dor no peito"), true);
+
+        assertThat(publicada.getAtiva()).isTrue();
+        assertThat(baseRegrasTriagem.ativas().versao()).isEqualTo(publicada.getVersao());
+        TriagemResponse triagem = triagemService.realizarTriagem(new TriagemRequest(SINTOMAS));
+        assertThat(triagem.getMetodoUtilizado()).isEqualTo("REGRAS");
+        assertThat(triagem.getEspecialidades()).extracting(TriagemResponse.EspecialidadeSugerida::getNome)
+                .containsExactly("CARDIOLOGIA");
+        // quem já tinha lido as regras anteriores continua com elas inteiras
+        assertThat(emUso.reconhecedor().contar(SINTOMAS)).containsOnly(0);
+
+        // desfazer a publicação é ativar a versão anterior
+        baseRegrasTriagem.ativar(emUso.versao());
+        assertThat(baseRegrasTriagem.ativas().reconhecedor().contar(SINTOMAS)).containsOnly(0);
+        assertThat(baseRegrasTriagem.buscar(publicada.getVersao()).getAtiva()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve passar a usar a versão ativada por outra instância na recarga")
+    void deveRecarregarVersaoAtivadaPorOutraInstancia() {
+        int publicada = baseRegrasTriagem.publicar(regras("taquicardia"), false).getVersao();
+        assertThat(baseRegrasTriagem.recarregar()).isFalse();
+
+        jdbcTemplate.update("UPDATE versoes_regras_triagem SET ativa = false WHERE ativa = true");
+        jdbcTemplate.update("UPDATE versoes_regras_triagem SET ativa = true WHERE versao = ?", publicada);
+
+        assertThat(baseRegrasTriagem.recarregar()).isTrue();
+        assertThat(baseRegrasTriagem.ativas().versao()).isEqualTo(publicada);
+        assertThat(baseRegrasTriagem.ativas().reconhecedor().contar(SINTOMAS)).containsExactly(1);
+        assertThat(baseRegrasTriagem.recarregar()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve recusar especialidade repetida e versão inexistente")
+    void deveValidarRegras() {
+        RegrasTriagemRequest repetida = RegrasTriagemRequest.builder()
+                .regras(List.of(regra("taquicardia"), regra("arritmia")))
+                .build();
+
+        assertThatThrownBy(() -> baseRegrasTriagem.publicar(repetida, true))
+                .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> baseRegrasTriagem.ativar(Integer.MAX_VALUE))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(baseRegrasTriagem.ativas().versao()).isEqualTo(versaoInicial);
+    }
+
+    @Test
+    @DisplayName("Publicação concorrente de outra instância deve ser esperada, não sobrescrita nem um erro 500")
+    void deveSerializarPublicacoesNoBanco() throws Exception {
+        CountDownLatch bloqueada = new CountDownLatch(1);
+        // outra instância: bloqueia como a publicação e grava a próxima versão antes de liberar
+        CompletableFuture<Integer> outraInstancia = CompletableFuture.supplyAsync(() ->
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    versaoRepository.findFirstByOrderByVersaoAsc();
+                    int versao = versaoRepository.findUltimaVersao() + 1;
+                    jdbcTemplate.update("INSERT INTO versoes_regras_triagem (versao, descricao, ativa, palavras, created_at) "
+                            + "VALUES (?, 'Outra instância', false, 0, CURRENT_TIMESTAMP)", versao);
+                    bloqueada.countDown();
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return versao;
+                }));
+        assertThat(bloqueada.await(5, TimeUnit.SECONDS)).isTrue();
+
+        RegrasTriagemResponse publicada = baseRegrasTriagem.publicar(regras("taquicardia"), false);
+
+        assertThat(publicada.getVersao()).isEqualTo(outraInstancia.get(5, TimeUnit.SECONDS) + 1);
+        assertThat(baseRegrasTriagem.ativas().versao()).isEqualTo(versaoInicial);
+    }
+
+    private static RegrasTriagemRequest regras(String... palavras) {
+        return RegrasTriagemRequest.builder()
+                .descricao("Cardiologia com taquicardia")
+                .regras(List.of(regra(palavras)))
+                .build();
+    }
+
+    private static RegraEspecialidade regra(String... palavras) {
+        return RegraEspecialidade.builder()
+                .especialidade(Especialidade.CARDIOLOGIA)
+                .palavrasChave(List.of(palavras))
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.susagenda.service.triagem;
+
+import br.com.susagenda.dto.response.TriagemResponse;
+import br.com.susagenda.dto.response.TriagemResponse.EspecialidadeSugerida;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class CacheTriagemIATest {
+
+    @Autowired
+    private CacheTriagemIA cacheTriagemIA;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger consultas = new AtomicInteger();
+    private String caso;
+
+    @BeforeEach
+    void setUp() {
+        // palavra própria de cada execução, para não reaproveitar respostas de outros testes
+        caso = "caso" + System.nanoTime();
+    }
+
+    @Test
+    @DisplayName("Forma canônica deve ignorar acentos, ordem, repetições e palavras de ligação, mas não negações")
+    void deveCanonizarSintomas() {
+        assertThat(FormaCanonicaSintomas.de("Doutor, estou com dor de cabeça e febre"))
+                .isEqualTo("cabeca dor febre")
+                .isEqualTo(FormaCanonicaSintomas.de("febre, dor na CABECA... dor!"));
+        assertThat(FormaCanonicaSintomas.de("tenho febre")).isNotEqualTo(FormaCanonicaSintomas.de("não tenho febre"));
+    }
+
+    @Test
+    @DisplayName("Negações e intensidades devem continuar presas à palavra que modificam")
+    void deveManterAlcanceDosModificadores() {
+        assertThat(FormaCanonicaSintomas.de("febre sem tosse")).isEqualTo("febre sem_tosse");
+        assertThat(FormaCanonicaSintomas.de("Tosse, sem febre")).isEqualTo("sem_febre tosse");
+        assertThat(FormaCanonicaSintomas.de("não tenho muita dor")).isEqualTo("nao_muita_dor");
+        assertThat(FormaCanonicaSintomas.de("tosse, mas não. Febre")).isEqualTo("febre nao tosse");
+
+        cacheTriagemIA.obter("febre sem tosse " + caso, consulta(0));
+        cacheTriagemIA.obter("tosse sem febre " + caso, consulta(0));
+        assertThat(consultas).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Relatos equivalentes devem consultar a IA uma vez e os seguintes vir da memória")
+    void deveResponderRelatosEquivalentesDaMemoria() {
+        double economizadaAntes = latenciaEconomizada();
+
+        TriagemResponse primeira = cacheTriagemIA.obter("Estou com enjoo forte há dias " + caso, consulta(30));
+        TriagemResponse segunda = cacheTriagemIA.obter(caso + ": enjoo   FORTE, há dias", consulta(30));
+
+        assertThat(consultas).hasValue(1);
+        assertThat(segunda).isEqualTo(primeira).isNotSameAs(primeira);
+        assertThat(latenciaEconomizada() - economizadaAntes).isGreaterThanOrEqualTo(30);
+        assertThat(cacheTriagemIA.getTaxaAcerto()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Deve responder pelo banco quando a resposta não está na memória desta instância")
+    void deveResponderPeloBanco() {
+        double doBancoAntes = requisicoes("banco");
+        cacheTriagemIA.obter("Enjoo e tontura " + caso, consulta(0));
+
+        cacheTriagemIA.descartarMemoria();
+        TriagemResponse resposta = cacheTriagemIA.obter("tontura, enjoo " + caso, consulta(0));
+
+        assertThat(consultas).hasValue(1);
+        assertThat(resposta.getEspecialidades()).extracting(EspecialidadeSugerida::getNome).containsExactly("CLINICO_GERAL");
+        assertThat(requisicoes("banco") - doBancoAntes).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Falha da consulta não deve ser guardada")
+    void naoDeveGuardarFalha() {
+        Supplier<TriagemResponse> falha = () -> {
+            consultas.incrementAndGet();
+            return null;
+        };
+
+        assertThat(cacheTriagemIA.obter("Mal-estar " + caso, falha)).isNull();
+        assertThat(cacheTriagemIA.obter("Mal-estar " + caso, consulta(0))).isNotNull();
+        assertThat(consultas).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Relatos equivalentes simultâneos devem aguardar uma única consulta")
+    void deveCompartilharConsultaEmAndamento() throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TriagemResponse>> respostas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                respostas.add(executor.submit(() -> {
+                    largada.await();
+                    return cacheTriagemIA.obter("Cansaço constante " + caso, consulta(200));
+                }));
+            }
+            largada.countDown();
+            for (Future<TriagemResponse> resposta : respostas) {
+                assertThat(resposta.get(10, TimeUnit.SECONDS)).isNotNull();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(consultas).hasValue(1);
+    }
+
+    private Supplier<TriagemResponse> consulta(long duracaoMs) {
+        return () -> {
+            consultas.incrementAndGet();
+            try {
+                Thread.sleep(duracaoMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return TriagemResponse.builder()
+                    .especialidades(List.of(EspecialidadeSugerida.builder()
+                            .nome("CLINICO_GERAL")
+                            .probabilidade(80)
+                            .justificativa("Avaliação geral")
+                            .build()))
+                    .metodoUtilizado("IA")
+                    .aviso("Aviso")
+                    .build();
+        };
+    }
+
+    private double latenciaEconomizada() {
+        return meterRegistry.get("susagenda.triagem.ia.latencia.economizada").counter().count();
+    }
+
+    private double requisicoes(String resultado) {
+        return meterRegistry.get("susagenda.triagem.ia.requisicoes").tag("resultado", resultado).counter().count();
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.susagenda.service.triagem;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconhecedorSintomasTest {
+
+    private static final ReconhecedorSintomas RECONHECEDOR = ReconhecedorSintomas.compilar(RegrasTriagem.PADRAO);
+
+    @Test
+    @DisplayName("Deve reconhecer palavras-chave sem depender de acentos, maiúsculas ou espaços repetidos")
+    void deveNormalizarTexto() {
+        assertThat(contagem("Sinto uma dor no CORACAO e   falta\tde ar")).containsEntry("CARDIOLOGIA", 2);
+        assertThat(contagem("Palpitacao forte")).containsEntry("CARDIOLOGIA", 1);
+        assertThat(contagem("dor no peito")).isEqualTo(contagem("Dor  no Peito"));
+        assertThat(contagem("nada relacionado")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve reconhecer texto decomposto, com os acentos como marcas separadas")
+    void deveReconhecerTextoDecomposto() {
+        String decomposto = Normalizer.normalize("Dor no coração e palpitação", Normalizer.Form.NFD);
+
+        assertThat(decomposto).contains("c\u0327a\u0303o");
+        assertThat(contagem(decomposto)).containsEntry("CARDIOLOGIA", 2);
+        assertThat(NormalizacaoTexto.normalizar(decomposto)).isEqualTo("dor no coracao e palpitacao");
+    }
+
+    @Test
+    @DisplayName("Palavra de mais de uma especialidade deve pontuar em todas e contar uma vez cada")
+    void deveContarPalavrasDistintas() {
+        Map<String, Integer> contagem = contagem("tontura, tontura e mais tontura com falta de ar");
+
+        assertThat(contagem).containsEntry("OTORRINOLARINGOLOGIA", 1)
+                .containsEntry("NEUROLOGIA", 1)
+                .containsEntry("CARDIOLOGIA", 1)
+                .containsEntry("PNEUMOLOGIA", 1);
+    }
+
+    @Test
+    @DisplayName("Deve encontrar as mesmas palavras que a busca de cada palavra no texto normalizado")
+    void deveEquivalerABuscaIngenua() {
+        List<String> palavras = new ArrayList<>();
+        RegrasTriagem.PADRAO.values().forEach(palavras::addAll);
+        String[] ruido = {"de", "a", "muita", "há dias", "à noite", "ção", "ã", " ", "  ", ",", "DOR"};
+        Random aleatorio = new Random(23);
+
+        for (int n = 0; n < 2_000; n++) {
+            StringBuilder texto = new StringBuilder();
+            for (int i = aleatorio.nextInt(12); i >= 0; i--) {
+                if (aleatorio.nextBoolean()) {
+                    String palavra = palavras.get(aleatorio.nextInt(palavras.size()));
+                    // cortes de palavras exercitam as transições de falha
+                    texto.append(palavra, 0, 1 + aleatorio.nextInt(palavra.length()));
+                } else {
+                    texto.append(ruido[aleatorio.nextInt(ruido.length)]);
+                }
+            }
+            assertThat(contagem(texto.toString())).as(texto.toString()).isEqualTo(contagemIngenua(texto.toString()));
+        }
+    }
+
+    private static Map<String, Integer> contagem(String texto) {
+        int[] contagens = RECONHECEDOR.contar(texto);
+        Map<String, Integer> porEspecialidade = new LinkedHashMap<>();
+        for (int i = 0; i < contagens.length; i++) {
+            if (contagens[i] > 0) {
+                porEspecialidade.put(RECONHECEDOR.especialidades().get(i), contagens[i]);
+            }
+        }
+        return porEspecialidade;
+    }
+
+    private static Map<String, Integer> contagemIngenua(String texto) {
+        String normalizado = NormalizacaoTexto.normalizar(texto);
+        Map<String, Integer> porEspecialidade = new LinkedHashMap<>();
+        RegrasTriagem.PADRAO.forEach((especialidade, palavras) -> {
+            int encontradas = (int) palavras.stream()
+                    .map(NormalizacaoTexto::normalizar)
+                    .filter(normalizado::contains)
+                    .count();
+            if (encontradas > 0) {
+                porEspecialidade.put(especialidade, encontradas);
+            }
+        });
+        return porEspecialidade;
+    }
+}
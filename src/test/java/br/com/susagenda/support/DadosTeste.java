@@ -0,0 +1,110 @@
+package br.com.susagenda.support;
+
+import br.com.susagenda.domain.entity.HorarioDisponivel;
+import br.com.susagenda.domain.entity.Paciente;
+import br.com.susagenda.domain.entity.Profissional;
+import br.com.susagenda.domain.entity.UnidadeSaude;
+import br.com.susagenda.domain.enums.Especialidade;
+import br.com.susagenda.domain.enums.Prioridade;
+import br.com.susagenda.repository.HorarioDisponivelRepository;
+import br.com.susagenda.repository.PacienteRepository;
+import br.com.susagenda.repository.ProfissionalRepository;
+import br.com.susagenda.repository.UnidadeSaudeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unidades, profissionais e pacientes para os testes de integração, que dividem o mesmo banco.
+ *
+ * <p>CNES, CPF, cartão SUS e registro profissional são únicos no banco: todos saem de um único
+ * contador, em faixas próprias que não cruzam com os valores fixos dos demais testes. O
+ * {@code contexto} só entra no nome, para identificar o teste que criou o registro.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class DadosTeste {
+
+    private static final AtomicLong SEQUENCIA = new AtomicLong();
+
+    private final UnidadeSaudeRepository unidadeSaudeRepository;
+    private final ProfissionalRepository profissionalRepository;
+    private final HorarioDisponivelRepository horarioDisponivelRepository;
+    private final PacienteRepository pacienteRepository;
+
+    public UnidadeSaude criarUnidade(String contexto) {
+        long n = SEQUENCIA.incrementAndGet();
+        return unidadeSaudeRepository.save(UnidadeSaude.builder()
+                .nome("UBS " + contexto + " " + n)
+                .cnes(String.format("%07d", 7000000 + n))
+                .endereco("Rua do Teste, " + n)
+                .cidade("São Paulo")
+                .estado("SP")
+                .ativo(true)
+                .build());
+    }
+
+    /**
+     * Profissional de clínica geral em uma unidade própria, atendendo às segundas das 8h às 10h de
+     * 30 em 30 minutos.
+     */
+    public Profissional criarProfissional(String contexto, int vagasPorHorario) {
+        Profissional profissional = criarProfissional(contexto, Especialidade.CLINICO_GERAL, criarUnidade(contexto));
+        criarHorario(profissional, DayOfWeek.MONDAY, LocalTime.of(10, 0), vagasPorHorario);
+        return profissional;
+    }
+
+    /**
+     * Profissional sem horários de atendimento.
+     */
+    public Profissional criarProfissional(String contexto, Especialidade especialidade, UnidadeSaude unidade) {
+        long n = SEQUENCIA.incrementAndGet();
+        return profissionalRepository.save(Profissional.builder()
+                .nome("Dr. " + contexto + " " + n)
+                .cpf(String.format("%011d", 82000000000L + n))
+                .registroProfissional("CRM-SP-T" + n)
+                .especialidade(especialidade)
+                .unidadeSaude(unidade)
+                .ativo(true)
+                .build());
+    }
+
+    /**
+     * Atendimento no dia da semana a partir das 8h até {@code fim}, de 30 em 30 minutos.
+     */
+    public HorarioDisponivel criarHorario(Profissional profissional, DayOfWeek diaSemana, LocalTime fim,
+                                          int vagasPorHorario) {
+        return horarioDisponivelRepository.save(HorarioDisponivel.builder()
+                .profissional(profissional)
+                .diaSemana(diaSemana)
+                .horaInicio(LocalTime.of(8, 0))
+                .horaFim(fim)
+                .duracaoConsultaMinutos(30)
+                .vagasPorHorario(vagasPorHorario)
+                .ativo(true)
+                .build());
+    }
+
+    public Paciente criarPaciente(String contexto) {
+        return criarPaciente(contexto, LocalDate.of(1985, 1, 1), Prioridade.NORMAL);
+    }
+
+    public Paciente criarPaciente(String contexto, Prioridade prioridade) {
+        return criarPaciente(contexto, LocalDate.of(1985, 1, 1), prioridade);
+    }
+
+    public Paciente criarPaciente(String contexto, LocalDate dataNascimento, Prioridade prioridade) {
+        long n = SEQUENCIA.incrementAndGet();
+        return pacienteRepository.save(Paciente.builder()
+                .nome("Paciente " + contexto + " " + n)
+                .cpf(String.format("%011d", 81000000000L + n))
+                .cartaoSus(String.format("%015d", 810000000000000L + n))
+                .dataNascimento(dataNascimento)
+                .prioridade(prioridade)
+                .build());
+    }
+}
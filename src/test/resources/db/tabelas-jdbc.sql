@@ -0,0 +1,17 @@
+-- Tabelas acessadas só por JDBC, sem entidade JPA: no perfil de teste o Flyway fica desligado e o
+-- Hibernate só cria as tabelas das entidades. Espelham as migrations correspondentes.
+
+-- V9
+CREATE TABLE IF NOT EXISTS eventos_agendamento (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    agendamento_id BIGINT NOT NULL,
+    tipo VARCHAR(30) NOT NULL,
+    status VARCHAR(30) NOT NULL,
+    versao BIGINT NOT NULL,
+    paciente_id BIGINT NOT NULL,
+    profissional_id BIGINT NOT NULL,
+    unidade_saude_id BIGINT NOT NULL,
+    data_agendamento DATE NOT NULL,
+    hora_agendamento TIME NOT NULL,
+    ocorrido_em TIMESTAMP NOT NULL
+);